@@ -21,6 +21,7 @@ import com.google.common.collect.Multimap;
 import com.netflix.client.http.HttpRequest;
 import com.netflix.client.http.HttpRequest.Verb;
 import com.netflix.genie.common.client.BaseGenieClient;
+import com.netflix.genie.common.client.ResultPage;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.model.Application;
@@ -161,6 +162,28 @@ public final class CommandServiceClient extends BaseGenieClient {
         return commands;
     }
 
+    /**
+     * Gets a page of command configurations for the given parameters, starting after the
+     * cursor of the previous page. Unlike page numbers, every page costs the same
+     * however deep it is.
+     *
+     * @param params key/value pairs in a map object.<br>
+     *               More details on the parameters can be found on the Genie User Guide on
+     *               GitHub.
+     * @param cursor The next cursor of the previous page or null for the first page
+     * @return The page of command configurations that match the filter with the cursor of the next page
+     * @throws GenieException For any other error.
+     */
+    public ResultPage<Command> getCommands(final Multimap<String, String> params, final String cursor)
+            throws GenieException {
+        final HttpRequest request = BaseGenieClient.buildRequest(
+                Verb.GET,
+                BASE_CONFIG_COMMAND_REST_URL,
+                getPageParams(params, cursor),
+                null);
+        return this.executePageRequest(request, Command.class);
+    }
+
     /**
      * Delete all the commands in the database.
      *
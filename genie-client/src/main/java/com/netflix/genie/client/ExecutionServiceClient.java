@@ -17,10 +17,12 @@
  */
 package com.netflix.genie.client;
 
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import com.netflix.client.http.HttpRequest;
 import com.netflix.client.http.HttpRequest.Verb;
 import com.netflix.genie.common.client.BaseGenieClient;
+import com.netflix.genie.common.client.ResultPage;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.model.Job;
@@ -30,6 +32,7 @@ import java.util.List;
 import java.util.Set;
 
 import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.common.model.JobSubmissionResult;
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -90,6 +93,54 @@ public final class ExecutionServiceClient extends BaseGenieClient {
         return (Job) this.executeRequest(request, null, Job.class);
     }
 
+    /**
+     * Submits a job without waiting for it to be launched. The returned job
+     * will be in INIT state and its status should be polled to track it.
+     *
+     * @param job for submitting job (can't be null)<br>
+     *            More details can be found on the Genie User Guide on GitHub.
+     * @return jobInfo for the accepted job, if there is no error
+     * @throws GenieException For any other error.
+     */
+    public Job submitJobAsync(final Job job) throws GenieException {
+        if (job == null) {
+            throw new GeniePreconditionException("No job entered to validate");
+        }
+        job.validate();
+        final Multimap<String, String> params = ArrayListMultimap.create();
+        params.put("async", Boolean.TRUE.toString());
+        final HttpRequest request = BaseGenieClient.buildRequest(
+                Verb.POST,
+                BASE_EXECUTION_REST_URL,
+                params,
+                job);
+        return (Job) this.executeRequest(request, null, Job.class);
+    }
+
+    /**
+     * Submits a batch of jobs. Accepted jobs are launched asynchronously and
+     * each job in the batch gets its own result.
+     *
+     * @param jobs the jobs to submit (can't be null or empty)
+     * @return the result for each job in the order submitted
+     * @throws GenieException For any other error.
+     */
+    public List<JobSubmissionResult> submitJobs(final List<Job> jobs) throws GenieException {
+        if (jobs == null || jobs.isEmpty()) {
+            throw new GeniePreconditionException("No jobs entered to submit");
+        }
+        final HttpRequest request = BaseGenieClient.buildRequest(
+                Verb.POST,
+                BASE_EXECUTION_REST_URL + "/batch",
+                null,
+                jobs);
+
+        @SuppressWarnings("unchecked")
+        final List<JobSubmissionResult> results
+                = (List<JobSubmissionResult>) this.executeRequest(request, List.class, JobSubmissionResult.class);
+        return results;
+    }
+
     /**
      * Gets job information for a given jobID.
      *
@@ -133,6 +184,28 @@ public final class ExecutionServiceClient extends BaseGenieClient {
         return jobs;
     }
 
+    /**
+     * Gets a page of jobs for the given parameters, starting after the
+     * cursor of the previous page. Unlike page numbers, every page costs the same
+     * however deep it is.
+     *
+     * @param params key/value pairs in a map object.<br>
+     *               More details on the parameters can be found on the Genie User Guide on
+     *               GitHub.
+     * @param cursor The next cursor of the previous page or null for the first page
+     * @return The page of jobs that match the filter with the cursor of the next page
+     * @throws GenieException For any other error.
+     */
+    public ResultPage<Job> getJobs(final Multimap<String, String> params, final String cursor)
+            throws GenieException {
+        final HttpRequest request = BaseGenieClient.buildRequest(
+                Verb.GET,
+                BASE_EXECUTION_REST_URL,
+                getPageParams(params, cursor),
+                null);
+        return this.executePageRequest(request, Job.class);
+    }
+
     /**
      * Wait for job to complete, until the given timeout.
      *
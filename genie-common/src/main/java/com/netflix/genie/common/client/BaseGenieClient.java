@@ -21,6 +21,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.CollectionType;
 import com.fasterxml.jackson.jaxrs.json.JacksonJaxbJsonProvider;
 import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import com.netflix.appinfo.CloudInstanceConfig;
 import com.netflix.appinfo.EurekaInstanceConfig;
@@ -46,6 +47,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
 import javax.ws.rs.core.HttpHeaders;
@@ -88,6 +90,21 @@ public class BaseGenieClient {
      */
     protected static final String SLASH = "/";
 
+    /**
+     * The response header carrying the cursor of the next page of a search.
+     */
+    public static final String NEXT_CURSOR_HEADER = "Genie-Next-Cursor";
+
+    /**
+     * The query parameter carrying the cursor of the previous page of a search.
+     */
+    protected static final String CURSOR_PARAM = "cursor";
+
+    /**
+     * Mapper shared by all clients to read response entities. Thread safe once configured.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     /**
      * The rest client to use for all requests.
      */
@@ -146,14 +163,13 @@ public class BaseGenieClient {
         try (final HttpResponse response = this.client.executeWithLoadBalancer(request)) {
             if (response.isSuccess()) {
                 LOG.debug("Response returned success.");
-                final ObjectMapper mapper = new ObjectMapper();
                 if (collectionClass != null) {
-                    final CollectionType type = mapper.
+                    final CollectionType type = MAPPER.
                             getTypeFactory().
                             constructCollectionType(collectionClass, entityClass);
-                    return mapper.readValue(response.getInputStream(), type);
+                    return MAPPER.readValue(response.getInputStream(), type);
                 } else {
-                    return mapper.readValue(response.getInputStream(), entityClass);
+                    return MAPPER.readValue(response.getInputStream(), entityClass);
                 }
             } else {
                 throw new GenieException(
@@ -170,6 +186,68 @@ public class BaseGenieClient {
         }
     }
 
+    /**
+     * Execute a HTTP request for a page of results of a search.
+     *
+     * @param <E>         The entity class of the results.
+     * @param request     The request to send. Not null.
+     * @param entityClass The entity class of the results. Not null.
+     * @return The page of results with the cursor of the next page.
+     * @throws GenieException On any error.
+     */
+    public <E> ResultPage<E> executePageRequest(
+            final HttpRequest request,
+            final Class<E> entityClass) throws GenieException {
+        if (entityClass == null) {
+            throw new GeniePreconditionException("No entity class entered. Unable to continue.");
+        }
+        if (request == null) {
+            throw new GeniePreconditionException("No request entered. Unable to continue..");
+        }
+        try (final HttpResponse response = this.client.executeWithLoadBalancer(request)) {
+            if (response.isSuccess()) {
+                LOG.debug("Response returned success.");
+                final CollectionType type = MAPPER.
+                        getTypeFactory().
+                        constructCollectionType(List.class, entityClass);
+                final List<E> results = MAPPER.readValue(response.getInputStream(), type);
+                return new ResultPage<>(results, response.getHttpHeaders().getFirstValue(NEXT_CURSOR_HEADER));
+            } else {
+                throw new GenieException(
+                        response.getStatus(),
+                        response.getEntity(String.class));
+            }
+        } catch (final Exception e) {
+            if (e instanceof GenieException) {
+                throw (GenieException) e;
+            } else {
+                LOG.error(e.getMessage(), e);
+                throw new GenieServerException(e);
+            }
+        }
+    }
+
+    /**
+     * Copy the query parameters of a search adding the cursor of the previous page.
+     *
+     * @param params The query parameters of the search. Can be null.
+     * @param cursor The cursor of the previous page. Null for the first page.
+     * @return The query parameters to request the page after the cursor with.
+     */
+    protected static Multimap<String, String> getPageParams(
+            final Multimap<String, String> params,
+            final String cursor) {
+        final Multimap<String, String> pageParams = ArrayListMultimap.create();
+        if (params != null) {
+            pageParams.putAll(params);
+        }
+        pageParams.removeAll(CURSOR_PARAM);
+        if (StringUtils.isNotBlank(cursor)) {
+            pageParams.put(CURSOR_PARAM, cursor);
+        }
+        return pageParams;
+    }
+
     /**
      * Build a HTTP request from the given parameters.
      *
@@ -0,0 +1,74 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.client;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of results of a search along with the cursor to request the next
+ * page with. The cursor is opaque and only meant to be sent back to Genie.
+ *
+ * @param <E> The type of the results
+ * @author agent
+ */
+public class ResultPage<E> {
+
+    private final List<E> results;
+    private final String nextCursor;
+
+    /**
+     * Constructor.
+     *
+     * @param results    The results of the page. Null is treated as no results.
+     * @param nextCursor The cursor of the next page. Null or blank if this is the last page.
+     */
+    public ResultPage(final List<E> results, final String nextCursor) {
+        this.results = results == null ? new ArrayList<E>() : results;
+        this.nextCursor = StringUtils.isBlank(nextCursor) ? null : nextCursor;
+    }
+
+    /**
+     * Get the results of the page.
+     *
+     * @return The results. Never null.
+     */
+    public List<E> getResults() {
+        return this.results;
+    }
+
+    /**
+     * Get the cursor to request the next page with.
+     *
+     * @return The cursor or null if this is the last page
+     */
+    public String getNextCursor() {
+        return this.nextCursor;
+    }
+
+    /**
+     * Whether there is a page after this one.
+     *
+     * @return True if there is a next page
+     */
+    public boolean hasNext() {
+        return this.nextCursor != null;
+    }
+}
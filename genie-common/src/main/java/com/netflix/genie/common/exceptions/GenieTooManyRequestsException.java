@@ -0,0 +1,61 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.exceptions;
+
+/**
+ * Extension of a GenieException for requests rejected because a quota was exceeded.
+ *
+ * @author agent
+ */
+public class GenieTooManyRequestsException extends GenieException {
+
+    /**
+     * The HTTP status code for too many requests which isn't defined in
+     * HttpURLConnection.
+     */
+    public static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Constructor.
+     *
+     * @param msg human readable message
+     * @param cause reason for this exception
+     */
+    public GenieTooManyRequestsException(final String msg, final Throwable cause) {
+        super(TOO_MANY_REQUESTS, msg, cause);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param cause reason for this exception
+     */
+    public GenieTooManyRequestsException(final Throwable cause) {
+        super(TOO_MANY_REQUESTS, cause);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param msg human readable message
+     */
+    public GenieTooManyRequestsException(final String msg) {
+        super(TOO_MANY_REQUESTS, msg);
+    }
+
+}
@@ -36,6 +36,9 @@ import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.openjpa.persistence.jdbc.ContainerTable;
+import org.apache.openjpa.persistence.jdbc.ElementIndex;
+import org.apache.openjpa.persistence.jdbc.Index;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,7 +49,7 @@ import org.slf4j.LoggerFactory;
  * @author tgianos
  */
 @Entity
-@Cacheable(false)
+@Cacheable(true)
 @ApiModel(description = "An entity for managing an application in the Genie system.")
 public class Application extends CommonEntityFields {
 
@@ -95,6 +98,8 @@ public class Application extends CommonEntityFields {
      * Set of tags for a application.
      */
     @ElementCollection(fetch = FetchType.EAGER)
+    @ContainerTable(joinIndex = @Index)
+    @ElementIndex
     @ApiModelProperty(
             value = "the tags associated with this application",
             required = true
@@ -39,6 +39,9 @@ import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.openjpa.persistence.jdbc.ContainerTable;
+import org.apache.openjpa.persistence.jdbc.ElementIndex;
+import org.apache.openjpa.persistence.jdbc.Index;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,7 +53,7 @@ import org.slf4j.LoggerFactory;
  * @author tgianos
  */
 @Entity
-@Cacheable(false)
+@Cacheable(true)
 @ApiModel(description = "An entity for managing a cluster in the Genie system.")
 public class Cluster extends CommonEntityFields {
 
@@ -96,6 +99,8 @@ public class Cluster extends CommonEntityFields {
      * Set of tags for a cluster.
      */
     @ElementCollection(fetch = FetchType.EAGER)
+    @ContainerTable(joinIndex = @Index)
+    @ElementIndex
     @ApiModelProperty(
             value = "The tags associated with this cluster",
             required = true
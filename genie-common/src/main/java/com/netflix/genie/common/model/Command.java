@@ -35,6 +35,9 @@ import javax.persistence.ManyToOne;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.openjpa.persistence.jdbc.ContainerTable;
+import org.apache.openjpa.persistence.jdbc.ElementIndex;
+import org.apache.openjpa.persistence.jdbc.Index;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,7 +48,7 @@ import org.slf4j.LoggerFactory;
  * @author tgianos
  */
 @Entity
-@Cacheable(false)
+@Cacheable(true)
 @ApiModel(description = "An entity for managing a Command in the Genie system.")
 public class Command extends CommonEntityFields {
 
@@ -103,6 +106,8 @@ public class Command extends CommonEntityFields {
      * Set of tags for a command.
      */
     @ElementCollection(fetch = FetchType.EAGER)
+    @ContainerTable(joinIndex = @Index)
+    @ElementIndex
     @ApiModelProperty(
             value = "All the tags associated with this command",
             required = true
@@ -50,6 +50,9 @@ import javax.persistence.TemporalType;
 import javax.persistence.Transient;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.openjpa.persistence.jdbc.ContainerTable;
+import org.apache.openjpa.persistence.jdbc.ElementIndex;
+import org.apache.openjpa.persistence.jdbc.Index;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -77,6 +80,15 @@ public class Job extends CommonEntityFields {
      * Used as default version when one not entered.
      */
     protected static final String DEFAULT_VERSION = "NA";
+    /**
+     * Max length of the encoded criteria so they fit a plain column instead of a LOB.
+     * Jobs with longer criteria are rejected by validation.
+     */
+    protected static final int MAX_CRITERIA_LENGTH = 1024;
+    /**
+     * Max length of the setup times, which only ever hold a handful of stages.
+     */
+    protected static final int MAX_SETUP_TIMES_LENGTH = 512;
 
     // ------------------------------------------------------------------------
     // GENERAL COMMON PARAMS FOR ALL JOBS - TO BE SPECIFIED BY CLIENTS
@@ -126,7 +138,9 @@ public class Job extends CommonEntityFields {
      */
     @Transient
     @ApiModelProperty(
-            value = "List of criteria containing tags to use to pick a cluster to run this job, evaluated in order",
+            value = "List of criteria containing tags to use to pick a cluster to run this job, evaluated in order."
+                    + " The criteria can't be longer than " + MAX_CRITERIA_LENGTH
+                    + " characters once joined, counting a separator between tags and criteria",
             required = true
     )
     private List<ClusterCriteria> clusterCriterias;
@@ -136,7 +150,9 @@ public class Job extends CommonEntityFields {
      */
     @Transient
     @ApiModelProperty(
-            value = "List of criteria containing tags to use to pick a command to run this job",
+            value = "List of criteria containing tags to use to pick a command to run this job."
+                    + " The tags can't be longer than " + MAX_CRITERIA_LENGTH
+                    + " characters once joined, counting a separator between tags",
             required = true
     )
     private Set<String> commandCriteria;
@@ -183,6 +199,8 @@ public class Job extends CommonEntityFields {
      * Set of tags for a job.
      */
     @ElementCollection(fetch = FetchType.EAGER)
+    @ContainerTable(joinIndex = @Index)
+    @ElementIndex
     @ApiModelProperty(
             value = "Any tags a user wants to add to the job to help with discovery of job later"
     )
@@ -195,19 +213,20 @@ public class Job extends CommonEntityFields {
 
     /**
      * String representation of the the cluster criteria array list object
-     * above.
+     * above. Only decoded when the criteria are accessed.
      */
     @JsonIgnore
-    @Lob
     @Basic(optional = false)
+    @Column(length = MAX_CRITERIA_LENGTH)
     private String clusterCriteriasString;
 
     /**
      * String representation of the the command criteria set object above.
+     * Only decoded when the criteria are accessed.
      */
     @JsonIgnore
-    @Lob
     @Basic(optional = false)
+    @Column(length = MAX_CRITERIA_LENGTH)
     private String commandCriteriaString;
 
     /**
@@ -215,8 +234,8 @@ public class Job extends CommonEntityFields {
      * select a cluster.
      */
     @JsonIgnore
-    @Lob
     @Basic
+    @Column(length = MAX_CRITERIA_LENGTH)
     private String chosenClusterCriteriaString;
 
     /**
@@ -410,6 +429,17 @@ public class Job extends CommonEntityFields {
     )
     private String archiveLocation;
 
+    /**
+     * How long each stage of setting up the job took.
+     */
+    @Column(length = MAX_SETUP_TIMES_LENGTH)
+    @ApiModelProperty(
+            value = "How long each stage of setting up the job took as stage=milliseconds pairs separated by commas."
+                    + " Set automatically by system",
+            readOnly = true
+    )
+    private String setupTimes;
+
     /**
      * Default Constructor.
      */
@@ -452,16 +482,36 @@ public class Job extends CommonEntityFields {
     }
 
     /**
-     * Makes sure non-transient fields are set from transient fields.
+     * Makes sure non-transient fields are set from transient fields. The
+     * criteria lengths are checked when the job is submitted rather than
+     * here, as rows written before the criteria were bounded may hold longer
+     * criteria which mustn't stop the job from being updated and finished.
      *
      * @throws GeniePreconditionException If any precondition isn't met.
      */
     @PrePersist
     @PreUpdate
     protected void onCreateOrUpdateJob() throws GeniePreconditionException {
-        this.validate(this.commandCriteria, this.commandArgs, this.clusterCriterias, null);
-        this.clusterCriteriasString = clusterCriteriasToString(this.clusterCriterias);
-        this.commandCriteriaString = commandCriteriaToString(this.commandCriteria);
+        // criteria which were never decoded can't have changed so the strings are left alone
+        if (this.clusterCriterias != null) {
+            final String criteriasString = clusterCriteriasToString(this.clusterCriterias);
+            if (!StringUtils.equals(criteriasString, this.clusterCriteriasString)) {
+                this.clusterCriteriasString = criteriasString;
+            }
+        }
+        if (this.commandCriteria != null) {
+            final String criteriaString = commandCriteriaToString(this.commandCriteria);
+            if (!StringUtils.equals(criteriaString, this.commandCriteriaString)) {
+                this.commandCriteriaString = criteriaString;
+            }
+        }
+        this.validate(
+                this.commandCriteriaString,
+                this.commandArgs,
+                this.clusterCriteriasString,
+                this.chosenClusterCriteriaString,
+                false,
+                null);
         // Add the id to the tags
         if (this.tags == null) {
             this.tags = new HashSet<>();
@@ -472,14 +522,14 @@ public class Job extends CommonEntityFields {
     }
 
     /**
-     * On any update to the entity will add id to tags.
-     *
-     * @throws GeniePreconditionException If any precondition isn't met.
+     * Drop any criteria decoded before the entity was loaded or refreshed.
+     * They're decoded from the strings the first time they're accessed so
+     * loading pages of jobs doesn't parse criteria nobody reads.
      */
     @PostLoad
-    protected void onLoadJob() throws GeniePreconditionException {
-        this.clusterCriterias = this.stringToClusterCriterias(this.clusterCriteriasString);
-        this.commandCriteria = this.stringToCommandCriteria(this.commandCriteriaString);
+    protected void onLoadJob() {
+        this.clusterCriterias = null;
+        this.commandCriteria = null;
     }
 
     /**
@@ -563,6 +613,14 @@ public class Job extends CommonEntityFields {
      * @return clusterCriterias
      */
     public List<ClusterCriteria> getClusterCriterias() {
+        if (this.clusterCriterias == null && this.clusterCriteriasString != null) {
+            try {
+                this.clusterCriterias = this.stringToClusterCriterias(this.clusterCriteriasString);
+            } catch (final GeniePreconditionException gpe) {
+                LOG.error("Unable to decode cluster criteria " + this.clusterCriteriasString
+                        + " of job " + this.getId(), gpe);
+            }
+        }
         return this.clusterCriterias;
     }
 
@@ -968,6 +1026,24 @@ public class Job extends CommonEntityFields {
         this.archiveLocation = archiveLocation;
     }
 
+    /**
+     * Get how long each stage of setting up the job took.
+     *
+     * @return The stage=milliseconds pairs separated by commas
+     */
+    public String getSetupTimes() {
+        return this.setupTimes;
+    }
+
+    /**
+     * Set how long each stage of setting up the job took.
+     *
+     * @param setupTimes The stage=milliseconds pairs separated by commas
+     */
+    public void setSetupTimes(final String setupTimes) {
+        this.setupTimes = setupTimes;
+    }
+
     /**
      * Get the cluster criteria specified to run this job in string format.
      *
@@ -995,6 +1071,14 @@ public class Job extends CommonEntityFields {
      * @return commandCriteria
      */
     public Set<String> getCommandCriteria() {
+        if (this.commandCriteria == null && this.commandCriteriaString != null) {
+            try {
+                this.commandCriteria = this.stringToCommandCriteria(this.commandCriteriaString);
+            } catch (final GeniePreconditionException gpe) {
+                LOG.error("Unable to decode command criteria " + this.commandCriteriaString
+                        + " of job " + this.getId(), gpe);
+            }
+        }
         return this.commandCriteria;
     }
 
@@ -1128,39 +1212,59 @@ public class Job extends CommonEntityFields {
             error = ge.getMessage();
         }
         this.validate(
-                this.commandCriteria,
+                this.commandCriteria == null
+                        ? this.commandCriteriaString
+                        : commandCriteriaToString(this.commandCriteria),
                 this.commandArgs,
-                this.clusterCriterias,
+                this.clusterCriterias == null
+                        ? this.clusterCriteriasString
+                        : clusterCriteriasToString(this.clusterCriterias),
+                this.chosenClusterCriteriaString,
+                true,
                 error);
     }
 
     /**
      * Validate that required parameters are present for a Job.
      *
-     * @param commandCriteria The criteria for the command..
+     * @param commandCriteria The encoded criteria for the command
      * @param commandArgs     The command line arguments for the job
-     * @param criteria        The cluster criteria for the job
+     * @param criteria        The encoded cluster criteria for the job
+     * @param chosenCriteria  The encoded criteria which selected the cluster. May be null.
+     * @param checkLengths    Whether the criteria must fit their columns
      * @param error           Any pre-existing error.
      * @throws GeniePreconditionException If any precondition isn't met.
      */
     private void validate(
-            final Set<String> commandCriteria,
+            final String commandCriteria,
             final String commandArgs,
-            final List<ClusterCriteria> criteria,
+            final String criteria,
+            final String chosenCriteria,
+            final boolean checkLengths,
             final String error) throws GeniePreconditionException {
         final StringBuilder builder = new StringBuilder();
         if (StringUtils.isNotBlank(error)) {
             builder.append(error);
         }
-        if (commandCriteria == null || commandCriteria.isEmpty()) {
+        if (StringUtils.isBlank(commandCriteria)) {
             builder.append("Command criteria is mandatory to figure out a command to run the job.\n");
+        } else if (checkLengths && commandCriteria.length() > MAX_CRITERIA_LENGTH) {
+            builder.append("Command criteria can't be longer than ").append(MAX_CRITERIA_LENGTH)
+                    .append(" characters.\n");
         }
 
         if (StringUtils.isBlank(commandArgs)) {
             builder.append("Command arguments are required\n");
         }
-        if (criteria == null || criteria.isEmpty()) {
+        if (StringUtils.isBlank(criteria)) {
             builder.append("At least one cluster criteria is required in order to figure out where to run this job.\n");
+        } else if (checkLengths && criteria.length() > MAX_CRITERIA_LENGTH) {
+            builder.append("Cluster criteria can't be longer than ").append(MAX_CRITERIA_LENGTH)
+                    .append(" characters.\n");
+        }
+        if (checkLengths && chosenCriteria != null && chosenCriteria.length() > MAX_CRITERIA_LENGTH) {
+            builder.append("Chosen cluster criteria can't be longer than ").append(MAX_CRITERIA_LENGTH)
+                    .append(" characters.\n");
         }
 
         if (builder.length() != 0) {
@@ -1201,7 +1305,7 @@ public class Job extends CommonEntityFields {
         if (commandCriteria == null || commandCriteria.isEmpty()) {
             return null;
         } else {
-            return StringUtils.join(this.commandCriteria, CRITERIA_DELIMITER);
+            return StringUtils.join(commandCriteria, CRITERIA_DELIMITER);
         }
     }
 
@@ -0,0 +1,132 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.model;
+
+import com.wordnik.swagger.annotations.ApiModel;
+import com.wordnik.swagger.annotations.ApiModelProperty;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of submitting a single job as part of a batch.
+ *
+ * @author agent
+ */
+@ApiModel(description = "The result of submitting one job in a batch.")
+public class JobSubmissionResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The HTTP status code for this job.
+     */
+    @ApiModelProperty(
+            value = "The HTTP status code the job would have been submitted with on its own",
+            required = true
+    )
+    private int statusCode;
+
+    /**
+     * Why the job failed, if it did.
+     */
+    @ApiModelProperty(
+            value = "The error message if the job wasn't accepted"
+    )
+    private String message;
+
+    /**
+     * The accepted job.
+     */
+    @ApiModelProperty(
+            value = "The job if it was accepted"
+    )
+    private Job job;
+
+    /**
+     * Default constructor.
+     */
+    public JobSubmissionResult() {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param statusCode The HTTP status code for the job
+     * @param message    The error message, if any
+     * @param job        The accepted job, if any
+     */
+    public JobSubmissionResult(final int statusCode, final String message, final Job job) {
+        this.statusCode = statusCode;
+        this.message = message;
+        this.job = job;
+    }
+
+    /**
+     * Get the HTTP status code for the job.
+     *
+     * @return The status code
+     */
+    public int getStatusCode() {
+        return this.statusCode;
+    }
+
+    /**
+     * Set the HTTP status code for the job.
+     *
+     * @param statusCode The status code
+     */
+    public void setStatusCode(final int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Get the error message.
+     *
+     * @return The error message or null if the job was accepted
+     */
+    public String getMessage() {
+        return this.message;
+    }
+
+    /**
+     * Set the error message.
+     *
+     * @param message The error message
+     */
+    public void setMessage(final String message) {
+        this.message = message;
+    }
+
+    /**
+     * Get the accepted job.
+     *
+     * @return The job or null if it wasn't accepted
+     */
+    public Job getJob() {
+        return this.job;
+    }
+
+    /**
+     * Set the accepted job.
+     *
+     * @param job The job
+     */
+    public void setJob(final Job job) {
+        this.job = job;
+    }
+}
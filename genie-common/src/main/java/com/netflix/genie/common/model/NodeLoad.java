@@ -0,0 +1,172 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.util.JsonDateDeserializer;
+import com.netflix.genie.common.util.JsonDateSerializer;
+import com.wordnik.swagger.annotations.ApiModel;
+import com.wordnik.swagger.annotations.ApiModelProperty;
+
+import java.util.Date;
+import javax.persistence.Basic;
+import javax.persistence.Cacheable;
+import javax.persistence.Entity;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The load a Genie node last published. The id is the host name of the node.
+ *
+ * @author agent
+ */
+@Entity
+@Cacheable(false)
+@ApiModel(description = "The load last published by a Genie node.")
+public class NodeLoad extends Auditable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of jobs running on the node.
+     */
+    @Basic(optional = false)
+    @ApiModelProperty(
+            value = "The number of jobs running on the node",
+            required = true
+    )
+    private int runningJobs;
+
+    /**
+     * The max number of jobs the node will run.
+     */
+    @Basic(optional = false)
+    @ApiModelProperty(
+            value = "The max number of jobs the node will run",
+            required = true
+    )
+    private int maxRunningJobs;
+
+    /**
+     * When the node last published its load.
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    @Basic(optional = false)
+    @ApiModelProperty(
+            value = "When the node last published its load",
+            dataType = "dateTime"
+    )
+    @JsonSerialize(using = JsonDateSerializer.class)
+    @JsonDeserialize(using = JsonDateDeserializer.class)
+    private Date heartbeat = new Date();
+
+    /**
+     * Default constructor.
+     */
+    public NodeLoad() {
+        super();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param hostName       The host name of the node. Not blank.
+     * @param runningJobs    The number of jobs running on the node
+     * @param maxRunningJobs The max number of jobs the node will run
+     * @throws GeniePreconditionException If the host name is blank
+     */
+    public NodeLoad(
+            final String hostName,
+            final int runningJobs,
+            final int maxRunningJobs) throws GeniePreconditionException {
+        super();
+        if (StringUtils.isBlank(hostName)) {
+            throw new GeniePreconditionException("No host name entered for node load.");
+        }
+        this.setId(hostName);
+        this.runningJobs = runningJobs;
+        this.maxRunningJobs = maxRunningJobs;
+    }
+
+    /**
+     * Get the host name of the node.
+     *
+     * @return The host name
+     */
+    public String getHostName() {
+        return this.getId();
+    }
+
+    /**
+     * Get the number of jobs running on the node.
+     *
+     * @return The number of running jobs
+     */
+    public int getRunningJobs() {
+        return this.runningJobs;
+    }
+
+    /**
+     * Set the number of jobs running on the node.
+     *
+     * @param runningJobs The number of running jobs
+     */
+    public void setRunningJobs(final int runningJobs) {
+        this.runningJobs = runningJobs;
+    }
+
+    /**
+     * Get the max number of jobs the node will run.
+     *
+     * @return The max number of running jobs
+     */
+    public int getMaxRunningJobs() {
+        return this.maxRunningJobs;
+    }
+
+    /**
+     * Set the max number of jobs the node will run.
+     *
+     * @param maxRunningJobs The max number of running jobs
+     */
+    public void setMaxRunningJobs(final int maxRunningJobs) {
+        this.maxRunningJobs = maxRunningJobs;
+    }
+
+    /**
+     * Get when the node last published its load.
+     *
+     * @return The heartbeat time
+     */
+    public Date getHeartbeat() {
+        return new Date(this.heartbeat.getTime());
+    }
+
+    /**
+     * Set when the node last published its load.
+     *
+     * @param heartbeat The heartbeat time. Not null.
+     */
+    public void setHeartbeat(final Date heartbeat) {
+        this.heartbeat = new Date(heartbeat.getTime());
+    }
+}
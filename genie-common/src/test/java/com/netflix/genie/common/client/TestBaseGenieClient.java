@@ -269,6 +269,68 @@ public class TestBaseGenieClient {
         Mockito.verify(this.response, Mockito.times(1)).getInputStream();
     }
 
+    /**
+     * Test to make sure a page request needs an entity class.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testExecutePageRequestNoEntityClassEntered() throws GenieException {
+        this.client.executePageRequest(this.request, null);
+    }
+
+    /**
+     * Test to make sure if a page response is successful the results and next cursor are returned.
+     *
+     * @throws GenieException  Random issues.
+     * @throws ClientException A http client.
+     * @throws IOException     IOException.
+     */
+    @Test
+    public void testExecutePageRequestSuccess()
+            throws GenieException, ClientException, IOException {
+        Mockito.when(this.response.isSuccess()).thenReturn(true);
+
+        final List<Command> commands = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            commands.add(new Command("name" + i, "user" + i, CommandStatus.ACTIVE, "executable" + i, "" + i));
+        }
+        final ObjectMapper mapper = new ObjectMapper();
+        final InputStream is = new ByteArrayInputStream(mapper.writeValueAsBytes(commands));
+        Mockito.when(this.response.getInputStream()).thenReturn(is);
+        final com.netflix.client.http.HttpHeaders headers = Mockito.mock(com.netflix.client.http.HttpHeaders.class);
+        Mockito.when(headers.getFirstValue(BaseGenieClient.NEXT_CURSOR_HEADER)).thenReturn("nextCursor");
+        Mockito.when(this.response.getHttpHeaders()).thenReturn(headers);
+        Mockito.when(this.restClient.executeWithLoadBalancer(this.request)).thenReturn(this.response);
+
+        final ResultPage<Command> page = this.client.executePageRequest(this.request, Command.class);
+        Assert.assertEquals(commands.size(), page.getResults().size());
+        for (int i = 0; i < commands.size(); i++) {
+            Assert.assertEquals(commands.get(i).getName(), page.getResults().get(i).getName());
+        }
+        Assert.assertEquals("nextCursor", page.getNextCursor());
+        Assert.assertTrue(page.hasNext());
+    }
+
+    /**
+     * Test to make sure the cursor replaces any cursor already in the parameters.
+     */
+    @Test
+    public void testGetPageParams() {
+        final Multimap<String, String> params = ArrayListMultimap.create();
+        params.put("name", "pig");
+        params.put("cursor", "oldCursor");
+
+        final Multimap<String, String> pageParams = BaseGenieClient.getPageParams(params, "newCursor");
+        Assert.assertEquals(2, pageParams.size());
+        Assert.assertTrue(pageParams.containsEntry("name", "pig"));
+        Assert.assertTrue(pageParams.containsEntry("cursor", "newCursor"));
+        Assert.assertEquals(2, params.size());
+
+        Assert.assertFalse(BaseGenieClient.getPageParams(params, null).containsKey("cursor"));
+        Assert.assertTrue(BaseGenieClient.getPageParams(null, null).isEmpty());
+    }
+
     /**
      * Test to make sure when you build a request and pass in null for the verb it doesn't work.
      *
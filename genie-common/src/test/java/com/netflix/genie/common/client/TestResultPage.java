@@ -0,0 +1,57 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.client;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the ResultPage class.
+ *
+ * @author agent
+ */
+public class TestResultPage {
+
+    /**
+     * Test the constructor.
+     */
+    @Test
+    public void testConstructor() {
+        final List<String> results = new ArrayList<>();
+        results.add("result1");
+        final ResultPage<String> page = new ResultPage<>(results, "cursor");
+        Assert.assertEquals(results, page.getResults());
+        Assert.assertEquals("cursor", page.getNextCursor());
+        Assert.assertTrue(page.hasNext());
+    }
+
+    /**
+     * Make sure the last page has no results instead of null and no next cursor.
+     */
+    @Test
+    public void testConstructorLastPage() {
+        final ResultPage<String> page = new ResultPage<>(null, " ");
+        Assert.assertNotNull(page.getResults());
+        Assert.assertTrue(page.getResults().isEmpty());
+        Assert.assertNull(page.getNextCursor());
+        Assert.assertFalse(page.hasNext());
+    }
+}
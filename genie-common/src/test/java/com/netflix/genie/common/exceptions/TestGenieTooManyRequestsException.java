@@ -0,0 +1,75 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.exceptions;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+/**
+ * Test the constructors of the GenieException.
+ *
+ * @author agent
+ */
+public class TestGenieTooManyRequestsException extends Exception {
+
+    private static final String ERROR_MESSAGE = "Too many jobs submitted";
+    private static final IOException IOE = new IOException("IOException");
+
+    /**
+     * Test the constructor.
+     *
+     * @throws com.netflix.genie.common.exceptions.GeniePreconditionException
+     */
+    @Test(expected = GenieTooManyRequestsException.class)
+    public void testTwoArgConstructor() throws GenieTooManyRequestsException {
+        final GenieTooManyRequestsException ge = new GenieTooManyRequestsException(ERROR_MESSAGE, IOE);
+        Assert.assertEquals(GenieTooManyRequestsException.TOO_MANY_REQUESTS, ge.getErrorCode());
+        Assert.assertEquals(ERROR_MESSAGE, ge.getMessage());
+        Assert.assertEquals(IOE, ge.getCause());
+        throw ge;
+    }
+
+    /**
+     * Test the constructor.
+     *
+     * @throws GeniePreconditionException
+     */
+    @Test(expected = GenieTooManyRequestsException.class)
+    public void testMessageArgConstructor() throws GenieTooManyRequestsException {
+        final GenieTooManyRequestsException ge = new GenieTooManyRequestsException(ERROR_MESSAGE);
+        Assert.assertEquals(GenieTooManyRequestsException.TOO_MANY_REQUESTS, ge.getErrorCode());
+        Assert.assertEquals(ERROR_MESSAGE, ge.getMessage());
+        Assert.assertNull(ge.getCause());
+        throw ge;
+    }
+
+    /**
+     * Test the constructor.
+     *
+     * @throws GeniePreconditionException
+     */
+    @Test(expected = GenieTooManyRequestsException.class)
+    public void testThrowableArgConstructor() throws GenieTooManyRequestsException {
+        final GenieTooManyRequestsException ge = new GenieTooManyRequestsException(IOE);
+        Assert.assertEquals(GenieTooManyRequestsException.TOO_MANY_REQUESTS, ge.getErrorCode());
+        Assert.assertEquals(IOE, ge.getCause());
+        throw ge;
+    }
+}
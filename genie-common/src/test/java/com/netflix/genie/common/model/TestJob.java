@@ -18,6 +18,7 @@
 package com.netflix.genie.common.model;
 
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -219,6 +220,48 @@ public class TestJob {
         Assert.assertEquals(COMMAND_CRITERIA, job2.getCommandCriteria());
     }
 
+    /**
+     * Make sure a loaded job can be updated without its criteria being
+     * decoded and decodes them when they're accessed.
+     *
+     * @throws GeniePreconditionException If any precondition isn't met.
+     */
+    @Test
+    public void testOnLoadJobDecodesLazily() throws GeniePreconditionException {
+        this.job.onCreateOrUpdateJob();
+        final String clusterCriteriasString = this.job.getClusterCriteriasString();
+        final String commandCriteriaString = this.job.getCommandCriteriaString();
+        this.job.onLoadJob();
+        this.job.onCreateOrUpdateJob();
+        Assert.assertEquals(clusterCriteriasString, this.job.getClusterCriteriasString());
+        Assert.assertEquals(commandCriteriaString, this.job.getCommandCriteriaString());
+        Assert.assertEquals(CLUSTER_CRITERIAS.size(), this.job.getClusterCriterias().size());
+        Assert.assertEquals(COMMAND_CRITERIA, this.job.getCommandCriteria());
+
+        // changes to the decoded criteria are encoded again before saving
+        this.job.getCommandCriteria().add("pig");
+        this.job.onCreateOrUpdateJob();
+        Assert.assertTrue(this.job.getCommandCriteriaString().contains("pig"));
+    }
+
+    /**
+     * Make sure a job saved before the criteria were bounded can still be
+     * updated with criteria longer than the limit.
+     *
+     * @throws GeniePreconditionException If any precondition isn't met.
+     */
+    @Test
+    public void testOnCreateOrUpdateJobWithLongCriteria() throws GeniePreconditionException {
+        final String longCriteria = StringUtils.repeat('a', Job.MAX_CRITERIA_LENGTH + 1);
+        this.job.setClusterCriteriasString(longCriteria);
+        this.job.setCommandCriteriaString(longCriteria);
+        this.job.onLoadJob();
+        this.job.setStatus(JobStatus.SUCCEEDED);
+        this.job.onCreateOrUpdateJob();
+        Assert.assertEquals(longCriteria, this.job.getClusterCriteriasString());
+        Assert.assertEquals(longCriteria, this.job.getCommandCriteriaString());
+    }
+
     /**
      * Test the description get/set.
      */
@@ -566,6 +609,17 @@ public class TestJob {
         Assert.assertEquals(archiveLocation, this.job.getArchiveLocation());
     }
 
+    /**
+     * Test the setter and getter for the setup times.
+     */
+    @Test
+    public void testSetGetSetupTimes() {
+        Assert.assertNull(this.job.getSetupTimes());
+        final String setupTimes = "application=120,place=3";
+        this.job.setSetupTimes(setupTimes);
+        Assert.assertEquals(setupTimes, this.job.getSetupTimes());
+    }
+
     /**
      * Test the setter and getter for Cluster criterias string.
      *
@@ -826,6 +880,38 @@ public class TestJob {
         localJob.validate();
     }
 
+    /**
+     * Make sure the criteria must fit their columns.
+     *
+     * @throws GeniePreconditionException If any precondition isn't met.
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testValidateTooLongClusterCriteria() throws GeniePreconditionException {
+        final Set<String> tags = new HashSet<>();
+        tags.add(StringUtils.repeat('a', Job.MAX_CRITERIA_LENGTH + 1));
+        final List<ClusterCriteria> criterias = new ArrayList<>();
+        criterias.add(new ClusterCriteria(tags));
+        final Job localJob = new Job(
+                USER,
+                NAME,
+                COMMAND_ARGS,
+                COMMAND_CRITERIA,
+                criterias,
+                VERSION);
+        localJob.validate();
+    }
+
+    /**
+     * Make sure the chosen criteria must fit their column.
+     *
+     * @throws GeniePreconditionException If any precondition isn't met.
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testValidateTooLongChosenClusterCriteria() throws GeniePreconditionException {
+        this.job.setChosenClusterCriteriaString(StringUtils.repeat('a', Job.MAX_CRITERIA_LENGTH + 1));
+        this.job.validate();
+    }
+
     /**
      * Test the helper method to convert cluster criterias to a string.
      */
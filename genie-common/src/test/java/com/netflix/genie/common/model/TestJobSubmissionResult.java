@@ -0,0 +1,71 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+
+/**
+ * Tests for the JobSubmissionResult class.
+ *
+ * @author agent
+ */
+public class TestJobSubmissionResult {
+
+    private static final String MESSAGE = "Job with ID specified already exists.";
+
+    /**
+     * Test the default constructor.
+     */
+    @Test
+    public void testDefaultConstructor() {
+        final JobSubmissionResult result = new JobSubmissionResult();
+        Assert.assertEquals(0, result.getStatusCode());
+        Assert.assertNull(result.getMessage());
+        Assert.assertNull(result.getJob());
+    }
+
+    /**
+     * Test the constructor which sets all the fields.
+     */
+    @Test
+    public void testConstructor() {
+        final Job job = new Job();
+        final JobSubmissionResult result
+                = new JobSubmissionResult(HttpURLConnection.HTTP_ACCEPTED, null, job);
+        Assert.assertEquals(HttpURLConnection.HTTP_ACCEPTED, result.getStatusCode());
+        Assert.assertNull(result.getMessage());
+        Assert.assertEquals(job, result.getJob());
+    }
+
+    /**
+     * Test the setters and getters.
+     */
+    @Test
+    public void testSetGet() {
+        final JobSubmissionResult result = new JobSubmissionResult();
+        result.setStatusCode(HttpURLConnection.HTTP_CONFLICT);
+        result.setMessage(MESSAGE);
+        Assert.assertEquals(HttpURLConnection.HTTP_CONFLICT, result.getStatusCode());
+        Assert.assertEquals(MESSAGE, result.getMessage());
+        result.setJob(null);
+        Assert.assertNull(result.getJob());
+    }
+}
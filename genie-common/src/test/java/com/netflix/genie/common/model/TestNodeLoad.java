@@ -0,0 +1,85 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.model;
+
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Date;
+
+/**
+ * Tests for the NodeLoad class.
+ *
+ * @author agent
+ */
+public class TestNodeLoad {
+
+    private static final String HOST_NAME = "genie1.netflix.com";
+
+    /**
+     * Test the default constructor.
+     */
+    @Test
+    public void testDefaultConstructor() {
+        final NodeLoad load = new NodeLoad();
+        Assert.assertNull(load.getHostName());
+        Assert.assertEquals(0, load.getRunningJobs());
+        Assert.assertEquals(0, load.getMaxRunningJobs());
+        Assert.assertNotNull(load.getHeartbeat());
+    }
+
+    /**
+     * Test the constructor which sets the fields.
+     *
+     * @throws GeniePreconditionException If any precondition isn't met.
+     */
+    @Test
+    public void testConstructor() throws GeniePreconditionException {
+        final NodeLoad load = new NodeLoad(HOST_NAME, 5, 30);
+        Assert.assertEquals(HOST_NAME, load.getHostName());
+        Assert.assertEquals(HOST_NAME, load.getId());
+        Assert.assertEquals(5, load.getRunningJobs());
+        Assert.assertEquals(30, load.getMaxRunningJobs());
+    }
+
+    /**
+     * Make sure a host name is required.
+     *
+     * @throws GeniePreconditionException If any precondition isn't met.
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testConstructorNoHostName() throws GeniePreconditionException {
+        new NodeLoad(" ", 5, 30);
+    }
+
+    /**
+     * Test the setters and getters.
+     */
+    @Test
+    public void testSetGet() {
+        final NodeLoad load = new NodeLoad();
+        load.setRunningJobs(7);
+        load.setMaxRunningJobs(10);
+        final Date heartbeat = new Date(0);
+        load.setHeartbeat(heartbeat);
+        Assert.assertEquals(7, load.getRunningJobs());
+        Assert.assertEquals(10, load.getMaxRunningJobs());
+        Assert.assertEquals(heartbeat, load.getHeartbeat());
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager;
+
+import com.netflix.genie.common.exceptions.GenieException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Where archived job logs are kept.<br>
+ * Implementations must be thread-safe.
+ *
+ * @author agent
+ */
+public interface ArchiveStore {
+
+    /**
+     * Write a file to the store. The content is streamed straight to the
+     * store and the file only shows up once all of it is written, so a
+     * failed write never leaves a partial file behind.
+     *
+     * @param location The location of the file in the store. Not blank.
+     * @param content  Writes the content of the file. Not null.
+     * @throws GenieException If the file can't be written
+     */
+    void write(final String location, final Content content) throws GenieException;
+
+    /**
+     * The content of a file written to the store.
+     */
+    interface Content {
+
+        /**
+         * Write the content to a stream. The stream is closed by the store.
+         *
+         * @param output The stream to write to
+         * @throws IOException If the content can't be written
+         */
+        void writeTo(final OutputStream output) throws IOException;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager;
+
+import com.netflix.genie.common.exceptions.GenieException;
+
+import java.io.File;
+import java.io.InputStream;
+
+/**
+ * Attachments streamed to this node with a job submission. They are written
+ * to local disk as they arrive and moved into the working directory of the
+ * job when it is launched, so they are never held in memory.<br>
+ * Implementations must be thread-safe.
+ *
+ * @author agent
+ */
+public interface AttachmentStore {
+
+    /**
+     * Create an empty set of attachments for a submission to stream its
+     * files into.
+     *
+     * @return The directory holding the set
+     * @throws GenieException If the directory can't be created
+     */
+    File create() throws GenieException;
+
+    /**
+     * Stream an attachment into a set. Fails as soon as the set is bigger
+     * than the configured limit.
+     *
+     * @param attachments The set to add the attachment to
+     * @param name        The file name of the attachment
+     * @param data        The content of the attachment. Not closed.
+     * @return The number of bytes written
+     * @throws GenieException If the name is invalid, the set is too big or the attachment can't be written
+     */
+    long write(final File attachments, final String name, final InputStream data) throws GenieException;
+
+    /**
+     * Hand a set of attachments to the job it was submitted with. If the job
+     * already has attachments waiting, from an earlier submission of the same
+     * job, those are kept and this set is deleted.
+     *
+     * @param jobId       The id of the job
+     * @param attachments The set of attachments
+     * @return true if the set was registered for the job
+     * @throws GenieException If the job id is blank or the set is unknown
+     */
+    boolean register(final String jobId, final File attachments) throws GenieException;
+
+    /**
+     * Whether a job has attachments waiting on this node.
+     *
+     * @param jobId The id of the job
+     * @return true if there are attachments waiting for the job
+     */
+    boolean hasAttachments(final String jobId);
+
+    /**
+     * Move the attachments waiting for a job into a directory. Nothing
+     * happens if the job has none.
+     *
+     * @param jobId     The id of the job
+     * @param directory The directory to move them into
+     * @throws GenieException If the attachments can't be moved
+     */
+    void moveTo(final String jobId, final File directory) throws GenieException;
+
+    /**
+     * Delete a set of attachments, whether it was registered for a job or not.
+     *
+     * @param attachments The set to delete
+     */
+    void delete(final File attachments);
+}
@@ -0,0 +1,69 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager;
+
+import com.netflix.genie.common.exceptions.GenieException;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Node local cache of the configuration files, jars and env files jobs
+ * download from S3, so a file shared by many jobs is only downloaded once per
+ * version.<br>
+ * Implementations must be thread-safe.
+ *
+ * @author agent
+ */
+public interface DependencyCache {
+
+    /**
+     * Whether dependencies should be served from the cache.
+     *
+     * @return true if the cache is enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Whether a dependency can be served from the cache. Globs and other
+     * URIs which don't name a single file can't be.
+     *
+     * @param uri The location of the dependency
+     * @return true if the dependency can be cached
+     */
+    boolean isCacheable(final String uri);
+
+    /**
+     * Place the current version of each dependency into a directory,
+     * downloading it first if it isn't cached yet. Files already in the
+     * directory with the same name are replaced, so later dependencies win.
+     *
+     * @param uris        The locations of the dependencies. All must be cacheable.
+     * @param copyCommand The command used to download a dependency
+     * @param directory   The directory to place the dependencies in
+     * @param env         The environment of the job to run the copy command in. May be null.
+     * @throws GenieException If any dependency can't be downloaded or placed
+     */
+    void install(
+            final List<String> uris,
+            final String copyCommand,
+            final File directory,
+            final Map<String, String> env
+    ) throws GenieException;
+}
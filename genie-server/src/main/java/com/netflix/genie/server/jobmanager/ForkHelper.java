@@ -0,0 +1,58 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Small long lived process which starts and signals job processes on behalf
+ * of Genie, so the server JVM isn't forked for every launch and kill.
+ *
+ * @author agent
+ */
+public interface ForkHelper {
+
+    /**
+     * Whether job processes should be started through the helper.
+     *
+     * @return true if the helper is enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Start a process through the helper. The command, working directory,
+     * environment and output redirects of the builder are used. The process
+     * has no pipes to its standard streams, anything not redirected to a
+     * file is discarded.
+     *
+     * @param processBuilder The description of the process to start. Not null.
+     * @return The started process
+     * @throws IOException If the process can't be started
+     */
+    Process start(final ProcessBuilder processBuilder) throws IOException;
+
+    /**
+     * Send a signal to processes through the helper.
+     *
+     * @param signal The name of the signal without the leading dash, or 0 to check the processes are alive
+     * @param pids   The processes to signal
+     * @return True if every process was signalled
+     */
+    boolean signal(final String signal, final Collection<Integer> pids);
+}
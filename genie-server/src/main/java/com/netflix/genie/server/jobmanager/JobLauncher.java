@@ -0,0 +1,68 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.Cluster;
+import com.netflix.genie.common.model.Job;
+
+import java.util.List;
+
+/**
+ * Launches persisted jobs off of the request thread.
+ *
+ * @author agent
+ */
+public interface JobLauncher {
+
+    /**
+     * Queue a job which has already been saved in INIT state for launch.
+     *
+     * @param job The job to launch. Not null.
+     * @throws GenieException if the job can't be queued
+     */
+    void launch(final Job job) throws GenieException;
+
+    /**
+     * Queue a job which has already been saved in INIT state for launch on
+     * one of the clusters already resolved for it.
+     *
+     * @param job      The job to launch. Not null.
+     * @param clusters The candidate clusters for the job. Not null.
+     * @throws GenieException if the job can't be queued
+     */
+    void launch(final Job job, final List<Cluster> clusters) throws GenieException;
+
+    /**
+     * Queue a job for launch if the launcher has room for it. Unlike launch
+     * the job is left untouched when the launcher is saturated so the caller
+     * can keep it and try again later.
+     *
+     * @param job The job to launch. Not null.
+     * @return true if the job was queued for launch, false if the launcher is saturated
+     * @throws GenieException if the job is invalid
+     */
+    boolean tryLaunch(final Job job) throws GenieException;
+
+    /**
+     * Get the number of jobs waiting to be launched.
+     *
+     * @return The number of queued jobs
+     */
+    int getQueueDepth();
+}
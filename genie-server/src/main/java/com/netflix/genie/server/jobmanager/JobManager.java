@@ -18,8 +18,6 @@
 package com.netflix.genie.server.jobmanager;
 
 import com.netflix.genie.common.exceptions.GenieException;
-import com.netflix.genie.common.model.Cluster;
-import com.netflix.genie.common.model.Job;
 
 /**
  * The interface to be implemented by job manager implementations.
@@ -32,11 +30,10 @@ public interface JobManager {
     /**
      * Initialize the JobManager.
      *
-     * @param job The job this manager will be managing.
-     * @param cluster The cluster this job will run on.
+     * @param plan The resolved job, cluster, command and application to launch with.
      * @throws GenieException On issue
      */
-    void init(final Job job, final Cluster cluster) throws GenieException;
+    void init(final LaunchPlan plan) throws GenieException;
 
     /**
      * Launch the job.
@@ -22,13 +22,19 @@ import com.netflix.genie.common.exceptions.GenieBadRequestException;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.model.Cluster;
+import com.netflix.genie.common.model.Command;
 import com.netflix.genie.common.model.Job;
 import com.netflix.genie.server.services.ClusterConfigService;
 import com.netflix.genie.server.services.ClusterLoadBalancer;
+import com.netflix.genie.server.services.ClusterRoutingIndex;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
@@ -59,18 +65,31 @@ public class JobManagerFactory implements ApplicationContextAware {
      */
     private final ClusterLoadBalancer clb;
 
+    /**
+     * The index to find the command for a job on its cluster with.
+     */
+    private final ClusterRoutingIndex routingIndex;
+
+    /**
+     * The job manager implementations already looked up keyed by cluster type.
+     */
+    private final ConcurrentMap<String, Class<? extends JobManager>> jobManagerClasses = new ConcurrentHashMap<>();
+
     /**
      * Default constructor.
      *
-     * @param ccs The cluster config service to use
-     * @param clb The clb to use
+     * @param ccs          The cluster config service to use
+     * @param clb          The clb to use
+     * @param routingIndex The cluster routing index to use
      */
     @Inject
     public JobManagerFactory(
             final ClusterConfigService ccs,
-            final ClusterLoadBalancer clb) {
+            final ClusterLoadBalancer clb,
+            final ClusterRoutingIndex routingIndex) {
         this.ccs = ccs;
         this.clb = clb;
+        this.routingIndex = routingIndex;
     }
 
     /**
@@ -91,23 +110,104 @@ public class JobManagerFactory implements ApplicationContextAware {
 
         // Figure out a cluster to run this job. Cluster selection is done based on
         // ClusterCriteria tags and Command tags specified in the job.
-        final Cluster cluster = this.clb.selectCluster(this.ccs.chooseClusterForJob(job.getId()));
-        final String className = ConfigurationManager.getConfigInstance()
-                .getString("com.netflix.genie.server.job.manager." + cluster.getClusterType() + ".impl");
+        return this.getJobManager(job, this.ccs.chooseClusterForJob(job.getId()));
+    }
+
+    /**
+     * Returns the right job manager for the job type using clusters which
+     * have already been resolved for the job's criteria.
+     *
+     * @param job      The job this manager will be managing
+     * @param clusters The candidate clusters to run the job on
+     * @return instance of the appropriate job manager
+     * @throws GenieException On error
+     */
+    public JobManager getJobManager(final Job job, final List<Cluster> clusters) throws GenieException {
+        if (job == null) {
+            final String msg = "No job entered. Unable to continue";
+            LOG.error(msg);
+            throw new GeniePreconditionException(msg);
+        }
+
+        final Cluster cluster = this.clb.selectCluster(clusters);
+        final LaunchPlan plan = new LaunchPlan(
+                job,
+                cluster,
+                this.findCommand(job, cluster),
+                this.getJobManagerClass(cluster.getClusterType())
+        );
+
+        try {
+            final JobManager jobManager = this.context.getBean(plan.getJobManagerClass());
+            jobManager.init(plan);
+            return jobManager;
+        } catch (final BeansException e) {
+            final String msg = "Unable to create job manager for class " + plan.getJobManagerClass().getName();
+            LOG.error(msg, e);
+            throw new GenieBadRequestException(msg);
+        }
+    }
+
+    /**
+     * Find the command on the cluster which matches the command criteria of the job.
+     * The routing index already knows which one it is unless it isn't available.
+     *
+     * @param job     The job to find a command for
+     * @param cluster The cluster the job will run on
+     * @return The first command on the cluster matching the criteria
+     * @throws GenieException If no command matches
+     */
+    private Command findCommand(final Job job, final Cluster cluster) throws GenieException {
+        if (this.routingIndex.isAvailable()) {
+            final String commandId = this.routingIndex.findCommandId(cluster.getId(), job.getCommandCriteria());
+            for (final Command command : cluster.getCommands()) {
+                if (command.getId().equals(commandId)) {
+                    return command;
+                }
+            }
+        }
+        for (final Command command : cluster.getCommands()) {
+            if (command.getTags().containsAll(job.getCommandCriteria())) {
+                return command;
+            }
+        }
+        final String msg = "No command found for params. Unable to continue.";
+        LOG.error(msg);
+        throw new GeniePreconditionException(msg);
+    }
 
+    /**
+     * Get the job manager implementation for a cluster type. Classes are only
+     * looked up the first time a cluster type is seen.
+     *
+     * @param clusterType The type of the cluster
+     * @return The job manager class
+     * @throws GenieException If the configured class can't be loaded or isn't a JobManager
+     */
+    private Class<? extends JobManager> getJobManagerClass(final String clusterType) throws GenieException {
+        final Class<? extends JobManager> cached = this.jobManagerClasses.get(clusterType);
+        if (cached != null) {
+            return cached;
+        }
+
+        final String className = ConfigurationManager.getConfigInstance()
+                .getString("com.netflix.genie.server.job.manager." + clusterType + ".impl");
+        if (StringUtils.isBlank(className)) {
+            final String msg = "No job manager configured for cluster type " + clusterType;
+            LOG.error(msg);
+            throw new GenieBadRequestException(msg);
+        }
         try {
-            final Class jobManagerClass = Class.forName(className);
-            final Object instance = this.context.getBean(jobManagerClass);
-            if (instance instanceof JobManager) {
-                final JobManager jobManager = (JobManager) instance;
-                jobManager.init(job, cluster);
-                return jobManager;
-            } else {
+            final Class<?> clazz = Class.forName(className);
+            if (!JobManager.class.isAssignableFrom(clazz)) {
                 final String msg = className + " is not of type JobManager. Unable to continue.";
                 LOG.error(msg);
                 throw new GeniePreconditionException(msg);
             }
-        } catch (final ClassNotFoundException | BeansException e) {
+            final Class<? extends JobManager> jobManagerClass = clazz.asSubclass(JobManager.class);
+            this.jobManagerClasses.putIfAbsent(clusterType, jobManagerClass);
+            return jobManagerClass;
+        } catch (final ClassNotFoundException e) {
             final String msg = "Unable to create job manager for class name " + className;
             LOG.error(msg, e);
             throw new GenieBadRequestException(msg);
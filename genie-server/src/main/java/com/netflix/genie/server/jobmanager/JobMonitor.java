@@ -21,48 +21,34 @@ import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.model.Job;
 
 /**
- * Interface for the runnable which monitors a job.
+ * Tracks the processes of all the jobs running on this node, finalizing each
+ * job once its process exits and periodically recording a heartbeat for and
+ * enforcing the output limits of the jobs which are still running.
  *
  * @author tgianos
  */
-public interface JobMonitor extends Runnable {
+public interface JobMonitor {
 
     /**
-     * Set the job for this to monitor.
+     * Start tracking the process of a job which has been launched.
      *
-     * @param job The job to monitor. Not null.
-     * @throws GenieException On any exception
+     * @param job        The job the process belongs to. Not null.
+     * @param proc       The process handle for the job. Not null.
+     * @param workingDir The working directory of the job
+     * @param jobManager The job manager used to kill the job if it exceeds
+     *                   its limits. Not null.
+     * @throws GenieException if any required parameter is missing
      */
-    void setJob(final Job job) throws GenieException;
+    void monitor(
+            final Job job,
+            final Process proc,
+            final String workingDir,
+            final JobManager jobManager) throws GenieException;
 
     /**
-     * Set the job manager for this monitor to use.
+     * Get the number of processes currently being tracked.
      *
-     * @param jobManager The job manager to use. Not Null.
-     * @throws GenieException on any non-runtime exception
+     * @return The number of tracked processes
      */
-    void setJobManager(final JobManager jobManager) throws GenieException;
-
-    /**
-     * Set the process handle for this job.
-     *
-     * @param proc The process handle for the job. Not null.
-     * @throws GenieException for any non-runtime exception
-     */
-    void setProcess(final Process proc) throws GenieException;
-
-    /**
-     * Set the working directory for this job.
-     *
-     * @param workingDir The working directory to use for this job
-     */
-    void setWorkingDir(final String workingDir);
-
-    /**
-     * Set the amount of time, in milliseconds, to wait in between checks to the process for completion.
-     *
-     * @param sleepTime The time to wait in milliseconds
-     * @throws GenieException if precondition of sleepTime greater than or equal to 1 isn't met.
-     */
-    void setThreadSleepTime(final int sleepTime) throws GenieException;
+    int getNumTrackedProcesses();
 }
@@ -0,0 +1,50 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.JobStatus;
+
+/**
+ * Lets users know by email that their jobs finished. Emails are queued and
+ * sent in the background so a slow mail server never delays the caller.
+ *
+ * @author agent
+ */
+public interface JobNotifier {
+
+    /**
+     * Queue an email letting the user know the job finished, if they gave
+     * an address for it.
+     *
+     * @param job    The finished job. Not null.
+     * @param status The final status of the job
+     * @return true if the email was queued, false if the job has no address,
+     * email is disabled or too many emails are waiting
+     * @throws GenieException if no job is entered
+     */
+    boolean notifyCompletion(final Job job, final JobStatus status) throws GenieException;
+
+    /**
+     * Get the number of emails waiting to be sent.
+     *
+     * @return The number of queued emails
+     */
+    int getQueueDepth();
+}
@@ -0,0 +1,90 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.Job;
+
+/**
+ * Writes the stdout and stderr of running jobs to their working directories,
+ * enforcing the output size limits as the bytes are written rather than by
+ * checking the size of the files afterwards.<br>
+ * Implementations must be thread-safe.
+ *
+ * @author agent
+ */
+public interface JobOutputCapture {
+
+    /**
+     * Whether Genie should own the output of the jobs it launches. If not the
+     * launcher script writes the output files itself.
+     *
+     * @return true if output capture is enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Start copying the output of a launched job to stdout.log and
+     * stderr.log in its working directory.
+     *
+     * @param job        The job. Not null.
+     * @param proc       The process whose output to capture. Not null.
+     * @param workingDir The working directory of the job. Not blank.
+     * @param jobManager The job manager to kill the job with if it writes too much
+     * @throws GenieException If a required parameter is missing
+     */
+    void capture(
+            final Job job,
+            final Process proc,
+            final String workingDir,
+            final JobManager jobManager) throws GenieException;
+
+    /**
+     * Whether the output of a job is currently being captured on this node.
+     *
+     * @param id The id of the job
+     * @return true if the output is being captured
+     */
+    boolean isCapturing(final String id);
+
+    /**
+     * Stop tracking the output of a finished job even if its streams are
+     * still open, like when a process it left behind holds on to them. What
+     * is still written is copied until the streams close.
+     *
+     * @param id The id of the job
+     */
+    void finish(final String id);
+
+    /**
+     * Get the number of bytes a job has written to stdout and stderr so far.
+     *
+     * @param id The id of the job
+     * @return The number of bytes or 0 if the output isn't being captured
+     */
+    long getOutputBytes(final String id);
+
+    /**
+     * Get the average number of bytes per second a job has written to
+     * stdout and stderr since it was launched.
+     *
+     * @param id The id of the job
+     * @return The rate or 0 if the output isn't being captured
+     */
+    double getOutputRate(final String id);
+}
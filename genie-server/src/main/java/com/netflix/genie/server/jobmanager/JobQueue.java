@@ -0,0 +1,81 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.Job;
+
+import java.util.Set;
+
+/**
+ * Node local queue of jobs which were accepted while the node was at capacity
+ * and had nowhere to forward them to. Queued jobs are saved in INIT state and
+ * are launched as running jobs finish and free their slots.<br>
+ * Implementations must be thread-safe.
+ *
+ * @author agent
+ */
+public interface JobQueue {
+
+    /**
+     * Whether jobs should be queued on this node when it is at capacity.
+     *
+     * @return true if the queue is enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Queue a job which has already been saved in INIT state until a slot is
+     * free to launch it.
+     *
+     * @param job The job to queue. Not null.
+     * @return true if the job was queued, false if the queue is full or disabled
+     * @throws GenieException if the job has no id
+     */
+    boolean offer(final Job job) throws GenieException;
+
+    /**
+     * Remove a job from the queue without launching it.
+     *
+     * @param id The id of the job to remove
+     * @return true if the job was queued and has been removed
+     */
+    boolean remove(final String id);
+
+    /**
+     * Launch queued jobs for as long as there are free slots on this node and
+     * fail any jobs which have waited longer than the max wait time.
+     *
+     * @return The number of jobs launched
+     */
+    int drain();
+
+    /**
+     * Get the number of jobs waiting in the queue.
+     *
+     * @return The number of queued jobs
+     */
+    int getQueueDepth();
+
+    /**
+     * Get the ids of the jobs waiting in the queue.
+     *
+     * @return The ids of the queued jobs
+     */
+    Set<String> getQueuedJobIds();
+}
@@ -0,0 +1,57 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.Job;
+
+import java.util.Map;
+
+/**
+ * Prepares the working directory of a job before its launcher is started:
+ * downloads the application, command, cluster and job files, adds the local
+ * Hadoop configuration and writes the job properties into core-site.xml.<br>
+ * Implementations must be thread-safe.
+ *
+ * @author agent
+ */
+public interface JobSetupPipeline {
+
+    /**
+     * Set up the working directory of a job.
+     *
+     * @param job The job to set up
+     * @param env The environment the job launcher will be started with. It
+     *            names the files to download, the directories to put them in
+     *            and the copy command to use.
+     * @return How long each stage took in milliseconds, in the order the stages are reported
+     * @throws GenieException If any stage fails. If the set up was cancelled
+     *                        the cause is a CancellationException.
+     */
+    Map<String, Long> setup(final Job job, final Map<String, String> env) throws GenieException;
+
+    /**
+     * Cancel the set up of a job on this node, stopping any downloads still
+     * running for it.
+     *
+     * @param id The id of the job
+     * @return true if the job was being set up and will now fail with a
+     * CancellationException as the cause
+     */
+    boolean cancel(final String id);
+}
@@ -0,0 +1,119 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.Application;
+import com.netflix.genie.common.model.Cluster;
+import com.netflix.genie.common.model.Command;
+import com.netflix.genie.common.model.Job;
+
+/**
+ * Everything resolved up front to launch a single job: the job itself, the
+ * cluster, command and application it will run with and the job manager
+ * implementation that will run it.
+ *
+ * @author agent
+ */
+public final class LaunchPlan {
+
+    private final Job job;
+    private final Cluster cluster;
+    private final Command command;
+    private final Application application;
+    private final Class<? extends JobManager> jobManagerClass;
+
+    /**
+     * Constructor.
+     *
+     * @param job             The job to launch. Not null.
+     * @param cluster         The cluster to run the job on. Not null.
+     * @param command         The command to run the job with. Not null.
+     * @param jobManagerClass The job manager implementation to use. Not null.
+     * @throws GenieException If any required parameter is missing
+     */
+    public LaunchPlan(
+            final Job job,
+            final Cluster cluster,
+            final Command command,
+            final Class<? extends JobManager> jobManagerClass) throws GenieException {
+        if (job == null) {
+            throw new GeniePreconditionException("No job entered. Unable to create launch plan.");
+        }
+        if (cluster == null) {
+            throw new GeniePreconditionException("No cluster entered. Unable to create launch plan.");
+        }
+        if (command == null) {
+            throw new GeniePreconditionException("No command entered. Unable to create launch plan.");
+        }
+        if (jobManagerClass == null) {
+            throw new GeniePreconditionException("No job manager class entered. Unable to create launch plan.");
+        }
+        this.job = job;
+        this.cluster = cluster;
+        this.command = command;
+        this.application = command.getApplication();
+        this.jobManagerClass = jobManagerClass;
+    }
+
+    /**
+     * Get the job to launch.
+     *
+     * @return The job
+     */
+    public Job getJob() {
+        return this.job;
+    }
+
+    /**
+     * Get the cluster the job will run on.
+     *
+     * @return The cluster
+     */
+    public Cluster getCluster() {
+        return this.cluster;
+    }
+
+    /**
+     * Get the command the job will run with.
+     *
+     * @return The command
+     */
+    public Command getCommand() {
+        return this.command;
+    }
+
+    /**
+     * Get the application for the command if there is one.
+     *
+     * @return The application or null
+     */
+    public Application getApplication() {
+        return this.application;
+    }
+
+    /**
+     * Get the job manager implementation which will run the job.
+     *
+     * @return The job manager class
+     */
+    public Class<? extends JobManager> getJobManagerClass() {
+        return this.jobManagerClass;
+    }
+}
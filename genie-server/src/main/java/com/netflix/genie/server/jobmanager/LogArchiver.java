@@ -0,0 +1,60 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.Job;
+
+import java.io.File;
+
+/**
+ * Archives the working directory of finished jobs to the location returned by
+ * NetUtil.getArchiveURI, so the logs outlive the node the job ran on.<br>
+ * Implementations must be thread-safe.
+ *
+ * @author agent
+ */
+public interface LogArchiver {
+
+    /**
+     * Whether Genie archives the job logs itself rather than leaving it to
+     * the job launcher script.
+     *
+     * @return true if archiving is enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Queue the working directory of a finished job to be archived. Returns
+     * right away.
+     *
+     * @param job        The finished job. Not null.
+     * @param workingDir The working directory of the job. Not null.
+     * @return true if the archive was queued, false if archiving is disabled
+     * for the job or too many archives are waiting
+     * @throws GenieException if any required parameter is missing
+     */
+    boolean archive(final Job job, final File workingDir) throws GenieException;
+
+    /**
+     * Get the number of jobs waiting to be archived.
+     *
+     * @return The number of queued archives
+     */
+    int getQueueDepth();
+}
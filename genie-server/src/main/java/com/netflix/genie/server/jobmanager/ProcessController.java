@@ -0,0 +1,88 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager;
+
+import com.netflix.genie.common.exceptions.GenieException;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Controls the operating system processes launched for jobs.
+ *
+ * @author agent
+ */
+public interface ProcessController {
+
+    /**
+     * Start a process for a job, through the fork helper if it is enabled.
+     *
+     * @param processBuilder The description of the process to start. Not null.
+     * @return The started process
+     * @throws IOException If the process can't be started
+     */
+    Process start(final ProcessBuilder processBuilder) throws IOException;
+
+    /**
+     * Whether processes are started through the fork helper. Those processes
+     * have no pipes to their standard streams so their output can't be
+     * captured by the server.
+     *
+     * @return True if the fork helper is used
+     */
+    boolean isForkHelperEnabled();
+
+    /**
+     * Get the operating system process id of a launched process.
+     *
+     * @param proc The process. Not null.
+     * @return The process id
+     * @throws GenieException If the process id can't be determined
+     */
+    int getProcessId(final Process proc) throws GenieException;
+
+    /**
+     * Get the ids of all the processes descended from a process, not just
+     * its direct children.
+     *
+     * @param pid The id of the root process
+     * @return The ids of all the descendants. Empty if there are none.
+     * @throws GenieException If the process table can't be read
+     */
+    Set<Integer> getDescendants(final int pid) throws GenieException;
+
+    /**
+     * Check whether a process is still alive.
+     *
+     * @param pid The id of the process
+     * @return True if the process is alive
+     */
+    boolean isAlive(final int pid);
+
+    /**
+     * Kill a process and all its descendants. Returns as soon as they have
+     * been asked to terminate; any still alive after the grace period
+     * com.netflix.genie.server.job.kill.grace.period.ms are killed forcibly
+     * in the background. The job monitor notices the exit and finalizes the
+     * job.
+     *
+     * @param pid The id of the root process
+     * @throws GenieException If the process couldn't be signalled
+     */
+    void kill(final int pid) throws GenieException;
+}
@@ -0,0 +1,305 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieRequestTooLargeException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.server.jobmanager.AttachmentStore;
+import com.netflix.genie.server.util.FileUtil;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps streamed attachments in a staging directory next to the job working
+ * directories, so moving them into a job directory is a rename. Sets which
+ * are never claimed by a launch, like those of submissions which failed, are
+ * deleted once they are older than the configured time to live.
+ *
+ * @author agent
+ */
+@Named
+public class AttachmentStoreImpl implements AttachmentStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AttachmentStoreImpl.class);
+    private static final int BUFFER_SIZE = 65536;
+
+    private final File stagingDir;
+    private final long maxBytes;
+    private final long ttl;
+    private final ScheduledExecutorService cleaner;
+
+    // the sets being written or waiting for their job and how many bytes each holds
+    private final ConcurrentMap<File, AtomicLong> sets = new ConcurrentHashMap<>();
+
+    // the set waiting for each job
+    private final ConcurrentMap<String, File> jobAttachments = new ConcurrentHashMap<>();
+
+    @Monitor(name = "Attachment_Bytes", type = DataSourceType.COUNTER)
+    private final AtomicLong attachmentBytes = new AtomicLong(0);
+
+    @Monitor(name = "Attachment_Rejections", type = DataSourceType.COUNTER)
+    private final AtomicLong rejections = new AtomicLong(0);
+
+    @Monitor(name = "Attachment_Expirations", type = DataSourceType.COUNTER)
+    private final AtomicLong expirations = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     */
+    public AttachmentStoreImpl() {
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        final String workingDir = config.getString(
+                "com.netflix.genie.server.user.working.dir",
+                System.getProperty("java.io.tmpdir")
+        );
+        this.stagingDir = new File(config.getString(
+                "com.netflix.genie.server.job.attachments.dir",
+                workingDir + File.separator + ".attachments"
+        ));
+        this.maxBytes = config.getLong("com.netflix.genie.server.job.attachments.max.bytes", 104857600L);
+        this.ttl = config.getLong("com.netflix.genie.server.job.attachments.ttl.ms", 86400000L);
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "genie-attachment-cleaner");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Start with an empty staging directory, schedule the removal of
+     * expired attachments and register the metrics.
+     *
+     * @throws IOException If the staging directory can't be created
+     */
+    @PostConstruct
+    public void initialize() throws IOException {
+        // whatever is left belonged to submissions which died with the last run of the node
+        FileUtil.deleteRecursively(this.stagingDir.toPath());
+        Files.createDirectories(this.stagingDir.toPath());
+        final long period = Math.max(1000L, this.ttl / 4);
+        this.cleaner.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                deleteExpired();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+    }
+
+    /**
+     * Stop removing expired attachments and unregister the metrics.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.cleaner.shutdownNow();
+        Monitors.unregisterObject(this);
+    }
+
+    /**
+     * Get the number of attachment sets being written or waiting for their job.
+     *
+     * @return The number of sets
+     */
+    @Monitor(name = "Staged_Attachment_Sets", type = DataSourceType.GAUGE)
+    public int getNumSets() {
+        return this.sets.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public File create() throws GenieException {
+        final File attachments = new File(this.stagingDir, UUID.randomUUID().toString());
+        try {
+            Files.createDirectories(attachments.toPath());
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to create a directory for attachments", ioe);
+        }
+        this.sets.put(attachments, new AtomicLong(0));
+        return attachments;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long write(final File attachments, final String name, final InputStream data) throws GenieException {
+        if (attachments == null || StringUtils.isBlank(name) || data == null) {
+            throw new GeniePreconditionException("No attachments, name or data entered. Unable to write attachment.");
+        }
+        final AtomicLong setSize = this.sets.get(attachments);
+        if (setSize == null) {
+            throw new GeniePreconditionException("Unknown attachments " + attachments);
+        }
+        // clients may send the full path of the file, only the name is used
+        final String fileName = StringUtils.substringAfterLast("/" + StringUtils.replaceChars(name, '\\', '/'), "/");
+        if (StringUtils.isBlank(fileName) || ".".equals(fileName) || "..".equals(fileName)) {
+            throw new GeniePreconditionException("Invalid attachment name: " + name);
+        }
+        final File file = new File(attachments, fileName);
+        if (file.exists()) {
+            throw new GeniePreconditionException("More than one attachment named " + fileName);
+        }
+
+        long written = 0L;
+        try (final OutputStream output = new FileOutputStream(file)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = data.read(buffer)) != -1) {
+                if (setSize.addAndGet(read) > this.maxBytes) {
+                    this.rejections.incrementAndGet();
+                    throw new GenieRequestTooLargeException(
+                            "Attachments are bigger than the limit of " + this.maxBytes + " bytes"
+                    );
+                }
+                output.write(buffer, 0, read);
+                written += read;
+            }
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to write attachment " + fileName, ioe);
+        } finally {
+            this.attachmentBytes.addAndGet(written);
+        }
+        return written;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean register(final String jobId, final File attachments) throws GenieException {
+        if (StringUtils.isBlank(jobId)) {
+            throw new GeniePreconditionException("No job id entered. Unable to register attachments.");
+        }
+        if (attachments == null || !this.sets.containsKey(attachments)) {
+            throw new GeniePreconditionException("Unknown attachments " + attachments);
+        }
+        if (this.jobAttachments.putIfAbsent(jobId, attachments) != null) {
+            LOG.info("Job " + jobId + " already has attachments waiting. Deleting " + attachments);
+            this.delete(attachments);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasAttachments(final String jobId) {
+        return StringUtils.isNotBlank(jobId) && this.jobAttachments.containsKey(jobId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void moveTo(final String jobId, final File directory) throws GenieException {
+        if (StringUtils.isBlank(jobId) || directory == null) {
+            throw new GeniePreconditionException("No job id or directory entered. Unable to move attachments.");
+        }
+        final File attachments = this.jobAttachments.remove(jobId);
+        if (attachments == null) {
+            return;
+        }
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(attachments.toPath())) {
+            for (final Path file : files) {
+                Files.move(
+                        file,
+                        directory.toPath().resolve(file.getFileName()),
+                        StandardCopyOption.REPLACE_EXISTING
+                );
+            }
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to move the attachments of job " + jobId, ioe);
+        } finally {
+            this.delete(attachments);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final File attachments) {
+        if (attachments == null) {
+            return;
+        }
+        this.sets.remove(attachments);
+        for (final Map.Entry<String, File> entry : this.jobAttachments.entrySet()) {
+            if (attachments.equals(entry.getValue())) {
+                this.jobAttachments.remove(entry.getKey(), attachments);
+            }
+        }
+        try {
+            FileUtil.deleteRecursively(attachments.toPath());
+        } catch (final IOException ioe) {
+            LOG.error("Unable to delete attachments " + attachments, ioe);
+        }
+    }
+
+    /**
+     * Delete the sets older than the time to live. They belong to
+     * submissions which failed or jobs which never launched.
+     */
+    protected void deleteExpired() {
+        final long cutoff = System.currentTimeMillis() - this.ttl;
+        for (final File attachments : this.sets.keySet()) {
+            if (attachments.lastModified() < cutoff) {
+                LOG.info("Deleting expired attachments " + attachments);
+                this.expirations.incrementAndGet();
+                this.delete(attachments);
+            }
+        }
+    }
+}
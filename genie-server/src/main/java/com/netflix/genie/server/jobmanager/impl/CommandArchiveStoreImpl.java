@@ -0,0 +1,120 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.server.jobmanager.ArchiveStore;
+import com.netflix.genie.server.util.ProcessUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Archive store which pipes each file into a command, like hadoop fs -put -,
+ * which reads the content from its standard input and writes it to the
+ * location given as its last argument. Only one process is started per file
+ * and nothing is written to the local disk.
+ *
+ * @author agent
+ */
+@Named
+public class CommandArchiveStoreImpl implements ArchiveStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CommandArchiveStoreImpl.class);
+    private static final int BUFFER_SIZE = 65536;
+
+    private final List<String> putCommand;
+    private final List<String> timeoutCommand;
+
+    /**
+     * Constructor.
+     */
+    public CommandArchiveStoreImpl() {
+        final String put = ConfigurationManager.getConfigInstance()
+                .getString("com.netflix.genie.server.job.archive.put.command");
+        this.putCommand = StringUtils.isBlank(put) ? new ArrayList<String>() : Arrays.asList(StringUtils.split(put));
+        this.timeoutCommand = ProcessUtil.getTimeoutCommand();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final String location, final Content content) throws GenieException {
+        if (StringUtils.isBlank(location) || content == null) {
+            throw new GeniePreconditionException("No location or content entered. Unable to archive.");
+        }
+        if (this.putCommand.isEmpty()) {
+            throw new GeniePreconditionException("No put command set. Unable to archive to " + location);
+        }
+        final List<String> command = new ArrayList<>(this.timeoutCommand);
+        command.addAll(this.putCommand);
+        command.add(location);
+
+        File log = null;
+        Process proc = null;
+        try {
+            // the output goes to a file so the command can never block on a full pipe while it is being fed
+            log = File.createTempFile("genie-archive", ".log");
+            proc = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+            final OutputStream output = new BufferedOutputStream(proc.getOutputStream(), BUFFER_SIZE);
+            try {
+                content.writeTo(output);
+                output.flush();
+            } catch (final IOException | RuntimeException e) {
+                // kill the command before it sees the end of its input or it would store a partial file
+                proc.destroy();
+                throw e;
+            }
+            output.close();
+            final int exitCode = proc.waitFor();
+            if (exitCode != 0) {
+                throw new GenieServerException(
+                        "Command " + command.get(0) + " failed with exit code " + exitCode + ": "
+                                + new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8)
+                );
+            }
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to archive to " + location, ioe);
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new GenieServerException("Interrupted archiving to " + location, ie);
+        } finally {
+            if (proc != null) {
+                proc.destroy();
+            }
+            if (log != null && !log.delete()) {
+                LOG.debug("Unable to delete " + log);
+            }
+        }
+    }
+}
@@ -0,0 +1,545 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.server.jobmanager.DependencyCache;
+import com.netflix.genie.server.util.FileUtil;
+import com.netflix.genie.server.util.ProcessUtil;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Size bounded, least recently used cache of job dependencies on the local
+ * disk. Entries are keyed by the URI of the dependency and its version, as
+ * reported by the configured stat command, so a dependency overwritten in
+ * place is downloaded again. Concurrent launches needing the same missing
+ * dependency share a single download. Cached files are made read only and hard
+ * linked into the job directories, falling back to a copy when the job
+ * directory is on another file system, so a job never depends on the cache
+ * entry once its dependencies are in place. An entry is pinned while it is
+ * being placed so eviction can't delete it in between.
+ *
+ * @author agent
+ */
+@Named
+public class DependencyCacheImpl implements DependencyCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DependencyCacheImpl.class);
+
+    private static final Pattern GLOB = Pattern.compile("[*?\\[\\]{}]");
+    private static final long RETRY_DELAY_MS = 5000L;
+
+    private final boolean enabled;
+    private final File cacheDir;
+    private final long maxBytes;
+    private final List<String> statCommand;
+    private final long versionTtl;
+    private final int numAttempts;
+    private final List<String> timeoutCommand;
+
+    // in progress downloads keyed by cache key
+    private final ConcurrentMap<String, FutureTask<CacheEntry>> downloads = new ConcurrentHashMap<>();
+
+    // last version seen for each uri
+    private final ConcurrentMap<String, VersionCheck> versions = new ConcurrentHashMap<>();
+
+    // the cached files in access order, guarded by itself along with the pins of each entry
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Monitor(name = "Dependency_Cache_Hits", type = DataSourceType.COUNTER)
+    private final AtomicLong hits = new AtomicLong(0);
+
+    @Monitor(name = "Dependency_Cache_Misses", type = DataSourceType.COUNTER)
+    private final AtomicLong misses = new AtomicLong(0);
+
+    @Monitor(name = "Dependency_Cache_Bytes_Saved", type = DataSourceType.COUNTER)
+    private final AtomicLong bytesSaved = new AtomicLong(0);
+
+    @Monitor(name = "Dependency_Cache_Evictions", type = DataSourceType.COUNTER)
+    private final AtomicLong evictions = new AtomicLong(0);
+
+    @Monitor(name = "Dependency_Cache_Bytes", type = DataSourceType.GAUGE)
+    private final AtomicLong cachedBytes = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     */
+    public DependencyCacheImpl() {
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        final String stat = config.getString("com.netflix.genie.server.job.dependency.cache.stat.command");
+        this.enabled = config.getBoolean("com.netflix.genie.server.job.dependency.cache.enabled", false)
+                && StringUtils.isNotBlank(stat);
+        this.statCommand = this.enabled ? Arrays.asList(StringUtils.split(stat)) : new ArrayList<String>();
+        this.cacheDir = new File(config.getString(
+                "com.netflix.genie.server.job.dependency.cache.dir",
+                System.getProperty("java.io.tmpdir") + File.separator + "genie-dependency-cache"
+        ));
+        this.maxBytes = config.getLong("com.netflix.genie.server.job.dependency.cache.max.bytes", 10737418240L);
+        this.versionTtl = config.getLong("com.netflix.genie.server.job.dependency.cache.version.ttl.ms", 60000L);
+        this.numAttempts = Math.max(1, config.getInt("com.netflix.genie.server.job.dependency.cache.attempts", 5));
+
+        this.timeoutCommand = ProcessUtil.getTimeoutCommand();
+    }
+
+    /**
+     * Start with an empty cache directory and register the metrics.
+     *
+     * @throws IOException If the cache directory can't be created
+     */
+    @PostConstruct
+    public void initialize() throws IOException {
+        if (this.enabled) {
+            // the versions of whatever was left behind are unknown so start over
+            FileUtil.deleteRecursively(this.cacheDir.toPath());
+            Files.createDirectories(this.cacheDir.toPath());
+            LOG.info("Caching job dependencies in " + this.cacheDir + " up to " + this.maxBytes + " bytes");
+        }
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+    }
+
+    /**
+     * Unregister the metrics.
+     */
+    @PreDestroy
+    public void shutdown() {
+        Monitors.unregisterObject(this);
+    }
+
+    /**
+     * Get the fraction of dependencies which were served from the cache.
+     *
+     * @return The hit ratio between 0 and 1
+     */
+    @Monitor(name = "Dependency_Cache_Hit_Ratio", type = DataSourceType.GAUGE)
+    public double getHitRatio() {
+        final long numHits = this.hits.get();
+        final long total = numHits + this.misses.get();
+        return total == 0 ? 0.0 : (double) numHits / total;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCacheable(final String uri) {
+        return StringUtils.isNotBlank(uri)
+                && !GLOB.matcher(uri).find()
+                && !uri.endsWith("/")
+                && StringUtils.isNotBlank(getFileName(uri));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void install(
+            final List<String> uris,
+            final String copyCommand,
+            final File directory,
+            final Map<String, String> env
+    ) throws GenieException {
+        if (!this.enabled) {
+            throw new GeniePreconditionException("The dependency cache is disabled.");
+        }
+        if (uris == null || directory == null) {
+            throw new GeniePreconditionException("No dependencies or directory entered.");
+        }
+        if (StringUtils.isBlank(copyCommand)) {
+            throw new GeniePreconditionException("No copy command entered.");
+        }
+        for (final String uri : uris) {
+            if (!this.isCacheable(uri)) {
+                throw new GeniePreconditionException(uri + " can't be cached.");
+            }
+        }
+
+        try {
+            Files.createDirectories(directory.toPath());
+            for (final String uri : uris) {
+                final CacheEntry entry = this.get(uri, copyCommand, env);
+                try {
+                    link(entry.getFile().toPath(), new File(directory, entry.getFile().getName()).toPath());
+                } finally {
+                    this.unpin(entry);
+                }
+            }
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to place cached dependencies in " + directory, ioe);
+        }
+    }
+
+    /**
+     * Get the current version of a dependency from the cache, downloading it
+     * if no one has yet. The entry is returned pinned and must be unpinned
+     * once it has been placed.
+     *
+     * @param uri         The location of the dependency
+     * @param copyCommand The command used to download it
+     * @param env         The environment to run the commands in
+     * @return The pinned cache entry
+     * @throws GenieException If the dependency can't be downloaded
+     */
+    private CacheEntry get(
+            final String uri,
+            final String copyCommand,
+            final Map<String, String> env
+    ) throws GenieException {
+        final String key = getKey(uri, this.getVersion(uri, env));
+        CacheEntry entry = this.getEntry(key);
+        if (entry != null) {
+            this.hits.incrementAndGet();
+            this.bytesSaved.addAndGet(entry.getSize());
+            return entry;
+        }
+
+        // the entry the task returns is pinned for the launch which runs it
+        final FutureTask<CacheEntry> task = new FutureTask<>(new Callable<CacheEntry>() {
+            @Override
+            public CacheEntry call() throws GenieException {
+                // it may have been added since this launch looked, so only count a miss when downloading
+                final CacheEntry existing = getEntry(key);
+                if (existing != null) {
+                    hits.incrementAndGet();
+                    bytesSaved.addAndGet(existing.getSize());
+                    return existing;
+                }
+                misses.incrementAndGet();
+                return download(key, uri, copyCommand, env);
+            }
+        });
+        final FutureTask<CacheEntry> running = this.downloads.putIfAbsent(key, task);
+        try {
+            if (running == null) {
+                task.run();
+                return task.get();
+            } else {
+                // someone else is already downloading it
+                entry = running.get();
+                if (!this.pin(entry)) {
+                    // evicted before this launch could pin it so start over
+                    return this.get(uri, copyCommand, env);
+                }
+                this.hits.incrementAndGet();
+                this.bytesSaved.addAndGet(entry.getSize());
+                return entry;
+            }
+        } catch (final ExecutionException ee) {
+            if (ee.getCause() instanceof GenieException) {
+                throw (GenieException) ee.getCause();
+            }
+            throw new GenieServerException("Unable to download " + uri, ee.getCause());
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new GenieServerException("Interrupted waiting for " + uri + " to download", ie);
+        } finally {
+            if (running == null) {
+                this.downloads.remove(key, task);
+            }
+        }
+    }
+
+    private CacheEntry getEntry(final String key) {
+        synchronized (this.entries) {
+            final CacheEntry entry = this.entries.get(key);
+            if (entry != null) {
+                entry.pin();
+            }
+            return entry;
+        }
+    }
+
+    private boolean pin(final CacheEntry entry) {
+        synchronized (this.entries) {
+            if (entry.isEvicted()) {
+                return false;
+            }
+            entry.pin();
+            return true;
+        }
+    }
+
+    private void unpin(final CacheEntry entry) {
+        final boolean delete;
+        synchronized (this.entries) {
+            delete = entry.unpin() && entry.isEvicted();
+        }
+        if (delete) {
+            this.delete(entry);
+        }
+    }
+
+    private void delete(final CacheEntry entry) {
+        LOG.info("Deleting evicted " + entry.getFile() + " from the dependency cache");
+        try {
+            FileUtil.deleteRecursively(entry.getFile().getParentFile().toPath());
+        } catch (final IOException ioe) {
+            LOG.warn("Unable to delete " + entry.getFile(), ioe);
+        }
+    }
+
+    /**
+     * Get the version of a dependency, asking the file system only if the
+     * version wasn't checked recently.
+     *
+     * @param uri The location of the dependency
+     * @param env The environment to run the stat command in
+     * @return The version
+     * @throws GenieException If the version can't be determined
+     */
+    private String getVersion(final String uri, final Map<String, String> env) throws GenieException {
+        final long now = System.currentTimeMillis();
+        final VersionCheck check = this.versions.get(uri);
+        if (check != null && now - check.getCheckedTime() < this.versionTtl) {
+            return check.getVersion();
+        }
+
+        final List<String> command = new ArrayList<>(this.timeoutCommand);
+        command.addAll(this.statCommand);
+        command.add(uri);
+        final String version = StringUtils.trim(ProcessUtil.execute(command, env));
+        if (StringUtils.isBlank(version)) {
+            throw new GenieServerException("Unable to get the version of " + uri);
+        }
+        this.versions.put(uri, new VersionCheck(version, now));
+        return version;
+    }
+
+    /**
+     * Download a dependency into a new cache entry and evict the least
+     * recently used entries if the cache is now too big. Evicted entries which
+     * are pinned are deleted once the last launch placing them unpins them.
+     *
+     * @param key         The cache key of the entry
+     * @param uri         The location of the dependency
+     * @param copyCommand The command used to download it
+     * @param env         The environment to run the copy command in
+     * @return The new entry, pinned
+     * @throws GenieException If the dependency can't be downloaded
+     */
+    private CacheEntry download(
+            final String key,
+            final String uri,
+            final String copyCommand,
+            final Map<String, String> env
+    ) throws GenieException {
+        LOG.info("Downloading " + uri + " into the dependency cache");
+        final Path entryDir = new File(this.cacheDir, key).toPath();
+        final Path tmpDir = new File(this.cacheDir, key + "." + UUID.randomUUID() + ".tmp").toPath();
+        final List<String> command = new ArrayList<>(this.timeoutCommand);
+        command.addAll(Arrays.asList(StringUtils.split(copyCommand)));
+        command.add(uri);
+        command.add("file://" + tmpDir.toAbsolutePath() + "/");
+
+        try {
+            Files.createDirectories(tmpDir);
+            ProcessUtil.execute(command, env, this.numAttempts, RETRY_DELAY_MS);
+
+            final File file = new File(tmpDir.toFile(), getFileName(uri));
+            if (!file.isFile()) {
+                throw new GenieServerException("Downloading " + uri + " didn't produce " + file.getName());
+            }
+            // jobs share the file through links so none of them may change it
+            if (!file.setReadOnly()) {
+                LOG.warn("Unable to make " + file + " read only");
+            }
+            final long size = file.length();
+            FileUtil.deleteRecursively(entryDir);
+            Files.move(tmpDir, entryDir, StandardCopyOption.ATOMIC_MOVE);
+
+            final CacheEntry entry = new CacheEntry(new File(entryDir.toFile(), file.getName()), size);
+            final List<CacheEntry> unpinned = new ArrayList<>();
+            synchronized (this.entries) {
+                entry.pin();
+                this.entries.put(key, entry);
+                long total = this.cachedBytes.addAndGet(size);
+                final Iterator<CacheEntry> iterator = this.entries.values().iterator();
+                // never evict the entry which was just added
+                while (total > this.maxBytes && this.entries.size() > 1) {
+                    final CacheEntry eldest = iterator.next();
+                    iterator.remove();
+                    total = this.cachedBytes.addAndGet(-eldest.getSize());
+                    LOG.info("Evicting " + eldest.getFile() + " from the dependency cache");
+                    this.evictions.incrementAndGet();
+                    eldest.evict();
+                    if (!eldest.isPinned()) {
+                        unpinned.add(eldest);
+                    }
+                }
+            }
+            // jobs already holding links or copies of the files keep them
+            for (final CacheEntry eldest : unpinned) {
+                this.delete(eldest);
+            }
+            return entry;
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to cache " + uri, ioe);
+        } finally {
+            try {
+                FileUtil.deleteRecursively(tmpDir);
+            } catch (final IOException ioe) {
+                LOG.warn("Unable to delete " + tmpDir, ioe);
+            }
+        }
+    }
+
+    private static String getFileName(final String uri) {
+        return uri.substring(uri.lastIndexOf('/') + 1);
+    }
+
+    private static String getKey(final String uri, final String version) throws GenieException {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(uri.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(version.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder key = new StringBuilder();
+            for (final byte b : digest.digest()) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (final NoSuchAlgorithmException nsae) {
+            throw new GenieServerException("Unable to compute the cache key of " + uri, nsae);
+        }
+    }
+
+    private static void link(final Path source, final Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+        } catch (final IOException | UnsupportedOperationException e) {
+            // a symbolic link would break once the entry is evicted
+            LOG.debug("Unable to hard link " + target + ". Copying it instead.", e);
+            Files.copy(source, target);
+        }
+    }
+
+    /**
+     * A cached dependency. The pins and eviction are guarded by the entries
+     * of the cache.
+     */
+    private static final class CacheEntry {
+        private final File file;
+        private final long size;
+        private int pins;
+        private boolean evicted;
+
+        CacheEntry(final File file, final long size) {
+            this.file = file;
+            this.size = size;
+        }
+
+        void pin() {
+            this.pins++;
+        }
+
+        /**
+         * Unpin the entry.
+         *
+         * @return true if no one has it pinned anymore
+         */
+        boolean unpin() {
+            this.pins--;
+            return this.pins == 0;
+        }
+
+        boolean isPinned() {
+            return this.pins > 0;
+        }
+
+        void evict() {
+            this.evicted = true;
+        }
+
+        boolean isEvicted() {
+            return this.evicted;
+        }
+
+        File getFile() {
+            return this.file;
+        }
+
+        long getSize() {
+            return this.size;
+        }
+    }
+
+    /**
+     * The version of a dependency and when it was checked.
+     */
+    private static final class VersionCheck {
+        private final String version;
+        private final long checkedTime;
+
+        VersionCheck(final String version, final long checkedTime) {
+            this.version = version;
+            this.checkedTime = checkedTime;
+        }
+
+        String getVersion() {
+            return this.version;
+        }
+
+        long getCheckedTime() {
+            return this.checkedTime;
+        }
+    }
+}
@@ -0,0 +1,541 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.util.ProcessStatus;
+import com.netflix.genie.server.jobmanager.ForkHelper;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Starts and signals job processes through the forkhelper.py script, which
+ * is started once and talked to over its standard input and output with one
+ * JSON message per line. Forking a small helper is cheap, unlike forking the
+ * server JVM with its large heap.<br>
+ * If the helper dies it is started again on the next request. The processes
+ * it launched keep running and are watched by their process id instead. Once
+ * one is gone its exit code is read from the genie.done file the job launcher
+ * writes, falling back to the zombie exit code.
+ *
+ * @author agent
+ */
+@Named
+public class ForkHelperImpl implements ForkHelper {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ForkHelperImpl.class);
+    private static final String SCRIPT = "forkhelper.py";
+    private static final String DONE_FILE = "genie.done";
+    private static final File PROC = new File("/proc");
+    private static final long ADOPTED_CHECK_INTERVAL_MS = 1000L;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final boolean enabled;
+    private final List<String> command;
+    private final long timeout;
+    private final AtomicLong requestIds = new AtomicLong(0);
+
+    // requests waiting for their response keyed by request id
+    private final ConcurrentMap<Long, PendingRequest> requests = new ConcurrentHashMap<>();
+
+    // launched processes which haven't exited yet keyed by process id
+    private final ConcurrentMap<Integer, HelperProcess> processes = new ConcurrentHashMap<>();
+
+    // the running helper and its input, guarded by this
+    private Process helper;
+    private Writer helperInput;
+
+    // sends the requests the reader thread needs so it never waits on a write
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "genie-fork-helper-writer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    @Monitor(name = "Fork_Helper_Launches", type = DataSourceType.COUNTER)
+    private final AtomicLong launches = new AtomicLong(0);
+
+    @Monitor(name = "Fork_Helper_Last_Launch_Time_Ms", type = DataSourceType.GAUGE)
+    private final AtomicLong lastLaunchTime = new AtomicLong(0);
+
+    @Monitor(name = "Fork_Helper_Starts", type = DataSourceType.COUNTER)
+    private final AtomicLong helperStarts = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     */
+    public ForkHelperImpl() {
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        this.enabled = config.getBoolean("com.netflix.genie.server.job.fork.helper.enabled", false);
+        final String helperCommand = config.getString(
+                "com.netflix.genie.server.job.fork.helper.command",
+                config.getString("com.netflix.genie.server.sys.home", "") + File.separator + SCRIPT
+        );
+        this.command = Arrays.asList(StringUtils.split(helperCommand));
+        this.timeout = config.getLong("com.netflix.genie.server.job.fork.helper.timeout.ms", 30000L);
+    }
+
+    /**
+     * Start the helper if it is enabled and register the metrics.
+     */
+    @PostConstruct
+    public void initialize() {
+        if (this.enabled) {
+            try {
+                synchronized (this) {
+                    this.ensureStarted();
+                }
+            } catch (final IOException ioe) {
+                LOG.error("Unable to start the fork helper. Will try again on the first launch.", ioe);
+            }
+        }
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+    }
+
+    /**
+     * Stop the helper and unregister the metrics. The processes it launched
+     * keep running.
+     */
+    @PreDestroy
+    public void shutdown() {
+        synchronized (this) {
+            if (this.helperInput != null) {
+                try {
+                    // the helper exits once its input is closed
+                    this.helperInput.close();
+                } catch (final IOException ioe) {
+                    LOG.debug("Unable to close the fork helper input", ioe);
+                }
+            }
+        }
+        this.writer.shutdownNow();
+        Monitors.unregisterObject(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Get the number of launched processes which haven't exited yet.
+     *
+     * @return The number of processes
+     */
+    @Monitor(name = "Fork_Helper_Processes", type = DataSourceType.GAUGE)
+    public int getNumProcesses() {
+        return this.processes.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Process start(final ProcessBuilder processBuilder) throws IOException {
+        if (processBuilder == null || processBuilder.command().isEmpty()) {
+            throw new IOException("No command entered. Unable to start a process.");
+        }
+        final long start = System.currentTimeMillis();
+        final ObjectNode request = MAPPER.createObjectNode();
+        request.put("op", "launch");
+        final ArrayNode args = request.putArray("command");
+        for (final String arg : processBuilder.command()) {
+            args.add(arg);
+        }
+        if (processBuilder.directory() != null) {
+            request.put("dir", processBuilder.directory().getAbsolutePath());
+        }
+        final ObjectNode env = request.putObject("env");
+        for (final Map.Entry<String, String> entry : processBuilder.environment().entrySet()) {
+            env.put(entry.getKey(), entry.getValue());
+        }
+        final File stdout = getFile(processBuilder.redirectOutput());
+        if (stdout != null) {
+            request.put("stdout", stdout.getAbsolutePath());
+        }
+        final File stderr = processBuilder.redirectErrorStream()
+                ? stdout
+                : getFile(processBuilder.redirectError());
+        if (stderr != null) {
+            request.put("stderr", stderr.getAbsolutePath());
+        }
+
+        final PendingRequest pending = this.send(request);
+        if (pending.getProcess() == null) {
+            throw new IOException(
+                    "Cannot run program " + processBuilder.command().get(0) + ": "
+                            + pending.getResponse().path("message").asText()
+            );
+        }
+        this.launches.incrementAndGet();
+        this.lastLaunchTime.set(System.currentTimeMillis() - start);
+        return pending.getProcess();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean signal(final String signal, final Collection<Integer> pids) {
+        if (pids == null || pids.isEmpty()) {
+            return true;
+        }
+        final ObjectNode request = MAPPER.createObjectNode();
+        request.put("op", "signal");
+        request.put("signal", signal);
+        final ArrayNode pidArray = request.putArray("pids");
+        for (final Integer pid : pids) {
+            pidArray.add(pid);
+        }
+        try {
+            return this.send(request).getResponse().path("ok").asBoolean(false);
+        } catch (final IOException ioe) {
+            LOG.error("Unable to send " + signal + " to " + pids + " through the fork helper", ioe);
+            return false;
+        }
+    }
+
+    private PendingRequest send(final ObjectNode request) throws IOException {
+        final long id = this.requestIds.incrementAndGet();
+        request.put("id", id);
+        final PendingRequest pending = new PendingRequest(request);
+        this.requests.put(id, pending);
+        try {
+            this.write(request);
+            if (!pending.await(this.timeout)) {
+                throw new IOException("No response from the fork helper after " + this.timeout + " ms");
+            }
+            if (pending.getResponse() == null) {
+                throw new IOException("The fork helper exited before responding");
+            }
+            return pending;
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the fork helper");
+        } finally {
+            this.requests.remove(id);
+        }
+    }
+
+    private synchronized void write(final ObjectNode request) throws IOException {
+        this.ensureStarted();
+        this.helperInput.write(MAPPER.writeValueAsString(request));
+        this.helperInput.write('\n');
+        this.helperInput.flush();
+    }
+
+    private void ensureStarted() throws IOException {
+        if (this.helper != null) {
+            return;
+        }
+        LOG.info("Starting fork helper " + this.command);
+        final Process proc = new ProcessBuilder(this.command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        this.helper = proc;
+        this.helperInput = new BufferedWriter(new OutputStreamWriter(proc.getOutputStream(), StandardCharsets.UTF_8));
+        this.helperStarts.incrementAndGet();
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readEvents(proc);
+            }
+        }, "genie-fork-helper-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void readEvents(final Process proc) {
+        try (final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    this.handleEvent(MAPPER.readTree(line));
+                } catch (final IOException | RuntimeException e) {
+                    LOG.error("Unable to handle fork helper message " + line, e);
+                }
+            }
+        } catch (final IOException ioe) {
+            LOG.error("Unable to read from the fork helper", ioe);
+        } finally {
+            this.helperExited(proc);
+        }
+    }
+
+    private void handleEvent(final JsonNode event) {
+        final String type = event.path("event").asText();
+        if ("exited".equals(type)) {
+            final HelperProcess proc = this.processes.remove(event.path("pid").asInt());
+            // processes whose exec failed were never registered
+            if (proc != null) {
+                proc.exited(event.path("code").asInt());
+            }
+            return;
+        }
+
+        final PendingRequest pending = this.requests.get(event.path("id").asLong());
+        HelperProcess proc = null;
+        if ("started".equals(type)) {
+            // registered before the exit of the process can be read
+            final int pid = event.path("pid").asInt();
+            final String dir = pending == null ? null : pending.getRequest().path("dir").asText(null);
+            proc = new HelperProcess(pid, dir == null ? null : new File(dir), this);
+            this.processes.put(pid, proc);
+            if (pending == null) {
+                LOG.error("Process " + pid + " started after its launch timed out. Killing it.");
+                // the response can only be read once this thread is back to reading
+                this.writer.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!signal("KILL", Collections.singletonList(pid))) {
+                            LOG.error("Unable to kill process " + pid);
+                        }
+                    }
+                });
+            }
+        }
+        if (pending != null) {
+            pending.complete(event, proc);
+        }
+    }
+
+    private synchronized void helperExited(final Process proc) {
+        LOG.error("The fork helper exited. It will be started again on the next request.");
+        if (this.helper == proc) {
+            this.helper = null;
+            this.helperInput = null;
+        }
+        for (final PendingRequest pending : this.requests.values()) {
+            pending.complete(null, null);
+        }
+        // nothing is left to report the exits of the processes it launched so they watch themselves
+        final List<Integer> pids = new ArrayList<>(this.processes.keySet());
+        for (final Integer pid : pids) {
+            final HelperProcess orphan = this.processes.remove(pid);
+            if (orphan != null) {
+                LOG.info("Watching process " + pid + " by its id until it exits");
+                orphan.adopt();
+            }
+        }
+    }
+
+    private static File getFile(final ProcessBuilder.Redirect redirect) {
+        return redirect.type() == ProcessBuilder.Redirect.Type.WRITE
+                || redirect.type() == ProcessBuilder.Redirect.Type.APPEND
+                ? redirect.file()
+                : null;
+    }
+
+    /**
+     * A request waiting for the response of the helper.
+     */
+    private static final class PendingRequest {
+        private final ObjectNode request;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile JsonNode response;
+        private volatile HelperProcess process;
+
+        PendingRequest(final ObjectNode request) {
+            this.request = request;
+        }
+
+        ObjectNode getRequest() {
+            return this.request;
+        }
+
+        void complete(final JsonNode responseEvent, final HelperProcess startedProcess) {
+            this.response = responseEvent;
+            this.process = startedProcess;
+            this.done.countDown();
+        }
+
+        boolean await(final long timeoutMs) throws InterruptedException {
+            return this.done.await(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        JsonNode getResponse() {
+            return this.response;
+        }
+
+        HelperProcess getProcess() {
+            return this.process;
+        }
+    }
+
+    /**
+     * A process launched by the helper. It has no pipes to its standard
+     * streams and learns of its exit from the helper, or once the helper is
+     * gone, by checking its process id.
+     */
+    static final class HelperProcess extends Process {
+        private final int pid;
+        private final File dir;
+        private final ForkHelper forkHelper;
+        private final CountDownLatch exit = new CountDownLatch(1);
+        private volatile int exitCode;
+        private volatile boolean adopted;
+
+        HelperProcess(final int pid, final File dir, final ForkHelper forkHelper) {
+            this.pid = pid;
+            this.dir = dir;
+            this.forkHelper = forkHelper;
+        }
+
+        int getPid() {
+            return this.pid;
+        }
+
+        void exited(final int code) {
+            this.exitCode = code;
+            this.exit.countDown();
+        }
+
+        void adopt() {
+            this.adopted = true;
+        }
+
+        /**
+         * Check whether an adopted process is gone and record its exit.
+         */
+        private void checkAdopted() {
+            if (!this.adopted || this.exit.getCount() == 0 || this.isRunning()) {
+                return;
+            }
+            synchronized (this) {
+                if (this.exit.getCount() > 0) {
+                    this.exited(this.readExitCode());
+                }
+            }
+        }
+
+        private boolean isRunning() {
+            if (PROC.isDirectory()) {
+                return new File(PROC, Integer.toString(this.pid)).isDirectory();
+            }
+            return this.forkHelper.signal("0", Collections.singletonList(this.pid));
+        }
+
+        private int readExitCode() {
+            if (this.dir != null) {
+                try {
+                    final String code = new String(
+                            Files.readAllBytes(new File(this.dir, DONE_FILE).toPath()),
+                            StandardCharsets.UTF_8
+                    ).trim();
+                    if (StringUtils.isNumeric(code)) {
+                        return Integer.parseInt(code);
+                    }
+                } catch (final IOException | NumberFormatException e) {
+                    LOG.debug("Unable to read the exit code of process " + this.pid, e);
+                }
+            }
+            LOG.warn("No exit code for process " + this.pid + ". Reporting it as a zombie.");
+            return ProcessStatus.ZOMBIE_JOB.getExitCode();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return new OutputStream() {
+                @Override
+                public void write(final int b) throws IOException {
+                    throw new IOException("Processes started by the fork helper have no standard input");
+                }
+            };
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public int waitFor() throws InterruptedException {
+            while (!this.exit.await(ADOPTED_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                this.checkAdopted();
+            }
+            return this.exitCode;
+        }
+
+        @Override
+        public int exitValue() {
+            this.checkAdopted();
+            if (this.exit.getCount() > 0) {
+                throw new IllegalThreadStateException("Process " + this.pid + " hasn't exited");
+            }
+            return this.exitCode;
+        }
+
+        @Override
+        public void destroy() {
+            this.forkHelper.signal("TERM", Collections.singletonList(this.pid));
+        }
+    }
+}
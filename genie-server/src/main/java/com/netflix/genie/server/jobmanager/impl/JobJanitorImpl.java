@@ -21,6 +21,7 @@ import java.util.Random;
 
 import com.netflix.config.ConfigurationManager;
 import com.netflix.genie.server.jobmanager.JobJanitor;
+import com.netflix.genie.server.jobmanager.JobQueue;
 import com.netflix.genie.server.services.ExecutionService;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -46,15 +47,18 @@ public class JobJanitorImpl implements JobJanitor {
     private boolean stop;
 
     private final ExecutionService xs;
+    private final JobQueue jobQueue;
 
     /**
      * Default constructor - initializes members correctly in order.
      *
-     * @param xs The execution service to use.
+     * @param xs       The execution service to use.
+     * @param jobQueue The queue to hand the slots freed by zombies to.
      */
     @Inject
-    public JobJanitorImpl(final ExecutionService xs) {
+    public JobJanitorImpl(final ExecutionService xs, final JobQueue jobQueue) {
         this.xs = xs;
+        this.jobQueue = jobQueue;
         this.conf = ConfigurationManager.getConfigInstance();
         this.stop = false;
     }
@@ -64,7 +68,12 @@ public class JobJanitorImpl implements JobJanitor {
      */
     @Override
     public int markZombies() {
-        return this.xs.markZombies();
+        final int numZombies = this.xs.markZombies();
+        if (numZombies > 0) {
+            // the zombies gave their slots back so launch queued jobs into them
+            this.jobQueue.drain();
+        }
+        return numZombies;
     }
 
     /**
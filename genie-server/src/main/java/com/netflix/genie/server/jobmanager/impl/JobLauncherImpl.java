@@ -0,0 +1,226 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerUnavailableException;
+import com.netflix.genie.common.model.Cluster;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.server.jobmanager.JobLauncher;
+import com.netflix.genie.server.services.JobAdmissionController;
+import com.netflix.genie.server.services.JobService;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Launches jobs on a bounded pool of threads so the submitting request can
+ * return as soon as the job is persisted.
+ *
+ * @author agent
+ */
+@Named
+public class JobLauncherImpl implements JobLauncher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobLauncherImpl.class);
+
+    private final JobService jobService;
+    private final JobAdmissionController admissionController;
+    private final ThreadPoolExecutor executor;
+
+    @Monitor(name = "Launch_Queue_Depth", type = DataSourceType.GAUGE)
+    private final AtomicInteger queueDepth = new AtomicInteger(0);
+
+    @Monitor(name = "Launch_Queue_Last_Wait_Time_Ms", type = DataSourceType.GAUGE)
+    private final AtomicLong lastWaitTime = new AtomicLong(0);
+
+    @Monitor(name = "Launch_Queue_Total_Wait_Time_Ms", type = DataSourceType.COUNTER)
+    private final AtomicLong totalWaitTime = new AtomicLong(0);
+
+    @Monitor(name = "Async_Launched_Jobs", type = DataSourceType.COUNTER)
+    private final AtomicLong launchedJobs = new AtomicLong(0);
+
+    @Monitor(name = "Async_Rejected_Jobs", type = DataSourceType.COUNTER)
+    private final AtomicLong rejectedJobs = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     *
+     * @param jobService          The job service used to run the jobs
+     * @param admissionController The admission controller to release slots from on failure
+     */
+    @Inject
+    public JobLauncherImpl(
+            final JobService jobService,
+            final JobAdmissionController admissionController) {
+        this.jobService = jobService;
+        this.admissionController = admissionController;
+
+        final AbstractConfiguration conf = ConfigurationManager.getConfigInstance();
+        final int numThreads = conf.getInt("com.netflix.genie.server.job.launch.threads", 10);
+        final int queueSize = conf.getInt("com.netflix.genie.server.job.launch.queue.size", 100);
+        this.executor = new ThreadPoolExecutor(
+                numThreads,
+                numThreads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger(0);
+
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "genie-job-launcher-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }
+        );
+    }
+
+    /**
+     * Register the metrics.
+     */
+    @PostConstruct
+    public void initialize() {
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+    }
+
+    /**
+     * Stop accepting jobs and unregister the metrics.
+     */
+    @PreDestroy
+    public void shutdown() {
+        LOG.info("Shutting down job launcher");
+        this.executor.shutdown();
+        Monitors.unregisterObject(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void launch(final Job job) throws GenieException {
+        this.queue(job, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void launch(final Job job, final List<Cluster> clusters) throws GenieException {
+        if (clusters == null) {
+            throw new GeniePreconditionException("No clusters entered. Unable to launch.");
+        }
+        this.queue(job, clusters);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean tryLaunch(final Job job) throws GenieException {
+        return this.submit(job, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getQueueDepth() {
+        return this.queueDepth.get();
+    }
+
+    private void queue(final Job job, final List<Cluster> clusters) throws GenieException {
+        if (!this.submit(job, clusters)) {
+            final String msg = "Job launch queue is full. Try another instance or try again later.";
+            this.jobService.setJobStatus(job.getId(), JobStatus.FAILED, msg);
+            throw new GenieServerUnavailableException(msg);
+        }
+    }
+
+    private boolean submit(final Job job, final List<Cluster> clusters) throws GenieException {
+        if (job == null) {
+            throw new GeniePreconditionException("No job entered. Unable to launch.");
+        }
+
+        final long queuedTime = System.currentTimeMillis();
+        this.queueDepth.incrementAndGet();
+        try {
+            this.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    queueDepth.decrementAndGet();
+                    final long waitTime = System.currentTimeMillis() - queuedTime;
+                    lastWaitTime.set(waitTime);
+                    totalWaitTime.addAndGet(waitTime);
+                    launchedJobs.incrementAndGet();
+                    runJob(job, clusters);
+                }
+            });
+            return true;
+        } catch (final RejectedExecutionException ree) {
+            this.queueDepth.decrementAndGet();
+            this.rejectedJobs.incrementAndGet();
+            LOG.warn("Job launch queue is full. Unable to launch job " + job.getId(), ree);
+            return false;
+        }
+    }
+
+    private void runJob(final Job job, final List<Cluster> clusters) {
+        try {
+            if (clusters == null) {
+                this.jobService.runJob(job);
+            } else {
+                this.jobService.runJob(job, clusters);
+            }
+        } catch (final GenieException ge) {
+            // runJob has already marked the job as failed
+            LOG.error("Failed to launch job " + job.getId(), ge);
+            this.admissionController.release(job.getId());
+        } catch (final RuntimeException re) {
+            LOG.error("Unexpected error launching job " + job.getId(), re);
+            this.admissionController.release(job.getId());
+            try {
+                this.jobService.setJobStatus(job.getId(), JobStatus.FAILED, re.getMessage());
+            } catch (final GenieException ge) {
+                LOG.error("Unable to mark job " + job.getId() + " as failed", ge);
+            }
+        }
+    }
+}
@@ -27,9 +27,14 @@ import com.netflix.genie.common.model.Command;
 import com.netflix.genie.common.model.FileAttachment;
 import com.netflix.genie.common.model.Job;
 import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.server.jobmanager.AttachmentStore;
 import com.netflix.genie.server.jobmanager.JobManager;
 import com.netflix.genie.server.jobmanager.JobMonitor;
-import com.netflix.genie.server.services.CommandConfigService;
+import com.netflix.genie.server.jobmanager.JobOutputCapture;
+import com.netflix.genie.server.jobmanager.JobSetupPipeline;
+import com.netflix.genie.server.jobmanager.LogArchiver;
+import com.netflix.genie.server.jobmanager.LaunchPlan;
+import com.netflix.genie.server.jobmanager.ProcessController;
 import com.netflix.genie.server.services.JobService;
 import com.netflix.genie.server.util.StringUtil;
 import org.apache.commons.lang3.StringUtils;
@@ -42,12 +47,13 @@ import javax.inject.Named;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 /**
  * Generic base implementation of the JobManager interface.
@@ -62,7 +68,6 @@ import java.util.Set;
 public class JobManagerImpl implements JobManager {
 
     private static final Logger LOG = LoggerFactory.getLogger(JobManagerImpl.class);
-    private static final String PID = "pid";
     private static final char SPACE = ' ';
 
     /**
@@ -77,13 +82,17 @@ public class JobManagerImpl implements JobManager {
     protected static final String DEFAULT_GROUP_NAME = "hadoop";
 
     private final JobMonitor jobMonitor;
-    private final Thread jobMonitorThread;
     private final JobService jobService;
-    private final CommandConfigService commandService;
+    private final ProcessController processController;
+    private final JobOutputCapture outputCapture;
+    private final JobSetupPipeline setupPipeline;
+    private final AttachmentStore attachmentStore;
+    private final LogArchiver logArchiver;
 
     private boolean initCalled;
     private String jobDir;
     private Cluster cluster;
+    private Command command;
     private Job job;
     private Set<FileAttachment> attachments;
 
@@ -91,18 +100,29 @@ public class JobManagerImpl implements JobManager {
      * Default constructor - initializes cluster configuration and load
      * balancer.
      *
-     * @param jobMonitor     The job monitor object to use.
-     * @param jobService     The job service to use.
-     * @param commandService The command service to use.
+     * @param jobMonitor        The job monitor object to use.
+     * @param jobService        The job service to use.
+     * @param processController The process controller to use.
+     * @param outputCapture     The output capture to use.
+     * @param setupPipeline     The pipeline to set up the job directory with.
+     * @param attachmentStore   The attachments streamed to this node with job submissions.
+     * @param logArchiver       The archiver of the job logs.
      */
     @Inject
     public JobManagerImpl(final JobMonitor jobMonitor,
                           final JobService jobService,
-                          final CommandConfigService commandService) {
+                          final ProcessController processController,
+                          final JobOutputCapture outputCapture,
+                          final JobSetupPipeline setupPipeline,
+                          final AttachmentStore attachmentStore,
+                          final LogArchiver logArchiver) {
         this.jobMonitor = jobMonitor;
-        this.jobMonitorThread = new Thread(this.jobMonitor);
         this.jobService = jobService;
-        this.commandService = commandService;
+        this.processController = processController;
+        this.outputCapture = outputCapture;
+        this.setupPipeline = setupPipeline;
+        this.attachmentStore = attachmentStore;
+        this.logArchiver = logArchiver;
         this.initCalled = false;
     }
 
@@ -110,49 +130,22 @@ public class JobManagerImpl implements JobManager {
      * {@inheritDoc}
      */
     @Override
-    public void init(final Job job, final Cluster cluster) throws GenieException {
-        if (job == null) {
-            throw new GeniePreconditionException("No job entered.");
-        }
-        if (cluster == null) {
-            throw new GeniePreconditionException("No cluster entered.");
-        }
-
-        //TODO: Get rid of this circular dependency
-        this.jobMonitor.setJobManager(this);
-        this.job = job;
-        this.cluster = cluster;
-        this.attachments = this.job.getAttachments();
-
-        // save the cluster name and id
-        this.jobService.setClusterInfoForJob(this.job.getId(), this.cluster.getId(), this.cluster.getName());
-
-        // Find the command for the job
-        Command command = null;
-        for (final Command cmd : this.cluster.getCommands()) {
-            if (cmd.getTags().containsAll(this.job.getCommandCriteria())) {
-                command = cmd;
-                break;
-            }
+    public void init(final LaunchPlan plan) throws GenieException {
+        if (plan == null) {
+            throw new GeniePreconditionException("No launch plan entered.");
         }
 
-        //Avoiding NPE
-        if (command == null) {
-            final String msg = "No command found for params. Unable to continue.";
-            LOG.error(msg);
-            throw new GeniePreconditionException(msg);
-        }
+        this.cluster = plan.getCluster();
+        this.command = plan.getCommand();
+        this.attachments = plan.getJob().getAttachments();
 
-        // save the command name, application id and application name
-        this.jobService.setCommandInfoForJob(this.job.getId(), command.getId(), command.getName());
-
-        final Application application = command.getApplication();
-        if (application != null) {
-            this.jobService.setApplicationInfoForJob(this.job.getId(), application.getId(), application.getName());
-        }
-
-        // Refresh the job in memory to get the changes
-        this.job = this.jobService.getJob(this.job.getId());
+        // save the cluster, command and application info in one update
+        this.job = this.jobService.setExecutionInfoForJob(
+                plan.getJob().getId(),
+                this.cluster,
+                this.command,
+                plan.getApplication()
+        );
 
         this.initCalled = true;
     }
@@ -176,7 +169,7 @@ public class JobManagerImpl implements JobManager {
         this.setupCommonProcess(processBuilder);
 
         // Launch the actual process
-        this.launchProcess(processBuilder, 5000);
+        this.launchProcess(processBuilder);
     }
 
     /**
@@ -194,42 +187,7 @@ public class JobManagerImpl implements JobManager {
         final int processId = this.job.getProcessHandle();
         if (processId > 0) {
             LOG.info("Attempting to kill the process " + processId);
-            try {
-                final String genieHome = ConfigurationManager.getConfigInstance()
-                        .getString("com.netflix.genie.server.sys.home");
-                if (genieHome == null || genieHome.isEmpty()) {
-                    final String msg = "Property com.netflix.genie.server.sys.home is not set correctly";
-                    LOG.error(msg);
-                    throw new GenieServerException(msg);
-                }
-                Process killProcessId = Runtime.getRuntime().exec(
-                        genieHome + File.separator + "jobkill.sh " + processId);
-
-                int returnCode = 1;
-                int counter = 0;
-                while (counter < 3) {
-                    counter++;
-                    try {
-                        returnCode = killProcessId.exitValue();
-                        LOG.info("Kill script finished");
-                        break;
-                    } catch (IllegalThreadStateException e) {
-                        LOG.info("Kill script not finished yet. Will retry");
-                        try {
-                            Thread.sleep(1000);
-                        } catch (InterruptedException e1) {
-                            LOG.info("Sleep interrupted. Ignoring.");
-                        }
-                    }
-                }
-                if (returnCode != 0) {
-                    throw new GenieServerException("Failed to kill the job");
-                }
-            } catch (final GenieException | IOException e) {
-                final String msg = "Failed to kill the job";
-                LOG.error(msg, e);
-                throw new GenieServerException(msg, e);
-            }
+            this.processController.kill(processId);
         } else {
             final String msg = "Could not get process id";
             LOG.error(msg);
@@ -250,7 +208,7 @@ public class JobManagerImpl implements JobManager {
 
         // first two args are the job launcher script and job type
         processArgs.add(getGenieHome() + File.separator + "joblauncher.sh");
-        processArgs.add(this.commandService.getCommand(this.job.getCommandId()).getExecutable());
+        processArgs.add(this.command.getExecutable());
 
         return processArgs;
     }
@@ -259,23 +217,29 @@ public class JobManagerImpl implements JobManager {
      * Actually launch a process based on the process builder.
      *
      * @param processBuilder The process builder to use.
-     * @param sleepTime The time to sleep between checks of the job process status
      * @throws GenieException If any issue happens launching the process.
      */
-    protected void launchProcess(final ProcessBuilder processBuilder, final int sleepTime) throws GenieException {
+    protected void launchProcess(final ProcessBuilder processBuilder) throws GenieException {
+        this.setupJobDirectory(processBuilder);
         try {
+            // tell the launcher to leave the command output to genie, which needs pipes the fork helper can't give
+            final boolean captureOutput = this.outputCapture.isEnabled()
+                    && !this.processController.isForkHelperEnabled();
+            if (captureOutput) {
+                processBuilder.environment().put("GENIE_CAPTURE_OUTPUT", "true");
+            }
+
             // launch job, and get process handle
-            final Process proc = processBuilder.start();
-            final int pid = this.getProcessId(proc);
+            final Process proc = this.processController.start(processBuilder);
+            if (captureOutput) {
+                this.outputCapture.capture(this.job, proc, this.jobDir, this);
+            }
+            final int pid = this.processController.getProcessId(proc);
             this.jobService.setProcessIdForJob(this.job.getId(), pid);
 
-            // set off monitor thread for the job
-            this.jobMonitor.setJob(this.job);
-            this.jobMonitor.setProcess(proc);
-            this.jobMonitor.setWorkingDir(this.jobDir);
-            this.jobMonitor.setThreadSleepTime(sleepTime);
-            this.jobMonitorThread.start();
+            // mark it running before handing it to the monitor so a fast exit can't be overwritten
             this.jobService.setJobStatus(this.job.getId(), JobStatus.RUNNING, "Job is running");
+            this.jobMonitor.monitor(this.job, proc, this.jobDir, this);
             LOG.info("Successfully launched the job with PID = " + pid);
         } catch (final IOException e) {
             final String msg = "Failed to launch the job";
@@ -303,6 +267,15 @@ public class JobManagerImpl implements JobManager {
         return this.cluster;
     }
 
+    /**
+     * Get the command being used for the job.
+     *
+     * @return The command
+     */
+    protected Command getCommand() {
+        return this.command;
+    }
+
     /**
      * Get the job being managed.
      *
@@ -411,8 +384,8 @@ public class JobManagerImpl implements JobManager {
         processBuilder.environment().put("XS_SYSTEM_HOME", genieHome);
 
         // set the archive location
-        // unless user has explicitly requested for it to be disabled
-        if (!this.job.isDisableLogArchival()) {
+        // unless user has explicitly requested for it to be disabled or Genie archives the logs itself
+        if (!this.job.isDisableLogArchival() && !this.logArchiver.isEnabled()) {
             final String s3ArchiveLocation = ConfigurationManager
                     .getConfigInstance()
                     .getString("com.netflix.genie.server.s3.archive.location");
@@ -472,6 +445,9 @@ public class JobManagerImpl implements JobManager {
                 }
             }
         }
+
+        // attachments streamed with the submission are already on disk
+        this.attachmentStore.moveTo(this.job.getId(), new File(this.jobDir));
     }
 
     /**
@@ -527,20 +503,17 @@ public class JobManagerImpl implements JobManager {
      * Set the command and application for a given process and job.
      *
      * @param processBuilder The process builder to use.
-     * @throws GenieException On an error interacting with database.
      */
-    private void setCommandAndApplicationForJob(final ProcessBuilder processBuilder) throws GenieException {
-        final Command command = this.commandService.getCommand(this.job.getCommandId());
-
-        if (command.getConfigs() != null && !command.getConfigs().isEmpty()) {
-            processBuilder.environment().put("S3_COMMAND_CONF_FILES", convertCollectionToString(command.getConfigs()));
+    private void setCommandAndApplicationForJob(final ProcessBuilder processBuilder) {
+        if (this.command.getConfigs() != null && !this.command.getConfigs().isEmpty()) {
+            processBuilder.environment().put("S3_COMMAND_CONF_FILES", convertCollectionToString(this.command.getConfigs()));
         }
 
-        if (StringUtils.isNotBlank(command.getEnvPropFile())) {
-            processBuilder.environment().put("COMMAND_ENV_FILE", command.getEnvPropFile());
+        if (StringUtils.isNotBlank(this.command.getEnvPropFile())) {
+            processBuilder.environment().put("COMMAND_ENV_FILE", this.command.getEnvPropFile());
         }
 
-        final Application application = command.getApplication();
+        final Application application = this.command.getApplication();
         if (application != null) {
             if (application.getConfigs() != null && !application.getConfigs().isEmpty()) {
                 processBuilder.environment()
@@ -559,33 +532,43 @@ public class JobManagerImpl implements JobManager {
     }
 
     /**
-     * Converts a collection of strings to a CSV.
+     * Download everything the job needs into its directory before the
+     * launcher starts. Runs once the job type specific environment, like the
+     * copy command, is in place. A job killed while it is set up is marked
+     * killed rather than failed.
      *
-     * @param collection Collection object contains the strings
-     * @return a string containing the other strings as space delimited list
+     * @param processBuilder The process builder with the environment of the launcher
+     * @throws GenieException If the job directory can't be set up
      */
-    private String convertCollectionToString(final Collection<String> collection) {
-        return StringUtils.join(collection, SPACE);
+    private void setupJobDirectory(final ProcessBuilder processBuilder) throws GenieException {
+        final Map<String, Long> setupTimes;
+        try {
+            setupTimes = this.setupPipeline.setup(this.job, processBuilder.environment());
+        } catch (final GenieException ge) {
+            if (ge.getCause() instanceof CancellationException) {
+                LOG.info("Job " + this.job.getId() + " was killed while being set up");
+                this.jobService.setJobStatus(
+                        this.job.getId(),
+                        JobStatus.KILLED,
+                        "Job killed on user request while being set up"
+                );
+                throw ge;
+            }
+            final String msg = "Failed to set up the job: " + ge.getMessage();
+            LOG.error(msg, ge);
+            this.jobService.setJobStatus(this.job.getId(), JobStatus.FAILED, msg);
+            throw ge;
+        }
+        this.jobService.setSetupTimesForJob(this.job.getId(), setupTimes);
     }
 
     /**
-     * Get process id for the given process.
+     * Converts a collection of strings to a CSV.
      *
-     * @param proc java process object representing the job launcher
-     * @return pid for this process
-     * @throws GenieException if there is an error getting the process id
+     * @param collection Collection object contains the strings
+     * @return a string containing the other strings as space delimited list
      */
-    private int getProcessId(final Process proc) throws GenieException {
-        LOG.debug("called");
-
-        try {
-            final Field f = proc.getClass().getDeclaredField(PID);
-            f.setAccessible(true);
-            return f.getInt(proc);
-        } catch (final IllegalAccessException | IllegalArgumentException | NoSuchFieldException | SecurityException e) {
-            String msg = "Can't get process id for job";
-            LOG.error(msg, e);
-            throw new GenieServerException(msg, e);
-        }
+    private String convertCollectionToString(final Collection<String> collection) {
+        return StringUtils.join(collection, SPACE);
     }
 }
@@ -17,433 +17,457 @@
  */
 package com.netflix.genie.server.jobmanager.impl;
 
+import com.netflix.config.ConfigurationManager;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
-import com.netflix.genie.server.jobmanager.JobMonitor;
-import com.netflix.config.ConfigurationManager;
 import com.netflix.genie.common.model.Job;
 import com.netflix.genie.common.model.JobStatus;
 import com.netflix.genie.server.jobmanager.JobManager;
-import com.netflix.genie.server.metrics.GenieNodeStatistics;
+import com.netflix.genie.server.jobmanager.JobMonitor;
+import com.netflix.genie.server.jobmanager.JobNotifier;
+import com.netflix.genie.server.jobmanager.JobOutputCapture;
+import com.netflix.genie.server.jobmanager.LogArchiver;
 import com.netflix.genie.server.services.ExecutionService;
-
-import java.io.File;
-import java.util.Properties;
-import javax.inject.Inject;
-import javax.inject.Named;
-import javax.mail.Authenticator;
-import javax.mail.Message;
-import javax.mail.MessagingException;
-import javax.mail.PasswordAuthentication;
-import javax.mail.Session;
-import javax.mail.Transport;
-import javax.mail.internet.InternetAddress;
-import javax.mail.internet.MimeMessage;
-
 import com.netflix.genie.server.services.JobService;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
 import org.apache.commons.configuration.AbstractConfiguration;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.annotation.Scope;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * The monitor thread that gets launched for each job.
+ * Single monitor for the processes of all the jobs on this node. One
+ * scheduler thread checks every tracked process for exit at a short interval
+ * and, less often, records a heartbeat for and checks the output limits of
+ * the jobs still running. Finalizing finished jobs and killing jobs over their
+ * limits is handed to a small pool so a slow database or kill script never
+ * delays exit detection for the other jobs.
  *
  * @author skrishnan
  * @author amsharma
  * @author tgianos
  */
 @Named
-@Scope("prototype")
 public class JobMonitorImpl implements JobMonitor {
 
     private static final Logger LOG = LoggerFactory.getLogger(JobMonitorImpl.class);
 
-    private String jobId;
-
-    private JobManager jobManager;
-
-    private final GenieNodeStatistics genieNodeStatistics;
-    private final ExecutionService xs;
-    private final JobService jobService;
-
-    // interval to check status, and update in database if needed
-    private static final int JOB_UPDATE_TIME_MS = 60000;
-
-    // last updated time in DB
-    private long lastUpdatedTimeMS;
-
-    // the handle to the process for the running job
-    private Process proc;
-
-    // the working directory for this job
-    private String workingDir;
-
-    // the stdout for this job
-    private File stdOutFile;
+    // default interval to record a heartbeat for and check the limits of the running jobs
+    private static final long JOB_UPDATE_TIME_MS = 60000L;
 
     // stdout filename
     private static final String STDOUT_FILENAME = "stdout";
 
-    // the stderr for this job
-    private File stdErrFile;
-
     // stderr filename
     private static final String STDERR_FILENAME = "stderr";
 
+    // how often to look whether the output of an exited job was copied
+    private static final long OUTPUT_POLL_MS = 100L;
+
+    private final JobNotifier jobNotifier;
+    private final ExecutionService xs;
+    private final JobService jobService;
+    private final JobOutputCapture outputCapture;
+    private final LogArchiver logArchiver;
+
     // max specified stdout size
     private final Long maxStdoutSize;
 
-    // max specified stdout size
+    // max specified stderr size
     private final Long maxStderrSize;
 
-
-    // whether this job has been terminated by the monitor thread
-    private boolean terminated = false;
-
     // Config Instance to get all properties
     private final AbstractConfiguration config;
 
-    private int sleepTime = 5000;
+    // the processes being tracked keyed by job id
+    private final ConcurrentMap<String, MonitoredJob> jobs = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+
+    // max number of jobs to record a heartbeat for in one update
+    private final int heartbeatBatchSize;
+
+    // how long to wait for the output of an exited job to be copied before finalizing it
+    private final long outputWait;
+
+    @Monitor(name = "Tracked_Processes", type = DataSourceType.GAUGE)
+    private final AtomicInteger trackedProcesses = new AtomicInteger(0);
+
+    @Monitor(name = "Heartbeat_Batch_Size", type = DataSourceType.GAUGE)
+    private final AtomicInteger heartbeatBatch = new AtomicInteger(0);
+
+    @Monitor(name = "Heartbeat_Flush_Time_Ms", type = DataSourceType.GAUGE)
+    private final AtomicLong heartbeatFlushTime = new AtomicLong(0);
+
+    @Monitor(name = "Heartbeat_Failures", type = DataSourceType.COUNTER)
+    private final AtomicLong heartbeatFailures = new AtomicLong(0);
 
     /**
      * Constructor.
      *
-     * @param xs                  The job execution service.
-     * @param jobService          The job service API's to use.
-     * @param genieNodeStatistics The statistics object to use
+     * @param xs            The job execution service.
+     * @param jobService    The job service API's to use.
+     * @param jobNotifier   The notifier which emails users when their jobs finish
+     * @param outputCapture The output capture which enforces output limits inline
+     * @param logArchiver   The archiver of the logs of finished jobs
      */
     @Inject
     public JobMonitorImpl(
             final ExecutionService xs,
             final JobService jobService,
-            final GenieNodeStatistics genieNodeStatistics) {
+            final JobNotifier jobNotifier,
+            final JobOutputCapture outputCapture,
+            final LogArchiver logArchiver) {
         this.xs = xs;
         this.jobService = jobService;
-        this.genieNodeStatistics = genieNodeStatistics;
+        this.outputCapture = outputCapture;
+        this.jobNotifier = jobNotifier;
+        this.logArchiver = logArchiver;
         this.config = ConfigurationManager.getConfigInstance();
         this.maxStdoutSize = this.config.getLong("com.netflix.genie.job.max.stdout.size", null);
         this.maxStderrSize = this.config.getLong("com.netflix.genie.job.max.stderr.size", null);
-
-        this.workingDir = null;
-        this.proc = null;
-        this.stdOutFile = null;
-        this.stdErrFile = null;
+        this.heartbeatBatchSize = Math.max(
+                1,
+                this.config.getInt("com.netflix.genie.server.job.heartbeat.batch.size", 500)
+        );
+        this.outputWait = this.config.getLong("com.netflix.genie.server.job.output.drain.wait.ms", 10000L);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(createThreadFactory("genie-job-monitor-"));
+        this.workers = Executors.newFixedThreadPool(
+                this.config.getInt("com.netflix.genie.server.job.monitor.threads", 2),
+                createThreadFactory("genie-job-finalizer-")
+        );
     }
 
     /**
-     * {@inheritDoc}
+     * Register the metrics and start checking the tracked processes.
      */
-    @Override
-    public void setJob(final Job job) throws GenieException {
-        if (job == null || StringUtils.isBlank(job.getId())) {
-            throw new GeniePreconditionException("No job entered.");
-        }
-        this.jobId = job.getId();
+    @PostConstruct
+    public void initialize() {
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+
+        final long interval = this.config.getLong("com.netflix.genie.server.job.monitor.interval.ms", 500L);
+        this.scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                reapExitedProcesses();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        final long heartbeatInterval = this.config.getLong(
+                "com.netflix.genie.server.job.heartbeat.interval.ms",
+                JOB_UPDATE_TIME_MS
+        );
+        this.scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checkRunningJobs();
+            }
+        }, heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * {@inheritDoc}
+     * Stop checking the tracked processes and unregister the metrics.
      */
-    @Override
-    public void setWorkingDir(final String workingDir) {
-        this.workingDir = workingDir;
-        if (this.workingDir != null) {
-            this.stdOutFile = new File(this.workingDir + File.separator + "stdout.log");
-            this.stdErrFile = new File(this.workingDir + File.separator + "stderr.log");
-        }
+    @PreDestroy
+    public void shutdown() {
+        LOG.info("Shutting down job monitor with " + this.jobs.size() + " tracked processes");
+        this.scheduler.shutdownNow();
+        this.workers.shutdown();
+        Monitors.unregisterObject(this);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void setProcess(final Process proc) throws GenieException {
+    public void monitor(
+            final Job job,
+            final Process proc,
+            final String workingDir,
+            final JobManager jobManager) throws GenieException {
+        if (job == null || StringUtils.isBlank(job.getId())) {
+            throw new GeniePreconditionException("No job entered.");
+        }
         if (proc == null) {
             throw new GeniePreconditionException("No process entered.");
         }
-        this.proc = proc;
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void setJobManager(final JobManager jobManager) throws GenieException {
         if (jobManager == null) {
             throw new GeniePreconditionException("No job manager entered.");
         }
-        this.jobManager = jobManager;
+        this.jobs.put(job.getId(), new MonitoredJob(job.getId(), proc, workingDir, jobManager));
+        this.trackedProcesses.set(this.jobs.size());
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void setThreadSleepTime(int sleepTime) throws GenieException {
-        if (sleepTime < 1) {
-            throw new GeniePreconditionException("Sleep time was less than 1. Unable to sleep that little.");
-        }
-        this.sleepTime = sleepTime;
+    public int getNumTrackedProcesses() {
+        return this.jobs.size();
     }
 
     /**
-     * The main run method for this thread - wait till it finishes, and manage
-     * job state in DB.
+     * Find the tracked processes which have exited and hand them off to be
+     * finalized.
      */
-    @Override
-    public void run() {
+    protected void reapExitedProcesses() {
         try {
-            // wait for process to complete
-            final boolean killed = this.xs.finalizeJob(this.jobId, waitForExit()) == JobStatus.KILLED;
-
-            // Check if user email address is specified. If so
-            // send an email to user about job completion.
-            final String emailTo = this.jobService.getJob(this.jobId).getEmail();
-
-            if (emailTo != null) {
-                LOG.info("User email address: " + emailTo);
-
-                if (sendEmail(emailTo, killed)) {
-                    // Email sent successfully. Update success email counter
-                    this.genieNodeStatistics.incrSuccessfulEmailCount();
-                } else {
-                    // Failed to send email. Update email failed counter
-                    LOG.warn("Failed to send email.");
-                    this.genieNodeStatistics.incrFailedEmailCount();
+            final Iterator<MonitoredJob> iterator = this.jobs.values().iterator();
+            while (iterator.hasNext()) {
+                final MonitoredJob monitoredJob = iterator.next();
+                final Integer exitCode = getExitCode(monitoredJob.getProcess());
+                if (exitCode != null) {
+                    iterator.remove();
+                    this.trackedProcesses.set(this.jobs.size());
+                    this.workers.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            finalizeJob(monitoredJob, exitCode);
+                        }
+                    });
                 }
             }
-        } catch (final GenieException ge) {
-            //TODO: Some sort of better handling.
-            LOG.error(ge.getMessage(), ge);
+        } catch (final RuntimeException re) {
+            // never let the exception escape or the scheduler stops running the task
+            LOG.error("Unable to check job processes for exit", re);
         }
     }
 
     /**
-     * Is the job running?
-     *
-     * @return true if job is running, false otherwise
+     * Record a heartbeat for the jobs which are still running and kill any
+     * which are writing more than the max stdout/stderr limit.
      */
-    private boolean isRunning() {
-        try {
-            this.proc.exitValue();
-        } catch (final IllegalThreadStateException e) {
-            return true;
+    protected void checkRunningJobs() {
+        this.recordHeartbeats();
+        for (final MonitoredJob monitoredJob : this.jobs.values()) {
+            final String jobId = monitoredJob.getJobId();
+            // if it has been terminated already, move on and wait for it to clean up after itself. Captured
+            // output has its limits enforced as it is written
+            final String issueFile = monitoredJob.isTerminated() || this.outputCapture.isCapturing(jobId)
+                    ? null
+                    : this.getExceededFile(monitoredJob);
+            if (issueFile != null) {
+                LOG.warn("Killing job " + jobId + " as its " + issueFile + " is greater than limit");
+                monitoredJob.setTerminated(true);
+                // kill the job - no need to update status, as it will be updated once the process exits
+                this.workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            monitoredJob.getJobManager().kill();
+                        } catch (final GenieException e) {
+                            LOG.error("Can't kill job " + jobId + " after exceeding " + issueFile + " limit", e);
+                            // try again during the next check
+                            monitoredJob.setTerminated(false);
+                        }
+                    }
+                });
+            }
         }
-        return false;
     }
 
     /**
-     * Check if it is time to update the job status.
-     *
-     * @return true if job hasn't been updated for configured time, false
-     * otherwise
+     * Record a heartbeat for all the running jobs with one update per batch
+     * rather than one transaction per job.
      */
-    private boolean shouldUpdateJob() {
-        long curTimeMS = System.currentTimeMillis();
-        long timeSinceStartMS = curTimeMS - this.lastUpdatedTimeMS;
-
-        return timeSinceStartMS >= JOB_UPDATE_TIME_MS;
+    private void recordHeartbeats() {
+        final List<String> ids = new ArrayList<>(this.jobs.keySet());
+        for (int start = 0; start < ids.size(); start += this.heartbeatBatchSize) {
+            final List<String> batch = ids.subList(start, Math.min(ids.size(), start + this.heartbeatBatchSize));
+            final long flushStart = System.currentTimeMillis();
+            try {
+                final int updated = this.jobService.setUpdateTimes(batch);
+                if (updated != batch.size()) {
+                    LOG.debug("Only " + updated + " of " + batch.size() + " jobs were still running");
+                }
+            } catch (final GenieException | RuntimeException e) {
+                this.heartbeatFailures.incrementAndGet();
+                LOG.error("Unable to update the heartbeat of jobs " + batch, e);
+            }
+            this.heartbeatBatch.set(batch.size());
+            this.heartbeatFlushTime.set(System.currentTimeMillis() - flushStart);
+        }
     }
 
     /**
-     * Wait until the job finishes, and then return exit code. Also ensure that
-     * stdout is within the limit (if specified), and update DB status
-     * periodically (as RUNNING).
+     * Finalize a job whose process has exited, archive its logs and let the
+     * user know by email if they asked for it.
      *
-     * @return exit code for the job after it finishes
-     * @throws GenieException on issue
+     * @param monitoredJob The job
+     * @param exitCode     The exit code of the process
      */
-    private int waitForExit() throws GenieException {
-        this.lastUpdatedTimeMS = System.currentTimeMillis();
-        while (this.isRunning()) {
-            try {
-                Thread.sleep(this.sleepTime);
-            } catch (final InterruptedException e) {
-                LOG.error("Exception while waiting for job " + this.jobId
-                        + " to finish", e);
-                // move on
-            }
-
-            // update status only in JOB_UPDATE_TIME_MS intervals
-            if (shouldUpdateJob()) {
-                this.lastUpdatedTimeMS = this.jobService.setUpdateTime(this.jobId);
-
-                // kill the job if it is writing out more than the max stdout/stderr limit
-                // if it has been terminated already, move on and wait for it to clean up after itself
-                String issueFile = null;
-                if (!this.terminated) {
-                    if (this.stdOutFile != null
-                            && this.stdOutFile.exists()
-                            && this.maxStdoutSize != null
-                            && this.stdOutFile.length() > this.maxStdoutSize
-                        ) {
-                        issueFile = STDOUT_FILENAME;
-                    } else if (
-                            this.stdErrFile != null
-                                    && this.stdErrFile.exists()
-                                    && this.maxStderrSize != null
-                                    && this.stdErrFile.length() > this.maxStderrSize
-                            ) {
-                        issueFile = STDERR_FILENAME;
-                    }
-                }
+    private void finalizeJob(final MonitoredJob monitoredJob, final int exitCode) {
+        final String jobId = monitoredJob.getJobId();
+        this.awaitOutput(jobId);
+        try {
+            final boolean killed = this.xs.finalizeJob(jobId, exitCode) == JobStatus.KILLED;
 
-                if (issueFile != null) {
-                    LOG.warn("Killing job " + this.jobId + " as its " + issueFile + " is greater than limit");
-                    // kill the job - no need to update status, as it will be updated during next iteration
-                    try {
-                        this.jobManager.kill();
-                        this.terminated = true;
-                    } catch (final GenieException e) {
-                        LOG.error("Can't kill job " + this.jobId
-                                + " after exceeding " + issueFile + " limit", e);
-                        // continue - hoping that it can get cleaned up during next iteration
-                    }
-                }
+            // the archive and email are only queued here so neither can hold up finalizing other jobs
+            final Job job = this.jobService.getJob(jobId);
+            if (monitoredJob.getWorkingDir() != null) {
+                this.logArchiver.archive(job, monitoredJob.getWorkingDir());
             }
+            this.jobNotifier.notifyCompletion(job, killed ? JobStatus.KILLED : job.getStatus());
+        } catch (final GenieException | RuntimeException e) {
+            //TODO: Some sort of better handling.
+            LOG.error("Unable to finalize job " + jobId, e);
         }
-
-        return this.proc.exitValue();
     }
 
     /**
-     * Check the properties file to figure out if an email needs to be sent at
-     * the end of the job. If yes, get mail properties and try and send email
-     * about Job Status.
+     * Wait a while for the output of an exited job to be copied, so the
+     * job isn't reported finished before its last output is written, then
+     * stop tracking the output even if a process left behind by the job keeps
+     * the streams open.
      *
-     * @return 0 for success, -1 for failure
-     * @throws GenieException on issue
+     * @param jobId The id of the job
      */
-    private boolean sendEmail(String emailTo, boolean killed) throws GenieException {
-        LOG.debug("called");
-        final Job job = this.jobService.getJob(this.jobId);
-
-        if (!this.config.getBoolean("com.netflix.genie.server.mail.enable", false)) {
-            LOG.warn("Email is disabled but user has specified an email address.");
-            return false;
+    private void awaitOutput(final String jobId) {
+        final long start = System.currentTimeMillis();
+        boolean capturing = this.outputCapture.isCapturing(jobId);
+        try {
+            while (capturing && System.currentTimeMillis() - start < this.outputWait) {
+                Thread.sleep(OUTPUT_POLL_MS);
+                capturing = this.outputCapture.isCapturing(jobId);
+            }
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
         }
+        if (capturing) {
+            LOG.warn("Output of job " + jobId + " is still open after its process exited. Finalizing it anyway.");
+        }
+        this.outputCapture.finish(jobId);
+    }
 
-        // Sender's email ID
-        String fromEmail = this.config.getString("com.netflix.genie.server.mail.smpt.from", "no-reply-genie@geniehost.com");
-        LOG.info("From email address to use to send email: "
-                + fromEmail);
-
-        // Set the smtp server hostname. Use localhost as default
-        String smtpHost = this.config.getString("com.netflix.genie.server.mail.smtp.host", "localhost");
-        LOG.debug("Email smtp server: "
-                + smtpHost);
-
-        // Get system properties
-        Properties properties = new Properties();
-
-        // Setup mail server
-        properties.setProperty("mail.smtp.host", smtpHost);
-
-        // check whether authentication should be turned on
-        Authenticator auth = null;
+    private String getExceededFile(final MonitoredJob monitoredJob) {
+        final File stdOutFile = monitoredJob.getStdOutFile();
+        final File stdErrFile = monitoredJob.getStdErrFile();
+        if (stdOutFile != null
+                && this.maxStdoutSize != null
+                && stdOutFile.exists()
+                && stdOutFile.length() > this.maxStdoutSize) {
+            return STDOUT_FILENAME;
+        } else if (stdErrFile != null
+                && this.maxStderrSize != null
+                && stdErrFile.exists()
+                && stdErrFile.length() > this.maxStderrSize) {
+            return STDERR_FILENAME;
+        }
+        return null;
+    }
 
-        if (this.config.getBoolean("com.netflix.genie.server.mail.smtp.auth", false)) {
-            LOG.debug("Email Authentication Enabled");
+    /**
+     * Get the exit code of a process without blocking.
+     *
+     * @param proc The process
+     * @return The exit code or null if the process is still running
+     */
+    private static Integer getExitCode(final Process proc) {
+        try {
+            return proc.exitValue();
+        } catch (final IllegalThreadStateException e) {
+            return null;
+        }
+    }
 
-            properties.put("mail.smtp.starttls.enable", "true");
-            properties.put("mail.smtp.auth", "true");
+    private static ThreadFactory createThreadFactory(final String prefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(0);
 
-            String userName = config.getString("com.netflix.genie.server.mail.smtp.user");
-            String password = config.getString("com.netflix.genie.server.mail.smtp.password");
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
 
-            if (userName == null || password == null) {
-                LOG.error("Authentication is enabled and username/password for smtp server is null");
-                return false;
+    /**
+     * A tracked job process.
+     */
+    private static final class MonitoredJob {
+        private final String jobId;
+        private final Process process;
+        private final JobManager jobManager;
+        private final File workingDir;
+        private final File stdOutFile;
+        private final File stdErrFile;
+
+        // whether this job has been terminated for exceeding its limits
+        private volatile boolean terminated;
+
+        MonitoredJob(
+                final String jobId,
+                final Process process,
+                final String workingDir,
+                final JobManager jobManager) {
+            this.jobId = jobId;
+            this.process = process;
+            this.jobManager = jobManager;
+            if (workingDir != null) {
+                this.workingDir = new File(workingDir);
+                this.stdOutFile = new File(workingDir + File.separator + "stdout.log");
+                this.stdErrFile = new File(workingDir + File.separator + "stderr.log");
+            } else {
+                this.workingDir = null;
+                this.stdOutFile = null;
+                this.stdErrFile = null;
             }
-            LOG.debug("Constructing authenticator object with username"
-                    + userName
-                    + " and password "
-                    + password);
-            auth = new SMTPAuthenticator(userName,
-                    password);
-        } else {
-            LOG.debug("Email authentication not enabled.");
         }
 
-        // Get the default Session object.
-        Session session = Session.getInstance(properties, auth);
-
-        try {
-            // Create a default MimeMessage object.
-            MimeMessage message = new MimeMessage(session);
-
-            // Set From: header field of the header.
-            message.setFrom(new InternetAddress(fromEmail));
-
-            // Set To: header field of the header.
-            message.addRecipient(Message.RecipientType.TO,
-                    new InternetAddress(emailTo));
+        String getJobId() {
+            return this.jobId;
+        }
 
-            JobStatus jobStatus;
+        Process getProcess() {
+            return this.process;
+        }
 
-            if (killed) {
-                jobStatus = JobStatus.KILLED;
-            } else {
-                jobStatus = job.getStatus();
-            }
+        JobManager getJobManager() {
+            return this.jobManager;
+        }
 
-            // Set Subject: header field
-            message.setSubject("Genie Job "
-                    + job.getName()
-                    + " completed with Status: "
-                    + jobStatus);
-
-            // Now set the actual message
-            String body = "Your Genie Job is complete\n\n"
-                    + "Job ID: "
-                    + job.getId()
-                    + "\n"
-                    + "Job Name: "
-                    + job.getName()
-                    + "\n"
-                    + "Status: "
-                    + job.getStatus()
-                    + "\n"
-                    + "Status Message: "
-                    + job.getStatusMsg()
-                    + "\n"
-                    + "Output Base URL: "
-                    + job.getOutputURI()
-                    + "\n";
-
-            message.setText(body);
-
-            // Send message
-            Transport.send(message);
-            LOG.info("Sent email message successfully....");
-            return true;
-        } catch (final MessagingException mex) {
-            LOG.error("Got exception while sending email", mex);
-            return false;
+        File getWorkingDir() {
+            return this.workingDir;
         }
-    }
 
-    private static class SMTPAuthenticator extends Authenticator {
+        File getStdOutFile() {
+            return this.stdOutFile;
+        }
 
-        private final String username;
-        private final String password;
+        File getStdErrFile() {
+            return this.stdErrFile;
+        }
 
-        /**
-         * Default constructor.
-         */
-        SMTPAuthenticator(final String username, final String password) {
-            this.username = username;
-            this.password = password;
+        boolean isTerminated() {
+            return this.terminated;
         }
 
-        /**
-         * Return a PasswordAuthentication object based on username/password.
-         */
-        @Override
-        public PasswordAuthentication getPasswordAuthentication() {
-            return new PasswordAuthentication(this.username, this.password);
+        void setTerminated(final boolean terminated) {
+            this.terminated = terminated;
         }
     }
 }
@@ -0,0 +1,366 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.server.jobmanager.JobNotifier;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends job completion emails from a bounded queue on a single dispatcher
+ * thread. The mail session is created once and the connection to the mail
+ * server is kept open while there are emails waiting, so a burst of finished
+ * jobs is sent in batches over one connection. Failed sends are retried with
+ * exponential backoff on a new connection.
+ *
+ * @author agent
+ */
+@Named
+public class JobNotifierImpl implements JobNotifier {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobNotifierImpl.class);
+
+    private final boolean enabled;
+    private final String fromEmail;
+    private final String smtpHost;
+    private final int smtpPort;
+    private final String userName;
+    private final String password;
+    private final int batchSize;
+    private final int attempts;
+    private final long retryBackoff;
+    private final Session session;
+    private final BlockingQueue<Notification> queue;
+    private final ExecutorService dispatcher;
+
+    // only used by the dispatcher thread
+    private Transport transport;
+
+    @Monitor(name = "Successful_Email_Count", type = DataSourceType.COUNTER)
+    private final AtomicLong successfulEmails = new AtomicLong(0);
+
+    @Monitor(name = "Failed_Email_Count", type = DataSourceType.COUNTER)
+    private final AtomicLong failedEmails = new AtomicLong(0);
+
+    @Monitor(name = "Email_Retries", type = DataSourceType.COUNTER)
+    private final AtomicLong retries = new AtomicLong(0);
+
+    @Monitor(name = "Email_Queue_Last_Wait_Time_Ms", type = DataSourceType.GAUGE)
+    private final AtomicLong lastWaitTime = new AtomicLong(0);
+
+    @Monitor(name = "Email_Queue_Total_Wait_Time_Ms", type = DataSourceType.COUNTER)
+    private final AtomicLong totalWaitTime = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     */
+    public JobNotifierImpl() {
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        this.fromEmail = config.getString("com.netflix.genie.server.mail.smpt.from", "no-reply-genie@geniehost.com");
+        this.smtpHost = config.getString("com.netflix.genie.server.mail.smtp.host", "localhost");
+        this.smtpPort = config.getInt("com.netflix.genie.server.mail.smtp.port", 25);
+        this.batchSize = Math.max(1, config.getInt("com.netflix.genie.server.mail.batch.size", 50));
+        this.attempts = Math.max(1, config.getInt("com.netflix.genie.server.mail.attempts", 3));
+        this.retryBackoff = config.getLong("com.netflix.genie.server.mail.retry.backoff.ms", 1000L);
+        this.queue = new ArrayBlockingQueue<>(config.getInt("com.netflix.genie.server.mail.queue.size", 1000));
+
+        final Properties properties = new Properties();
+        properties.setProperty("mail.smtp.host", this.smtpHost);
+        properties.setProperty("mail.smtp.port", Integer.toString(this.smtpPort));
+        // never let a hung mail server block the dispatcher forever
+        final String timeout = Long.toString(config.getLong("com.netflix.genie.server.mail.smtp.timeout.ms", 30000L));
+        properties.setProperty("mail.smtp.connectiontimeout", timeout);
+        properties.setProperty("mail.smtp.timeout", timeout);
+
+        boolean mailEnabled = config.getBoolean("com.netflix.genie.server.mail.enable", false);
+        if (config.getBoolean("com.netflix.genie.server.mail.smtp.auth", false)) {
+            LOG.debug("Email Authentication Enabled");
+            properties.setProperty("mail.smtp.starttls.enable", "true");
+            properties.setProperty("mail.smtp.auth", "true");
+            this.userName = config.getString("com.netflix.genie.server.mail.smtp.user");
+            this.password = config.getString("com.netflix.genie.server.mail.smtp.password");
+            if (this.userName == null || this.password == null) {
+                LOG.error("Authentication is enabled and username/password for smtp server is null. Disabling email.");
+                mailEnabled = false;
+            }
+        } else {
+            this.userName = null;
+            this.password = null;
+        }
+        this.enabled = mailEnabled;
+        this.session = Session.getInstance(properties);
+
+        this.dispatcher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "genie-email-dispatcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Start sending queued emails and register the metrics.
+     */
+    @PostConstruct
+    public void initialize() {
+        if (this.enabled) {
+            this.dispatcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    dispatch();
+                }
+            });
+        }
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+    }
+
+    /**
+     * Stop sending emails and unregister the metrics.
+     */
+    @PreDestroy
+    public void shutdown() {
+        LOG.info("Shutting down email dispatcher with " + this.queue.size() + " queued emails");
+        this.dispatcher.shutdownNow();
+        Monitors.unregisterObject(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean notifyCompletion(final Job job, final JobStatus status) throws GenieException {
+        if (job == null) {
+            throw new GeniePreconditionException("No job entered. Unable to send email.");
+        }
+        if (StringUtils.isBlank(job.getEmail())) {
+            return false;
+        }
+        if (!this.enabled) {
+            LOG.warn("Email is disabled but user has specified an email address.");
+            this.failedEmails.incrementAndGet();
+            return false;
+        }
+        if (!this.queue.offer(new Notification(job, status))) {
+            LOG.warn("Email queue is full. Not sending email for job " + job.getId());
+            this.failedEmails.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Monitor(name = "Email_Queue_Depth", type = DataSourceType.GAUGE)
+    public int getQueueDepth() {
+        return this.queue.size();
+    }
+
+    /**
+     * Get the number of emails sent.
+     *
+     * @return The number of emails sent
+     */
+    public long getSuccessfulEmailCount() {
+        return this.successfulEmails.get();
+    }
+
+    /**
+     * Get the number of emails which couldn't be sent or queued.
+     *
+     * @return The number of failed emails
+     */
+    public long getFailedEmailCount() {
+        return this.failedEmails.get();
+    }
+
+    /**
+     * Get the number of times sending an email was retried.
+     *
+     * @return The number of retries
+     */
+    public long getRetryCount() {
+        return this.retries.get();
+    }
+
+    private void dispatch() {
+        final List<Notification> batch = new ArrayList<>(this.batchSize);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(this.queue.take());
+                this.queue.drainTo(batch, this.batchSize - 1);
+                for (final Notification notification : batch) {
+                    this.send(notification);
+                }
+                batch.clear();
+                if (this.queue.isEmpty()) {
+                    // mail servers drop idle connections so don't hold on to it
+                    this.closeTransport();
+                }
+            }
+        } catch (final InterruptedException ie) {
+            LOG.info("Email dispatcher stopped with " + (batch.size() + this.queue.size()) + " emails not sent");
+            Thread.currentThread().interrupt();
+        } finally {
+            this.closeTransport();
+        }
+    }
+
+    private void send(final Notification notification) throws InterruptedException {
+        final long waitTime = System.currentTimeMillis() - notification.getQueuedTime();
+        this.lastWaitTime.set(waitTime);
+        this.totalWaitTime.addAndGet(waitTime);
+
+        final MimeMessage message;
+        try {
+            message = this.createMessage(notification);
+        } catch (final MessagingException me) {
+            // a bad address won't get better by retrying
+            LOG.error("Unable to create email for job " + notification.getJobId(), me);
+            this.failedEmails.incrementAndGet();
+            return;
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                this.getTransport().sendMessage(message, message.getAllRecipients());
+                LOG.info("Sent email for job " + notification.getJobId());
+                this.successfulEmails.incrementAndGet();
+                return;
+            } catch (final MessagingException me) {
+                // the connection may be what failed so start over with a new one
+                this.closeTransport();
+                if (attempt >= this.attempts) {
+                    LOG.error("Unable to send email for job " + notification.getJobId()
+                            + " after " + attempt + " attempts", me);
+                    this.failedEmails.incrementAndGet();
+                    return;
+                }
+                LOG.warn("Unable to send email for job " + notification.getJobId() + ". Retrying.", me);
+                this.retries.incrementAndGet();
+                Thread.sleep(this.retryBackoff * (1L << (attempt - 1)));
+            }
+        }
+    }
+
+    private MimeMessage createMessage(final Notification notification) throws MessagingException {
+        final MimeMessage message = new MimeMessage(this.session);
+        message.setFrom(new InternetAddress(this.fromEmail));
+        message.addRecipient(Message.RecipientType.TO, new InternetAddress(notification.getEmailTo()));
+        message.setSubject(notification.getSubject());
+        message.setText(notification.getBody());
+        return message;
+    }
+
+    private Transport getTransport() throws MessagingException {
+        if (this.transport == null || !this.transport.isConnected()) {
+            this.transport = this.session.getTransport("smtp");
+            this.transport.connect(this.smtpHost, this.smtpPort, this.userName, this.password);
+        }
+        return this.transport;
+    }
+
+    private void closeTransport() {
+        if (this.transport != null) {
+            try {
+                this.transport.close();
+            } catch (final MessagingException me) {
+                LOG.debug("Unable to close connection to mail server", me);
+            }
+            this.transport = null;
+        }
+    }
+
+    /**
+     * An email waiting to be sent. Everything is copied out of the job when
+     * it is queued.
+     */
+    private static final class Notification {
+        private final String jobId;
+        private final String emailTo;
+        private final String subject;
+        private final String body;
+        private final long queuedTime;
+
+        Notification(final Job job, final JobStatus status) {
+            this.jobId = job.getId();
+            this.emailTo = job.getEmail();
+            this.subject = "Genie Job " + job.getName() + " completed with Status: " + status;
+            this.body = "Your Genie Job is complete\n\n"
+                    + "Job ID: " + job.getId() + "\n"
+                    + "Job Name: " + job.getName() + "\n"
+                    + "Status: " + status + "\n"
+                    + "Status Message: " + job.getStatusMsg() + "\n"
+                    + "Output Base URL: " + job.getOutputURI() + "\n";
+            this.queuedTime = System.currentTimeMillis();
+        }
+
+        String getJobId() {
+            return this.jobId;
+        }
+
+        String getEmailTo() {
+            return this.emailTo;
+        }
+
+        String getSubject() {
+            return this.subject;
+        }
+
+        String getBody() {
+            return this.body;
+        }
+
+        long getQueuedTime() {
+            return this.queuedTime;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.server.jobmanager.JobManager;
+import com.netflix.genie.server.jobmanager.JobOutputCapture;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies the output of each job from its process pipes to the job's working
+ * directory through NIO channels, counting the bytes as they pass. Once a
+ * stream reaches its limit the job is either killed right away or, with the
+ * rotate policy, the oldest output is dropped so only the most recent output
+ * up to the limit is kept.
+ *
+ * @author agent
+ */
+@Named
+public class JobOutputCaptureImpl implements JobOutputCapture {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobOutputCaptureImpl.class);
+
+    private static final String STDOUT_LOG = "stdout.log";
+    private static final String STDERR_LOG = "stderr.log";
+    private static final String ROTATED_SUFFIX = ".1";
+
+    /**
+     * What to do when a job writes more than the max size of a stream.
+     */
+    enum LimitPolicy {
+        /**
+         * Kill the job.
+         */
+        KILL,
+
+        /**
+         * Keep the most recent output, dropping the oldest.
+         */
+        ROTATE
+    }
+
+    private final boolean enabled;
+    private final LimitPolicy limitPolicy;
+    private final Long maxStdoutSize;
+    private final Long maxStderrSize;
+    private final int bufferSize;
+    private final ConcurrentMap<String, CapturedJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService pumps;
+
+    @Monitor(name = "Job_Output_Bytes", type = DataSourceType.COUNTER)
+    private final AtomicLong outputBytes = new AtomicLong(0);
+
+    @Monitor(name = "Job_Output_Limit_Kills", type = DataSourceType.COUNTER)
+    private final AtomicLong limitKills = new AtomicLong(0);
+
+    @Monitor(name = "Job_Output_Rotations", type = DataSourceType.COUNTER)
+    private final AtomicLong rotations = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     */
+    public JobOutputCaptureImpl() {
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        this.enabled = config.getBoolean("com.netflix.genie.server.job.output.capture.enabled", true);
+        this.maxStdoutSize = config.getLong("com.netflix.genie.job.max.stdout.size", null);
+        this.maxStderrSize = config.getLong("com.netflix.genie.job.max.stderr.size", null);
+        this.bufferSize = config.getInt("com.netflix.genie.server.job.output.buffer.size", 65536);
+
+        final String policy = config.getString("com.netflix.genie.server.job.output.limit.policy", "kill");
+        LimitPolicy parsed;
+        try {
+            parsed = LimitPolicy.valueOf(policy.trim().toUpperCase());
+        } catch (final IllegalArgumentException iae) {
+            LOG.warn("Unknown output limit policy " + policy + ". Jobs over the limit will be killed.");
+            parsed = LimitPolicy.KILL;
+        }
+        this.limitPolicy = parsed;
+
+        this.pumps = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "genie-job-output-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Register the metrics.
+     */
+    @PostConstruct
+    public void initialize() {
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+    }
+
+    /**
+     * Stop capturing output and unregister the metrics.
+     */
+    @PreDestroy
+    public void shutdown() {
+        LOG.info("Shutting down job output capture with " + this.jobs.size() + " jobs");
+        this.pumps.shutdownNow();
+        Monitors.unregisterObject(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void capture(
+            final Job job,
+            final Process proc,
+            final String workingDir,
+            final JobManager jobManager) throws GenieException {
+        if (job == null || StringUtils.isBlank(job.getId())) {
+            throw new GeniePreconditionException("No job entered.");
+        }
+        if (proc == null) {
+            throw new GeniePreconditionException("No process entered.");
+        }
+        if (StringUtils.isBlank(workingDir)) {
+            throw new GeniePreconditionException("No working directory entered.");
+        }
+
+        final CapturedJob capturedJob = new CapturedJob(job.getId(), jobManager);
+        this.jobs.put(job.getId(), capturedJob);
+        this.pumps.execute(new OutputPump(
+                capturedJob, proc.getInputStream(), new File(workingDir, STDOUT_LOG), this.maxStdoutSize
+        ));
+        this.pumps.execute(new OutputPump(
+                capturedJob, proc.getErrorStream(), new File(workingDir, STDERR_LOG), this.maxStderrSize
+        ));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCapturing(final String id) {
+        return id != null && this.jobs.containsKey(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void finish(final String id) {
+        if (id != null && this.jobs.remove(id) != null) {
+            LOG.info("Stopped tracking the output of job " + id + " before its streams were closed");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getOutputBytes(final String id) {
+        final CapturedJob capturedJob = id == null ? null : this.jobs.get(id);
+        return capturedJob == null ? 0L : capturedJob.getBytes();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getOutputRate(final String id) {
+        final CapturedJob capturedJob = id == null ? null : this.jobs.get(id);
+        if (capturedJob == null) {
+            return 0.0;
+        }
+        final long elapsed = Math.max(1L, System.currentTimeMillis() - capturedJob.getStartTime());
+        return capturedJob.getBytes() * 1000.0 / elapsed;
+    }
+
+    /**
+     * Copies one output stream of a job to a file until the process closes it.
+     */
+    private final class OutputPump implements Runnable {
+        private final CapturedJob capturedJob;
+        private final InputStream input;
+        private final Path path;
+        private final Long maxSize;
+
+        OutputPump(final CapturedJob capturedJob, final InputStream input, final File file, final Long maxSize) {
+            this.capturedJob = capturedJob;
+            this.input = input;
+            this.path = file.toPath();
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public void run() {
+            // with rotation two files are kept so each holds at most half the limit
+            final Long fileLimit = this.maxSize == null
+                    ? null
+                    : limitPolicy == LimitPolicy.ROTATE ? Math.max(1L, this.maxSize / 2) : this.maxSize;
+            final ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+            FileChannel out = null;
+            try (final ReadableByteChannel in = Channels.newChannel(this.input)) {
+                out = open(this.path);
+                long written = 0;
+                boolean discard = false;
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    this.capturedJob.addBytes(buffer.remaining());
+                    outputBytes.addAndGet(buffer.remaining());
+                    while (buffer.hasRemaining() && !discard) {
+                        final long space = fileLimit == null ? Long.MAX_VALUE : fileLimit - written;
+                        if (space <= 0) {
+                            if (limitPolicy == LimitPolicy.ROTATE) {
+                                out.close();
+                                Files.move(
+                                        this.path,
+                                        this.path.resolveSibling(this.path.getFileName() + ROTATED_SUFFIX),
+                                        StandardCopyOption.REPLACE_EXISTING
+                                );
+                                out = open(this.path);
+                                written = 0;
+                                rotations.incrementAndGet();
+                            } else {
+                                // keep draining the pipe so the job doesn't block before the kill lands
+                                discard = true;
+                                this.capturedJob.killForLimit(this.path.getFileName().toString());
+                            }
+                        } else {
+                            final int oldLimit = buffer.limit();
+                            if (buffer.remaining() > space) {
+                                buffer.limit(buffer.position() + (int) space);
+                            }
+                            written += out.write(buffer);
+                            buffer.limit(oldLimit);
+                        }
+                    }
+                    buffer.clear();
+                }
+            } catch (final IOException ioe) {
+                LOG.error("Unable to capture " + this.path + " for job " + this.capturedJob.getId(), ioe);
+            } finally {
+                if (out != null) {
+                    try {
+                        out.close();
+                    } catch (final IOException ioe) {
+                        LOG.warn("Unable to close " + this.path, ioe);
+                    }
+                }
+                if (this.capturedJob.streamFinished()) {
+                    jobs.remove(this.capturedJob.getId(), this.capturedJob);
+                }
+            }
+        }
+
+        private FileChannel open(final Path file) throws IOException {
+            return FileChannel.open(
+                    file,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING
+            );
+        }
+    }
+
+    /**
+     * The capture state of a single job.
+     */
+    private final class CapturedJob {
+        private final String id;
+        private final JobManager jobManager;
+        private final long startTime = System.currentTimeMillis();
+        private final AtomicLong bytes = new AtomicLong(0);
+        private final AtomicInteger openStreams = new AtomicInteger(2);
+        private final AtomicBoolean killed = new AtomicBoolean(false);
+
+        CapturedJob(final String id, final JobManager jobManager) {
+            this.id = id;
+            this.jobManager = jobManager;
+        }
+
+        String getId() {
+            return this.id;
+        }
+
+        long getStartTime() {
+            return this.startTime;
+        }
+
+        long getBytes() {
+            return this.bytes.get();
+        }
+
+        void addBytes(final long count) {
+            this.bytes.addAndGet(count);
+        }
+
+        /**
+         * Record that one of the streams of the job was closed.
+         *
+         * @return true if it was the last open stream
+         */
+        boolean streamFinished() {
+            return this.openStreams.decrementAndGet() == 0;
+        }
+
+        void killForLimit(final String fileName) {
+            if (this.jobManager == null || !this.killed.compareAndSet(false, true)) {
+                return;
+            }
+            LOG.warn("Killing job " + this.id + " as its " + fileName + " reached the limit");
+            limitKills.incrementAndGet();
+            try {
+                this.jobManager.kill();
+            } catch (final GenieException ge) {
+                LOG.error("Can't kill job " + this.id + " after exceeding " + fileName + " limit", ge);
+            }
+        }
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.server.jobmanager.JobLauncher;
+import com.netflix.genie.server.jobmanager.JobQueue;
+import com.netflix.genie.server.metrics.GenieNodeStatistics;
+import com.netflix.genie.server.repository.jpa.JobRepository;
+import com.netflix.genie.server.services.JobAdmissionController;
+import com.netflix.genie.server.services.JobService;
+import com.netflix.genie.server.util.NetUtil;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Job queue which launches the highest priority class first and takes turns
+ * between the users within a priority class so one user submitting many jobs
+ * can't starve everyone else. The priority class of a job is taken from a
+ * tag of the form genie.priority:high, genie.priority:normal or
+ * genie.priority:low. Jobs without one are normal priority.<br>
+ * The queue is only held in memory so INIT jobs left on this node by a
+ * restart are failed on startup instead of being left waiting forever.
+ *
+ * @author agent
+ */
+@Named
+public class JobQueueImpl implements JobQueue {
+
+    /**
+     * The prefix of the tag used to set the priority class of a job.
+     */
+    public static final String PRIORITY_TAG_PREFIX = "genie.priority:";
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobQueueImpl.class);
+
+    /**
+     * The priority classes in the order they're launched in.
+     */
+    private enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    private final JobAdmissionController admissionController;
+    private final JobLauncher jobLauncher;
+    private final JobService jobService;
+    private final JobRepository jobRepo;
+    private final GenieNodeStatistics stats;
+    private final int maxQueueSize;
+    private final long maxWaitTime;
+
+    // Per priority class the queued jobs of each user. The iteration order of
+    // each map is the order the users get their next turn in. Guarded by this.
+    private final Map<Priority, LinkedHashMap<String, Deque<QueuedJob>>> queues;
+    private final Map<String, QueuedJob> queuedJobs;
+
+    /**
+     * Constructor.
+     *
+     * @param admissionController The admission controller to take slots from
+     * @param jobLauncher         The launcher to launch dequeued jobs with
+     * @param jobService          The job service used to fail expired jobs
+     * @param jobRepo             The job repository used to find jobs left over by a restart
+     * @param stats               The statistics to publish the queue depth and wait time to
+     */
+    @Inject
+    public JobQueueImpl(
+            final JobAdmissionController admissionController,
+            final JobLauncher jobLauncher,
+            final JobService jobService,
+            final JobRepository jobRepo,
+            final GenieNodeStatistics stats) {
+        this.admissionController = admissionController;
+        this.jobLauncher = jobLauncher;
+        this.jobService = jobService;
+        this.jobRepo = jobRepo;
+        this.stats = stats;
+
+        final AbstractConfiguration conf = ConfigurationManager.getConfigInstance();
+        this.maxQueueSize = conf.getInt("com.netflix.genie.server.job.queue.size", 0);
+        this.maxWaitTime = conf.getLong("com.netflix.genie.server.job.queue.max.wait.ms", 600000L);
+
+        this.queues = new HashMap<>();
+        for (final Priority priority : Priority.values()) {
+            this.queues.put(priority, new LinkedHashMap<String, Deque<QueuedJob>>());
+        }
+        this.queuedJobs = new HashMap<>();
+    }
+
+    /**
+     * Fail the INIT jobs of this node which were saved before a restart. They
+     * were either queued or about to launch and nothing will launch them now.
+     */
+    @PostConstruct
+    public void failOrphanedJobs() {
+        LOG.debug("called");
+        final List<Job> orphans;
+        try {
+            orphans = this.jobRepo.findByHostNameAndStatus(NetUtil.getHostName(), JobStatus.INIT);
+        } catch (final GenieException | RuntimeException e) {
+            LOG.error("Unable to find jobs left in INIT state by a restart", e);
+            return;
+        }
+        for (final Job orphan : orphans) {
+            LOG.info("Failing job " + orphan.getId() + " which was never launched before Genie restarted");
+            try {
+                this.jobService.setJobStatus(
+                        orphan.getId(),
+                        JobStatus.FAILED,
+                        "Genie restarted before the job was launched. Please resubmit the job."
+                );
+            } catch (final GenieException ge) {
+                LOG.error("Unable to mark orphaned job " + orphan.getId() + " as failed", ge);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnabled() {
+        return this.maxQueueSize > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean offer(final Job job) throws GenieException {
+        if (job == null || StringUtils.isBlank(job.getId())) {
+            throw new GeniePreconditionException("No job with an id entered. Unable to queue.");
+        }
+        final int depth;
+        synchronized (this) {
+            if (this.queuedJobs.containsKey(job.getId())) {
+                return true;
+            }
+            if (this.queuedJobs.size() >= this.maxQueueSize) {
+                LOG.debug("Job queue is full. Unable to queue job " + job.getId());
+                return false;
+            }
+            final QueuedJob queuedJob = new QueuedJob(job, getPriority(job), System.currentTimeMillis());
+            final Map<String, Deque<QueuedJob>> users = this.queues.get(queuedJob.getPriority());
+            Deque<QueuedJob> userJobs = users.get(queuedJob.getUser());
+            if (userJobs == null) {
+                userJobs = new ArrayDeque<>();
+                users.put(queuedJob.getUser(), userJobs);
+            }
+            userJobs.add(queuedJob);
+            this.queuedJobs.put(job.getId(), queuedJob);
+            depth = this.queuedJobs.size();
+        }
+        LOG.info("Queued job " + job.getId() + " with " + depth + " jobs waiting");
+        this.stats.setJobQueueDepth(depth);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(final String id) {
+        final int depth;
+        synchronized (this) {
+            final QueuedJob queuedJob = this.queuedJobs.remove(id);
+            if (queuedJob == null) {
+                return false;
+            }
+            final Map<String, Deque<QueuedJob>> users = this.queues.get(queuedJob.getPriority());
+            final Deque<QueuedJob> userJobs = users.get(queuedJob.getUser());
+            userJobs.remove(queuedJob);
+            if (userJobs.isEmpty()) {
+                users.remove(queuedJob.getUser());
+            }
+            depth = this.queuedJobs.size();
+        }
+        this.stats.setJobQueueDepth(depth);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int drain() {
+        LOG.debug("called");
+        this.failExpiredJobs();
+
+        final int maxRunningJobs = ConfigurationManager.getConfigInstance()
+                .getInt("com.netflix.genie.server.max.running.jobs", 0);
+        int launched = 0;
+        while (this.getQueueDepth() > 0 && this.admissionController.tryReserve(maxRunningJobs)) {
+            final QueuedJob next = this.poll();
+            if (next == null) {
+                this.admissionController.cancelReservation();
+                break;
+            }
+            final String id = next.getJob().getId();
+            try {
+                this.admissionController.register(id);
+                if (!this.jobLauncher.tryLaunch(next.getJob())) {
+                    // The launcher is saturated. Give the slot back and put the job back at the
+                    // head of the line so it and the rest are launched by the next drain.
+                    LOG.info("Job launcher is saturated. Leaving job " + id + " queued.");
+                    this.admissionController.unregister(id);
+                    this.requeue(next);
+                    break;
+                }
+                this.stats.setJobQueueWaitTime(System.currentTimeMillis() - next.getQueuedTime());
+                launched++;
+            } catch (final GenieException ge) {
+                LOG.error("Unable to launch queued job " + id, ge);
+                this.admissionController.release(id);
+            }
+        }
+        if (launched > 0) {
+            LOG.info("Launched " + launched + " queued jobs");
+        }
+        return launched;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized int getQueueDepth() {
+        return this.queuedJobs.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Set<String> getQueuedJobIds() {
+        return new HashSet<>(this.queuedJobs.keySet());
+    }
+
+    /**
+     * Take the next job to launch. This is the oldest job of the user whose
+     * turn it is in the highest priority class with jobs waiting. The user
+     * then goes to the back of the line for that class.
+     *
+     * @return The next job or null if the queue is empty
+     */
+    private QueuedJob poll() {
+        final QueuedJob next;
+        final int depth;
+        synchronized (this) {
+            next = this.pollHighestPriority();
+            if (next == null) {
+                return null;
+            }
+            this.queuedJobs.remove(next.getJob().getId());
+            depth = this.queuedJobs.size();
+        }
+        this.stats.setJobQueueDepth(depth);
+        return next;
+    }
+
+    /**
+     * Put a job taken by poll back at the head of the line, giving its user
+     * the next turn in its priority class again.
+     *
+     * @param queuedJob The job to put back
+     */
+    private void requeue(final QueuedJob queuedJob) {
+        final int depth;
+        synchronized (this) {
+            final LinkedHashMap<String, Deque<QueuedJob>> users = this.queues.get(queuedJob.getPriority());
+            Deque<QueuedJob> userJobs = users.remove(queuedJob.getUser());
+            if (userJobs == null) {
+                userJobs = new ArrayDeque<>();
+            }
+            userJobs.addFirst(queuedJob);
+            final Map<String, Deque<QueuedJob>> others = new LinkedHashMap<>(users);
+            users.clear();
+            users.put(queuedJob.getUser(), userJobs);
+            users.putAll(others);
+            this.queuedJobs.put(queuedJob.getJob().getId(), queuedJob);
+            depth = this.queuedJobs.size();
+        }
+        this.stats.setJobQueueDepth(depth);
+    }
+
+    private QueuedJob pollHighestPriority() {
+        for (final Priority priority : Priority.values()) {
+            final LinkedHashMap<String, Deque<QueuedJob>> users = this.queues.get(priority);
+            if (!users.isEmpty()) {
+                final String user = users.keySet().iterator().next();
+                final Deque<QueuedJob> userJobs = users.remove(user);
+                final QueuedJob next = userJobs.poll();
+                if (!userJobs.isEmpty()) {
+                    users.put(user, userJobs);
+                }
+                return next;
+            }
+        }
+        return null;
+    }
+
+    private void failExpiredJobs() {
+        final long now = System.currentTimeMillis();
+        final List<String> expiredIds = new ArrayList<>();
+        synchronized (this) {
+            for (final QueuedJob queuedJob : this.queuedJobs.values()) {
+                if (now - queuedJob.getQueuedTime() > this.maxWaitTime) {
+                    expiredIds.add(queuedJob.getJob().getId());
+                }
+            }
+        }
+        for (final String id : expiredIds) {
+            if (this.remove(id)) {
+                LOG.info("Job " + id + " waited longer than " + this.maxWaitTime + " ms in the queue");
+                this.stats.incrJobQueueExpiredJobs();
+                // frees the user and group quota held while the job was queued
+                this.admissionController.release(id);
+                try {
+                    this.jobService.setJobStatus(
+                            id,
+                            JobStatus.FAILED,
+                            "Job waited longer than " + this.maxWaitTime + " ms for a free slot"
+                    );
+                } catch (final GenieException ge) {
+                    LOG.error("Unable to mark expired job " + id + " as failed", ge);
+                }
+            }
+        }
+    }
+
+    private static Priority getPriority(final Job job) {
+        if (job.getTags() != null) {
+            for (final String tag : job.getTags()) {
+                if (tag != null && tag.startsWith(PRIORITY_TAG_PREFIX)) {
+                    try {
+                        return Priority.valueOf(
+                                tag.substring(PRIORITY_TAG_PREFIX.length()).trim().toUpperCase(Locale.ENGLISH));
+                    } catch (final IllegalArgumentException iae) {
+                        LOG.warn("Unknown priority tag " + tag + " on job " + job.getId() + ". Using normal.");
+                    }
+                }
+            }
+        }
+        return Priority.NORMAL;
+    }
+
+    /**
+     * A job waiting in the queue.
+     */
+    private static final class QueuedJob {
+        private final Job job;
+        private final Priority priority;
+        private final String user;
+        private final long queuedTime;
+
+        QueuedJob(final Job job, final Priority priority, final long queuedTime) {
+            this.job = job;
+            this.priority = priority;
+            this.user = StringUtils.defaultString(job.getUser());
+            this.queuedTime = queuedTime;
+        }
+
+        Job getJob() {
+            return this.job;
+        }
+
+        Priority getPriority() {
+            return this.priority;
+        }
+
+        String getUser() {
+            return this.user;
+        }
+
+        long getQueuedTime() {
+            return this.queuedTime;
+        }
+    }
+}
@@ -0,0 +1,574 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.server.jobmanager.DependencyCache;
+import com.netflix.genie.server.jobmanager.JobSetupPipeline;
+import com.netflix.genie.server.util.FileUtil;
+import com.netflix.genie.server.util.ProcessUtil;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sets up job directories in stages. All files of the application, command,
+ * cluster and job stages are downloaded at once on a bounded pool of I/O
+ * threads, each into its own staging directory, while the local Hadoop
+ * configuration is copied. The staged files are then moved into place in
+ * stage order, so a cluster file still overrides a command file of the same
+ * name, and the job properties are added to core-site.xml in one write.<br>
+ * The time reported for a download stage is the time from the start of the
+ * setup until its last file arrived. A set up can be cancelled while it runs
+ * so jobs can be killed before their launcher is started.
+ *
+ * @author agent
+ */
+@Named
+public class JobSetupPipelineImpl implements JobSetupPipeline {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobSetupPipelineImpl.class);
+
+    private static final String STAGING_DIR = ".genie-setup";
+    private static final String CORE_SITE_XML = "core-site.xml";
+    private static final long RETRY_DELAY_MS = 5000L;
+
+    private final DependencyCache dependencyCache;
+    private final ExecutorService executor;
+    private final int numAttempts;
+    private final List<String> timeoutCommand;
+
+    // the threads setting up jobs by job id and the jobs cancelled since, both guarded by the threads
+    private final Map<String, Thread> running = new HashMap<>();
+    private final Set<String> cancelled = new HashSet<>();
+
+    @Monitor(name = "Job_Setup_Last_Time_Ms", type = DataSourceType.GAUGE)
+    private final AtomicLong lastSetupTime = new AtomicLong(0);
+
+    @Monitor(name = "Job_Setup_Total_Time_Ms", type = DataSourceType.COUNTER)
+    private final AtomicLong totalSetupTime = new AtomicLong(0);
+
+    @Monitor(name = "Job_Setup_Downloads", type = DataSourceType.COUNTER)
+    private final AtomicLong downloads = new AtomicLong(0);
+
+    @Monitor(name = "Job_Setup_Failures", type = DataSourceType.COUNTER)
+    private final AtomicLong failures = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     *
+     * @param dependencyCache The node local cache to get application, command and cluster files from
+     */
+    @Inject
+    public JobSetupPipelineImpl(final DependencyCache dependencyCache) {
+        this.dependencyCache = dependencyCache;
+
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        final int numThreads = Math.max(1, config.getInt("com.netflix.genie.server.job.setup.threads", 10));
+        this.numAttempts = Math.max(1, config.getInt("com.netflix.genie.server.job.setup.attempts", 5));
+        this.timeoutCommand = ProcessUtil.getTimeoutCommand();
+        this.executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "genie-job-setup-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Register the metrics.
+     */
+    @PostConstruct
+    public void initialize() {
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+    }
+
+    /**
+     * Stop the I/O threads and unregister the metrics.
+     */
+    @PreDestroy
+    public void shutdown() {
+        LOG.info("Shutting down job setup pipeline");
+        this.executor.shutdownNow();
+        Monitors.unregisterObject(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> setup(final Job job, final Map<String, String> env) throws GenieException {
+        if (job == null || env == null) {
+            throw new GeniePreconditionException("No job or environment entered. Unable to set up job.");
+        }
+        final String id = job.getId();
+        synchronized (this.running) {
+            this.running.put(id, Thread.currentThread());
+        }
+        try {
+            final Map<String, Long> times = this.setupDirectories(job, env);
+            this.finish(id);
+            return times;
+        } catch (final GenieException ge) {
+            // a cancelled set up fails however far it got
+            this.finish(id);
+            throw ge;
+        } finally {
+            synchronized (this.running) {
+                this.running.remove(id);
+                this.cancelled.remove(id);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean cancel(final String id) {
+        synchronized (this.running) {
+            final Thread thread = this.running.remove(id);
+            if (thread == null) {
+                return false;
+            }
+            LOG.info("Cancelling the set up of job " + id);
+            this.cancelled.add(id);
+            // stops the wait for the downloads, which are then cancelled too
+            thread.interrupt();
+            return true;
+        }
+    }
+
+    /**
+     * Stop tracking the set up of a job.
+     *
+     * @param id The id of the job
+     * @throws GenieException If the set up was cancelled
+     */
+    private void finish(final String id) throws GenieException {
+        final boolean wasCancelled;
+        synchronized (this.running) {
+            this.running.remove(id);
+            wasCancelled = this.cancelled.remove(id);
+        }
+        if (wasCancelled) {
+            // the interrupt was only meant for the set up
+            Thread.interrupted();
+            throw new GenieServerException(
+                    "Set up of job " + id + " was cancelled",
+                    new CancellationException("Job " + id + " was killed")
+            );
+        }
+    }
+
+    private Map<String, Long> setupDirectories(final Job job, final Map<String, String> env) throws GenieException {
+        final String workingDirName = env.get("CURRENT_JOB_WORKING_DIR");
+        final String confDirName = env.get("CURRENT_JOB_CONF_DIR");
+        final String jarDirName = env.get("CURRENT_JOB_JAR_DIR");
+        if (StringUtils.isBlank(workingDirName)
+                || StringUtils.isBlank(confDirName)
+                || StringUtils.isBlank(jarDirName)) {
+            throw new GeniePreconditionException("No job directories set. Unable to set up job " + job.getId());
+        }
+        final File workingDir = new File(workingDirName);
+        final File confDir = new File(confDirName);
+        final File jarDir = new File(jarDirName);
+        final File stagingDir = new File(workingDir, STAGING_DIR);
+
+        final long start = System.currentTimeMillis();
+        final Map<String, Long> times = new LinkedHashMap<>();
+        final List<Stage> stages = createStages(env, workingDir, confDir, jarDir);
+        try {
+            Files.createDirectories(confDir.toPath());
+            Files.createDirectories(jarDir.toPath());
+            Files.createDirectories(stagingDir.toPath());
+
+            this.startDownloads(stages, env.get("COPY_COMMAND"), stagingDir, env);
+
+            // the local hadoop configuration has the lowest precedence so it goes in first, while files download
+            final String hadoopHome = env.get("HADOOP_HOME");
+            if (StringUtils.isNotBlank(hadoopHome)) {
+                final long hadoopStart = System.currentTimeMillis();
+                copyHadoopConf(new File(hadoopHome, "conf"), confDir);
+                times.put("hadoopConf", System.currentTimeMillis() - hadoopStart);
+            }
+
+            for (final Stage stage : stages) {
+                if (!stage.getDependencies().isEmpty()) {
+                    times.put(stage.getName(), awaitDownloads(stage) - start);
+                }
+            }
+
+            final long placeStart = System.currentTimeMillis();
+            for (final Stage stage : stages) {
+                for (final Dependency dependency : stage.getDependencies()) {
+                    place(dependency.getStagingDir(), dependency.getTargetDir());
+                }
+            }
+            times.put("place", System.currentTimeMillis() - placeStart);
+
+            final String coreSiteArgs = env.get("CORE_SITE_XML_ARGS");
+            if (StringUtils.isNotBlank(coreSiteArgs)) {
+                final long coreSiteStart = System.currentTimeMillis();
+                updateCoreSite(new File(confDir, CORE_SITE_XML), coreSiteArgs);
+                times.put("coreSite", System.currentTimeMillis() - coreSiteStart);
+            }
+        } catch (final IOException ioe) {
+            this.failures.incrementAndGet();
+            throw new GenieServerException("Unable to set up the directories of job " + job.getId(), ioe);
+        } catch (final GenieException ge) {
+            this.failures.incrementAndGet();
+            throw ge;
+        } finally {
+            // don't leave downloads running for a job which failed
+            for (final Stage stage : stages) {
+                for (final Dependency dependency : stage.getDependencies()) {
+                    if (dependency.getFuture() != null) {
+                        dependency.getFuture().cancel(true);
+                    }
+                }
+            }
+            try {
+                FileUtil.deleteRecursively(stagingDir.toPath());
+            } catch (final IOException ioe) {
+                LOG.warn("Unable to delete " + stagingDir, ioe);
+            }
+        }
+
+        final long total = System.currentTimeMillis() - start;
+        times.put("total", total);
+        this.lastSetupTime.set(total);
+        this.totalSetupTime.addAndGet(total);
+        LOG.info("Set up job " + job.getId() + " in " + times);
+        return times;
+    }
+
+    /**
+     * Create the download stages in the order their files take precedence,
+     * the same order the job launcher used to copy them in.
+     *
+     * @param env        The environment of the job launcher
+     * @param workingDir The working directory of the job
+     * @param confDir    The configuration directory of the job
+     * @param jarDir     The jar directory of the job
+     * @return The stages
+     */
+    private static List<Stage> createStages(
+            final Map<String, String> env,
+            final File workingDir,
+            final File confDir,
+            final File jarDir) {
+        final Stage application = new Stage("application", true);
+        application.add(env.get("S3_APPLICATION_JAR_FILES"), jarDir);
+        application.add(env.get("S3_APPLICATION_CONF_FILES"), confDir);
+        application.add(env.get("APPLICATION_ENV_FILE"), confDir);
+
+        final Stage command = new Stage("command", true);
+        command.add(env.get("S3_COMMAND_CONF_FILES"), confDir);
+        command.add(env.get("COMMAND_ENV_FILE"), confDir);
+
+        final Stage cluster = new Stage("cluster", true);
+        cluster.add(env.get("S3_CLUSTER_CONF_FILES"), confDir);
+
+        // job files are only used once so they aren't worth caching
+        final Stage job = new Stage("job", false);
+        job.add(env.get("JOB_ENV_FILE"), confDir);
+        job.add(env.get("CURRENT_JOB_FILE_DEPENDENCIES"), workingDir);
+
+        return Arrays.asList(application, command, cluster, job);
+    }
+
+    private void startDownloads(
+            final List<Stage> stages,
+            final String copyCommand,
+            final File stagingDir,
+            final Map<String, String> env) throws GenieException {
+        int count = 0;
+        for (final Stage stage : stages) {
+            for (final Dependency dependency : stage.getDependencies()) {
+                if (StringUtils.isBlank(copyCommand)) {
+                    throw new GeniePreconditionException("No copy command set. Unable to download "
+                            + dependency.getUri());
+                }
+                final File dir = new File(stagingDir, String.valueOf(count++));
+                final boolean cached = stage.isCacheable()
+                        && this.dependencyCache.isEnabled()
+                        && this.dependencyCache.isCacheable(dependency.getUri());
+                dependency.setStagingDir(dir);
+                dependency.setFuture(this.executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws GenieException, IOException {
+                        download(dependency.getUri(), copyCommand, dir, cached, env);
+                        return System.currentTimeMillis();
+                    }
+                }));
+            }
+        }
+    }
+
+    private void download(
+            final String uri,
+            final String copyCommand,
+            final File dir,
+            final boolean cached,
+            final Map<String, String> env) throws GenieException, IOException {
+        Files.createDirectories(dir.toPath());
+        if (cached) {
+            this.dependencyCache.install(Collections.singletonList(uri), copyCommand, dir, env);
+        } else {
+            LOG.info("Downloading " + uri);
+            this.downloads.incrementAndGet();
+            final List<String> command = new ArrayList<>(this.timeoutCommand);
+            command.addAll(Arrays.asList(StringUtils.split(copyCommand)));
+            command.add(uri);
+            command.add("file://" + dir.getAbsolutePath() + "/");
+            ProcessUtil.execute(command, env, this.numAttempts, RETRY_DELAY_MS);
+        }
+    }
+
+    /**
+     * Wait for all files of a stage to download.
+     *
+     * @param stage The stage
+     * @return When the last file arrived
+     * @throws GenieException If any file couldn't be downloaded
+     */
+    private static long awaitDownloads(final Stage stage) throws GenieException {
+        long finished = 0L;
+        for (final Dependency dependency : stage.getDependencies()) {
+            try {
+                finished = Math.max(finished, dependency.getFuture().get());
+            } catch (final ExecutionException ee) {
+                if (ee.getCause() instanceof GenieException) {
+                    throw (GenieException) ee.getCause();
+                }
+                throw new GenieServerException("Unable to download " + dependency.getUri(), ee.getCause());
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new GenieServerException("Interrupted waiting for " + dependency.getUri() + " to download", ie);
+            }
+        }
+        return finished;
+    }
+
+    private static void copyHadoopConf(final File hadoopConfDir, final File confDir) throws IOException {
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(hadoopConfDir.toPath())) {
+            for (final Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    Files.copy(file, confDir.toPath().resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    /**
+     * Move everything downloaded into a staging directory into its target
+     * directory, replacing whatever is there with the same name. Replacing
+     * renames over the old file rather than writing into it so files linked
+     * from the dependency cache are never changed.
+     *
+     * @param stagingDir The staging directory
+     * @param targetDir  The directory the files belong in
+     * @throws IOException If a file can't be moved
+     */
+    private static void place(final File stagingDir, final File targetDir) throws IOException {
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(stagingDir.toPath())) {
+            for (final Path file : files) {
+                final Path target = targetDir.toPath().resolve(file.getFileName());
+                if (Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)) {
+                    FileUtil.deleteRecursively(target);
+                }
+                Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * Add the job properties to core-site.xml.
+     *
+     * @param coreSite The core-site.xml of the job
+     * @param args     The properties as key=value pairs separated by semicolons
+     * @throws GenieException If the file is missing or can't be updated
+     */
+    private static void updateCoreSite(final File coreSite, final String args) throws GenieException {
+        if (!coreSite.isFile()) {
+            throw new GenieServerException("No " + coreSite + " to add the job properties to");
+        }
+        final File tmpFile = new File(coreSite.getParentFile(), CORE_SITE_XML + "." + UUID.randomUUID() + ".tmp");
+        try {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            final Document doc = factory.newDocumentBuilder().parse(coreSite);
+            for (final String arg : StringUtils.split(args, JobManagerImpl.SEMI_COLON)) {
+                final int index = arg.indexOf('=');
+                if (index > 0) {
+                    addProperty(doc, arg.substring(0, index).trim(), arg.substring(index + 1).trim());
+                }
+            }
+            addProperty(doc, "genie.version", "2");
+
+            // write a new file rather than into the old one, which may be linked from the dependency cache
+            TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(tmpFile));
+            Files.move(tmpFile.toPath(), coreSite.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (final ParserConfigurationException | SAXException | TransformerException | IOException e) {
+            throw new GenieServerException("Unable to add the job properties to " + coreSite, e);
+        } finally {
+            if (tmpFile.exists() && !tmpFile.delete()) {
+                LOG.warn("Unable to delete " + tmpFile);
+            }
+        }
+    }
+
+    private static void addProperty(final Document doc, final String key, final String value) {
+        final Element property = doc.createElement("property");
+        final Element name = doc.createElement("name");
+        name.setTextContent(key);
+        final Element val = doc.createElement("value");
+        val.setTextContent(value);
+        property.appendChild(name);
+        property.appendChild(val);
+        doc.getDocumentElement().appendChild(property);
+    }
+
+    /**
+     * A group of files set up together, like all files of the application.
+     */
+    private static final class Stage {
+        private final String name;
+        private final boolean cacheable;
+        private final List<Dependency> dependencies = new ArrayList<>();
+
+        Stage(final String name, final boolean cacheable) {
+            this.name = name;
+            this.cacheable = cacheable;
+        }
+
+        void add(final String uris, final File targetDir) {
+            if (StringUtils.isNotBlank(uris)) {
+                for (final String uri : StringUtils.split(uris)) {
+                    this.dependencies.add(new Dependency(uri, targetDir));
+                }
+            }
+        }
+
+        String getName() {
+            return this.name;
+        }
+
+        boolean isCacheable() {
+            return this.cacheable;
+        }
+
+        List<Dependency> getDependencies() {
+            return this.dependencies;
+        }
+    }
+
+    /**
+     * A file to download and where it goes.
+     */
+    private static final class Dependency {
+        private final String uri;
+        private final File targetDir;
+        private File stagingDir;
+        private Future<Long> future;
+
+        Dependency(final String uri, final File targetDir) {
+            this.uri = uri;
+            this.targetDir = targetDir;
+        }
+
+        String getUri() {
+            return this.uri;
+        }
+
+        File getTargetDir() {
+            return this.targetDir;
+        }
+
+        File getStagingDir() {
+            return this.stagingDir;
+        }
+
+        void setStagingDir(final File stagingDir) {
+            this.stagingDir = stagingDir;
+        }
+
+        Future<Long> getFuture() {
+            return this.future;
+        }
+
+        void setFuture(final Future<Long> future) {
+            this.future = future;
+        }
+    }
+}
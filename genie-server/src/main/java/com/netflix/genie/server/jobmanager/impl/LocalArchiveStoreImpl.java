@@ -0,0 +1,75 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.server.jobmanager.ArchiveStore;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Archive store on the local file system, for testing and for nodes with a
+ * shared file system mounted. Locations are paths, optionally prefixed with
+ * file://.
+ *
+ * @author agent
+ */
+@Named
+public class LocalArchiveStoreImpl implements ArchiveStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocalArchiveStoreImpl.class);
+    private static final String FILE_SCHEME = "file://";
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final String location, final Content content) throws GenieException {
+        if (StringUtils.isBlank(location) || content == null) {
+            throw new GeniePreconditionException("No location or content entered. Unable to archive.");
+        }
+        final File file = new File(StringUtils.removeStart(location, FILE_SCHEME)).getAbsoluteFile();
+        // written next to the file and renamed so readers never see a partial file
+        final File part = new File(file.getParentFile(), file.getName() + ".part");
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            try (final OutputStream output = new BufferedOutputStream(new FileOutputStream(part), BUFFER_SIZE)) {
+                content.writeTo(output);
+            }
+            Files.move(part.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException | RuntimeException e) {
+            if (part.exists() && !part.delete()) {
+                LOG.warn("Unable to delete " + part);
+            }
+            throw new GenieServerException("Unable to archive to " + location, e);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.server.jobmanager.ArchiveStore;
+import com.netflix.genie.server.jobmanager.ArchiveStoreFactory;
+import com.netflix.genie.server.jobmanager.JobOutputCapture;
+import com.netflix.genie.server.jobmanager.LogArchiver;
+import com.netflix.genie.server.util.NetUtil;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archives the working directories of finished jobs on a bounded pool of
+ * threads. Each directory is streamed through tar and gzip straight into the
+ * configured archive store, so no tarball is written to the local disk. The
+ * archive holds the same files the job launcher script used to archive: the
+ * files up to one directory deep, except for those under a conf directory.
+ *
+ * @author agent
+ */
+@Named
+public class LogArchiverImpl implements LogArchiver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogArchiverImpl.class);
+
+    /**
+     * The name of the archive under the archive location of the job.
+     */
+    public static final String ARCHIVE_NAME = "logs.tar.gz";
+
+    private static final String EXCLUDED = "conf";
+    private static final long RETRY_DELAY_MS = 5000L;
+    private static final long CAPTURE_WAIT_MS = 60000L;
+    private static final int BUFFER_SIZE = 65536;
+
+    private final ArchiveStoreFactory archiveStoreFactory;
+    private final JobOutputCapture outputCapture;
+    private final boolean enabled;
+    private final int numAttempts;
+    private final ThreadPoolExecutor executor;
+
+    @Monitor(name = "Archive_Queue_Depth", type = DataSourceType.GAUGE)
+    private final AtomicInteger queueDepth = new AtomicInteger(0);
+
+    @Monitor(name = "Archived_Jobs", type = DataSourceType.COUNTER)
+    private final AtomicLong archivedJobs = new AtomicLong(0);
+
+    @Monitor(name = "Archive_Failures", type = DataSourceType.COUNTER)
+    private final AtomicLong failures = new AtomicLong(0);
+
+    @Monitor(name = "Archive_Rejections", type = DataSourceType.COUNTER)
+    private final AtomicLong rejections = new AtomicLong(0);
+
+    @Monitor(name = "Archived_Bytes", type = DataSourceType.COUNTER)
+    private final AtomicLong archivedBytes = new AtomicLong(0);
+
+    @Monitor(name = "Archive_Last_Time_Ms", type = DataSourceType.GAUGE)
+    private final AtomicLong lastArchiveTime = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     *
+     * @param archiveStoreFactory The factory for the store the archives are written to
+     * @param outputCapture       The output capture which may still be writing the logs of a job
+     */
+    @Inject
+    public LogArchiverImpl(
+            final ArchiveStoreFactory archiveStoreFactory,
+            final JobOutputCapture outputCapture) {
+        this.archiveStoreFactory = archiveStoreFactory;
+        this.outputCapture = outputCapture;
+
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        this.enabled = config.getBoolean("com.netflix.genie.server.job.archive.enabled", false);
+        this.numAttempts = Math.max(1, config.getInt("com.netflix.genie.server.job.archive.attempts", 5));
+        final int numThreads = config.getInt("com.netflix.genie.server.job.archive.threads", 4);
+        final int queueSize = config.getInt("com.netflix.genie.server.job.archive.queue.size", 1000);
+        this.executor = new ThreadPoolExecutor(
+                numThreads,
+                numThreads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger(0);
+
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "genie-log-archiver-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }
+        );
+    }
+
+    /**
+     * Register the metrics.
+     */
+    @PostConstruct
+    public void initialize() {
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+    }
+
+    /**
+     * Stop archiving and unregister the metrics.
+     */
+    @PreDestroy
+    public void shutdown() {
+        LOG.info("Shutting down log archiver with " + this.queueDepth.get() + " queued archives");
+        this.executor.shutdownNow();
+        Monitors.unregisterObject(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnabled() {
+        return this.enabled && StringUtils.isNotBlank(
+                ConfigurationManager.getConfigInstance().getString("com.netflix.genie.server.s3.archive.location")
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean archive(final Job job, final File workingDir) throws GenieException {
+        if (job == null || StringUtils.isBlank(job.getId())) {
+            throw new GeniePreconditionException("No job entered. Unable to archive.");
+        }
+        if (workingDir == null) {
+            throw new GeniePreconditionException("No working directory entered. Unable to archive job " + job.getId());
+        }
+        if (!this.isEnabled() || job.isDisableLogArchival()) {
+            return false;
+        }
+
+        final String jobId = job.getId();
+        final String location = NetUtil.getArchiveURI(jobId) + "/" + ARCHIVE_NAME;
+        this.queueDepth.incrementAndGet();
+        try {
+            this.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    queueDepth.decrementAndGet();
+                    archiveNow(jobId, workingDir, location);
+                }
+            });
+            return true;
+        } catch (final RejectedExecutionException ree) {
+            this.queueDepth.decrementAndGet();
+            this.rejections.incrementAndGet();
+            LOG.error("Log archive queue is full. Not archiving job " + jobId, ree);
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getQueueDepth() {
+        return this.queueDepth.get();
+    }
+
+    /**
+     * Archive the working directory of a job, trying again after a delay if
+     * it fails.
+     *
+     * @param jobId      The id of the job
+     * @param workingDir The working directory of the job
+     * @param location   Where to write the archive
+     */
+    protected void archiveNow(final String jobId, final File workingDir, final String location) {
+        final long start = System.currentTimeMillis();
+        try {
+            // the output capture may still be writing the last of what the job printed
+            while (this.outputCapture.isCapturing(jobId) && System.currentTimeMillis() - start < CAPTURE_WAIT_MS) {
+                Thread.sleep(100L);
+            }
+            final ArchiveStore store = this.archiveStoreFactory.getArchiveStore();
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    final AtomicLong bytes = new AtomicLong(0);
+                    store.write(location, new ArchiveStore.Content() {
+                        @Override
+                        public void writeTo(final OutputStream output) throws IOException {
+                            bytes.set(writeArchive(workingDir, output));
+                        }
+                    });
+                    this.archivedBytes.addAndGet(bytes.get());
+                    this.archivedJobs.incrementAndGet();
+                    LOG.info("Archived the logs of job " + jobId + " to " + location);
+                    break;
+                } catch (final GenieException ge) {
+                    if (attempt >= this.numAttempts) {
+                        throw ge;
+                    }
+                    LOG.warn("Unable to archive job " + jobId + ". Will retry in " + RETRY_DELAY_MS + " ms.", ge);
+                    Thread.sleep(RETRY_DELAY_MS);
+                }
+            }
+        } catch (final GenieException | RuntimeException e) {
+            this.failures.incrementAndGet();
+            LOG.error("Failed to archive the logs of job " + jobId + " to " + location, e);
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            this.failures.incrementAndGet();
+            LOG.error("Interrupted archiving the logs of job " + jobId, ie);
+        } finally {
+            this.lastArchiveTime.set(System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Write the files to archive from a working directory as a gzipped tar.
+     *
+     * @param workingDir The working directory
+     * @param output     The stream to write to
+     * @return The number of bytes archived before compression
+     * @throws IOException If the archive can't be written
+     */
+    protected static long writeArchive(final File workingDir, final OutputStream output) throws IOException {
+        final GZIPOutputStream gzip = new GZIPOutputStream(output, BUFFER_SIZE);
+        final TarArchiveOutputStream tar = new TarArchiveOutputStream(gzip);
+        tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        long bytes = 0L;
+        for (final File file : listFiles(workingDir)) {
+            if (file.isDirectory()) {
+                for (final File child : listFiles(file)) {
+                    bytes += addFile(tar, child, "./" + file.getName() + "/" + child.getName());
+                }
+            } else {
+                bytes += addFile(tar, file, "./" + file.getName());
+            }
+        }
+        tar.finish();
+        gzip.finish();
+        return bytes;
+    }
+
+    private static long addFile(
+            final TarArchiveOutputStream tar,
+            final File file,
+            final String name) throws IOException {
+        // same files as find -type f | grep -v conf
+        if (name.contains(EXCLUDED) || !Files.isRegularFile(file.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+            return 0L;
+        }
+        final TarArchiveEntry entry = new TarArchiveEntry(file, name);
+        tar.putArchiveEntry(entry);
+        // only copy the size in the header in case something is still appending to the file
+        long remaining = entry.getSize();
+        try (final InputStream input = new FileInputStream(file)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while (remaining > 0 && (read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                tar.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+        tar.closeArchiveEntry();
+        return entry.getSize() - remaining;
+    }
+
+    private static File[] listFiles(final File dir) {
+        final File[] files = dir.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+}
@@ -0,0 +1,440 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.server.jobmanager.ForkHelper;
+import com.netflix.genie.server.jobmanager.ProcessController;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Controls job processes through the process table and signals rather than
+ * the jobkill.sh script. Process trees are read from /proc where available
+ * and from ps otherwise. When the fork helper is enabled processes are
+ * started and signalled through it instead of forking the server.
+ *
+ * @author agent
+ */
+@Named
+public class ProcessControllerImpl implements ProcessController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProcessControllerImpl.class);
+
+    // the private field holding the pid in java.lang.UNIXProcess
+    private static final String PID = "pid";
+    private static final File PROC = new File("/proc");
+    // the field of /proc/[pid]/stat holding the start time, counted from the field after the command
+    private static final int STAT_START_TIME_INDEX = 19;
+    private static final String ZOMBIE = "Z";
+
+    private final ForkHelper forkHelper;
+    private final long gracePeriod;
+    private final ScheduledExecutorService scheduler;
+
+    @Monitor(name = "Process_Kills", type = DataSourceType.COUNTER)
+    private final AtomicLong kills = new AtomicLong(0);
+
+    @Monitor(name = "Process_Kill_Escalations", type = DataSourceType.COUNTER)
+    private final AtomicLong escalations = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     *
+     * @param forkHelper The helper to start and signal processes through when enabled
+     */
+    @Inject
+    public ProcessControllerImpl(final ForkHelper forkHelper) {
+        this.forkHelper = forkHelper;
+        this.gracePeriod = ConfigurationManager.getConfigInstance()
+                .getLong("com.netflix.genie.server.job.kill.grace.period.ms", 30000L);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "genie-process-killer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Register the metrics.
+     */
+    @PostConstruct
+    public void initialize() {
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+    }
+
+    /**
+     * Stop escalating kills and unregister the metrics.
+     */
+    @PreDestroy
+    public void shutdown() {
+        LOG.info("Shutting down process controller");
+        this.scheduler.shutdownNow();
+        Monitors.unregisterObject(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Process start(final ProcessBuilder processBuilder) throws IOException {
+        if (this.forkHelper.isEnabled()) {
+            return this.forkHelper.start(processBuilder);
+        }
+        return processBuilder.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isForkHelperEnabled() {
+        return this.forkHelper.isEnabled();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getProcessId(final Process proc) throws GenieException {
+        LOG.debug("called");
+        if (proc == null) {
+            throw new GeniePreconditionException("No process entered.");
+        }
+        if (proc instanceof ForkHelperImpl.HelperProcess) {
+            return ((ForkHelperImpl.HelperProcess) proc).getPid();
+        }
+
+        try {
+            final Field f = proc.getClass().getDeclaredField(PID);
+            f.setAccessible(true);
+            return f.getInt(proc);
+        } catch (final IllegalAccessException | IllegalArgumentException | NoSuchFieldException | SecurityException e) {
+            final String msg = "Can't get process id for job";
+            LOG.error(msg, e);
+            throw new GenieServerException(msg, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Integer> getDescendants(final int pid) throws GenieException {
+        final Map<Integer, ProcessInfo> table = this.readProcessTable();
+        return getDescendants(pid, table).keySet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isAlive(final int pid) {
+        if (PROC.isDirectory()) {
+            return this.readProcessInfo(pid) != null;
+        }
+        final List<Integer> pids = new ArrayList<>();
+        pids.add(pid);
+        return this.signal("0", pids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void kill(final int pid) throws GenieException {
+        LOG.info("Killing process tree of " + pid);
+        if (pid <= 0) {
+            throw new GeniePreconditionException("No process id entered.");
+        }
+        final List<Integer> parent = new ArrayList<>();
+        parent.add(pid);
+
+        // pause the parent so it doesn't start any more children or retry the ones being killed
+        if (!this.signal("STOP", parent)) {
+            throw new GenieServerException("Failed to kill the job. Unable to signal process " + pid);
+        }
+
+        final Map<Integer, ProcessInfo> tree;
+        try {
+            final Map<Integer, ProcessInfo> table = this.readProcessTable();
+            tree = getDescendants(pid, table);
+            this.signal("TERM", tree.keySet());
+            this.signal("TERM", parent);
+            if (table.containsKey(pid)) {
+                tree.put(pid, table.get(pid));
+            }
+        } finally {
+            // continue the parent so it gets the signal and its trap archives the job files
+            this.signal("CONT", parent);
+        }
+        this.kills.incrementAndGet();
+
+        this.scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                escalate(tree);
+            }
+        }, this.gracePeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Forcibly kill whatever is left of a process tree once the grace period
+     * has passed. Processes are compared by start time when it is known so a
+     * reused process id is never killed.
+     *
+     * @param tree The processes which were asked to terminate
+     */
+    private void escalate(final Map<Integer, ProcessInfo> tree) {
+        try {
+            final Map<Integer, ProcessInfo> table = this.readProcessTable();
+            final List<Integer> remaining = new ArrayList<>();
+            for (final ProcessInfo info : tree.values()) {
+                final ProcessInfo current = table.get(info.getPid());
+                if (current != null && current.getStartTime() == info.getStartTime()) {
+                    remaining.add(info.getPid());
+                }
+            }
+            if (!remaining.isEmpty()) {
+                LOG.warn("Processes " + remaining + " still alive after grace period. Killing them.");
+                this.escalations.incrementAndGet();
+                this.signal("KILL", remaining);
+            }
+        } catch (final GenieException | RuntimeException e) {
+            LOG.error("Unable to forcibly kill processes " + tree.keySet(), e);
+        }
+    }
+
+    /**
+     * Send a signal to processes through the fork helper if it is enabled and
+     * using the kill command otherwise.
+     *
+     * @param signal The name of the signal without the leading dash
+     * @param pids   The processes to signal
+     * @return True if every process was signalled
+     */
+    private boolean signal(final String signal, final Collection<Integer> pids) {
+        if (pids.isEmpty()) {
+            return true;
+        }
+        if (this.forkHelper.isEnabled()) {
+            return this.forkHelper.signal(signal, pids);
+        }
+        final List<String> command = new ArrayList<>();
+        command.add("kill");
+        command.add("-" + signal);
+        for (final Integer pid : pids) {
+            command.add(pid.toString());
+        }
+        try {
+            final Process proc = new ProcessBuilder(command).redirectErrorStream(true).start();
+            proc.getOutputStream().close();
+            final String output = readAll(proc);
+            final int exitCode = proc.waitFor();
+            if (exitCode != 0) {
+                LOG.warn("Sending " + signal + " to " + pids + " returned " + exitCode + ": " + output);
+            }
+            return exitCode == 0;
+        } catch (final IOException e) {
+            LOG.error("Unable to send " + signal + " to " + pids, e);
+            return false;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted sending " + signal + " to " + pids, e);
+            return false;
+        }
+    }
+
+    /**
+     * Read the id, parent id and start time of every process on the host.
+     *
+     * @return The processes keyed by id
+     * @throws GenieException If the process table can't be read
+     */
+    private Map<Integer, ProcessInfo> readProcessTable() throws GenieException {
+        final Map<Integer, ProcessInfo> table = new HashMap<>();
+        final String[] entries = PROC.list();
+        if (entries != null) {
+            for (final String entry : entries) {
+                if (StringUtils.isNumeric(entry)) {
+                    final ProcessInfo info = this.readProcessInfo(Integer.parseInt(entry));
+                    if (info != null) {
+                        table.put(info.getPid(), info);
+                    }
+                }
+            }
+            return table;
+        }
+
+        // no procfs so fall back to ps, without start times
+        try {
+            final Process proc = new ProcessBuilder("ps", "-A", "-o", "pid=", "-o", "ppid=")
+                    .redirectErrorStream(true)
+                    .start();
+            proc.getOutputStream().close();
+            final String output = readAll(proc);
+            if (proc.waitFor() != 0) {
+                throw new GenieServerException("Unable to list processes: " + output);
+            }
+            for (final String line : output.split("\n")) {
+                final String[] fields = StringUtils.split(line);
+                if (fields != null && fields.length == 2) {
+                    final int pid = Integer.parseInt(fields[0]);
+                    table.put(pid, new ProcessInfo(pid, Integer.parseInt(fields[1]), -1L));
+                }
+            }
+            return table;
+        } catch (final IOException | NumberFormatException e) {
+            throw new GenieServerException("Unable to list processes", e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GenieServerException("Interrupted listing processes", e);
+        }
+    }
+
+    /**
+     * Read a single process from /proc.
+     *
+     * @param pid The id of the process
+     * @return The process or null if it isn't running or procfs isn't available
+     */
+    private ProcessInfo readProcessInfo(final int pid) {
+        final File stat = new File(new File(PROC, Integer.toString(pid)), "stat");
+        try {
+            final String content = new String(Files.readAllBytes(stat.toPath()), StandardCharsets.UTF_8);
+            // the command is in parentheses and may contain spaces so start after the last one
+            final String[] fields = StringUtils.split(content.substring(content.lastIndexOf(')') + 1));
+            if (ZOMBIE.equals(fields[0])) {
+                // exited and only waiting for its parent to reap it
+                return null;
+            }
+            return new ProcessInfo(pid, Integer.parseInt(fields[1]), Long.parseLong(fields[STAT_START_TIME_INDEX]));
+        } catch (final IOException | RuntimeException e) {
+            // the process exited since it was listed
+            return null;
+        }
+    }
+
+    private static Map<Integer, ProcessInfo> getDescendants(final int pid, final Map<Integer, ProcessInfo> table) {
+        final Map<Integer, List<ProcessInfo>> children = new HashMap<>();
+        for (final ProcessInfo info : table.values()) {
+            List<ProcessInfo> siblings = children.get(info.getParentPid());
+            if (siblings == null) {
+                siblings = new ArrayList<>();
+                children.put(info.getParentPid(), siblings);
+            }
+            siblings.add(info);
+        }
+
+        final Map<Integer, ProcessInfo> descendants = new HashMap<>();
+        final Set<Integer> visited = new HashSet<>();
+        final Deque<Integer> toVisit = new ArrayDeque<>();
+        toVisit.add(pid);
+        while (!toVisit.isEmpty()) {
+            final Integer current = toVisit.poll();
+            if (!visited.add(current)) {
+                continue;
+            }
+            final List<ProcessInfo> currentChildren = children.get(current);
+            if (currentChildren != null) {
+                for (final ProcessInfo child : currentChildren) {
+                    descendants.put(child.getPid(), child);
+                    toVisit.add(child.getPid());
+                }
+            }
+        }
+        descendants.remove(pid);
+        return descendants;
+    }
+
+    private static String readAll(final Process proc) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        try (final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                builder.append(line).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * An entry of the process table.
+     */
+    private static final class ProcessInfo {
+        private final int pid;
+        private final int parentPid;
+        private final long startTime;
+
+        ProcessInfo(final int pid, final int parentPid, final long startTime) {
+            this.pid = pid;
+            this.parentPid = parentPid;
+            this.startTime = startTime;
+        }
+
+        int getPid() {
+            return this.pid;
+        }
+
+        int getParentPid() {
+            return this.parentPid;
+        }
+
+        long getStartTime() {
+            return this.startTime;
+        }
+    }
+}
@@ -21,8 +21,12 @@ import com.netflix.config.ConfigurationManager;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.server.jobmanager.AttachmentStore;
 import com.netflix.genie.server.jobmanager.JobMonitor;
-import com.netflix.genie.server.services.CommandConfigService;
+import com.netflix.genie.server.jobmanager.JobOutputCapture;
+import com.netflix.genie.server.jobmanager.JobSetupPipeline;
+import com.netflix.genie.server.jobmanager.LogArchiver;
+import com.netflix.genie.server.jobmanager.ProcessController;
 import com.netflix.genie.server.services.JobService;
 import com.netflix.genie.server.util.StringUtil;
 import org.apache.commons.lang3.StringUtils;
@@ -68,15 +72,24 @@ public class YarnJobManagerImpl extends JobManagerImpl {
      * Default constructor - initializes cluster configuration and load
      * balancer.
      *
-     * @param jobMonitor     The job monitor object to use.
-     * @param jobService     The job service to use.
-     * @param commandService The command service to use.
+     * @param jobMonitor        The job monitor object to use.
+     * @param jobService        The job service to use.
+     * @param processController The process controller to use.
+     * @param outputCapture     The output capture to use.
+     * @param setupPipeline     The pipeline to set up the job directory with.
+     * @param attachmentStore   The attachments streamed to this node with job submissions.
+     * @param logArchiver       The archiver of the job logs.
      */
     @Inject
     public YarnJobManagerImpl(final JobMonitor jobMonitor,
                               final JobService jobService,
-                              final CommandConfigService commandService) {
-        super(jobMonitor, jobService, commandService);
+                              final ProcessController processController,
+                              final JobOutputCapture outputCapture,
+                              final JobSetupPipeline setupPipeline,
+                              final AttachmentStore attachmentStore,
+                              final LogArchiver logArchiver) {
+        super(jobMonitor, jobService, processController, outputCapture, setupPipeline, attachmentStore,
+                logArchiver);
     }
 
     /**
@@ -100,12 +113,7 @@ public class YarnJobManagerImpl extends JobManagerImpl {
         this.setupYarnProcess(processBuilder);
 
         // Launch the actual process
-        this.launchProcess(
-                processBuilder,
-                ConfigurationManager
-                        .getConfigInstance()
-                        .getInt("com.netflix.genie.server.job.manager.yarn.sleeptime", 5000)
-        );
+        this.launchProcess(processBuilder);
     }
 
     /**
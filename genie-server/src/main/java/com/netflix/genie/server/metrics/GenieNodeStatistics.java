@@ -76,18 +76,6 @@ public interface GenieNodeStatistics {
      */
     void incrGenieJobSubmissions();
 
-    /**
-     * Get number of successful email sent from this instance.
-     *
-     * @return number of successful email sent from this instance
-     */
-    AtomicLong getSuccessfulEmailSentCount();
-
-    /**
-     * Increment successful email sent from this instance atomically.
-     */
-    void incrSuccessfulEmailCount();
-
     /**
      * Get number job submission retries.
      *
@@ -100,18 +88,6 @@ public interface GenieNodeStatistics {
      */
     void incrJobSubmissionRetryCount();
 
-    /**
-     * Get number of email that failed to be sent from this instance.
-     *
-     * @return number of failed email attempts on this instance
-     */
-    AtomicLong getFailedEmailSentCount();
-
-    /**
-     * Increment failed email sent count on this instance atomically.
-     */
-    void incrFailedEmailCount();
-
     /**
      * Get number of successful jobs on this instance.
      *
@@ -289,4 +265,44 @@ public interface GenieNodeStatistics {
      *                               than 8 hours
      */
     void setGenieRunningJobs8hPlus(int genieRunningJobs8hPlus);
+
+    /**
+     * Get the number of jobs waiting in the queue on this instance.
+     *
+     * @return number of queued jobs
+     */
+    AtomicInteger getJobQueueDepth();
+
+    /**
+     * Set the number of jobs waiting in the queue on this instance.
+     *
+     * @param jobQueueDepth number of queued jobs
+     */
+    void setJobQueueDepth(int jobQueueDepth);
+
+    /**
+     * Get how long the last job launched from the queue waited in it.
+     *
+     * @return the wait time in milliseconds
+     */
+    AtomicLong getJobQueueWaitTime();
+
+    /**
+     * Set how long the last job launched from the queue waited in it.
+     *
+     * @param jobQueueWaitTime the wait time in milliseconds
+     */
+    void setJobQueueWaitTime(long jobQueueWaitTime);
+
+    /**
+     * Get the number of jobs failed for waiting in the queue too long.
+     *
+     * @return number of expired queued jobs
+     */
+    AtomicLong getJobQueueExpiredJobs();
+
+    /**
+     * Increment the number of jobs failed for waiting in the queue too long.
+     */
+    void incrJobQueueExpiredJobs();
 }
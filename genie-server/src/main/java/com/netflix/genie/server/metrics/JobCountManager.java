@@ -18,6 +18,9 @@
 package com.netflix.genie.server.metrics;
 
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.NodeLoad;
+
+import java.util.List;
 
 /**
  * Utility class to get number of jobs running on this instance.
@@ -66,12 +69,19 @@ public interface JobCountManager {
             final Long maxStartTime) throws GenieException;
 
     /**
-     * Returns the most idle Genie instance (&lt; minJobThreshold running jobs),
-     * if possible - else returns current instance.
+     * Get the ids of all jobs in INIT or RUNNING state on this instance.
+     *
+     * @return ids of the active jobs on this instance
+     * @throws GenieException if there is an error
+     */
+    List<String> getInstanceJobIds() throws GenieException;
+
+    /**
+     * Get the published load of every other live Genie instance jobs could be
+     * forwarded to.
      *
-     * @param minJobThreshold the threshold to use to look for idle instances
-     * @return host name of most idle Genie instance
+     * @return The load of the candidate instances
      * @throws GenieException if there is any error
      */
-    String getIdleInstance(final long minJobThreshold) throws GenieException;
+    List<NodeLoad> getForwardingCandidates() throws GenieException;
 }
@@ -0,0 +1,52 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.metrics;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.NodeLoad;
+
+import java.util.List;
+
+/**
+ * Shared view of the load on every Genie node. Each node periodically
+ * publishes its own load and any node can read the load of all the live
+ * nodes with a single lookup.
+ *
+ * @author agent
+ */
+public interface NodeLoadRegistry {
+
+    /**
+     * Publish the current load of a node, refreshing its heartbeat.
+     *
+     * @param hostName       The host name of the node. Not blank.
+     * @param runningJobs    The number of jobs running on the node
+     * @param maxRunningJobs The max number of jobs the node will run
+     * @throws GenieException if there is an error
+     */
+    void publish(final String hostName, final int runningJobs, final int maxRunningJobs) throws GenieException;
+
+    /**
+     * Get the last published load of every node whose heartbeat hasn't
+     * expired.
+     *
+     * @return The load of the live nodes
+     * @throws GenieException if there is an error
+     */
+    List<NodeLoad> getLiveNodes() throws GenieException;
+}
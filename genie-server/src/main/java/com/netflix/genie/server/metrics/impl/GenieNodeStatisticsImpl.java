@@ -81,14 +81,17 @@ public class GenieNodeStatisticsImpl implements GenieNodeStatistics {
     @Monitor(name = "Running_Jobs_8h_plus", type = DataSourceType.GAUGE)
     private final AtomicInteger genieRunningJobs8hPlus = new AtomicInteger(0);
 
-    @Monitor(name = "Successful_Email_Count", type = DataSourceType.COUNTER)
-    private final AtomicLong successEmailCount = new AtomicLong(0);
-
     @Monitor(name = "Job_Submission_Retry_Count", type = DataSourceType.COUNTER)
     private final AtomicLong jobSubmissionRetryCount = new AtomicLong(0);
 
-    @Monitor(name = "Failed_Email_Count", type = DataSourceType.COUNTER)
-    private final AtomicLong failedEmailCount = new AtomicLong(0);
+    @Monitor(name = "Job_Queue_Depth", type = DataSourceType.GAUGE)
+    private final AtomicInteger jobQueueDepth = new AtomicInteger(0);
+
+    @Monitor(name = "Job_Queue_Wait_Time_Ms", type = DataSourceType.GAUGE)
+    private final AtomicLong jobQueueWaitTime = new AtomicLong(0);
+
+    @Monitor(name = "Job_Queue_Expired_Jobs", type = DataSourceType.COUNTER)
+    private final AtomicLong jobQueueExpiredJobs = new AtomicLong(0);
 
     /**
      * Initialize the object.
@@ -182,42 +185,6 @@ public class GenieNodeStatisticsImpl implements GenieNodeStatistics {
         this.genieJobSubmissions.incrementAndGet();
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public AtomicLong getSuccessfulEmailSentCount() {
-        LOG.debug("called");
-        return this.successEmailCount;
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void incrSuccessfulEmailCount() {
-        LOG.debug("called");
-        this.successEmailCount.incrementAndGet();
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public AtomicLong getFailedEmailSentCount() {
-        LOG.debug("called");
-        return this.failedEmailCount;
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void incrFailedEmailCount() {
-        LOG.debug("called");
-        this.failedEmailCount.incrementAndGet();
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -451,4 +418,54 @@ public class GenieNodeStatisticsImpl implements GenieNodeStatistics {
         LOG.debug("called");
         this.jobSubmissionRetryCount.incrementAndGet();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AtomicInteger getJobQueueDepth() {
+        return this.jobQueueDepth;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setJobQueueDepth(final int jobQueueDepth) {
+        this.jobQueueDepth.set(jobQueueDepth);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AtomicLong getJobQueueWaitTime() {
+        return this.jobQueueWaitTime;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setJobQueueWaitTime(final long jobQueueWaitTime) {
+        this.jobQueueWaitTime.set(jobQueueWaitTime);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AtomicLong getJobQueueExpiredJobs() {
+        LOG.debug("called");
+        return this.jobQueueExpiredJobs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void incrJobQueueExpiredJobs() {
+        LOG.debug("called");
+        this.jobQueueExpiredJobs.incrementAndGet();
+    }
 }
@@ -27,12 +27,17 @@ import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.model.Job;
 import com.netflix.genie.common.model.JobStatus;
 import com.netflix.genie.common.model.Job_;
+import com.netflix.genie.common.model.NodeLoad;
 import com.netflix.genie.server.metrics.JobCountManager;
+import com.netflix.genie.server.metrics.NodeLoadRegistry;
 import com.netflix.genie.server.util.NetUtil;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -65,11 +70,17 @@ public class JobCountManagerImpl implements JobCountManager {
     // Config Instance to get all properties
     private final AbstractConfiguration config;
 
+    private final NodeLoadRegistry nodeLoadRegistry;
+
     /**
-     * Default Constructor.
+     * Constructor.
+     *
+     * @param nodeLoadRegistry The registry of the load on every node
      */
-    public JobCountManagerImpl() {
+    @Inject
+    public JobCountManagerImpl(final NodeLoadRegistry nodeLoadRegistry) {
         this.config = ConfigurationManager.getConfigInstance();
+        this.nodeLoadRegistry = nodeLoadRegistry;
     }
 
     /**
@@ -142,57 +153,85 @@ public class JobCountManagerImpl implements JobCountManager {
      * {@inheritDoc}
      */
     @Override
-    public String getIdleInstance(
-            final long minJobThreshold)
-            throws GenieException {
+    @Transactional(readOnly = true)
+    public List<String> getInstanceJobIds() throws GenieException {
+        LOG.debug("called");
+
+        final CriteriaBuilder cb = this.em.getCriteriaBuilder();
+        final CriteriaQuery<String> cq = cb.createQuery(String.class);
+        final Root<Job> j = cq.from(Job.class);
+        cq.select(j.get(Job_.id));
+        final Predicate runningStatus = cb.equal(j.get(Job_.status), JobStatus.RUNNING);
+        final Predicate initStatus = cb.equal(j.get(Job_.status), JobStatus.INIT);
+        cq.where(
+                cb.equal(j.get(Job_.hostName), NetUtil.getHostName()),
+                cb.or(runningStatus, initStatus)
+        );
+        return this.em.createQuery(cq).getResultList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NodeLoad> getForwardingCandidates() throws GenieException {
         LOG.debug("called");
         final String localhost = NetUtil.getHostName();
 
+        // one lookup for the load of every live node instead of a count query per host
+        final Map<String, NodeLoad> loads = new LinkedHashMap<>();
+        for (final NodeLoad load : this.nodeLoadRegistry.getLiveNodes()) {
+            loads.put(load.getHostName(), load);
+        }
+
+        final List<NodeLoad> candidates = new ArrayList<>();
+        for (final String hostName : this.getCandidateHosts(loads)) {
+            if (hostName.equals(localhost)) {
+                continue;
+            }
+            final NodeLoad load = loads.get(hostName);
+            if (load == null) {
+                LOG.debug("Host: " + hostName + " skipped since it hasn't published its load recently");
+                continue;
+            }
+            candidates.add(load);
+        }
+        return candidates;
+    }
+
+    /**
+     * Get the hosts jobs could be forwarded to. These are the instances which
+     * are UP in discovery or, if discovery isn't available, every node which
+     * has published its load recently.
+     *
+     * @param loads The load of the live nodes keyed by host name
+     * @return The candidate host names
+     */
+    private List<String> getCandidateHosts(final Map<String, NodeLoad> loads) {
         // Get the App Name from Configuration
         final String appName = this.config.getString("APPNAME", "genie2");
         LOG.info("Using App Name" + appName);
 
-        // naive implementation where we loop through all instances in discovery
-        // no need to raise any exceptions here, just return localhost if there
-        // is any error
         //TODO: use injection instead of getInstance
         final DiscoveryClient discoveryClient = DiscoveryManager.getInstance()
                 .getDiscoveryClient();
         if (discoveryClient == null) {
-            LOG.warn("Can't instantiate DiscoveryClient - returning localhost");
-            return localhost;
+            LOG.warn("Can't instantiate DiscoveryClient - using the node load registry");
+            return new ArrayList<>(loads.keySet());
         }
         final Application app = discoveryClient.getApplication(appName);
         if (app == null) {
-            LOG.warn("Discovery client can't find genie - returning localhost");
-            return localhost;
+            LOG.warn("Discovery client can't find genie - using the node load registry");
+            return new ArrayList<>(loads.keySet());
         }
 
-        for (InstanceInfo instance : app.getInstances()) {
+        final List<String> hostNames = new ArrayList<>();
+        for (final InstanceInfo instance : app.getInstances()) {
             // only pick instances that are UP
-            if (instance.getStatus() == null
-                    || instance.getStatus() != InstanceStatus.UP) {
-                continue;
-            }
-
-            // if instance is UP, check if job can be forwarded to it
-            String hostName = instance.getHostName();
-            LOG.debug("Trying host name: " + hostName);
-            final int numInstanceJobs = getNumInstanceJobs(hostName, null, null);
-            if (numInstanceJobs <= minJobThreshold) {
-                LOG.info("Returning idle host: " + hostName + ", who has "
-                        + numInstanceJobs + " jobs running");
-                return hostName;
-            } else {
-                LOG.debug("Host: " + hostName + " skipped since it has "
-                        + numInstanceJobs + " running jobs, threshold is: "
-                        + minJobThreshold);
+            if (instance.getStatus() == InstanceStatus.UP) {
+                hostNames.add(instance.getHostName());
             }
         }
-
-        // no hosts found with numInstanceJobs < minJobThreshold, return current
-        // instance
-        LOG.info("Can't find any host to forward to - returning localhost");
-        return localhost;
+        return hostNames;
     }
 }
@@ -19,9 +19,14 @@ package com.netflix.genie.server.metrics.impl;
 
 import com.netflix.config.ConfigurationManager;
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.server.jobmanager.JobQueue;
 import com.netflix.genie.server.metrics.GenieNodeStatistics;
 import com.netflix.genie.server.metrics.JobCountManager;
 import com.netflix.genie.server.metrics.JobCountMonitor;
+import com.netflix.genie.server.metrics.NodeLoadRegistry;
+import com.netflix.genie.server.services.JobAdmissionController;
+import com.netflix.genie.server.services.JobQuotaController;
+import com.netflix.genie.server.util.NetUtil;
 import javax.inject.Inject;
 import javax.inject.Named;
 import org.slf4j.Logger;
@@ -42,17 +47,35 @@ public class JobCountMonitorImpl implements JobCountMonitor {
     private boolean stop;
     private final JobCountManager jobCountManager;
     private final GenieNodeStatistics stats;
+    private final JobAdmissionController admissionController;
+    private final NodeLoadRegistry nodeLoadRegistry;
+    private final JobQueue jobQueue;
+    private final JobQuotaController quotaController;
 
     /**
      * Constructor.
      *
      * @param stats reference to the statistics object that must be updated
      * @param jobCountManager The job count manager
+     * @param admissionController The admission controller to reconcile against the database
+     * @param nodeLoadRegistry The registry to publish the load of this node to
+     * @param jobQueue The queue of jobs waiting for a free slot on this node
+     * @param quotaController The per user and group quotas to reconcile against the database
      */
     @Inject
-    public JobCountMonitorImpl(final GenieNodeStatistics stats, final JobCountManager jobCountManager) {
+    public JobCountMonitorImpl(
+            final GenieNodeStatistics stats,
+            final JobCountManager jobCountManager,
+            final JobAdmissionController admissionController,
+            final NodeLoadRegistry nodeLoadRegistry,
+            final JobQueue jobQueue,
+            final JobQuotaController quotaController) {
         this.jobCountManager = jobCountManager;
         this.stats = stats;
+        this.admissionController = admissionController;
+        this.nodeLoadRegistry = nodeLoadRegistry;
+        this.jobQueue = jobQueue;
+        this.quotaController = quotaController;
         this.stop = false;
     }
 
@@ -122,6 +145,30 @@ public class JobCountMonitorImpl implements JobCountMonitor {
                     return;
                 }
 
+                // correct any drift in the in-memory view of the jobs on this node
+                if (!stop) {
+                    this.admissionController.reconcile(this.jobQueue.getQueuedJobIds());
+                }
+                if (!stop) {
+                    this.quotaController.reconcile();
+                }
+
+                // launch queued jobs into any slots freed by the reconciliation and fail
+                // the ones which have waited too long
+                if (!stop) {
+                    this.jobQueue.drain();
+                }
+
+                // let the other nodes know how busy this node is
+                if (!stop) {
+                    this.nodeLoadRegistry.publish(
+                            NetUtil.getHostName(),
+                            this.admissionController.getNumActiveJobs(),
+                            ConfigurationManager.getConfigInstance()
+                                    .getInt("com.netflix.genie.server.max.running.jobs", 0)
+                    );
+                }
+
                 // set the metrics - check if thread is stopped at every point
                 if (!stop) {
                     stats.setGenieRunningJobs(getNumInstanceJobs());
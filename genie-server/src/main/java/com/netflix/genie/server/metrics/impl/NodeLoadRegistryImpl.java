@@ -0,0 +1,92 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.metrics.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.NodeLoad;
+import com.netflix.genie.server.metrics.NodeLoadRegistry;
+import com.netflix.genie.server.repository.jpa.NodeLoadRepository;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Node load registry backed by a table with one row per node.
+ *
+ * @author agent
+ */
+@Named
+public class NodeLoadRegistryImpl implements NodeLoadRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NodeLoadRegistryImpl.class);
+
+    private final NodeLoadRepository nodeLoadRepo;
+
+    /**
+     * Constructor.
+     *
+     * @param nodeLoadRepo The repository to store node loads in
+     */
+    @Inject
+    public NodeLoadRegistryImpl(final NodeLoadRepository nodeLoadRepo) {
+        this.nodeLoadRepo = nodeLoadRepo;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(rollbackFor = GenieException.class)
+    public void publish(
+            final String hostName,
+            final int runningJobs,
+            final int maxRunningJobs) throws GenieException {
+        LOG.debug("Publishing load of " + runningJobs + "/" + maxRunningJobs + " for " + hostName);
+        if (StringUtils.isBlank(hostName)) {
+            throw new GeniePreconditionException("No host name entered. Unable to publish load.");
+        }
+        final NodeLoad load = this.nodeLoadRepo.findOne(hostName);
+        if (load == null) {
+            this.nodeLoadRepo.save(new NodeLoad(hostName, runningJobs, maxRunningJobs));
+        } else {
+            load.setRunningJobs(runningJobs);
+            load.setMaxRunningJobs(maxRunningJobs);
+            load.setHeartbeat(new Date());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<NodeLoad> getLiveNodes() throws GenieException {
+        LOG.debug("called");
+        final long timeout = ConfigurationManager.getConfigInstance()
+                .getLong("com.netflix.genie.server.node.load.timeout.ms", 90000);
+        return this.nodeLoadRepo.findByHeartbeatAfter(new Date(System.currentTimeMillis() - timeout));
+    }
+}
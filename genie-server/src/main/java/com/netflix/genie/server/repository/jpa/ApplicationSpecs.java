@@ -51,7 +51,7 @@ public final class ApplicationSpecs {
      * @param name     The name of the application
      * @param userName The name of the user who created the application
      * @param statuses The status of the application
-     * @param tags     The set of tags to search the command for
+     * @param tags     The set of tags to search the application for, most selective first
      * @return A specification object used for querying
      */
     public static Specification<Application> find(
@@ -77,13 +77,7 @@ public final class ApplicationSpecs {
                     }
                     predicates.add(cb.or(orPredicates.toArray(new Predicate[orPredicates.size()])));
                 }
-                if (tags != null) {
-                    for (final String tag : tags) {
-                        if (StringUtils.isNotBlank(tag)) {
-                            predicates.add(cb.isMember(tag, root.get(Application_.tags)));
-                        }
-                    }
-                }
+                predicates.addAll(TagSpecs.hasTags(root, cq, cb, Application.class, Application_.tags, tags));
                 return cb.and(predicates.toArray(new Predicate[predicates.size()]));
             }
         };
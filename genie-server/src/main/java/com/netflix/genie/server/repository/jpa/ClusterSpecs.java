@@ -56,7 +56,7 @@ public final class ClusterSpecs {
      *
      * @param name          The name of the cluster to find
      * @param statuses      The statuses of the clusters to find
-     * @param tags          The tags of the clusters to find
+     * @param tags          The tags of the clusters to find, most selective first
      * @param minUpdateTime The minimum updated time of the clusters to find
      * @param maxUpdateTime The maximum updated time of the clusters to find
      * @return The specification
@@ -83,13 +83,7 @@ public final class ClusterSpecs {
                 if (maxUpdateTime != null) {
                     predicates.add(cb.lessThan(root.get(Cluster_.updated), new Date(maxUpdateTime)));
                 }
-                if (tags != null) {
-                    for (final String tag : tags) {
-                        if (StringUtils.isNotBlank(tag)) {
-                            predicates.add(cb.isMember(tag, root.get(Cluster_.tags)));
-                        }
-                    }
-                }
+                predicates.addAll(TagSpecs.hasTags(root, cq, cb, Cluster.class, Cluster_.tags, tags));
                 if (statuses != null && !statuses.isEmpty()) {
                     //Could optimize this as we know size could use native array
                     final List<Predicate> orPredicates = new ArrayList<>();
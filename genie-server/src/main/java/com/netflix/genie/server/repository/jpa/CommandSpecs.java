@@ -51,7 +51,7 @@ public final class CommandSpecs {
      * @param name     The name of the command
      * @param userName The name of the user who created the command
      * @param statuses The status of the command
-     * @param tags     The set of tags to search the command for
+     * @param tags     The set of tags to search the command for, most selective first
      * @return A specification object used for querying
      */
     public static Specification<Command> find(
@@ -77,13 +77,7 @@ public final class CommandSpecs {
                     }
                     predicates.add(cb.or(orPredicates.toArray(new Predicate[orPredicates.size()])));
                 }
-                if (tags != null) {
-                    for (final String tag : tags) {
-                        if (StringUtils.isNotBlank(tag)) {
-                            predicates.add(cb.isMember(tag, root.get(Command_.tags)));
-                        }
-                    }
-                }
+                predicates.addAll(TagSpecs.hasTags(root, cq, cb, Command.class, Command_.tags, tags));
                 return cb.and(predicates.toArray(new Predicate[predicates.size()]));
             }
         };
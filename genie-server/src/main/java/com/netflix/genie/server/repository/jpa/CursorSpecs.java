@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+package com.netflix.genie.server.repository.jpa;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Specifications to page through entities with a cursor.<br>
+ * Instead of skipping the entities of the previous pages the query only
+ * matches the entities after the last one of the previous page, which the
+ * database can seek to through the index of the first order by field. Every
+ * page costs the same however deep it is.
+ *
+ * @author agent
+ */
+public final class CursorSpecs {
+
+    /**
+     * Protected constructor for utility class.
+     */
+    protected CursorSpecs() {
+    }
+
+    /**
+     * Find the entities after the last entity of the previous page.
+     *
+     * @param orderBys   The fields the entities are ordered by. Not empty and ending with a unique field.
+     * @param values     The values of the fields for the last entity of the previous page
+     * @param descending Whether the entities are in descending order
+     * @param <T>        The type of the entities
+     * @return The specification
+     */
+    public static <T> Specification<T> after(
+            final List<SingularAttribute<?, ?>> orderBys,
+            final List<Object> values,
+            final boolean descending) {
+        return new Specification<T>() {
+            @Override
+            public Predicate toPredicate(
+                    final Root<T> root,
+                    final CriteriaQuery<?> cq,
+                    final CriteriaBuilder cb) {
+                // (f1, f2, ..., id) after (v1, v2, ..., vid) expanded as
+                // f1 after v1 or (f1 = v1 and f2 after v2) or ...
+                final List<Predicate> orPredicates = new ArrayList<>();
+                for (int i = 0; i < orderBys.size(); i++) {
+                    final List<Predicate> andPredicates = new ArrayList<>();
+                    for (int j = 0; j < i; j++) {
+                        andPredicates.add(cb.equal(root.get(orderBys.get(j).getName()), values.get(j)));
+                    }
+                    andPredicates.add(compare(root, cb, orderBys.get(i).getName(), values.get(i), descending, false));
+                    orPredicates.add(cb.and(andPredicates.toArray(new Predicate[andPredicates.size()])));
+                }
+                // bound the first field on its own as well so the database can seek to it
+                return cb.and(
+                        compare(root, cb, orderBys.get(0).getName(), values.get(0), descending, true),
+                        cb.or(orPredicates.toArray(new Predicate[orPredicates.size()]))
+                );
+            }
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Predicate compare(
+            final Root<T> root,
+            final CriteriaBuilder cb,
+            final String fieldName,
+            final Object value,
+            final boolean descending,
+            final boolean inclusive) {
+        final Expression<Comparable> field = root.get(fieldName);
+        final Comparable comparable = (Comparable) value;
+        if (descending) {
+            return inclusive ? cb.lessThanOrEqualTo(field, comparable) : cb.lessThan(field, comparable);
+        } else {
+            return inclusive ? cb.greaterThanOrEqualTo(field, comparable) : cb.greaterThan(field, comparable);
+        }
+    }
+}
@@ -16,8 +16,16 @@
 package com.netflix.genie.server.repository.jpa;
 
 import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.JobStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 
 /**
  * Job repository.
@@ -26,4 +34,30 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
  */
 public interface JobRepository extends JpaRepository<Job, String>, JpaSpecificationExecutor {
 
+    /**
+     * Find the jobs on a host in the given status.
+     *
+     * @param hostName The host the jobs were submitted to
+     * @param status   The status of the jobs
+     * @return The jobs
+     */
+    List<Job> findByHostNameAndStatus(final String hostName, final JobStatus status);
+
+    /**
+     * Set the updated time of many jobs in a single statement without loading
+     * them. Only jobs still in the given status are touched.
+     *
+     * @param ids     The ids of the jobs to update
+     * @param updated The new updated time
+     * @param status  The status the jobs must be in to be updated
+     * @return The number of jobs updated
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Job j SET j.updated = :updated, j.entityVersion = j.entityVersion + 1 "
+            + "WHERE j.id IN :ids AND j.status = :status")
+    int setUpdated(
+            @Param("ids") final Collection<String> ids,
+            @Param("updated") final Date updated,
+            @Param("status") final JobStatus status
+    );
 }
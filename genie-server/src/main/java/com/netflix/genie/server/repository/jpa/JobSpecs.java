@@ -52,7 +52,7 @@ public final class JobSpecs {
      * @param jobName     The job name
      * @param userName    The user who created the job
      * @param statuses    The job statuses
-     * @param tags        The tags for the jobs to find
+     * @param tags        The tags for the jobs to find, most selective first
      * @param clusterName The cluster name
      * @param clusterId   The cluster id
      * @return The specification
@@ -89,13 +89,7 @@ public final class JobSpecs {
                     }
                     predicates.add(cb.or(orPredicates.toArray(new Predicate[orPredicates.size()])));
                 }
-                if (tags != null) {
-                    for (final String tag : tags) {
-                        if (StringUtils.isNotBlank(tag)) {
-                            predicates.add(cb.isMember(tag, root.get(Job_.tags)));
-                        }
-                    }
-                }
+                predicates.addAll(TagSpecs.hasTags(root, cq, cb, Job.class, Job_.tags, tags));
                 if (StringUtils.isNotBlank(clusterName)) {
                     predicates.add(cb.equal(root.get(Job_.executionClusterName), clusterName));
                 }
@@ -0,0 +1,40 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.repository.jpa;
+
+import com.netflix.genie.common.model.NodeLoad;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Node load repository.
+ *
+ * @author agent
+ */
+public interface NodeLoadRepository extends JpaRepository<NodeLoad, String> {
+
+    /**
+     * Find the nodes which have published their load since the given time.
+     *
+     * @param heartbeat The oldest heartbeat to accept
+     * @return The load of the live nodes
+     */
+    List<NodeLoad> findByHeartbeatAfter(final Date heartbeat);
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+package com.netflix.genie.server.repository.jpa;
+
+import com.netflix.genie.common.model.Auditable_;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.SetJoin;
+import javax.persistence.criteria.Subquery;
+import javax.persistence.metamodel.SetAttribute;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Tag predicates shared by the specifications.<br>
+ * The first tag is matched through an uncorrelated subquery on the tag
+ * column, so the database can start from the entities carrying it through
+ * the tag index and check the remaining tags as members of the tags of those
+ * entities only, instead of checking every tag for every entity of the table.
+ * Callers should order the tags most selective first.
+ *
+ * @author agent
+ */
+public final class TagSpecs {
+
+    /**
+     * Protected constructor for utility class.
+     */
+    protected TagSpecs() {
+    }
+
+    /**
+     * Get the predicates matching entities which have all the tags.
+     *
+     * @param root          The root of the query
+     * @param cq            The query
+     * @param cb            The criteria builder
+     * @param type          The type of the entities
+     * @param tagsAttribute The tags attribute of the entities
+     * @param tags          The tags in the order to intersect them. Blank tags are ignored.
+     * @param <T>           The type of the entities
+     * @return The predicates, empty if there are no tags
+     */
+    public static <T> List<Predicate> hasTags(
+            final Root<T> root,
+            final CriteriaQuery<?> cq,
+            final CriteriaBuilder cb,
+            final Class<T> type,
+            final SetAttribute<? super T, String> tagsAttribute,
+            final Set<String> tags) {
+        final List<Predicate> predicates = new ArrayList<>();
+        if (tags == null) {
+            return predicates;
+        }
+        for (final String tag : tags) {
+            if (StringUtils.isBlank(tag)) {
+                continue;
+            }
+            if (predicates.isEmpty()) {
+                final Subquery<String> tagged = cq.subquery(String.class);
+                final Root<T> taggedRoot = tagged.from(type);
+                final SetJoin<T, String> taggedTag = taggedRoot.join(tagsAttribute);
+                tagged.select(taggedRoot.get(Auditable_.id));
+                tagged.where(cb.equal(taggedTag, tag));
+                predicates.add(root.get(Auditable_.id).in(tagged));
+            } else {
+                predicates.add(cb.isMember(tag, root.get(tagsAttribute)));
+            }
+        }
+        return predicates;
+    }
+}
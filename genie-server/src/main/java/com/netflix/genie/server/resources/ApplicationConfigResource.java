@@ -22,6 +22,7 @@ import com.netflix.genie.common.model.Application;
 import com.netflix.genie.common.model.ApplicationStatus;
 import com.netflix.genie.common.model.Command;
 import com.netflix.genie.server.services.ApplicationConfigService;
+import com.netflix.genie.server.util.CursorUtil;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
 import com.wordnik.swagger.annotations.ApiParam;
@@ -45,6 +46,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
@@ -194,16 +196,18 @@ public class ApplicationConfigResource {
      * @param statuses The statuses of the applications (optional)
      * @param tags     The set of tags you want the command for.
      * @param page     The page to start one (optional)
+     * @param cursor   The cursor of the previous page, takes precedence over page (optional)
      * @param limit    the max number of results to return per page (optional)
      * @param descending    Whether results returned in descending or ascending order (optional)
      * @param orderBys      The fields to order the results by (optional)
-     * @return All applications matching the criteria
+     * @return All applications matching the criteria with the cursor of the next page
      * @throws GenieException For any error
      */
     @GET
     @ApiOperation(
             value = "Find applications",
-            notes = "Find applications by the submitted criteria.",
+            notes = "Find applications by the submitted criteria. The cursor of the next page is returned in the "
+                    + "Genie-Next-Cursor header unless an order by field can be null.",
             response = Application.class,
             responseContainer = "List"
     )
@@ -217,7 +221,7 @@ public class ApplicationConfigResource {
                     message = "Genie Server Error due to Unknown Exception"
             )
     })
-    public List<Application> getApplications(
+    public Response getApplications(
             @ApiParam(
                     value = "Name of the application."
             )
@@ -245,6 +249,11 @@ public class ApplicationConfigResource {
             @QueryParam("page")
             @DefaultValue("0")
             int page,
+            @ApiParam(
+                    value = "Cursor from the Genie-Next-Cursor header of the previous page. Takes precedence over page."
+            )
+            @QueryParam("cursor")
+            final String cursor,
             @ApiParam(
                     value = "Max number of results per page."
             )
@@ -264,7 +273,7 @@ public class ApplicationConfigResource {
             final Set<String> orderBys
     ) throws GenieException {
         LOG.info(
-                "Called [name | userName | status | tags | page | limit | descending | orderBys]"
+                "Called [name | userName | status | tags | page | cursor | limit | descending | orderBys]"
         );
         LOG.info(
                 name
@@ -277,6 +286,8 @@ public class ApplicationConfigResource {
                         + " | "
                         + page
                         + " | "
+                        + cursor
+                        + " | "
                         + limit
                         + " | "
                         + descending
@@ -292,8 +303,22 @@ public class ApplicationConfigResource {
                 }
             }
         }
-        return this.applicationConfigService.getApplications(
-                name, userName, enumStatuses, tags, page, limit, descending, orderBys);
+        final List<Application> applications;
+        if (StringUtils.isBlank(cursor)) {
+            applications = this.applicationConfigService.getApplications(
+                    name, userName, enumStatuses, tags, page, limit, descending, orderBys);
+        } else {
+            applications = this.applicationConfigService.getApplications(
+                    name, userName, enumStatuses, tags, cursor, limit, descending, orderBys);
+        }
+        return Response
+                .ok(new GenericEntity<List<Application>>(applications) {
+                })
+                .header(
+                        CursorUtil.NEXT_CURSOR_HEADER,
+                        this.applicationConfigService.getNextCursor(applications, limit, descending, orderBys)
+                )
+                .build();
     }
 
     /**
@@ -22,6 +22,7 @@ import com.netflix.genie.common.model.Cluster;
 import com.netflix.genie.common.model.ClusterStatus;
 import com.netflix.genie.common.model.Command;
 import com.netflix.genie.server.services.ClusterConfigService;
+import com.netflix.genie.server.util.CursorUtil;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
 import com.wordnik.swagger.annotations.ApiParam;
@@ -44,6 +45,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
@@ -191,15 +193,17 @@ public class ClusterConfigResource {
      * @param maxUpdateTime max time when cluster configuration was updated
      * @param limit         number of entries to return
      * @param page          page number
+     * @param cursor        the cursor of the previous page, takes precedence over page
      * @param descending    Whether results returned in descending or ascending order
      * @param orderBys      The fields to order the results by
-     * @return the Clusters found matching the criteria
+     * @return the Clusters found matching the criteria with the cursor of the next page
      * @throws GenieException For any error
      */
     @GET
     @ApiOperation(
             value = "Find clusters",
-            notes = "Find clusters by the submitted criteria.",
+            notes = "Find clusters by the submitted criteria. The cursor of the next page is returned in the "
+                    + "Genie-Next-Cursor header unless an order by field can be null.",
             response = Cluster.class,
             responseContainer = "List"
     )
@@ -213,7 +217,7 @@ public class ClusterConfigResource {
                     message = "Genie Server Error due to Unknown Exception"
             )
     })
-    public List<Cluster> getClusters(
+    public Response getClusters(
             @ApiParam(
                     value = "Name of the cluster."
             )
@@ -246,6 +250,11 @@ public class ClusterConfigResource {
             @QueryParam("page")
             @DefaultValue("0")
             int page,
+            @ApiParam(
+                    value = "Cursor from the Genie-Next-Cursor header of the previous page. Takes precedence over page."
+            )
+            @QueryParam("cursor")
+            final String cursor,
             @ApiParam(
                     value = "Max number of results per page."
             )
@@ -265,7 +274,8 @@ public class ClusterConfigResource {
             final Set<String> orderBys
     ) throws GenieException {
         LOG.info(
-                "Called [name | statuses | tags | minUpdateTime | maxUpdateTime | page | limit | descending | orderBys]"
+                "Called [name | statuses | tags | minUpdateTime | maxUpdateTime | page | cursor | limit | descending "
+                        + "| orderBys]"
         );
         LOG.info(
                 name
@@ -280,6 +290,8 @@ public class ClusterConfigResource {
                 + " | "
                 + page
                 + " | "
+                + cursor
+                + " | "
                 + limit
                 + " | "
                 + descending
@@ -296,9 +308,24 @@ public class ClusterConfigResource {
                 }
             }
         }
-        return this.clusterConfigService.getClusters(
-                name, enumStatuses, tags, minUpdateTime, maxUpdateTime, page, limit, descending, orderBys
-        );
+        final List<Cluster> clusters;
+        if (StringUtils.isBlank(cursor)) {
+            clusters = this.clusterConfigService.getClusters(
+                    name, enumStatuses, tags, minUpdateTime, maxUpdateTime, page, limit, descending, orderBys
+            );
+        } else {
+            clusters = this.clusterConfigService.getClusters(
+                    name, enumStatuses, tags, minUpdateTime, maxUpdateTime, cursor, limit, descending, orderBys
+            );
+        }
+        return Response
+                .ok(new GenericEntity<List<Cluster>>(clusters) {
+                })
+                .header(
+                        CursorUtil.NEXT_CURSOR_HEADER,
+                        this.clusterConfigService.getNextCursor(clusters, limit, descending, orderBys)
+                )
+                .build();
     }
 
     /**
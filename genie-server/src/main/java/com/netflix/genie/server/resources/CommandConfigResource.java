@@ -23,6 +23,7 @@ import com.netflix.genie.common.model.Cluster;
 import com.netflix.genie.common.model.Command;
 import com.netflix.genie.common.model.CommandStatus;
 import com.netflix.genie.server.services.CommandConfigService;
+import com.netflix.genie.server.util.CursorUtil;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
 import com.wordnik.swagger.annotations.ApiParam;
@@ -46,6 +47,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
@@ -189,16 +191,18 @@ public class CommandConfigResource {
      * @param statuses   The statuses of the commands to get (optional)
      * @param tags       The set of tags you want the command for.
      * @param page       The page to start one (optional)
+     * @param cursor     The cursor of the previous page, takes precedence over page (optional)
      * @param limit      The max number of results to return per page (optional)
      * @param descending Whether results returned in descending or ascending order (optional)
      * @param orderBys   The fields to order the results by (optional)
-     * @return All the Commands matching the criteria or all if no criteria
+     * @return All the Commands matching the criteria or all if no criteria with the cursor of the next page
      * @throws GenieException For any error
      */
     @GET
     @ApiOperation(
             value = "Find commands",
-            notes = "Find commands by the submitted criteria.",
+            notes = "Find commands by the submitted criteria. The cursor of the next page is returned in the "
+                    + "Genie-Next-Cursor header unless an order by field can be null.",
             response = Command.class,
             responseContainer = "List"
     )
@@ -212,7 +216,7 @@ public class CommandConfigResource {
                     message = "Genie Server Error due to Unknown Exception"
             )
     })
-    public List<Command> getCommands(
+    public Response getCommands(
             @ApiParam(
                     value = "Name of the command."
             )
@@ -240,6 +244,11 @@ public class CommandConfigResource {
             @QueryParam("page")
             @DefaultValue("0")
             int page,
+            @ApiParam(
+                    value = "Cursor from the Genie-Next-Cursor header of the previous page. Takes precedence over page."
+            )
+            @QueryParam("cursor")
+            final String cursor,
             @ApiParam(
                     value = "Max number of results per page."
             )
@@ -259,7 +268,7 @@ public class CommandConfigResource {
             final Set<String> orderBys
     ) throws GenieException {
         LOG.info(
-                "Called [name | userName | status | tags | page | limit | descending | orderBys]"
+                "Called [name | userName | status | tags | page | cursor | limit | descending | orderBys]"
         );
         LOG.info(
                 name
@@ -272,6 +281,8 @@ public class CommandConfigResource {
                         + " | "
                         + page
                         + " | "
+                        + cursor
+                        + " | "
                         + limit
                         + " | "
                         + descending
@@ -288,8 +299,22 @@ public class CommandConfigResource {
                 }
             }
         }
-        return this.commandConfigService.getCommands(
-                name, userName, enumStatuses, tags, page, limit, descending, orderBys);
+        final List<Command> commands;
+        if (StringUtils.isBlank(cursor)) {
+            commands = this.commandConfigService.getCommands(
+                    name, userName, enumStatuses, tags, page, limit, descending, orderBys);
+        } else {
+            commands = this.commandConfigService.getCommands(
+                    name, userName, enumStatuses, tags, cursor, limit, descending, orderBys);
+        }
+        return Response
+                .ok(new GenericEntity<List<Command>>(commands) {
+                })
+                .header(
+                        CursorUtil.NEXT_CURSOR_HEADER,
+                        this.commandConfigService.getNextCursor(commands, limit, descending, orderBys)
+                )
+                .build();
     }
 
     /**
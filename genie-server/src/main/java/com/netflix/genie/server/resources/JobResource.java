@@ -19,21 +19,31 @@ package com.netflix.genie.server.resources;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.netflix.genie.common.exceptions.GenieBadRequestException;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.model.Job;
 import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.common.model.JobSubmissionResult;
+import com.netflix.genie.server.jobmanager.AttachmentStore;
+import com.netflix.genie.server.jobmanager.JobOutputCapture;
 import com.netflix.genie.server.services.ExecutionService;
 import com.netflix.genie.server.services.JobService;
+import com.netflix.genie.server.util.CursorUtil;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
 import com.wordnik.swagger.annotations.ApiParam;
 import com.wordnik.swagger.annotations.ApiResponse;
 import com.wordnik.swagger.annotations.ApiResponses;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.security.Principal;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -42,6 +52,7 @@ import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
@@ -49,10 +60,15 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,6 +91,9 @@ public class JobResource {
 
     private static final Logger LOG = LoggerFactory.getLogger(JobResource.class);
     private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String JOB_PART = "job";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
 
     /**
      * The execution service.
@@ -86,6 +105,16 @@ public class JobResource {
      */
     private final JobService jobService;
 
+    /**
+     * The output capture of the jobs running on this node.
+     */
+    private final JobOutputCapture outputCapture;
+
+    /**
+     * The attachments streamed to this node with job submissions.
+     */
+    private final AttachmentStore attachmentStore;
+
     /**
      * To get URI information for return codes.
      */
@@ -103,17 +132,29 @@ public class JobResource {
      *
      * @param executionService The execution service to use.
      * @param jobService The job service to use.
+     * @param outputCapture The output capture of the jobs running on this node.
+     * @param attachmentStore The attachments streamed to this node with job submissions.
      */
     @Inject
-    public JobResource(final ExecutionService executionService, final JobService jobService) {
+    public JobResource(
+            final ExecutionService executionService,
+            final JobService jobService,
+            final JobOutputCapture outputCapture,
+            final AttachmentStore attachmentStore) {
         this.executionService = executionService;
         this.jobService = jobService;
+        this.outputCapture = outputCapture;
+        this.attachmentStore = attachmentStore;
     }
 
     /**
      * Submit a new job.
      *
-     * @param job request object containing job info element for new job
+     * @param job   request object containing job info element for new job
+     * @param async whether to return as soon as the job is accepted instead of
+     *              waiting for it to launch
+     * @param idempotencyKey key identifying the submission so retries get the
+     *                       original job back. Defaults to the job id.
      * @return The submitted job
      * @throws GenieException For any error
      */
@@ -130,6 +171,11 @@ public class JobResource {
                     message = "Created",
                     response = Job.class
             ),
+            @ApiResponse(
+                    code = HttpURLConnection.HTTP_ACCEPTED,
+                    message = "Accepted for asynchronous launch",
+                    response = Job.class
+            ),
             @ApiResponse(
                     code = HttpURLConnection.HTTP_BAD_REQUEST,
                     message = "Bad Request"
@@ -152,7 +198,19 @@ public class JobResource {
                     value = "Job object to run.",
                     required = true
             )
-            final Job job
+            final Job job,
+            @ApiParam(
+                    value = "Whether to return once the job is accepted rather than once it is launched."
+            )
+            @QueryParam("async")
+            @DefaultValue("false")
+            final boolean async,
+            @ApiParam(
+                    value = "Key identifying the submission so retries return the original job. Only the node"
+                            + " which took the original submission remembers the key."
+            )
+            @HeaderParam(IDEMPOTENCY_KEY_HEADER)
+            final String idempotencyKey
     ) throws GenieException {
         if (job == null) {
             throw new GenieException(
@@ -160,28 +218,209 @@ public class JobResource {
                     "No job entered. Unable to submit.");
         }
         LOG.info("Called to submit job: " + job);
+        return this.submit(job, async, idempotencyKey);
+    }
 
-        // get client's host from the context
-        String clientHost = this.httpServletRequest.getHeader(FORWARDED_FOR_HEADER);
-        if (clientHost != null) {
-            clientHost = clientHost.split(",")[0];
-        } else {
-            clientHost = this.httpServletRequest.getRemoteAddr();
+    /**
+     * Submit a new job with its attachments as multipart form data. The part
+     * named job holds the job as JSON. Every part with a file name is an
+     * attachment and is streamed to disk on this node as it arrives, instead
+     * of being sent base64 encoded inside the job. Jobs with streamed
+     * attachments are never forwarded to another node.
+     *
+     * @param async          whether to return as soon as the job is accepted instead of
+     *                       waiting for it to launch
+     * @param idempotencyKey key identifying the submission so retries get the
+     *                       original job back. Defaults to the job id.
+     * @return The submitted job
+     * @throws GenieException For any error
+     */
+    @POST
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @ApiOperation(
+            value = "Submit a job with attachments",
+            notes = "Submit a new job to run to genie as multipart form data. The part named job holds the job as"
+                    + " JSON and every part with a file name is an attachment.",
+            response = Job.class
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = HttpURLConnection.HTTP_CREATED,
+                    message = "Created",
+                    response = Job.class
+            ),
+            @ApiResponse(
+                    code = HttpURLConnection.HTTP_ACCEPTED,
+                    message = "Accepted for asynchronous launch",
+                    response = Job.class
+            ),
+            @ApiResponse(
+                    code = HttpURLConnection.HTTP_BAD_REQUEST,
+                    message = "Bad Request"
+            ),
+            @ApiResponse(
+                    code = HttpURLConnection.HTTP_CONFLICT,
+                    message = "Job with ID already exists."
+            ),
+            @ApiResponse(
+                    code = HttpURLConnection.HTTP_PRECON_FAILED,
+                    message = "Precondition Failed"
+            ),
+            @ApiResponse(
+                    code = HttpURLConnection.HTTP_ENTITY_TOO_LARGE,
+                    message = "Attachments are over the size limit"
+            ),
+            @ApiResponse(
+                    code = HttpURLConnection.HTTP_INTERNAL_ERROR,
+                    message = "Genie Server Error due to Unknown Exception"
+            )
+    })
+    public Response submitJobWithAttachments(
+            @ApiParam(
+                    value = "Whether to return once the job is accepted rather than once it is launched."
+            )
+            @QueryParam("async")
+            @DefaultValue("false")
+            final boolean async,
+            @ApiParam(
+                    value = "Key identifying the submission so retries return the original job. Only the node"
+                            + " which took the original submission remembers the key."
+            )
+            @HeaderParam(IDEMPOTENCY_KEY_HEADER)
+            final String idempotencyKey
+    ) throws GenieException {
+        final File attachments = this.attachmentStore.create();
+        try {
+            final Job job = this.readMultipartJob(attachments);
+            LOG.info("Called to submit job with attachments: " + job);
+            // the attachments are kept by job id so it has to be known before the job is saved
+            if (StringUtils.isBlank(job.getId())) {
+                job.setId(UUID.randomUUID().toString());
+            }
+            this.attachmentStore.register(job.getId(), attachments);
+            return this.submit(job, async, idempotencyKey);
+        } catch (final GenieException | RuntimeException e) {
+            this.attachmentStore.delete(attachments);
+            throw e;
         }
+    }
 
+    private Job readMultipartJob(final File attachments) throws GenieException {
+        Job job = null;
+        try {
+            final FileItemIterator parts = new ServletFileUpload().getItemIterator(this.httpServletRequest);
+            while (parts.hasNext()) {
+                final FileItemStream part = parts.next();
+                try (final InputStream data = part.openStream()) {
+                    if (!part.isFormField()) {
+                        this.attachmentStore.write(attachments, part.getName(), data);
+                    } else if (JOB_PART.equals(part.getFieldName())) {
+                        job = MAPPER.readValue(data, Job.class);
+                    } else {
+                        LOG.debug("Ignoring form field " + part.getFieldName());
+                    }
+                }
+            }
+        } catch (final FileUploadException | IOException e) {
+            throw new GenieBadRequestException("Unable to read the multipart job submission", e);
+        }
+        if (job == null) {
+            throw new GenieException(
+                    HttpURLConnection.HTTP_PRECON_FAILED,
+                    "No job part entered. Unable to submit.");
+        }
+        return job;
+    }
+
+    private Response submit(final Job job, final boolean async, final String idempotencyKey) throws GenieException {
         // set the clientHost, if it is not overridden already
+        final String clientHost = this.getClientHost();
         if (StringUtils.isNotBlank(clientHost)) {
             LOG.debug("called from: " + clientHost);
             job.setClientHost(clientHost);
         }
 
-        final Job createdJob = this.executionService.submitJob(job);
+        if (async) {
+            final Job acceptedJob = this.executionService.submitJob(job, this.getPrincipal(), idempotencyKey, true);
+            return Response.status(Response.Status.ACCEPTED).
+                    location(this.uriInfo.getAbsolutePathBuilder().path(acceptedJob.getId()).build()).
+                    entity(acceptedJob).
+                    build();
+        }
+
+        final Job createdJob = this.executionService.submitJob(job, this.getPrincipal(), idempotencyKey, false);
         return Response.created(
                 this.uriInfo.getAbsolutePathBuilder().path(createdJob.getId()).build()).
                 entity(createdJob).
                 build();
     }
 
+    /**
+     * Submit a batch of new jobs.
+     *
+     * @param jobs the jobs to submit
+     * @return The result of submitting each job, in the order submitted
+     * @throws GenieException For any error
+     */
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @ApiOperation(
+            value = "Submit a batch of jobs",
+            notes = "Submit several new jobs to run to genie. Each job gets its own result.",
+            response = JobSubmissionResult.class,
+            responseContainer = "List"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = HttpURLConnection.HTTP_OK,
+                    message = "OK",
+                    response = JobSubmissionResult.class
+            ),
+            @ApiResponse(
+                    code = HttpURLConnection.HTTP_BAD_REQUEST,
+                    message = "Bad Request"
+            ),
+            @ApiResponse(
+                    code = HttpURLConnection.HTTP_PRECON_FAILED,
+                    message = "Precondition Failed"
+            ),
+            @ApiResponse(
+                    code = HttpURLConnection.HTTP_ENTITY_TOO_LARGE,
+                    message = "Too many jobs in the batch"
+            ),
+            @ApiResponse(
+                    code = HttpURLConnection.HTTP_INTERNAL_ERROR,
+                    message = "Genie Server Error due to Unknown Exception"
+            )
+    })
+    public List<JobSubmissionResult> submitJobs(
+            @ApiParam(
+                    value = "Job objects to run.",
+                    required = true
+            )
+            final List<Job> jobs
+    ) throws GenieException {
+        if (jobs == null || jobs.isEmpty()) {
+            throw new GenieException(
+                    HttpURLConnection.HTTP_PRECON_FAILED,
+                    "No jobs entered. Unable to submit.");
+        }
+        LOG.info("Called to submit batch of " + jobs.size() + " jobs");
+
+        final String clientHost = this.getClientHost();
+        if (StringUtils.isNotBlank(clientHost)) {
+            LOG.debug("called from: " + clientHost);
+            for (final Job job : jobs) {
+                if (job != null) {
+                    job.setClientHost(clientHost);
+                }
+            }
+        }
+
+        return this.executionService.submitJobs(jobs);
+    }
+
     /**
      * Get job information for given job id.
      *
@@ -237,7 +476,8 @@ public class JobResource {
     @Path("/{id}/status")
     @ApiOperation(
             value = "Get the status of the job ",
-            notes = "Get the status of job whose id is sent",
+            notes = "Get the status of job whose id is sent. The node running the job also returns how much "
+                    + "output it has written",
             response = String.class
     )
     @ApiResponses(value = {
@@ -270,6 +510,11 @@ public class JobResource {
         final ObjectMapper mapper = new ObjectMapper();
         final ObjectNode node = mapper.createObjectNode();
         node.put("status", this.jobService.getJobStatus(id).toString());
+        // only the node running the job knows how much output it is writing
+        if (this.outputCapture.isCapturing(id)) {
+            node.put("outputBytes", this.outputCapture.getOutputBytes(id));
+            node.put("outputBytesPerSecond", this.outputCapture.getOutputRate(id));
+        }
         return node;
     }
 
@@ -284,14 +529,16 @@ public class JobResource {
      * @param clusterName the name of the cluster
      * @param clusterId   the id of the cluster
      * @param page        page number for job
+     * @param cursor      the cursor of the previous page, takes precedence over page
      * @param limit       max number of jobs to return
-     * @return successful response, or one with HTTP error code
+     * @return the jobs found with the cursor of the next page, or one with HTTP error code
      * @throws GenieException For any error
      */
     @GET
     @ApiOperation(
             value = "Find jobs",
-            notes = "Find jobs by the submitted criteria.",
+            notes = "Find jobs by the submitted criteria. The cursor of the next page is returned in the "
+                    + "Genie-Next-Cursor header unless an order by field can be null.",
             response = Job.class,
             responseContainer = "List"
     )
@@ -313,7 +560,7 @@ public class JobResource {
                     message = "Genie Server Error due to Unknown Exception"
             )
     })
-    public List<Job> getJobs(
+    public Response getJobs(
             @ApiParam(
                     value = "Id of the job."
             )
@@ -356,6 +603,11 @@ public class JobResource {
             @QueryParam("page")
             @DefaultValue("0")
             int page,
+            @ApiParam(
+                    value = "Cursor from the Genie-Next-Cursor header of the previous page. Takes precedence over page."
+            )
+            @QueryParam("cursor")
+            final String cursor,
             @ApiParam(
                     value = "Max number of results per page."
             )
@@ -376,7 +628,7 @@ public class JobResource {
     ) throws GenieException {
         LOG.info(
                 "Called with [id | jobName | userName | statuses | executionClusterName "
-                        + "| executionClusterId | page | limit | descending | orderBys]"
+                        + "| executionClusterId | page | cursor | limit | descending | orderBys]"
         );
         LOG.info(id
                 + " | "
@@ -394,6 +646,8 @@ public class JobResource {
                 + " | "
                 + page
                 + " | "
+                + cursor
+                + " | "
                 + limit
                 + " | "
                 + descending
@@ -410,18 +664,42 @@ public class JobResource {
             }
         }
 
-        return this.jobService.getJobs(
-                id,
-                name,
-                userName,
-                enumStatuses,
-                tags,
-                clusterName,
-                clusterId,
-                page,
-                limit,
-                descending,
-                orderBys);
+        final List<Job> jobs;
+        if (StringUtils.isBlank(cursor)) {
+            jobs = this.jobService.getJobs(
+                    id,
+                    name,
+                    userName,
+                    enumStatuses,
+                    tags,
+                    clusterName,
+                    clusterId,
+                    page,
+                    limit,
+                    descending,
+                    orderBys);
+        } else {
+            jobs = this.jobService.getJobs(
+                    id,
+                    name,
+                    userName,
+                    enumStatuses,
+                    tags,
+                    clusterName,
+                    clusterId,
+                    cursor,
+                    limit,
+                    descending,
+                    orderBys);
+        }
+        return Response
+                .ok(new GenericEntity<List<Job>>(jobs) {
+                })
+                .header(
+                        CursorUtil.NEXT_CURSOR_HEADER,
+                        this.jobService.getNextCursor(jobs, limit, descending, orderBys)
+                )
+                .build();
     }
 
     /**
@@ -713,4 +991,28 @@ public class JobResource {
         LOG.info("Called with id " + id + " and tag " + tag);
         return this.jobService.removeTagForJob(id, tag);
     }
+
+    /**
+     * Get the name of the authenticated caller of the current request.
+     *
+     * @return The name or null if the request wasn't authenticated
+     */
+    private String getPrincipal() {
+        final Principal principal = this.httpServletRequest.getUserPrincipal();
+        return principal == null ? null : principal.getName();
+    }
+
+    /**
+     * Get the host of the client which made the current request.
+     *
+     * @return The client host from the forwarded header or the remote address
+     */
+    private String getClientHost() {
+        final String forwardedFor = this.httpServletRequest.getHeader(FORWARDED_FOR_HEADER);
+        if (forwardedFor != null) {
+            return forwardedFor.split(",")[0];
+        } else {
+            return this.httpServletRequest.getRemoteAddr();
+        }
+    }
 }
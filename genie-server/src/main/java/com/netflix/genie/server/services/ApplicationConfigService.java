@@ -73,6 +73,45 @@ public interface ApplicationConfigService {
                                       final boolean descending,
                                       final Set<String> orderBys);
 
+    /**
+     * Get the page of applications after a cursor for given filter criteria.
+     *
+     * @param name       name of application. Can be null or empty.
+     * @param userName   The user who created the application. Can be null/empty
+     * @param statuses   The statuses of the applications to find. Can be null.
+     * @param tags       tags allocated to this application
+     * @param cursor     The cursor of the previous page. Not blank.
+     * @param limit      Max number of results per page
+     * @param descending Whether the results should be returned in descending or ascending order
+     * @param orderBys   The fields to order the results by
+     * @return The applications after the cursor matching the criteria
+     * @throws GenieException If the cursor is invalid
+     */
+    List<Application> getApplications(final String name,
+                                      final String userName,
+                                      final Set<ApplicationStatus> statuses,
+                                      final Set<String> tags,
+                                      final String cursor,
+                                      final int limit,
+                                      final boolean descending,
+                                      final Set<String> orderBys) throws GenieException;
+
+    /**
+     * Get the cursor of the page after the given page of applications.
+     *
+     * @param applications The page of applications returned for the order
+     * @param limit        The max number of applications requested for the page
+     * @param descending   Whether the applications are in descending order
+     * @param orderBys     The fields the applications were requested to be ordered by
+     * @return The cursor or null if this is the last page or the order can't be continued with a cursor
+     * @throws GenieException If the cursor can't be created
+     */
+    String getNextCursor(
+            final List<Application> applications,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException;
+
     /**
      * Update an application.
      *
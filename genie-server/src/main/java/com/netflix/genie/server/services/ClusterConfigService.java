@@ -19,6 +19,7 @@ package com.netflix.genie.server.services;
 
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.model.Cluster;
+import com.netflix.genie.common.model.ClusterCriteria;
 import com.netflix.genie.common.model.Command;
 import com.netflix.genie.common.model.ClusterStatus;
 
@@ -79,6 +80,49 @@ public interface ClusterConfigService {
             final boolean descending,
             final Set<String> orderBys);
 
+    /**
+     * Get the page of clusters after a cursor for various parameters. Null or
+     * empty parameters are ignored.
+     *
+     * @param name          cluster name
+     * @param statuses      valid types - Types.ClusterStatus
+     * @param tags          tags allocated to this cluster
+     * @param minUpdateTime min time when cluster configuration was updated
+     * @param maxUpdateTime max time when cluster configuration was updated
+     * @param cursor        The cursor of the previous page. Not blank.
+     * @param limit         number of entries to return
+     * @param descending    Whether the results should be returned in descending or ascending order
+     * @param orderBys      The fields to order the results by
+     * @return The clusters after the cursor matching the criteria
+     * @throws GenieException If the cursor is invalid
+     */
+    List<Cluster> getClusters(
+            final String name,
+            final Set<ClusterStatus> statuses,
+            final Set<String> tags,
+            final Long minUpdateTime,
+            final Long maxUpdateTime,
+            final String cursor,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException;
+
+    /**
+     * Get the cursor of the page after the given page of clusters.
+     *
+     * @param clusters   The page of clusters returned for the order
+     * @param limit      The max number of clusters requested for the page
+     * @param descending Whether the clusters are in descending order
+     * @param orderBys   The fields the clusters were requested to be ordered by
+     * @return The cursor or null if this is the last page or the order can't be continued with a cursor
+     * @throws GenieException If the cursor can't be created
+     */
+    String getNextCursor(
+            final List<Cluster> clusters,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException;
+
     /**
      * Get the clusters on which the job can be run.
      *
@@ -88,6 +132,19 @@ public interface ClusterConfigService {
      */
     List<Cluster> chooseClusterForJob(final String jobId) throws GenieException;
 
+    /**
+     * Get the clusters matching a single cluster criteria which also have an
+     * active command matching the command criteria.
+     *
+     * @param clusterCriteria The cluster criteria to match. Not null.
+     * @param commandCriteria The command criteria to match. Not null.
+     * @return The matching clusters. Empty if none match.
+     * @throws GenieException if there is an error
+     */
+    List<Cluster> findClustersForCriteria(
+            final ClusterCriteria clusterCriteria,
+            final Set<String> commandCriteria) throws GenieException;
+
     /**
      * Update a cluster configuration.
      *
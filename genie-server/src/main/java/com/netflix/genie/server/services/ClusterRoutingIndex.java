@@ -0,0 +1,94 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services;
+
+import com.netflix.genie.common.model.ClusterCriteria;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In memory index of the clusters jobs can be routed to: for every tag the
+ * UP clusters carrying it and, for every cluster, its ACTIVE commands in
+ * order. Resolving the cluster and command for a job is then a few bitset
+ * intersections instead of a query per cluster criteria.<br>
+ * The index is updated for the clusters touched by every change made
+ * through the configuration services of this node and rebuilt whenever the
+ * version stamp of the configuration tables shows another node changed
+ * them. Implementations must be thread-safe.
+ *
+ * @author agent
+ */
+public interface ClusterRoutingIndex {
+
+    /**
+     * Whether the index is enabled and has been built, so it can be used
+     * instead of querying the database.
+     *
+     * @return True if the index can be used
+     */
+    boolean isAvailable();
+
+    /**
+     * Find the UP clusters with all the tags of the cluster criteria which
+     * have an ACTIVE command with all the command criteria tags.
+     *
+     * @param clusterCriteria The cluster criteria. Null matches any cluster.
+     * @param commandCriteria The command criteria. Null matches any command.
+     * @return The ids of the matching clusters. Empty if there are none.
+     */
+    List<String> findClusterIds(final ClusterCriteria clusterCriteria, final Set<String> commandCriteria);
+
+    /**
+     * Find the first ACTIVE command of a cluster with all the command
+     * criteria tags.
+     *
+     * @param clusterId       The id of the cluster
+     * @param commandCriteria The command criteria. Null matches any command.
+     * @return The id of the command or null if the cluster has none matching
+     */
+    String findCommandId(final String clusterId, final Set<String> commandCriteria);
+
+    /**
+     * Update the index for a cluster which was created, changed or deleted.
+     * Inside a transaction the index is updated once it commits.
+     *
+     * @param clusterId The id of the cluster
+     */
+    void clusterChanged(final String clusterId);
+
+    /**
+     * Update the index for the clusters of a command which was changed or
+     * deleted. Inside a transaction the index is updated once it commits.
+     *
+     * @param commandId The id of the command
+     */
+    void commandChanged(final String commandId);
+
+    /**
+     * Rebuild the whole index for a change which may touch every cluster,
+     * like deleting all the clusters or commands. Inside a transaction the
+     * index is rebuilt once it commits.
+     */
+    void allChanged();
+
+    /**
+     * Rebuild the whole index from the database.
+     */
+    void rebuild();
+}
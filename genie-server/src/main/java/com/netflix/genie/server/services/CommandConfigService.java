@@ -77,6 +77,46 @@ public interface CommandConfigService {
             final boolean descending,
             final Set<String> orderBys);
 
+    /**
+     * Get the page of command configurations after a cursor for given filter criteria.
+     *
+     * @param name          Name of command config
+     * @param userName      The name of the user who created the configuration
+     * @param statuses      The status of the applications to get. Can be null.
+     * @param tags          tags allocated to this command
+     * @param cursor        The cursor of the previous page. Not blank.
+     * @param limit         Max number of results per page
+     * @param descending    Whether the results should be returned in descending or ascending order
+     * @param orderBys      The fields to order the results by
+     * @return The commands after the cursor matching the specified criteria
+     * @throws GenieException If the cursor is invalid
+     */
+    List<Command> getCommands(
+            final String name,
+            final String userName,
+            final Set<CommandStatus> statuses,
+            final Set<String> tags,
+            final String cursor,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException;
+
+    /**
+     * Get the cursor of the page after the given page of commands.
+     *
+     * @param commands   The page of commands returned for the order
+     * @param limit      The max number of commands requested for the page
+     * @param descending Whether the commands are in descending order
+     * @param orderBys   The fields the commands were requested to be ordered by
+     * @return The cursor or null if this is the last page or the order can't be continued with a cursor
+     * @throws GenieException If the cursor can't be created
+     */
+    String getNextCursor(
+            final List<Command> commands,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException;
+
     /**
      * Update command configuration.
      *
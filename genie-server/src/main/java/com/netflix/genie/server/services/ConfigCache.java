@@ -0,0 +1,61 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services;
+
+/**
+ * Cache of the cluster, command and application configuration entities so
+ * job launches don't read the configuration from the database every time.<br>
+ * The cache is invalidated by every change made through the configuration
+ * services of this node and whenever the version stamp of the configuration
+ * tables shows another node changed them. Implementations must be thread-safe.
+ *
+ * @author agent
+ */
+public interface ConfigCache {
+
+    /**
+     * Whether the configuration entities are cached.
+     *
+     * @return True if the cache is enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Invalidate the cached configuration. Called by every change to the
+     * configuration. Inside a transaction the cache is invalidated once it
+     * commits, so nothing read before the commit is left in the cache.
+     */
+    void invalidate();
+
+    /**
+     * Compare the version stamp of the configuration tables with the one
+     * seen last, invalidate the cache if they differ and tell the listeners.
+     *
+     * @return True if the configuration changed
+     */
+    boolean checkVersion();
+
+    /**
+     * Add a listener told after every check of the version stamp. The
+     * version stamp is checked while there are listeners even if the cache
+     * isn't enabled.
+     *
+     * @param listener The listener to add
+     */
+    void addVersionListener(final ConfigVersionListener listener);
+}
@@ -0,0 +1,35 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services;
+
+/**
+ * Told every time the version stamp of the configuration tables is read by
+ * the configuration cache, so components keeping their own copy of the
+ * configuration don't have to poll the tables themselves.
+ *
+ * @author agent
+ */
+public interface ConfigVersionListener {
+
+    /**
+     * Called from the thread checking the version stamp after every check.
+     *
+     * @param changed True if the configuration changed since the last check
+     */
+    void configVersionChecked(final boolean changed);
+}
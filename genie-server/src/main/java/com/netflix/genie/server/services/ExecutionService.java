@@ -20,6 +20,9 @@ package com.netflix.genie.server.services;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.model.Job;
 import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.common.model.JobSubmissionResult;
+
+import java.util.List;
 
 /**
  * Interface for the Execution Service.<br>
@@ -40,6 +43,54 @@ public interface ExecutionService {
      */
     Job submitJob(final Job job) throws GenieException;
 
+    /**
+     * Submit a new job without waiting for it to launch. The job is persisted
+     * in INIT state and handed off to the job launcher.
+     *
+     * @param job the job to submit
+     * @return The job that was accepted, still in INIT state
+     * @throws GenieException if there is an error
+     */
+    Job submitJobAsync(final Job job) throws GenieException;
+
+    /**
+     * Submit a new job. Replays of a submission with the same idempotency key,
+     * or with the same client supplied job id if there is no key, get the job
+     * of the original submission instead of a conflict. A replay has to ask
+     * for the same job within the replay window, otherwise it is a conflict.
+     * Idempotency keys are only remembered in memory by the node which took
+     * the original submission.
+     *
+     * @param job            the job to submit
+     * @param principal      the name of the authenticated caller, which keys
+     *                       are scoped to. Optional, the user of the job is
+     *                       used if there is none.
+     * @param idempotencyKey the key identifying the submission. Optional.
+     * @param async          whether to return as soon as the job is accepted
+     *                       instead of waiting for it to launch
+     * @return The job that was submitted
+     * @throws GenieException if there is an error
+     */
+    Job submitJob(
+            final Job job,
+            final String principal,
+            final String idempotencyKey,
+            final boolean async) throws GenieException;
+
+    /**
+     * Submit a batch of new jobs to run on this node. Valid jobs are persisted
+     * together and launched asynchronously. Jobs which fail validation or
+     * can't be admitted don't affect the rest of the batch. Once this node is
+     * busy jobs are forwarded to idle nodes one by one, the same as single
+     * submissions.
+     *
+     * @param jobs the jobs to submit
+     * @return The result for each job, in the order the jobs were submitted
+     * @throws GenieException if the batch itself is invalid or has more jobs
+     *                        than com.netflix.genie.server.job.batch.max.size
+     */
+    List<JobSubmissionResult> submitJobs(final List<Job> jobs) throws GenieException;
+
     /**
      * Kill job based on given job iD.
      *
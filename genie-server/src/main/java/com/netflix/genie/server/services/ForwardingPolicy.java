@@ -0,0 +1,42 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.NodeLoad;
+
+import java.util.List;
+
+/**
+ * Interface for the policy which picks the node a job is forwarded to when
+ * the node that received it is busy.
+ *
+ * @author agent
+ */
+public interface ForwardingPolicy {
+
+    /**
+     * Pick the host to forward a job to.
+     *
+     * @param candidates      The load of the nodes the job could be forwarded to
+     * @param maxJobThreshold Nodes running more jobs than this aren't eligible
+     * @return The host name to forward the job to or null if no node is eligible
+     * @throws GenieException if there is any error
+     */
+    String selectHost(final List<NodeLoad> candidates, final int maxJobThreshold) throws GenieException;
+}
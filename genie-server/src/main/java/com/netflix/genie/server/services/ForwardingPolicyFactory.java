@@ -0,0 +1,92 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.server.services.impl.LeastLoadedForwardingPolicyImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+
+import javax.inject.Named;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Factory class to get the configured forwarding policy.
+ *
+ * @author agent
+ */
+@Named
+public class ForwardingPolicyFactory implements ApplicationContextAware {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ForwardingPolicyFactory.class);
+
+    private ApplicationContext context;
+
+    /**
+     * The policies already looked up keyed by class name.
+     */
+    private final ConcurrentMap<String, ForwardingPolicy> policies = new ConcurrentHashMap<>();
+
+    /**
+     * Get the forwarding policy set by com.netflix.genie.server.forward.policy.impl.
+     *
+     * @return The forwarding policy
+     * @throws GenieException if the configured class can't be used as a forwarding policy
+     */
+    public ForwardingPolicy getForwardingPolicy() throws GenieException {
+        final String className = ConfigurationManager.getConfigInstance().getString(
+                "com.netflix.genie.server.forward.policy.impl",
+                LeastLoadedForwardingPolicyImpl.class.getName()
+        );
+        final ForwardingPolicy cached = this.policies.get(className);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            final Class<?> clazz = Class.forName(className);
+            if (!ForwardingPolicy.class.isAssignableFrom(clazz)) {
+                final String msg = className + " is not of type ForwardingPolicy. Unable to continue.";
+                LOG.error(msg);
+                throw new GenieServerException(msg);
+            }
+            final ForwardingPolicy policy = this.context.getBean(clazz.asSubclass(ForwardingPolicy.class));
+            this.policies.putIfAbsent(className, policy);
+            return policy;
+        } catch (final ClassNotFoundException | BeansException e) {
+            final String msg = "Unable to create forwarding policy for class name " + className;
+            LOG.error(msg, e);
+            throw new GenieServerException(msg, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setApplicationContext(
+            final ApplicationContext appContext) throws BeansException {
+        this.context = appContext;
+    }
+}
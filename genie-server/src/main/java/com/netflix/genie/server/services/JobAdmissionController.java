@@ -0,0 +1,89 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services;
+
+import com.netflix.genie.common.exceptions.GenieException;
+
+import java.util.Set;
+
+/**
+ * Node local registry of the INIT/RUNNING jobs on this instance, used to admit
+ * or reject new submissions without going to the database.<br>
+ * Implementations must be thread-safe.
+ *
+ * @author agent
+ */
+public interface JobAdmissionController {
+
+    /**
+     * Get the number of slots currently in use on this node. This includes
+     * registered jobs as well as outstanding reservations.
+     *
+     * @return The number of occupied slots
+     */
+    int getNumActiveJobs();
+
+    /**
+     * Try to reserve a slot for a new job on this node.
+     *
+     * @param maxRunningJobs The maximum number of slots available on this node
+     * @return true if a slot was reserved, false if the node is at capacity
+     */
+    boolean tryReserve(final int maxRunningJobs);
+
+    /**
+     * Give back a slot reserved via tryReserve which never turned into a job.
+     */
+    void cancelReservation();
+
+    /**
+     * Turn a previously reserved slot into a registered job.
+     *
+     * @param id The id of the job occupying the slot. Not null/empty/blank.
+     * @throws GenieException if the id is invalid
+     */
+    void register(final String id) throws GenieException;
+
+    /**
+     * Free the slot held by the given job along with its user and group
+     * quotas. Ids which aren't registered are ignored so this is safe to call
+     * for jobs running on other nodes.
+     *
+     * @param id The id of the job to release
+     */
+    void release(final String id);
+
+    /**
+     * Free the slot of a registered job which could not be launched after
+     * all, keeping its user and group quotas as the job is still waiting to
+     * run. Ids which aren't registered are ignored.
+     *
+     * @param id The id of the job to unregister
+     */
+    void unregister(final String id);
+
+    /**
+     * Reconcile the in-memory registry against the job table to correct any
+     * drift caused by jobs which were never released or registered.
+     *
+     * @param queuedIds The ids of INIT jobs waiting in the node queue which
+     *                  don't hold a slot yet
+     * @throws GenieException if there is an error reading the job table
+     */
+    void reconcile(final Set<String> queuedIds) throws GenieException;
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.Job;
+
+/**
+ * Node local per user and per group limits on the number of active jobs and
+ * the rate jobs can be submitted at, so a single user or group can't take
+ * every slot on the node. The number of active jobs of each user and group
+ * is published as a gauge.<br>
+ * Implementations must be thread-safe.
+ *
+ * @author agent
+ */
+public interface JobQuotaController {
+
+    /**
+     * Take a slot and a submission for a new job from the quotas of its user
+     * and group.
+     *
+     * @param job The job about to be submitted. Not null.
+     * @throws GenieException if the job is invalid or any quota is exceeded
+     */
+    void acquire(final Job job) throws GenieException;
+
+    /**
+     * Give back the slots taken via acquire for a job which was never saved.
+     *
+     * @param job The job which was passed to acquire
+     */
+    void cancel(final Job job);
+
+    /**
+     * Record the job holding the slots taken via acquire once it has been
+     * saved and has an id.
+     *
+     * @param job The saved job. Not null.
+     * @throws GenieException if the job has no id
+     */
+    void register(final Job job) throws GenieException;
+
+    /**
+     * Free the slots held by the given job. Ids which aren't registered are
+     * ignored so this is safe to call for jobs running on other nodes.
+     *
+     * @param id The id of the job to release
+     */
+    void release(final String id);
+
+    /**
+     * Re-sync the active jobs with the INIT and RUNNING jobs of this node in
+     * the database, taking slots for jobs which hold none, like the jobs of a
+     * previous run of the server, and giving back the slots of jobs which
+     * are done but were never released.
+     *
+     * @throws GenieException if there is an error reading the job table
+     */
+    void reconcile() throws GenieException;
+
+    /**
+     * Get the number of active jobs of a user on this node.
+     *
+     * @param user The user
+     * @return The number of active jobs
+     */
+    int getNumActiveJobsForUser(final String user);
+
+    /**
+     * Get the number of active jobs of a group on this node.
+     *
+     * @param group The group
+     * @return The number of active jobs
+     */
+    int getNumActiveJobsForGroup(final String group);
+}
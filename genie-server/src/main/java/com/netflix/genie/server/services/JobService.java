@@ -18,10 +18,15 @@
 package com.netflix.genie.server.services;
 
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.Application;
+import com.netflix.genie.common.model.Cluster;
+import com.netflix.genie.common.model.Command;
 import com.netflix.genie.common.model.Job;
 import com.netflix.genie.common.model.JobStatus;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -40,6 +45,26 @@ public interface JobService {
      */
     Job createJob(final Job job) throws GenieException;
 
+    /**
+     * Validate the job and persist it if it passes validation.
+     *
+     * @param job         The job to validate and maybe save
+     * @param checkExists Whether to check for an existing job with the same
+     *                    id. Callers which already looked the id up can skip it.
+     * @return The validated/saved job object
+     * @throws GenieException if there is an error
+     */
+    Job createJob(final Job job, final boolean checkExists) throws GenieException;
+
+    /**
+     * Persist a batch of already validated jobs in a single transaction.
+     *
+     * @param jobs The jobs to save. Not null.
+     * @return The saved jobs in the same order
+     * @throws GenieException if there is an error, in which case none of the jobs are saved
+     */
+    List<Job> createJobs(final List<Job> jobs) throws GenieException;
+
     /**
      * Get job information for given job id.
      *
@@ -87,6 +112,52 @@ public interface JobService {
             final boolean descending,
             final Set<String> orderBys);
 
+    /**
+     * Get the page of jobs after a cursor for given filter criteria.
+     *
+     * @param id          id for job
+     * @param jobName     name of job (can be a SQL-style pattern such as HIVE%)
+     * @param userName    user who submitted job
+     * @param statuses    statuses of job
+     * @param tags        tags for the job
+     * @param clusterName name of cluster for job
+     * @param clusterId   id of cluster for job
+     * @param cursor      The cursor of the previous page. Not blank.
+     * @param limit       max number of jobs to return
+     * @param descending  Whether the results should be returned in descending or ascending order
+     * @param orderBys    The fields to order the results by
+     * @return The jobs after the cursor which match the criteria
+     * @throws GenieException If the cursor is invalid
+     */
+    List<Job> getJobs(
+            final String id,
+            final String jobName,
+            final String userName,
+            final Set<JobStatus> statuses,
+            final Set<String> tags,
+            final String clusterName,
+            final String clusterId,
+            final String cursor,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException;
+
+    /**
+     * Get the cursor of the page after the given page of jobs.
+     *
+     * @param jobs       The page of jobs returned for the order
+     * @param limit      The max number of jobs requested for the page
+     * @param descending Whether the jobs are in descending order
+     * @param orderBys   The fields the jobs were requested to be ordered by
+     * @return The cursor or null if this is the last page or the order can't be continued with a cursor
+     * @throws GenieException If the cursor can't be created
+     */
+    String getNextCursor(
+            final List<Job> jobs,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException;
+
     /**
      * Add tags to the job.
      *
@@ -151,6 +222,16 @@ public interface JobService {
      */
     long setUpdateTime(final String id) throws GenieException;
 
+    /**
+     * Update the last updated time of many running jobs at once. Jobs which
+     * are no longer running are left alone.
+     *
+     * @param ids The ids of the jobs to update. Not null.
+     * @return The number of jobs updated
+     * @throws GenieException if there is an error
+     */
+    int setUpdateTimes(final Collection<String> ids) throws GenieException;
+
     /**
      * Set the status for a given job.
      *
@@ -171,34 +252,30 @@ public interface JobService {
     void setProcessIdForJob(final String id, final int pid) throws GenieException;
 
     /**
-     * Set the command information for a given job.
-     *
-     * @param id          The id of the job.
-     * @param commandId   The id of the command used to run the job.
-     * @param commandName The name of the command used to run the job.
-     * @throws GenieException if there is an error
-     */
-    void setCommandInfoForJob(final String id, final String commandId, final String commandName) throws GenieException;
-
-    /**
-     * Set the application information for a given job.
+     * Record how long each stage of setting up a job took.
      *
-     * @param id      The id of the job.
-     * @param appId   The id of the application used to run the job.
-     * @param appName The name of the application used to run the job.
+     * @param id         The id of the job.
+     * @param setupTimes The time each stage took in milliseconds, in the order they should be shown.
      * @throws GenieException if there is an error
      */
-    void setApplicationInfoForJob(final String id, final String appId, final String appName) throws GenieException;
+    void setSetupTimesForJob(final String id, final Map<String, Long> setupTimes) throws GenieException;
 
     /**
-     * Set the cluster information for a given job.
+     * Save the cluster, command and application chosen to run a job in one
+     * update.
      *
      * @param id          The id of the job.
-     * @param clusterId   The id of the cluster used to run the job.
-     * @param clusterName The name of the cluster used to run the job.
+     * @param cluster     The cluster the job will run on. Not null.
+     * @param command     The command the job will run with. Not null.
+     * @param application The application for the command. Can be null.
+     * @return The updated job
      * @throws GenieException if there is an error
      */
-    void setClusterInfoForJob(final String id, final String clusterId, final String clusterName) throws GenieException;
+    Job setExecutionInfoForJob(
+            final String id,
+            final Cluster cluster,
+            final Command command,
+            final Application application) throws GenieException;
 
     /**
      * Run the job using a JobLauncher.
@@ -208,4 +285,14 @@ public interface JobService {
      * @throws GenieException if there is an error
      */
     Job runJob(final Job job) throws GenieException;
+
+    /**
+     * Run the job using the clusters which were already resolved for it.
+     *
+     * @param job      The job to run.
+     * @param clusters The candidate clusters for the job.
+     * @return The job that was run
+     * @throws GenieException if there is an error
+     */
+    Job runJob(final Job job, final List<Cluster> clusters) throws GenieException;
 }
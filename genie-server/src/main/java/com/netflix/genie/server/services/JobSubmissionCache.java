@@ -0,0 +1,49 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.Job;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Bounded cache of recent job submissions so a client retrying a submission
+ * gets the response of the original instead of a conflict or a duplicate job.
+ * Nothing is persisted, so submissions are only deduplicated on the node which
+ * saw the original and only until it restarts.<br>
+ * Implementations must be thread-safe.
+ *
+ * @author agent
+ */
+public interface JobSubmissionCache {
+
+    /**
+     * Run a submission unless one with the same key was already successful,
+     * in which case the current state of the job the original submitted is
+     * returned. Concurrent
+     * submissions with the same key wait for the first to finish. Failed
+     * submissions aren't cached so they can be retried.
+     *
+     * @param key        The key identifying the submission. Not blank.
+     * @param submission The submission to run if the key hasn't been seen. Not null.
+     * @return The job submitted by the original submission
+     * @throws GenieException if the submission fails
+     */
+    Job submit(final String key, final Callable<Job> submission) throws GenieException;
+}
@@ -0,0 +1,49 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.Job;
+
+/**
+ * Client used to forward job requests from one Genie node to another.
+ *
+ * @author agent
+ */
+public interface PeerClient {
+
+    /**
+     * Submit a job to another node.
+     *
+     * @param hostURI The URI of the jobs resource on the other node. Not blank.
+     * @param job     The job to submit. Not null.
+     * @param async   Whether the other node should launch the job asynchronously
+     * @return The job returned by the other node
+     * @throws GenieException if the request fails or the other node returns an error
+     */
+    Job submitJob(final String hostURI, final Job job, final boolean async) throws GenieException;
+
+    /**
+     * Kill a job running on another node.
+     *
+     * @param killURI The kill URI of the job. Not blank.
+     * @return The job returned by the other node
+     * @throws GenieException if the request fails or the other node returns an error
+     */
+    Job killJob(final String killURI) throws GenieException;
+}
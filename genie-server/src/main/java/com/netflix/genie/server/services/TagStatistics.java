@@ -0,0 +1,41 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services;
+
+import com.netflix.genie.common.model.CommonEntityFields;
+
+import java.util.Set;
+
+/**
+ * Orders the tags of a search so the most selective one drives the query
+ * through the tag index. Implementations must be thread-safe.
+ *
+ * @author agent
+ */
+public interface TagStatistics {
+
+    /**
+     * Order tags from the most to the least selective for the given type of
+     * entity. Tags carried by fewer entities come first.
+     *
+     * @param type The type of the entities searched
+     * @param tags The tags to order. May be null.
+     * @return The tags in order or null if the tags were null
+     */
+    Set<String> orderBySelectivity(final Class<? extends CommonEntityFields> type, final Set<String> tags);
+}
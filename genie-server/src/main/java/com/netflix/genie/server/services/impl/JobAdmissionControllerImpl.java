@@ -0,0 +1,183 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.server.metrics.JobCountManager;
+import com.netflix.genie.server.services.JobAdmissionController;
+import com.netflix.genie.server.services.JobQuotaController;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission controller which keeps the active jobs of this node in memory.
+ * Slots are reserved with a compare and set on a single counter so concurrent
+ * submissions never block each other.
+ *
+ * @author agent
+ */
+@Named
+public class JobAdmissionControllerImpl implements JobAdmissionController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobAdmissionControllerImpl.class);
+
+    private final JobCountManager jobCountManager;
+    private final JobQuotaController quotaController;
+
+    // job id to the time it was registered on this node
+    private final ConcurrentMap<String, Long> activeJobs;
+
+    // registered jobs plus outstanding reservations
+    private final AtomicInteger occupiedSlots;
+
+    /**
+     * Constructor.
+     *
+     * @param jobCountManager The job count manager used to reconcile with the database
+     * @param quotaController The user and group quotas to free along with the slots of jobs
+     */
+    @Inject
+    public JobAdmissionControllerImpl(
+            final JobCountManager jobCountManager,
+            final JobQuotaController quotaController) {
+        this.jobCountManager = jobCountManager;
+        this.quotaController = quotaController;
+        this.activeJobs = new ConcurrentHashMap<>();
+        this.occupiedSlots = new AtomicInteger(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumActiveJobs() {
+        return this.occupiedSlots.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean tryReserve(final int maxRunningJobs) {
+        while (true) {
+            final int current = this.occupiedSlots.get();
+            if (current >= maxRunningJobs) {
+                LOG.debug("No free slots. " + current + " of " + maxRunningJobs + " in use.");
+                return false;
+            }
+            if (this.occupiedSlots.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cancelReservation() {
+        this.occupiedSlots.decrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void register(final String id) throws GenieException {
+        if (StringUtils.isBlank(id)) {
+            throw new GeniePreconditionException("No job id entered. Unable to register.");
+        }
+        if (this.activeJobs.put(id, System.currentTimeMillis()) != null) {
+            // Already picked up by a reconciliation so the reservation isn't needed
+            this.occupiedSlots.decrementAndGet();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(final String id) {
+        if (id != null && this.activeJobs.remove(id) != null) {
+            LOG.debug("Released slot held by job " + id);
+            this.occupiedSlots.decrementAndGet();
+        }
+        // queued jobs hold a quota without holding a slot
+        this.quotaController.release(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unregister(final String id) {
+        if (id != null && this.activeJobs.remove(id) != null) {
+            LOG.debug("Unregistered job " + id);
+            this.occupiedSlots.decrementAndGet();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reconcile(final Set<String> queuedIds) throws GenieException {
+        LOG.debug("called");
+        final long snapshotTime = System.currentTimeMillis();
+        final Set<String> persistedIds = new HashSet<>(this.jobCountManager.getInstanceJobIds());
+        if (queuedIds != null) {
+            persistedIds.removeAll(queuedIds);
+        }
+
+        int added = 0;
+        for (final String id : persistedIds) {
+            if (this.activeJobs.putIfAbsent(id, snapshotTime) == null) {
+                this.occupiedSlots.incrementAndGet();
+                added++;
+            }
+        }
+
+        // Only drop jobs registered before the snapshot was taken. Anything newer
+        // may not have been visible to the query yet.
+        int removed = 0;
+        for (final Map.Entry<String, Long> entry : this.activeJobs.entrySet()) {
+            if (!persistedIds.contains(entry.getKey())
+                    && entry.getValue() < snapshotTime
+                    && this.activeJobs.remove(entry.getKey(), entry.getValue())) {
+                this.occupiedSlots.decrementAndGet();
+                this.quotaController.release(entry.getKey());
+                removed++;
+            }
+        }
+
+        if (added != 0 || removed != 0) {
+            LOG.info("Reconciled admission registry. Added " + added + " and removed " + removed + " jobs.");
+        }
+    }
+}
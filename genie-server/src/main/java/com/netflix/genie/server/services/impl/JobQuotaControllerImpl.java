@@ -0,0 +1,466 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieTooManyRequestsException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.server.repository.jpa.JobRepository;
+import com.netflix.genie.server.services.JobQuotaController;
+import com.netflix.genie.server.util.NetUtil;
+import com.netflix.servo.DefaultMonitorRegistry;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.BasicGauge;
+import com.netflix.servo.monitor.MonitorConfig;
+import com.netflix.servo.monitor.Monitors;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Quota controller which keeps a separate atomic counter and token bucket
+ * per user and per group so submissions for different users and groups never
+ * contend with each other.<br>
+ * Limits are read from the configuration on every submission so they can be
+ * changed at runtime. A limit for a specific user or group is set by
+ * appending its name to the key, e.g.
+ * com.netflix.genie.server.quota.user.max.running.jobs.tgianos=5. A limit of
+ * 0 means unlimited.<br>
+ * The limits apply per node rather than across the cluster. Every node only
+ * counts the jobs it runs and the submissions it takes, so a user spread over
+ * several nodes behind the load balancer can have that many times the
+ * limits.<br>
+ * The counters are seeded from the jobs of this node in the database on
+ * start up and re-synced with them on every reconciliation so a restart or a
+ * missed release can't leave them wrong.
+ *
+ * @author agent
+ */
+@Named
+public class JobQuotaControllerImpl implements JobQuotaController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobQuotaControllerImpl.class);
+
+    private final JobRepository jobRepo;
+    private final Quota userQuota = new Quota("com.netflix.genie.server.quota.user.", "user");
+    private final Quota groupQuota = new Quota("com.netflix.genie.server.quota.group.", "group");
+
+    // job id to the user and group whose slots it holds
+    private final ConcurrentMap<String, Owner> activeJobs = new ConcurrentHashMap<>();
+
+    @Monitor(name = "Quota_User_Concurrency_Rejections", type = DataSourceType.COUNTER)
+    private final AtomicLong userConcurrencyRejections = new AtomicLong(0);
+
+    @Monitor(name = "Quota_Group_Concurrency_Rejections", type = DataSourceType.COUNTER)
+    private final AtomicLong groupConcurrencyRejections = new AtomicLong(0);
+
+    @Monitor(name = "Quota_User_Rate_Rejections", type = DataSourceType.COUNTER)
+    private final AtomicLong userRateRejections = new AtomicLong(0);
+
+    @Monitor(name = "Quota_Group_Rate_Rejections", type = DataSourceType.COUNTER)
+    private final AtomicLong groupRateRejections = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     *
+     * @param jobRepo The job repository to seed and re-sync the active jobs from
+     */
+    @Inject
+    public JobQuotaControllerImpl(final JobRepository jobRepo) {
+        this.jobRepo = jobRepo;
+    }
+
+    /**
+     * Register the metrics and count the jobs already active on this node.
+     */
+    @PostConstruct
+    public void initialize() {
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+        try {
+            this.reconcile();
+        } catch (final GenieException | RuntimeException e) {
+            LOG.error("Unable to count the active jobs of this node. Will try again on the next reconciliation.", e);
+        }
+    }
+
+    /**
+     * Unregister the metrics.
+     */
+    @PreDestroy
+    public void shutdown() {
+        LOG.info("Shutting down Servo monitor");
+        Monitors.unregisterObject(this);
+        this.userQuota.unregisterGauges();
+        this.groupQuota.unregisterGauges();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void acquire(final Job job) throws GenieException {
+        if (job == null) {
+            throw new GeniePreconditionException("No job entered. Unable to check quotas.");
+        }
+        final String user = job.getUser();
+        final String group = StringUtils.trimToNull(job.getGroup());
+        if (StringUtils.isBlank(user)) {
+            throw new GeniePreconditionException("No user entered. Unable to check quotas.");
+        }
+
+        if (!this.userQuota.tryTakeSlot(user)) {
+            this.userConcurrencyRejections.incrementAndGet();
+            throw new GenieTooManyRequestsException(
+                    "User " + user + " already has the max number of active jobs ("
+                            + this.userQuota.getMaxRunningJobs(user) + ") on this node");
+        }
+        if (group != null && !this.groupQuota.tryTakeSlot(group)) {
+            this.userQuota.returnSlot(user);
+            this.groupConcurrencyRejections.incrementAndGet();
+            throw new GenieTooManyRequestsException(
+                    "Group " + group + " already has the max number of active jobs ("
+                            + this.groupQuota.getMaxRunningJobs(group) + ") on this node");
+        }
+        if (!this.userQuota.tryTakeSubmission(user)) {
+            this.cancel(job);
+            this.userRateRejections.incrementAndGet();
+            throw new GenieTooManyRequestsException(
+                    "User " + user + " is submitting jobs faster than allowed. Try again later.");
+        }
+        if (group != null && !this.groupQuota.tryTakeSubmission(group)) {
+            // the submission of the user doesn't count as it was rejected
+            this.userQuota.returnSubmission(user);
+            this.cancel(job);
+            this.groupRateRejections.incrementAndGet();
+            throw new GenieTooManyRequestsException(
+                    "Group " + group + " is submitting jobs faster than allowed. Try again later.");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cancel(final Job job) {
+        if (job != null) {
+            this.returnSlots(new Owner(job, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void register(final Job job) throws GenieException {
+        if (job == null || StringUtils.isBlank(job.getId())) {
+            throw new GeniePreconditionException("No job id entered. Unable to register.");
+        }
+        final Owner owner = new Owner(job, System.currentTimeMillis());
+        if (this.activeJobs.putIfAbsent(job.getId(), owner) != null) {
+            // Already holding slots so the ones just acquired aren't needed
+            this.returnSlots(owner);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(final String id) {
+        if (id == null) {
+            return;
+        }
+        final Owner owner = this.activeJobs.remove(id);
+        if (owner != null) {
+            LOG.debug("Released quota held by job " + id);
+            this.returnSlots(owner);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reconcile() throws GenieException {
+        LOG.debug("called");
+        final long snapshotTime = System.currentTimeMillis();
+        final String hostName = NetUtil.getHostName();
+        final List<Job> jobs = new ArrayList<>(this.jobRepo.findByHostNameAndStatus(hostName, JobStatus.INIT));
+        jobs.addAll(this.jobRepo.findByHostNameAndStatus(hostName, JobStatus.RUNNING));
+
+        final Set<String> persistedIds = new HashSet<>();
+        int added = 0;
+        for (final Job job : jobs) {
+            persistedIds.add(job.getId());
+            final Owner owner = new Owner(job, snapshotTime);
+            if (this.activeJobs.putIfAbsent(job.getId(), owner) == null) {
+                // already running so it is counted whatever the limits are now
+                this.takeSlots(owner);
+                added++;
+            }
+        }
+
+        // Only drop jobs registered before the snapshot was taken. Anything newer
+        // may not have been visible to the query yet.
+        int removed = 0;
+        for (final Map.Entry<String, Owner> entry : this.activeJobs.entrySet()) {
+            if (!persistedIds.contains(entry.getKey())
+                    && entry.getValue().getRegistered() < snapshotTime
+                    && this.activeJobs.remove(entry.getKey(), entry.getValue())) {
+                this.returnSlots(entry.getValue());
+                removed++;
+            }
+        }
+
+        if (added != 0 || removed != 0) {
+            LOG.info("Reconciled quotas. Added " + added + " and removed " + removed + " jobs.");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumActiveJobsForUser(final String user) {
+        return this.userQuota.getRunning(user);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumActiveJobsForGroup(final String group) {
+        return this.groupQuota.getRunning(group);
+    }
+
+    private void takeSlots(final Owner owner) {
+        if (owner.getUser() != null) {
+            this.userQuota.takeSlot(owner.getUser());
+        }
+        if (owner.getGroup() != null) {
+            this.groupQuota.takeSlot(owner.getGroup());
+        }
+    }
+
+    private void returnSlots(final Owner owner) {
+        if (owner.getUser() != null) {
+            this.userQuota.returnSlot(owner.getUser());
+        }
+        if (owner.getGroup() != null) {
+            this.groupQuota.returnSlot(owner.getGroup());
+        }
+    }
+
+    /**
+     * The user and group whose quotas a job counts against.
+     */
+    private static final class Owner {
+        private final String user;
+        private final String group;
+        private final long registered;
+
+        Owner(final Job job, final long registered) {
+            this.user = StringUtils.trimToNull(job.getUser());
+            this.group = StringUtils.trimToNull(job.getGroup());
+            this.registered = registered;
+        }
+
+        long getRegistered() {
+            return this.registered;
+        }
+
+        String getUser() {
+            return this.user;
+        }
+
+        String getGroup() {
+            return this.group;
+        }
+    }
+
+    /**
+     * The concurrency counters and token buckets for all the users or all the
+     * groups.
+     */
+    private static final class Quota {
+        private final String keyPrefix;
+        private final String tag;
+        private final ConcurrentMap<String, AtomicInteger> running = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, BasicGauge<Integer>> gauges = new ConcurrentHashMap<>();
+
+        // The token buckets are kept as the time the bucket will be full again
+        // (the generic cell rate algorithm) so taking a token is a single
+        // compare and set.
+        private final ConcurrentMap<String, AtomicLong> fullTimes = new ConcurrentHashMap<>();
+
+        Quota(final String keyPrefix, final String tag) {
+            this.keyPrefix = keyPrefix;
+            this.tag = tag;
+        }
+
+        int getMaxRunningJobs(final String name) {
+            return this.getInt("max.running.jobs", name, 0);
+        }
+
+        int getRunning(final String name) {
+            final AtomicInteger count = this.running.get(name);
+            return count == null ? 0 : count.get();
+        }
+
+        boolean tryTakeSlot(final String name) {
+            final int max = this.getMaxRunningJobs(name);
+            final AtomicInteger count = this.getCount(name);
+            while (true) {
+                final int current = count.get();
+                if (max > 0 && current >= max) {
+                    LOG.debug("No free slots for " + name + ". " + current + " of " + max + " in use.");
+                    return false;
+                }
+                if (count.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void takeSlot(final String name) {
+            this.getCount(name).incrementAndGet();
+        }
+
+        void returnSlot(final String name) {
+            final AtomicInteger count = this.running.get(name);
+            if (count != null) {
+                count.decrementAndGet();
+            }
+        }
+
+        boolean tryTakeSubmission(final String name) {
+            final long interval = this.getSubmitInterval(name);
+            if (interval <= 0L) {
+                return true;
+            }
+            final int burst = Math.max(1, this.getInt("submit.burst", name, 10));
+            final long tolerance = interval * (burst - 1);
+
+            AtomicLong fullTime = this.fullTimes.get(name);
+            if (fullTime == null) {
+                final AtomicLong newFullTime = new AtomicLong(System.nanoTime());
+                fullTime = this.fullTimes.putIfAbsent(name, newFullTime);
+                if (fullTime == null) {
+                    fullTime = newFullTime;
+                }
+            }
+            while (true) {
+                final long current = fullTime.get();
+                final long now = System.nanoTime();
+                final long start = current - now > 0 ? current : now;
+                if (start - now > tolerance) {
+                    return false;
+                }
+                if (fullTime.compareAndSet(current, start + interval)) {
+                    return true;
+                }
+            }
+        }
+
+        void unregisterGauges() {
+            for (final BasicGauge<Integer> gauge : this.gauges.values()) {
+                DefaultMonitorRegistry.getInstance().unregister(gauge);
+            }
+            this.gauges.clear();
+        }
+
+        void returnSubmission(final String name) {
+            final long interval = this.getSubmitInterval(name);
+            final AtomicLong fullTime = this.fullTimes.get(name);
+            if (interval > 0L && fullTime != null) {
+                // a bucket which was refilled meanwhile just stays full
+                fullTime.addAndGet(-interval);
+            }
+        }
+
+        /**
+         * Get the time it takes for a token to be added to the bucket.
+         *
+         * @param name The name of the user or group
+         * @return The interval in nanoseconds or 0 if submissions aren't limited
+         */
+        private long getSubmitInterval(final String name) {
+            final AbstractConfiguration conf = ConfigurationManager.getConfigInstance();
+            final double rate = conf.getDouble(
+                    this.keyPrefix + "submit.rate." + name,
+                    conf.getDouble(this.keyPrefix + "submit.rate", 0.0)
+            );
+            return rate <= 0.0 ? 0L : (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        }
+
+        private AtomicInteger getCount(final String name) {
+            AtomicInteger count = this.running.get(name);
+            if (count == null) {
+                final AtomicInteger newCount = new AtomicInteger(0);
+                count = this.running.putIfAbsent(name, newCount);
+                if (count == null) {
+                    count = newCount;
+                    this.registerGauge(name, newCount);
+                }
+            }
+            return count;
+        }
+
+        private void registerGauge(final String name, final AtomicInteger count) {
+            final BasicGauge<Integer> gauge = new BasicGauge<>(
+                    MonitorConfig.builder("Quota_Active_Jobs").withTag(this.tag, name).build(),
+                    new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            return count.get();
+                        }
+                    }
+            );
+            if (this.gauges.putIfAbsent(name, gauge) == null) {
+                DefaultMonitorRegistry.getInstance().register(gauge);
+            }
+        }
+
+        private int getInt(final String key, final String name, final int defaultValue) {
+            final AbstractConfiguration conf = ConfigurationManager.getConfigInstance();
+            return conf.getInt(this.keyPrefix + key + "." + name, conf.getInt(this.keyPrefix + key, defaultValue));
+        }
+    }
+}
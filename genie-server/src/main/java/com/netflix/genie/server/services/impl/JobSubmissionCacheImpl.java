@@ -0,0 +1,160 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.server.services.JobService;
+import com.netflix.genie.server.services.JobSubmissionCache;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Submission cache backed by a size and time bounded Guava cache in the
+ * memory of this node. The cache loads each key at most once at a time which
+ * is what makes concurrent retries wait for the original rather than race it.
+ * Only the id of the submitted job is kept and replays read the job again, so
+ * they see its current status and no entity is shared between requests.
+ *
+ * @author agent
+ */
+@Named
+public class JobSubmissionCacheImpl implements JobSubmissionCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobSubmissionCacheImpl.class);
+
+    private final JobService jobService;
+    private final Cache<String, String> submissions;
+
+    @Monitor(name = "Submission_Cache_Replays", type = DataSourceType.COUNTER)
+    private final AtomicLong replays = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     *
+     * @param jobService The job service to read replayed jobs with
+     */
+    @Inject
+    public JobSubmissionCacheImpl(final JobService jobService) {
+        this.jobService = jobService;
+        final AbstractConfiguration conf = ConfigurationManager.getConfigInstance();
+        this.submissions = CacheBuilder.newBuilder()
+                .maximumSize(conf.getLong("com.netflix.genie.server.job.submission.cache.size", 10000L))
+                .expireAfterWrite(
+                        conf.getLong("com.netflix.genie.server.job.submission.cache.expire.ms", 3600000L),
+                        TimeUnit.MILLISECONDS
+                )
+                .build();
+    }
+
+    /**
+     * Register the metrics.
+     */
+    @PostConstruct
+    public void initialize() {
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+    }
+
+    /**
+     * Unregister the metrics.
+     */
+    @PreDestroy
+    public void shutdown() {
+        LOG.info("Shutting down Servo monitor");
+        Monitors.unregisterObject(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Job submit(final String key, final Callable<Job> submission) throws GenieException {
+        if (StringUtils.isBlank(key)) {
+            throw new GeniePreconditionException("No key entered. Unable to submit.");
+        }
+        if (submission == null) {
+            throw new GeniePreconditionException("No submission entered. Unable to submit.");
+        }
+        final AtomicReference<Job> submitted = new AtomicReference<>();
+        final String id;
+        try {
+            id = this.submissions.get(key, new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    final Job job = submission.call();
+                    submitted.set(job);
+                    return job.getId();
+                }
+            });
+        } catch (final ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof GenieException) {
+                throw (GenieException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new GenieServerException("Unable to submit job with key " + key, cause);
+        }
+        if (submitted.get() != null) {
+            return submitted.get();
+        }
+        LOG.info("Replaying the response of the original submission with key " + key);
+        this.replays.incrementAndGet();
+        try {
+            return this.jobService.getJob(id);
+        } catch (final GenieException ge) {
+            // the job is gone so a retry submits it again
+            this.submissions.invalidate(key);
+            throw ge;
+        }
+    }
+
+    /**
+     * Get the number of submissions which were answered from the cache.
+     *
+     * @return The number of replays
+     */
+    public long getNumReplays() {
+        return this.replays.get();
+    }
+}
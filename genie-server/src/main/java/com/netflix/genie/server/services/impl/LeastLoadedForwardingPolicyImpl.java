@@ -0,0 +1,72 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.NodeLoad;
+import com.netflix.genie.server.services.ForwardingPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.util.List;
+
+/**
+ * Forwards to the eligible node running the fewest jobs, preferring the one
+ * with the most free capacity on a tie.
+ * <p>
+ * Every node sees the same published loads, so between heartbeats all the
+ * busy nodes will pick the same target.
+ *
+ * @author agent
+ */
+@Named
+public class LeastLoadedForwardingPolicyImpl implements ForwardingPolicy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LeastLoadedForwardingPolicyImpl.class);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String selectHost(final List<NodeLoad> candidates, final int maxJobThreshold) throws GenieException {
+        LOG.debug("called");
+        if (candidates == null) {
+            throw new GeniePreconditionException("No candidates entered. Unable to select host.");
+        }
+
+        NodeLoad best = null;
+        for (final NodeLoad candidate : candidates) {
+            if (candidate.getRunningJobs() > maxJobThreshold) {
+                continue;
+            }
+            if (best == null
+                    || candidate.getRunningJobs() < best.getRunningJobs()
+                    || candidate.getRunningJobs() == best.getRunningJobs()
+                    && getFreeSlots(candidate) > getFreeSlots(best)) {
+                best = candidate;
+            }
+        }
+        return best == null ? null : best.getHostName();
+    }
+
+    private static int getFreeSlots(final NodeLoad load) {
+        return load.getMaxRunningJobs() - load.getRunningJobs();
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.server.services.PeerClient;
+import com.netflix.servo.DefaultMonitorRegistry;
+import com.netflix.servo.monitor.BasicCounter;
+import com.netflix.servo.monitor.BasicTimer;
+import com.netflix.servo.monitor.Counter;
+import com.netflix.servo.monitor.MonitorConfig;
+import com.netflix.servo.monitor.Stopwatch;
+import com.netflix.servo.monitor.Timer;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.client.apache4.ApacheHttpClient4;
+import com.sun.jersey.client.apache4.config.ApacheHttpClient4Config;
+import com.sun.jersey.client.apache4.config.DefaultApacheHttpClient4Config;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Peer client which shares one pool of keep-alive connections between all
+ * forwarded requests and records the latency of the requests to each peer.
+ *
+ * @author agent
+ */
+@Named
+public class PeerClientImpl implements PeerClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PeerClientImpl.class);
+    private static final String PEER_TAG = "peer";
+
+    private final Client client;
+    private final ObjectReader jobReader;
+    private final ObjectWriter jobWriter;
+    private final ConcurrentMap<String, Timer> latencyTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     */
+    public PeerClientImpl() {
+        final AbstractConfiguration conf = ConfigurationManager.getConfigInstance();
+        final PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager();
+        connectionManager.setMaxTotal(
+                conf.getInt("com.netflix.genie.server.peer.client.max.connections", 50));
+        connectionManager.setDefaultMaxPerRoute(
+                conf.getInt("com.netflix.genie.server.peer.client.max.connections.per.peer", 10));
+
+        final DefaultApacheHttpClient4Config config = new DefaultApacheHttpClient4Config();
+        config.getProperties().put(ApacheHttpClient4Config.PROPERTY_CONNECTION_MANAGER, connectionManager);
+        config.getProperties().put(
+                ClientConfig.PROPERTY_CONNECT_TIMEOUT,
+                conf.getInt("com.netflix.genie.server.peer.client.connect.timeout.ms", 5000));
+        config.getProperties().put(
+                ClientConfig.PROPERTY_READ_TIMEOUT,
+                conf.getInt("com.netflix.genie.server.peer.client.read.timeout.ms", 60000));
+        this.client = ApacheHttpClient4.create(config);
+
+        final ObjectMapper mapper = new ObjectMapper();
+        this.jobReader = mapper.reader(Job.class);
+        this.jobWriter = mapper.writer();
+    }
+
+    /**
+     * Release the pooled connections.
+     */
+    @PreDestroy
+    public void shutdown() {
+        LOG.info("Shutting down peer client");
+        this.client.destroy();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Job submitJob(final String hostURI, final Job job, final boolean async) throws GenieException {
+        if (StringUtils.isBlank(hostURI)) {
+            throw new GeniePreconditionException("No host URI entered. Unable to forward job.");
+        }
+        if (job == null) {
+            throw new GeniePreconditionException("No job entered. Unable to forward job.");
+        }
+        LOG.info("Forwarding job " + job.getId() + " to " + hostURI);
+
+        final String entity;
+        try {
+            entity = this.jobWriter.writeValueAsString(job);
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to serialize job " + job.getId(), ioe);
+        }
+
+        WebResource resource = this.client.resource(hostURI);
+        if (async) {
+            resource = resource.queryParam("async", Boolean.TRUE.toString());
+        }
+        return this.execute(
+                hostURI,
+                resource.type(MediaType.APPLICATION_JSON_TYPE).accept(MediaType.APPLICATION_JSON_TYPE),
+                "POST",
+                entity
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Job killJob(final String killURI) throws GenieException {
+        if (StringUtils.isBlank(killURI)) {
+            throw new GeniePreconditionException("No kill URI entered. Unable to forward kill.");
+        }
+        LOG.info("Forwarding kill request to " + killURI);
+        return this.execute(
+                killURI,
+                this.client.resource(killURI).accept(MediaType.APPLICATION_JSON_TYPE),
+                "DELETE",
+                null
+        );
+    }
+
+    private Job execute(
+            final String uri,
+            final WebResource.Builder builder,
+            final String method,
+            final String entity) throws GenieException {
+        final String peer = getPeer(uri);
+        final Stopwatch stopwatch = this.getLatencyTimer(peer).start();
+        ClientResponse response = null;
+        try {
+            response = entity == null
+                    ? builder.method(method, ClientResponse.class)
+                    : builder.method(method, ClientResponse.class, entity);
+            if (response.getStatus() >= 200 && response.getStatus() < 300) {
+                return this.jobReader.readValue(response.getEntityInputStream());
+            } else {
+                this.getErrorCounter(peer).increment();
+                throw new GenieException(response.getStatus(), response.getEntity(String.class));
+            }
+        } catch (final ClientHandlerException | IOException e) {
+            this.getErrorCounter(peer).increment();
+            final String msg = "Unable to forward request to " + uri;
+            LOG.error(msg, e);
+            throw new GenieServerException(msg, e);
+        } finally {
+            stopwatch.stop();
+            if (response != null) {
+                // return the connection to the pool
+                response.close();
+            }
+        }
+    }
+
+    private Timer getLatencyTimer(final String peer) {
+        Timer timer = this.latencyTimers.get(peer);
+        if (timer == null) {
+            final Timer newTimer = new BasicTimer(
+                    MonitorConfig.builder("Peer_Request_Latency").withTag(PEER_TAG, peer).build());
+            timer = this.latencyTimers.putIfAbsent(peer, newTimer);
+            if (timer == null) {
+                DefaultMonitorRegistry.getInstance().register(newTimer);
+                timer = newTimer;
+            }
+        }
+        return timer;
+    }
+
+    private Counter getErrorCounter(final String peer) {
+        Counter counter = this.errorCounters.get(peer);
+        if (counter == null) {
+            final Counter newCounter = new BasicCounter(
+                    MonitorConfig.builder("Peer_Request_Errors").withTag(PEER_TAG, peer).build());
+            counter = this.errorCounters.putIfAbsent(peer, newCounter);
+            if (counter == null) {
+                DefaultMonitorRegistry.getInstance().register(newCounter);
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    private static String getPeer(final String uri) {
+        try {
+            final String host = URI.create(uri).getHost();
+            return host == null ? uri : host;
+        } catch (final IllegalArgumentException iae) {
+            return uri;
+        }
+    }
+}
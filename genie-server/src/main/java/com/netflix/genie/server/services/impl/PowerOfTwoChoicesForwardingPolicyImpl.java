@@ -0,0 +1,100 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.NodeLoad;
+import com.netflix.genie.server.services.ForwardingPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Picks two eligible nodes at random and forwards to the one running fewer
+ * jobs. Keeps the load close to even without every busy node piling onto the
+ * same target between heartbeats.
+ *
+ * @author agent
+ */
+@Named
+public class PowerOfTwoChoicesForwardingPolicyImpl implements ForwardingPolicy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PowerOfTwoChoicesForwardingPolicyImpl.class);
+
+    private final Random random;
+
+    /**
+     * Default constructor.
+     */
+    @Inject
+    public PowerOfTwoChoicesForwardingPolicyImpl() {
+        this(new Random());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param random The source of randomness to use
+     */
+    public PowerOfTwoChoicesForwardingPolicyImpl(final Random random) {
+        this.random = random;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String selectHost(final List<NodeLoad> candidates, final int maxJobThreshold) throws GenieException {
+        LOG.debug("called");
+        if (candidates == null) {
+            throw new GeniePreconditionException("No candidates entered. Unable to select host.");
+        }
+
+        final List<NodeLoad> eligible = new ArrayList<>();
+        for (final NodeLoad candidate : candidates) {
+            if (candidate.getRunningJobs() <= maxJobThreshold) {
+                eligible.add(candidate);
+            }
+        }
+        if (eligible.isEmpty()) {
+            return null;
+        } else if (eligible.size() == 1) {
+            return eligible.get(0).getHostName();
+        }
+
+        final int firstIndex = this.random.nextInt(eligible.size());
+        int secondIndex = this.random.nextInt(eligible.size() - 1);
+        if (secondIndex >= firstIndex) {
+            secondIndex++;
+        }
+        final NodeLoad first = eligible.get(firstIndex);
+        final NodeLoad second = eligible.get(secondIndex);
+        if (second.getRunningJobs() < first.getRunningJobs()
+                || second.getRunningJobs() == first.getRunningJobs()
+                && second.getMaxRunningJobs() > first.getMaxRunningJobs()) {
+            return second.getHostName();
+        }
+        return first.getHostName();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.NodeLoad;
+import com.netflix.genie.server.services.ForwardingPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Picks an eligible node at random weighted by its free capacity, so nodes
+ * configured to run more jobs get proportionally more of the forwarded ones.
+ *
+ * @author agent
+ */
+@Named
+public class WeightedCapacityForwardingPolicyImpl implements ForwardingPolicy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WeightedCapacityForwardingPolicyImpl.class);
+
+    private final Random random;
+
+    /**
+     * Default constructor.
+     */
+    @Inject
+    public WeightedCapacityForwardingPolicyImpl() {
+        this(new Random());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param random The source of randomness to use
+     */
+    public WeightedCapacityForwardingPolicyImpl(final Random random) {
+        this.random = random;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String selectHost(final List<NodeLoad> candidates, final int maxJobThreshold) throws GenieException {
+        LOG.debug("called");
+        if (candidates == null) {
+            throw new GeniePreconditionException("No candidates entered. Unable to select host.");
+        }
+
+        int totalFreeSlots = 0;
+        for (final NodeLoad candidate : candidates) {
+            if (candidate.getRunningJobs() <= maxJobThreshold) {
+                totalFreeSlots += getFreeSlots(candidate);
+            }
+        }
+        if (totalFreeSlots <= 0) {
+            return null;
+        }
+
+        int slot = this.random.nextInt(totalFreeSlots);
+        for (final NodeLoad candidate : candidates) {
+            if (candidate.getRunningJobs() <= maxJobThreshold) {
+                final int freeSlots = getFreeSlots(candidate);
+                if (slot < freeSlots) {
+                    return candidate.getHostName();
+                }
+                slot -= freeSlots;
+            }
+        }
+        return null;
+    }
+
+    private static int getFreeSlots(final NodeLoad load) {
+        return Math.max(load.getMaxRunningJobs() - load.getRunningJobs(), 0);
+    }
+}
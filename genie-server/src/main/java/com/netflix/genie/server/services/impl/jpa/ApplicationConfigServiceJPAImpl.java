@@ -28,7 +28,11 @@ import com.netflix.genie.common.model.Application_;
 import com.netflix.genie.common.model.Command;
 import com.netflix.genie.server.repository.jpa.ApplicationRepository;
 import com.netflix.genie.server.repository.jpa.ApplicationSpecs;
+import com.netflix.genie.server.repository.jpa.CursorSpecs;
 import com.netflix.genie.server.services.ApplicationConfigService;
+import com.netflix.genie.server.services.ConfigCache;
+import com.netflix.genie.server.services.TagStatistics;
+import com.netflix.genie.server.util.CursorUtil;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -38,11 +42,13 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.metamodel.SingularAttribute;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specifications;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -61,15 +67,24 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     private EntityManager em;
 
     private final ApplicationRepository applicationRepo;
+    private final ConfigCache configCache;
+    private final TagStatistics tagStatistics;
 
     /**
      * Default constructor.
      *
      * @param applicationRepo The application repository to use
+     * @param configCache     The configuration cache to invalidate on changes
+     * @param tagStatistics   The tag statistics to order tag searches with
      */
     @Inject
-    public ApplicationConfigServiceJPAImpl(final ApplicationRepository applicationRepo) {
+    public ApplicationConfigServiceJPAImpl(
+            final ApplicationRepository applicationRepo,
+            final ConfigCache configCache,
+            final TagStatistics tagStatistics) {
         this.applicationRepo = applicationRepo;
+        this.configCache = configCache;
+        this.tagStatistics = tagStatistics;
     }
 
     /**
@@ -114,17 +129,78 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
 
         @SuppressWarnings("unchecked")
         final List<Application> apps = this.applicationRepo.findAll(
-                ApplicationSpecs.find(name, userName, statuses, tags),
+                ApplicationSpecs.find(
+                        name,
+                        userName,
+                        statuses,
+                        this.tagStatistics.orderBySelectivity(Application.class, tags)
+                ),
                 pageRequest).getContent();
         return apps;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Application> getApplications(
+            final String name,
+            final String userName,
+            final Set<ApplicationStatus> statuses,
+            final Set<String> tags,
+            final String cursor,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException {
+        LOG.debug("Called with cursor " + cursor);
+
+        final List<SingularAttribute<?, ?>> cursorOrderBys = JPAUtils.getCursorOrderBys(
+                orderBys, Application_.class, Application_.updated.getName()
+        );
+
+        @SuppressWarnings("unchecked")
+        final List<Application> apps = this.applicationRepo.findAll(
+                Specifications.where(
+                        ApplicationSpecs.find(
+                                name,
+                                userName,
+                                statuses,
+                                this.tagStatistics.orderBySelectivity(Application.class, tags)
+                        )
+                ).and(
+                        CursorSpecs.<Application>after(
+                                cursorOrderBys,
+                                JPAUtils.getCursorValues(cursor, descending, cursorOrderBys),
+                                descending)
+                ),
+                JPAUtils.getCursorPageRequest(limit, descending, cursorOrderBys)).getContent();
+        return apps;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getNextCursor(
+            final List<Application> applications,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException {
+        if (!JPAUtils.isCursorOrder(orderBys, Application_.class, Application_.updated.getName())) {
+            LOG.debug("Order by " + orderBys + " can't be continued with a cursor");
+            return null;
+        }
+        return CursorUtil.createNextCursor(applications, limit, descending, orderBys);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Application createApplication(
             final Application app) throws GenieException {
+        this.configCache.invalidate();
         if (app == null) {
             throw new GeniePreconditionException("No application entered to create.");
         }
@@ -144,6 +220,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     public Application updateApplication(
             final String id,
             final Application updateApp) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isEmpty(id)) {
             throw new GeniePreconditionException("No application id entered. Unable to update.");
         }
@@ -173,6 +250,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
      */
     @Override
     public List<Application> deleteAllApplications() throws GenieException {
+        this.configCache.invalidate();
         LOG.debug("Called");
         final Iterable<Application> apps = this.applicationRepo.findAll();
         final List<Application> returnApps = new ArrayList<>();
@@ -188,6 +266,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     @Override
     public Application deleteApplication(
             final String id) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No application id entered. Unable to delete.");
         }
@@ -215,6 +294,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     public Set<String> addConfigsToApplication(
             final String id,
             final Set<String> configs) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No application id entered. Unable to add configurations.");
         }
@@ -237,6 +317,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     public Set<String> updateConfigsForApplication(
             final String id,
             final Set<String> configs) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No application id entered. Unable to update configurations.");
         }
@@ -273,6 +354,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     @Override
     public Set<String> removeAllConfigsForApplication(
             final String id) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No application id entered. Unable to remove jars.");
         }
@@ -292,6 +374,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     public Set<String> removeConfigForApplication(
             final String id,
             final String config) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No application id entered. Unable to remove configuration.");
         }
@@ -313,6 +396,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     public Set<String> addJarsForApplication(
             final String id,
             final Set<String> jars) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No application id entered. Unable to add jar.");
         }
@@ -354,6 +438,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     public Set<String> updateJarsForApplication(
             final String id,
             final Set<String> jars) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No application id entered. Unable to update jars.");
         }
@@ -372,6 +457,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     @Override
     public Set<String> removeAllJarsForApplication(
             final String id) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No application id entered. Unable to remove jars.");
         }
@@ -391,6 +477,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     public Set<String> removeJarForApplication(
             final String id,
             final String jar) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No application id entered. Unable to remove jar.");
         }
@@ -412,6 +499,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     public Set<String> addTagsForApplication(
             final String id,
             final Set<String> tags) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No application id entered. Unable to add tags.");
         }
@@ -455,6 +543,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     public Set<String> updateTagsForApplication(
             final String id,
             final Set<String> tags) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No application id entered. Unable to update tags.");
         }
@@ -473,6 +562,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     @Override
     public Set<String> removeAllTagsForApplication(
             final String id) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No application id entered. Unable to remove tags.");
         }
@@ -491,6 +581,7 @@ public class ApplicationConfigServiceJPAImpl implements ApplicationConfigService
     @Override
     public Set<String> removeTagForApplication(final String id, final String tag)
             throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No application id entered. Unable to remove tag.");
         }
@@ -33,8 +33,13 @@ import com.netflix.genie.common.model.ClusterStatus;
 import com.netflix.genie.server.repository.jpa.ClusterRepository;
 import com.netflix.genie.server.repository.jpa.ClusterSpecs;
 import com.netflix.genie.server.repository.jpa.CommandRepository;
+import com.netflix.genie.server.repository.jpa.CursorSpecs;
 import com.netflix.genie.server.repository.jpa.JobRepository;
 import com.netflix.genie.server.services.ClusterConfigService;
+import com.netflix.genie.server.services.ClusterRoutingIndex;
+import com.netflix.genie.server.services.ConfigCache;
+import com.netflix.genie.server.services.TagStatistics;
+import com.netflix.genie.server.util.CursorUtil;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -44,11 +49,13 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.metamodel.SingularAttribute;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specifications;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -70,23 +77,35 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
     private final ClusterRepository clusterRepo;
     private final CommandRepository commandRepo;
     private final JobRepository jobRepo;
+    private final ConfigCache configCache;
+    private final ClusterRoutingIndex routingIndex;
+    private final TagStatistics tagStatistics;
     private static final char CRITERIA_DELIMITER = ',';
 
     /**
      * Default constructor - initialize all required dependencies.
      *
-     * @param clusterRepo The cluster repository to use.
-     * @param commandRepo the command repository to use.
-     * @param jobRepo     The job repository to use.
+     * @param clusterRepo   The cluster repository to use.
+     * @param commandRepo   the command repository to use.
+     * @param jobRepo       The job repository to use.
+     * @param configCache   The configuration cache to invalidate on changes.
+     * @param routingIndex  The routing index to find clusters with and update on changes.
+     * @param tagStatistics The tag statistics to order tag searches with.
      */
     @Inject
     public ClusterConfigServiceJPAImpl(
             final ClusterRepository clusterRepo,
             final CommandRepository commandRepo,
-            final JobRepository jobRepo) {
+            final JobRepository jobRepo,
+            final ConfigCache configCache,
+            final ClusterRoutingIndex routingIndex,
+            final TagStatistics tagStatistics) {
         this.clusterRepo = clusterRepo;
         this.commandRepo = commandRepo;
         this.jobRepo = jobRepo;
+        this.configCache = configCache;
+        this.routingIndex = routingIndex;
+        this.tagStatistics = tagStatistics;
     }
 
     /**
@@ -94,6 +113,7 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
      */
     @Override
     public Cluster createCluster(final Cluster cluster) throws GenieException {
+        this.configCache.invalidate();
         if (cluster == null) {
             throw new GeniePreconditionException("No cluster entered. Unable to validate.");
         }
@@ -107,6 +127,7 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
             throw new GenieConflictException("A cluster with id " + cluster.getId() + " already exists");
         }
 
+        this.routingIndex.clusterChanged(cluster.getId());
         return this.clusterRepo.save(cluster);
     }
 
@@ -155,13 +176,70 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
                 ClusterSpecs.find(
                         name,
                         statuses,
-                        tags,
+                        this.tagStatistics.orderBySelectivity(Cluster.class, tags),
                         minUpdateTime,
                         maxUpdateTime),
                 pageRequest).getContent();
         return clusters;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Cluster> getClusters(
+            final String name,
+            final Set<ClusterStatus> statuses,
+            final Set<String> tags,
+            final Long minUpdateTime,
+            final Long maxUpdateTime,
+            final String cursor,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys
+    ) throws GenieException {
+        LOG.debug("called with cursor " + cursor);
+
+        final List<SingularAttribute<?, ?>> cursorOrderBys = JPAUtils.getCursorOrderBys(
+                orderBys, Cluster_.class, Cluster_.updated.getName()
+        );
+
+        @SuppressWarnings("unchecked")
+        final List<Cluster> clusters = this.clusterRepo.findAll(
+                Specifications.where(
+                        ClusterSpecs.find(
+                                name,
+                                statuses,
+                                this.tagStatistics.orderBySelectivity(Cluster.class, tags),
+                                minUpdateTime,
+                                maxUpdateTime)
+                ).and(
+                        CursorSpecs.<Cluster>after(
+                                cursorOrderBys,
+                                JPAUtils.getCursorValues(cursor, descending, cursorOrderBys),
+                                descending)
+                ),
+                JPAUtils.getCursorPageRequest(limit, descending, cursorOrderBys)).getContent();
+        return clusters;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getNextCursor(
+            final List<Cluster> clusters,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException {
+        if (!JPAUtils.isCursorOrder(orderBys, Cluster_.class, Cluster_.updated.getName())) {
+            LOG.debug("Order by " + orderBys + " can't be continued with a cursor");
+            return null;
+        }
+        return CursorUtil.createNextCursor(clusters, limit, descending, orderBys);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -184,13 +262,7 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
         final Set<String> commandCriteria = job.getCommandCriteria();
 
         for (final ClusterCriteria clusterCriteria : clusterCriterias) {
-            @SuppressWarnings("unchecked")
-            final List<Cluster> clusters = this.clusterRepo.findAll(
-                    ClusterSpecs.findByClusterAndCommandCriteria(
-                            clusterCriteria,
-                            commandCriteria
-                    )
-            );
+            final List<Cluster> clusters = this.findClusters(clusterCriteria, commandCriteria);
 
             if (!clusters.isEmpty()) {
                 // Add the succesfully criteria to the job object in string form.
@@ -208,6 +280,24 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
         return new ArrayList<>();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Cluster> findClustersForCriteria(
+            final ClusterCriteria clusterCriteria,
+            final Set<String> commandCriteria) throws GenieException {
+        LOG.debug("Called");
+        if (clusterCriteria == null) {
+            throw new GeniePreconditionException("No cluster criteria entered. Unable to continue.");
+        }
+        if (commandCriteria == null) {
+            throw new GeniePreconditionException("No command criteria entered. Unable to continue.");
+        }
+        return this.findClusters(clusterCriteria, commandCriteria);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -215,6 +305,8 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
     public Cluster updateCluster(
             final String id,
             final Cluster updateCluster) throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.clusterChanged(id);
         LOG.debug("Called with id " + id + " and cluster " + updateCluster);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No cluster id entered. Unable to update.");
@@ -244,6 +336,8 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
      */
     @Override
     public Cluster deleteCluster(final String id) throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.clusterChanged(id);
         if (StringUtils.isEmpty(id)) {
             throw new GeniePreconditionException("No id entered unable to delete.");
         }
@@ -270,6 +364,8 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
      */
     @Override
     public List<Cluster> deleteAllClusters() throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.allChanged();
         LOG.debug("Called to delete all clusters");
         final List<Cluster> clusters = this.clusterRepo.findAll();
         for (final Cluster cluster : clusters) {
@@ -285,6 +381,7 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
     public Set<String> addConfigsForCluster(
             final String id,
             final Set<String> configs) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No cluster id entered. Unable to add configurations.");
         }
@@ -328,6 +425,7 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
     public Set<String> updateConfigsForCluster(
             final String id,
             final Set<String> configs) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No cluster id entered. Unable to update configurations.");
         }
@@ -347,6 +445,8 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
     public List<Command> addCommandsForCluster(
             final String id,
             final List<Command> commands) throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.clusterChanged(id);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No cluster id entered. Unable to add commands.");
         }
@@ -395,6 +495,8 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
     public List<Command> updateCommandsForCluster(
             final String id,
             final List<Command> commands) throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.clusterChanged(id);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No cluster id entered. Unable to update commands.");
         }
@@ -425,6 +527,8 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
     @Override
     public List<Command> removeAllCommandsForCluster(
             final String id) throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.clusterChanged(id);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No cluster id entered. Unable to remove commands.");
         }
@@ -448,6 +552,8 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
     public List<Command> removeCommandForCluster(
             final String id,
             final String cmdId) throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.clusterChanged(id);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No cluster id entered. Unable to remove command.");
         }
@@ -475,6 +581,8 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
     public Set<String> addTagsForCluster(
             final String id,
             final Set<String> tags) throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.clusterChanged(id);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No cluster id entered. Unable to add tags.");
         }
@@ -518,6 +626,8 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
     public Set<String> updateTagsForCluster(
             final String id,
             final Set<String> tags) throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.clusterChanged(id);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No cluster id entered. Unable to update tags.");
         }
@@ -536,6 +646,8 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
     @Override
     public Set<String> removeAllTagsForCluster(
             final String id) throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.clusterChanged(id);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No cluster id entered. Unable to remove tags.");
         }
@@ -554,6 +666,8 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
     @Override
     public Set<String> removeTagForCluster(final String id, final String tag)
             throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.clusterChanged(id);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No cluster id entered. Unable to remove tag.");
         }
@@ -568,4 +682,49 @@ public class ClusterConfigServiceJPAImpl implements ClusterConfigService {
             throw new GenieNotFoundException("No cluster with id " + id + " exists.");
         }
     }
+
+    private List<Cluster> findClusters(
+            final ClusterCriteria clusterCriteria,
+            final Set<String> commandCriteria) {
+        if (this.routingIndex.isAvailable()) {
+            final List<String> ids = this.routingIndex.findClusterIds(clusterCriteria, commandCriteria);
+            if (ids.isEmpty()) {
+                return new ArrayList<>();
+            }
+            final List<Cluster> clusters = this.clusterRepo.findAll(ids);
+            if (clusters.size() == ids.size() && matches(clusters, clusterCriteria)) {
+                return clusters;
+            }
+            // the index is behind a change to one of the clusters so ask the database
+            LOG.info("Cluster routing index is stale for criteria " + clusterCriteria.getTags()
+                    + ". Querying the database instead.");
+        }
+        @SuppressWarnings("unchecked")
+        final List<Cluster> clusters = this.clusterRepo.findAll(
+                ClusterSpecs.findByClusterAndCommandCriteria(
+                        clusterCriteria,
+                        commandCriteria
+                )
+        );
+        return clusters;
+    }
+
+    /**
+     * Check the clusters loaded for ids from the routing index still match
+     * what the index matched them on.
+     *
+     * @param clusters        The clusters
+     * @param clusterCriteria The criteria they were found for
+     * @return true if every cluster is up and has all the tags of the criteria
+     */
+    private static boolean matches(final List<Cluster> clusters, final ClusterCriteria clusterCriteria) {
+        for (final Cluster cluster : clusters) {
+            if (cluster.getStatus() != ClusterStatus.UP
+                    || cluster.getTags() == null
+                    || !cluster.getTags().containsAll(clusterCriteria.getTags())) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
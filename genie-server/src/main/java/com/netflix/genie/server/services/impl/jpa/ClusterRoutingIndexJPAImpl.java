@@ -0,0 +1,398 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl.jpa;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.model.Cluster;
+import com.netflix.genie.common.model.ClusterCriteria;
+import com.netflix.genie.common.model.ClusterStatus;
+import com.netflix.genie.common.model.Command;
+import com.netflix.genie.common.model.CommandStatus;
+import com.netflix.genie.server.repository.jpa.ClusterRepository;
+import com.netflix.genie.server.repository.jpa.CommandRepository;
+import com.netflix.genie.server.services.ClusterRoutingIndex;
+import com.netflix.genie.server.services.ConfigCache;
+import com.netflix.genie.server.services.ConfigVersionListener;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the cluster routing index in an immutable snapshot which is replaced
+ * on every change. Only the clusters touched by a change are read from the
+ * database. The whole index is read again when the configuration cache,
+ * which checks the version stamp of the configuration tables, reports a
+ * change, which also covers the changes made by other nodes. Until the first
+ * build finishes callers fall back to querying.
+ *
+ * @author agent
+ */
+@Named
+public class ClusterRoutingIndexJPAImpl implements ClusterRoutingIndex, ConfigVersionListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClusterRoutingIndexJPAImpl.class);
+    private static final String CONFIG_PREFIX = "com.netflix.genie.server.cluster.routing.index.";
+
+    private final ClusterRepository clusterRepo;
+    private final CommandRepository commandRepo;
+    private final ConfigCache configCache;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    // serializes the builds and updates of the snapshot
+    private final Object updateLock = new Object();
+    private volatile RoutingSnapshot snapshot;
+    private volatile boolean stale;
+
+    @Monitor(name = "Routing_Index_Rebuilds", type = DataSourceType.COUNTER)
+    private final AtomicLong rebuilds = new AtomicLong(0);
+
+    @Monitor(name = "Routing_Index_Last_Rebuild_Time_Ms", type = DataSourceType.GAUGE)
+    private final AtomicLong lastRebuildTime = new AtomicLong(0);
+
+    @Monitor(name = "Routing_Index_Updates", type = DataSourceType.COUNTER)
+    private final AtomicLong updates = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     *
+     * @param clusterRepo        The cluster repository to read clusters from
+     * @param commandRepo        The command repository to read commands from
+     * @param configCache        The configuration cache reporting changes made by other nodes
+     * @param transactionManager The transaction manager to read in new transactions with
+     */
+    @Inject
+    public ClusterRoutingIndexJPAImpl(
+            final ClusterRepository clusterRepo,
+            final CommandRepository commandRepo,
+            final ConfigCache configCache,
+            final PlatformTransactionManager transactionManager) {
+        this.clusterRepo = clusterRepo;
+        this.commandRepo = commandRepo;
+        this.configCache = configCache;
+        // new transactions as updates run once the transaction making the change has committed
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        this.enabled = config.getBoolean(CONFIG_PREFIX + "enabled", false);
+    }
+
+    /**
+     * Listen to the version checks of the configuration cache, which build
+     * the index the first time, and register the metrics.
+     */
+    @PostConstruct
+    public void initialize() {
+        if (this.enabled) {
+            this.configCache.addVersionListener(this);
+        }
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+    }
+
+    /**
+     * Unregister the metrics.
+     */
+    @PreDestroy
+    public void shutdown() {
+        Monitors.unregisterObject(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isAvailable() {
+        return this.enabled && this.snapshot != null;
+    }
+
+    /**
+     * Get the number of clusters jobs can be routed to.
+     *
+     * @return The number of routable clusters
+     */
+    @Monitor(name = "Routing_Index_Clusters", type = DataSourceType.GAUGE)
+    public int getNumRoutableClusters() {
+        final RoutingSnapshot current = this.snapshot;
+        return current == null ? 0 : current.getNumRoutableClusters();
+    }
+
+    /**
+     * Get the number of times the index was built from scratch.
+     *
+     * @return The number of rebuilds
+     */
+    public long getNumRebuilds() {
+        return this.rebuilds.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> findClusterIds(final ClusterCriteria clusterCriteria, final Set<String> commandCriteria) {
+        final RoutingSnapshot current = this.snapshot;
+        if (current == null) {
+            return new ArrayList<>();
+        }
+        return current.findClusterIds(clusterCriteria == null ? null : clusterCriteria.getTags(), commandCriteria);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String findCommandId(final String clusterId, final Set<String> commandCriteria) {
+        final RoutingSnapshot current = this.snapshot;
+        return current == null ? null : current.findCommandId(clusterId, commandCriteria);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clusterChanged(final String clusterId) {
+        this.changed(clusterId, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void commandChanged(final String commandId) {
+        this.changed(null, commandId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void allChanged() {
+        if (!this.enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.rebuild();
+            return;
+        }
+        this.getPendingChanges().all = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rebuild() {
+        synchronized (this.updateLock) {
+            final long start = System.currentTimeMillis();
+            this.snapshot = this.transactionTemplate.execute(new TransactionCallback<RoutingSnapshot>() {
+                @Override
+                public RoutingSnapshot doInTransaction(final TransactionStatus status) {
+                    final Map<String, RoutingSnapshot.ClusterEntry> entries = new HashMap<>();
+                    for (final Cluster cluster : clusterRepo.findAll()) {
+                        entries.put(cluster.getId(), toEntry(cluster));
+                    }
+                    return new RoutingSnapshot(entries);
+                }
+            });
+            this.stale = false;
+            this.rebuilds.incrementAndGet();
+            this.lastRebuildTime.set(System.currentTimeMillis() - start);
+            LOG.info("Built routing index of " + this.snapshot.getNumRoutableClusters() + " clusters in "
+                    + this.lastRebuildTime.get() + " ms");
+        }
+    }
+
+    /**
+     * Rebuild the index if it hasn't been built, an update failed or the
+     * configuration changed since the last check of the version stamp.
+     *
+     * @param changed True if the configuration changed since the last check
+     */
+    @Override
+    public void configVersionChecked(final boolean changed) {
+        synchronized (this.updateLock) {
+            if (this.snapshot == null || this.stale || changed) {
+                this.rebuild();
+            }
+        }
+    }
+
+    private void changed(final String clusterId, final String commandId) {
+        if (!this.enabled || (StringUtils.isBlank(clusterId) && StringUtils.isBlank(commandId))) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.update(toSet(clusterId), toSet(commandId));
+            return;
+        }
+        final PendingChanges pending = this.getPendingChanges();
+        pending.clusterIds.addAll(toSet(clusterId));
+        pending.commandIds.addAll(toSet(commandId));
+    }
+
+    /**
+     * Get the changes of the current transaction, which update the index
+     * once it commits.
+     *
+     * @return The changes collected so far
+     */
+    private PendingChanges getPendingChanges() {
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            final PendingChanges changes = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ClusterRoutingIndexJPAImpl.this);
+                    if (status != STATUS_COMMITTED) {
+                        return;
+                    }
+                    if (changes.all) {
+                        rebuildAfterCommit();
+                    } else {
+                        update(changes.clusterIds, changes.commandIds);
+                    }
+                }
+            });
+            pending = changes;
+        }
+        return pending;
+    }
+
+    private void rebuildAfterCommit() {
+        try {
+            this.rebuild();
+        } catch (final RuntimeException re) {
+            LOG.error("Unable to rebuild the routing index. It will be rebuilt on the next version check.", re);
+            this.stale = true;
+        }
+    }
+
+    private void update(final Set<String> clusterIds, final Set<String> commandIds) {
+        synchronized (this.updateLock) {
+            final RoutingSnapshot current = this.snapshot;
+            if (current == null) {
+                // the first build reads everything anyway
+                return;
+            }
+            try {
+                final Map<String, RoutingSnapshot.ClusterEntry> changed = this.transactionTemplate.execute(
+                        new TransactionCallback<Map<String, RoutingSnapshot.ClusterEntry>>() {
+                            @Override
+                            public Map<String, RoutingSnapshot.ClusterEntry> doInTransaction(
+                                    final TransactionStatus status) {
+                                return readClusters(current, clusterIds, commandIds);
+                            }
+                        }
+                );
+                this.snapshot = current.update(changed);
+                this.updates.incrementAndGet();
+            } catch (final RuntimeException re) {
+                LOG.error("Unable to update the routing index for clusters " + clusterIds + " and commands "
+                        + commandIds + ". It will be rebuilt.", re);
+                this.stale = true;
+            }
+        }
+    }
+
+    private Map<String, RoutingSnapshot.ClusterEntry> readClusters(
+            final RoutingSnapshot current,
+            final Set<String> clusterIds,
+            final Set<String> commandIds) {
+        final Set<String> ids = new HashSet<>(clusterIds);
+        for (final String commandId : commandIds) {
+            // the clusters it was removed from as well as the ones it is on now
+            ids.addAll(current.getClusterIdsWithCommand(commandId));
+            final Command command = this.commandRepo.findOne(commandId);
+            if (command != null && command.getClusters() != null) {
+                for (final Cluster cluster : command.getClusters()) {
+                    ids.add(cluster.getId());
+                }
+            }
+        }
+        final Map<String, RoutingSnapshot.ClusterEntry> entries = new HashMap<>();
+        for (final String id : ids) {
+            final Cluster cluster = this.clusterRepo.findOne(id);
+            entries.put(id, cluster == null ? null : toEntry(cluster));
+        }
+        return entries;
+    }
+
+    private static RoutingSnapshot.ClusterEntry toEntry(final Cluster cluster) {
+        final List<RoutingSnapshot.CommandEntry> commands = new ArrayList<>();
+        if (cluster.getCommands() != null) {
+            for (final Command command : cluster.getCommands()) {
+                commands.add(new RoutingSnapshot.CommandEntry(
+                        command.getId(),
+                        command.getStatus() == CommandStatus.ACTIVE,
+                        command.getTags()
+                ));
+            }
+        }
+        return new RoutingSnapshot.ClusterEntry(
+                cluster.getId(),
+                cluster.getStatus() == ClusterStatus.UP,
+                cluster.getTags(),
+                commands
+        );
+    }
+
+    private static Set<String> toSet(final String id) {
+        final Set<String> ids = new HashSet<>();
+        if (StringUtils.isNotBlank(id)) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    /**
+     * The clusters and commands changed by a transaction.
+     */
+    private static final class PendingChanges {
+        private final Set<String> clusterIds = new HashSet<>();
+        private final Set<String> commandIds = new HashSet<>();
+        private boolean all;
+    }
+}
@@ -30,7 +30,12 @@ import com.netflix.genie.common.model.CommandStatus;
 import com.netflix.genie.server.repository.jpa.ApplicationRepository;
 import com.netflix.genie.server.repository.jpa.CommandRepository;
 import com.netflix.genie.server.repository.jpa.CommandSpecs;
+import com.netflix.genie.server.repository.jpa.CursorSpecs;
 import com.netflix.genie.server.services.CommandConfigService;
+import com.netflix.genie.server.services.ClusterRoutingIndex;
+import com.netflix.genie.server.services.ConfigCache;
+import com.netflix.genie.server.services.TagStatistics;
+import com.netflix.genie.server.util.CursorUtil;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -40,11 +45,13 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.metamodel.SingularAttribute;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specifications;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -64,19 +71,31 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
 
     private final CommandRepository commandRepo;
     private final ApplicationRepository appRepo;
+    private final ConfigCache configCache;
+    private final ClusterRoutingIndex routingIndex;
+    private final TagStatistics tagStatistics;
 
     /**
      * Default constructor.
      *
-     * @param commandRepo the command repository to use
-     * @param appRepo     the application repository to use
+     * @param commandRepo   the command repository to use
+     * @param appRepo       the application repository to use
+     * @param configCache   the configuration cache to invalidate on changes
+     * @param routingIndex  the cluster routing index to update on changes
+     * @param tagStatistics the tag statistics to order tag searches with
      */
     @Inject
     public CommandConfigServiceJPAImpl(
             final CommandRepository commandRepo,
-            final ApplicationRepository appRepo) {
+            final ApplicationRepository appRepo,
+            final ConfigCache configCache,
+            final ClusterRoutingIndex routingIndex,
+            final TagStatistics tagStatistics) {
         this.commandRepo = commandRepo;
         this.appRepo = appRepo;
+        this.configCache = configCache;
+        this.routingIndex = routingIndex;
+        this.tagStatistics = tagStatistics;
     }
 
     /**
@@ -84,6 +103,7 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
      */
     @Override
     public Command createCommand(final Command command) throws GenieException {
+        this.configCache.invalidate();
         if (command == null) {
             throw new GeniePreconditionException("No command entered to create");
         }
@@ -144,12 +164,67 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
                         name,
                         userName,
                         statuses,
-                        tags
+                        this.tagStatistics.orderBySelectivity(Command.class, tags)
                 ),
                 pageRequest).getContent();
         return commands;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Command> getCommands(
+            final String name,
+            final String userName,
+            final Set<CommandStatus> statuses,
+            final Set<String> tags,
+            final String cursor,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException {
+        LOG.debug("Called with cursor " + cursor);
+
+        final List<SingularAttribute<?, ?>> cursorOrderBys = JPAUtils.getCursorOrderBys(
+                orderBys, Command_.class, Command_.updated.getName()
+        );
+
+        @SuppressWarnings("unchecked")
+        final List<Command> commands = this.commandRepo.findAll(
+                Specifications.where(
+                        CommandSpecs.find(
+                                name,
+                                userName,
+                                statuses,
+                                this.tagStatistics.orderBySelectivity(Command.class, tags)
+                        )
+                ).and(
+                        CursorSpecs.<Command>after(
+                                cursorOrderBys,
+                                JPAUtils.getCursorValues(cursor, descending, cursorOrderBys),
+                                descending)
+                ),
+                JPAUtils.getCursorPageRequest(limit, descending, cursorOrderBys)).getContent();
+        return commands;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getNextCursor(
+            final List<Command> commands,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException {
+        if (!JPAUtils.isCursorOrder(orderBys, Command_.class, Command_.updated.getName())) {
+            LOG.debug("Order by " + orderBys + " can't be continued with a cursor");
+            return null;
+        }
+        return CursorUtil.createNextCursor(commands, limit, descending, orderBys);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -157,6 +232,8 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
     public Command updateCommand(
             final String id,
             final Command updateCommand) throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.commandChanged(id);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No id entered. Unable to update.");
         }
@@ -186,6 +263,8 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
      */
     @Override
     public List<Command> deleteAllCommands() throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.allChanged();
         LOG.debug("Called to delete all commands");
         final Iterable<Command> commands = this.commandRepo.findAll();
         final List<Command> returnCommands = new ArrayList<>();
@@ -200,6 +279,8 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
      */
     @Override
     public Command deleteCommand(final String id) throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.commandChanged(id);
         LOG.debug("Called to delete command config with id " + id);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No id entered. Unable to delete.");
@@ -227,6 +308,7 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
     public Set<String> addConfigsForCommand(
             final String id,
             final Set<String> configs) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No command id entered. Unable to add configurations.");
         }
@@ -267,6 +349,7 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
     public Set<String> updateConfigsForCommand(
             final String id,
             final Set<String> configs) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No command id entered. Unable to update configurations.");
         }
@@ -285,6 +368,7 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
     @Override
     public Set<String> removeAllConfigsForCommand(
             final String id) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No command id entered. Unable to remove configs.");
         }
@@ -304,6 +388,7 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
     public Set<String> removeConfigForCommand(
             final String id,
             final String config) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No command id entered. Unable to remove configuration.");
         }
@@ -325,6 +410,7 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
     public Application setApplicationForCommand(
             final String id,
             final Application application) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No command id entered. Unable to add applications.");
         }
@@ -377,6 +463,7 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
     @Override
     public Application removeApplicationForCommand(
             final String id) throws GenieException {
+        this.configCache.invalidate();
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No command id entered. Unable to remove application.");
         }
@@ -401,6 +488,8 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
     public Set<String> addTagsForCommand(
             final String id,
             final Set<String> tags) throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.commandChanged(id);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No command id entered. Unable to add tags.");
         }
@@ -444,6 +533,8 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
     public Set<String> updateTagsForCommand(
             final String id,
             final Set<String> tags) throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.commandChanged(id);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No command id entered. Unable to update tags.");
         }
@@ -462,6 +553,8 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
     @Override
     public Set<String> removeAllTagsForCommand(
             final String id) throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.commandChanged(id);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No command id entered. Unable to remove tags.");
         }
@@ -498,6 +591,8 @@ public class CommandConfigServiceJPAImpl implements CommandConfigService {
     @Override
     public Set<String> removeTagForCommand(final String id, final String tag)
             throws GenieException {
+        this.configCache.invalidate();
+        this.routingIndex.commandChanged(id);
         if (StringUtils.isBlank(id)) {
             throw new GeniePreconditionException("No command id entered. Unable to remove tag.");
         }
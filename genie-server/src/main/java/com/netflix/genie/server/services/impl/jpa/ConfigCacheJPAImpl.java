@@ -0,0 +1,315 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl.jpa;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.model.Auditable;
+import com.netflix.genie.server.services.ConfigCache;
+import com.netflix.genie.server.services.ConfigVersionListener;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.openjpa.datacache.CacheStatistics;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactory;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Caches the configuration entities in the OpenJPA data and query caches.
+ * Only the entities marked cacheable, Cluster, Command and Application, are
+ * cached. Changes made through other nodes are noticed through the version
+ * stamp of the configuration tables, which is also published to the other
+ * components keeping a copy of the configuration, like the routing index.
+ *
+ * @author agent
+ */
+@Named
+public class ConfigCacheJPAImpl implements ConfigCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigCacheJPAImpl.class);
+    private static final String CONFIG_PREFIX = "com.netflix.genie.server.jpa.cache.";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long checkInterval;
+    private final ScheduledExecutorService checker;
+    private final AtomicReference<List<List<Object>>> lastVersion = new AtomicReference<>();
+    private final List<ConfigVersionListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean checking = new AtomicBoolean(false);
+    private volatile boolean started;
+
+    @Monitor(name = "Config_Cache_Invalidations", type = DataSourceType.COUNTER)
+    private final AtomicLong invalidations = new AtomicLong(0);
+
+    @Monitor(name = "Config_Cache_Remote_Invalidations", type = DataSourceType.COUNTER)
+    private final AtomicLong remoteInvalidations = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     *
+     * @param transactionManager The transaction manager to read the version stamp in read only transactions with
+     */
+    @Inject
+    public ConfigCacheJPAImpl(final PlatformTransactionManager transactionManager) {
+        // the checker thread has no transaction of its own to read in
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        this.enabled = config.getBoolean(CONFIG_PREFIX + "enabled", false);
+        this.checkInterval = config.getLong(CONFIG_PREFIX + "check.interval.ms", 30000L);
+        this.checker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "genie-config-cache-checker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Get the OpenJPA properties turning the data and query caches on for
+     * the cacheable entities, or off if the cache isn't enabled. Used by the
+     * entity manager factory, which is created before this bean.
+     *
+     * @return The properties to add to the persistence unit
+     */
+    public static Map<String, String> getJpaProperties() {
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        final Map<String, String> properties = new HashMap<>();
+        if (config.getBoolean(CONFIG_PREFIX + "enabled", false)) {
+            properties.put("javax.persistence.sharedCache.mode", "ENABLE_SELECTIVE");
+            properties.put(
+                    "openjpa.DataCache",
+                    "true(CacheSize=" + config.getInt(CONFIG_PREFIX + "size", 1000)
+                            + ", SoftReferenceSize=0, EnableStatistics=true)"
+            );
+            properties.put(
+                    "openjpa.QueryCache",
+                    "true(CacheSize=" + config.getInt(CONFIG_PREFIX + "query.size", 100) + ", SoftReferenceSize=0)"
+            );
+            // other nodes are covered by the version stamp
+            properties.put("openjpa.RemoteCommitProvider", "sjvm");
+        } else {
+            properties.put("openjpa.DataCache", "false");
+            properties.put("openjpa.QueryCache", "false");
+        }
+        return properties;
+    }
+
+    /**
+     * Start checking the version stamp and register the metrics.
+     */
+    @PostConstruct
+    public void initialize() {
+        this.started = true;
+        if (this.enabled || !this.listeners.isEmpty()) {
+            this.startChecking();
+        }
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+    }
+
+    /**
+     * Stop checking the version stamp and unregister the metrics.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.checker.shutdownNow();
+        Monitors.unregisterObject(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate() {
+        if (!this.enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.evict();
+            return;
+        }
+        // evict once per transaction however many changes it makes
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ConfigCacheJPAImpl.this);
+                    if (status == STATUS_COMMITTED) {
+                        evict();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addVersionListener(final ConfigVersionListener listener) {
+        this.listeners.add(listener);
+        // listeners are added by beans started after this one
+        if (this.started) {
+            this.startChecking();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean checkVersion() {
+        if (!this.enabled && this.listeners.isEmpty()) {
+            return false;
+        }
+        final List<List<Object>> version = this.transactionTemplate.execute(
+                new TransactionCallback<List<List<Object>>>() {
+                    @Override
+                    public List<List<Object>> doInTransaction(final TransactionStatus status) {
+                        return JPAUtils.getConfigVersion(em);
+                    }
+                }
+        );
+        final List<List<Object>> previous = this.lastVersion.getAndSet(version);
+        final boolean changed = previous != null && !previous.equals(version);
+        if (changed && this.enabled) {
+            LOG.info("Configuration changed. Invalidating the configuration cache.");
+            this.remoteInvalidations.incrementAndGet();
+            this.evict();
+        }
+        for (final ConfigVersionListener listener : this.listeners) {
+            try {
+                listener.configVersionChecked(changed);
+            } catch (final RuntimeException re) {
+                LOG.error("Configuration version listener " + listener + " failed", re);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Get the number of configuration entities found in the cache.
+     *
+     * @return The number of cache hits
+     */
+    @Monitor(name = "Config_Cache_Hits", type = DataSourceType.COUNTER)
+    public long getNumHits() {
+        final CacheStatistics statistics = this.getStatistics();
+        return statistics == null ? 0L : statistics.getHitCount();
+    }
+
+    /**
+     * Get the number of configuration entities looked up in the cache but
+     * read from the database.
+     *
+     * @return The number of cache misses
+     */
+    @Monitor(name = "Config_Cache_Misses", type = DataSourceType.COUNTER)
+    public long getNumMisses() {
+        final CacheStatistics statistics = this.getStatistics();
+        return statistics == null ? 0L : statistics.getReadCount() - statistics.getHitCount();
+    }
+
+    /**
+     * Get the number of times the cache was invalidated.
+     *
+     * @return The number of invalidations
+     */
+    public long getNumInvalidations() {
+        return this.invalidations.get();
+    }
+
+    private void startChecking() {
+        if (!this.checking.compareAndSet(false, true)) {
+            return;
+        }
+        this.checker.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    checkVersion();
+                } catch (final RuntimeException re) {
+                    LOG.error("Unable to check the configuration version", re);
+                }
+            }
+        }, 0L, this.checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private void evict() {
+        final OpenJPAEntityManagerFactory factory = OpenJPAPersistence.cast(this.emf);
+        for (final Class<? extends Auditable> cachedClass : JPAUtils.CONFIG_CLASSES) {
+            factory.getStoreCache().evictAll(cachedClass);
+        }
+        factory.getQueryResultCache().evictAll();
+        this.invalidations.incrementAndGet();
+    }
+
+    private CacheStatistics getStatistics() {
+        if (!this.enabled) {
+            return null;
+        }
+        return OpenJPAPersistence.cast(this.emf).getStoreCache().getStatistics();
+    }
+}
@@ -17,38 +17,59 @@
  */
 package com.netflix.genie.server.services.impl.jpa;
 
-import com.netflix.client.http.HttpRequest;
-import com.netflix.client.http.HttpRequest.Verb;
 import com.netflix.config.ConfigurationManager;
-import com.netflix.genie.common.client.BaseGenieClient;
 import com.netflix.genie.common.exceptions.GenieConflictException;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
-import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.exceptions.GenieRequestTooLargeException;
 import com.netflix.genie.common.exceptions.GenieServerUnavailableException;
+import com.netflix.genie.common.model.Cluster;
+import com.netflix.genie.common.model.ClusterCriteria;
 import com.netflix.genie.common.model.Job;
 import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.common.model.JobSubmissionResult;
 import com.netflix.genie.common.util.ProcessStatus;
+import com.netflix.genie.server.jobmanager.AttachmentStore;
+import com.netflix.genie.server.jobmanager.JobLauncher;
 import com.netflix.genie.server.jobmanager.JobManagerFactory;
+import com.netflix.genie.server.jobmanager.JobQueue;
+import com.netflix.genie.server.jobmanager.JobSetupPipeline;
 import com.netflix.genie.server.metrics.GenieNodeStatistics;
 import com.netflix.genie.server.metrics.JobCountManager;
 import com.netflix.genie.server.repository.jpa.JobRepository;
 import com.netflix.genie.server.repository.jpa.JobSpecs;
+import com.netflix.genie.server.services.ClusterConfigService;
 import com.netflix.genie.server.services.ExecutionService;
+import com.netflix.genie.server.services.ForwardingPolicyFactory;
+import com.netflix.genie.server.services.JobAdmissionController;
+import com.netflix.genie.server.services.JobQuotaController;
 import com.netflix.genie.server.services.JobService;
+import com.netflix.genie.server.services.JobSubmissionCache;
+import com.netflix.genie.server.services.PeerClient;
 import com.netflix.genie.server.util.NetUtil;
 import org.apache.commons.configuration.AbstractConfiguration;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Implementation of the Genie Execution Service API that uses a local job
@@ -79,6 +100,16 @@ public class ExecutionServiceJPAImpl implements ExecutionService {
     private final JobCountManager jobCountManager;
     private final JobManagerFactory jobManagerFactory;
     private final JobService jobService;
+    private final JobAdmissionController admissionController;
+    private final JobLauncher jobLauncher;
+    private final ClusterConfigService clusterConfigService;
+    private final ForwardingPolicyFactory forwardingPolicyFactory;
+    private final PeerClient peerClient;
+    private final JobQueue jobQueue;
+    private final JobQuotaController quotaController;
+    private final JobSubmissionCache submissionCache;
+    private final AttachmentStore attachmentStore;
+    private final JobSetupPipeline setupPipeline;
 
     // initialize static variables
     static {
@@ -98,6 +129,16 @@ public class ExecutionServiceJPAImpl implements ExecutionService {
      * @param jobCountManager   the job count manager to use
      * @param jobManagerFactory The the job manager factory to use
      * @param jobService        The job service to use.
+     * @param admissionController The admission controller tracking slots on this node
+     * @param jobLauncher       The launcher used for asynchronous submissions
+     * @param clusterConfigService The cluster service used to resolve clusters for batches
+     * @param forwardingPolicyFactory The factory for the policy picking hosts to forward jobs to
+     * @param peerClient        The client used to forward requests to other nodes
+     * @param jobQueue          The queue for jobs waiting for a free slot on this node
+     * @param quotaController   The per user and group quotas checked at submission
+     * @param submissionCache   The cache of recent submissions used to answer replays
+     * @param attachmentStore   The attachments streamed to this node with job submissions
+     * @param setupPipeline     The pipeline setting up the directories of jobs launched on this node
      */
     @Inject
     public ExecutionServiceJPAImpl(
@@ -105,12 +146,32 @@ public class ExecutionServiceJPAImpl implements ExecutionService {
             final GenieNodeStatistics stats,
             final JobCountManager jobCountManager,
             final JobManagerFactory jobManagerFactory,
-            final JobService jobService) {
+            final JobService jobService,
+            final JobAdmissionController admissionController,
+            final JobLauncher jobLauncher,
+            final ClusterConfigService clusterConfigService,
+            final ForwardingPolicyFactory forwardingPolicyFactory,
+            final PeerClient peerClient,
+            final JobQueue jobQueue,
+            final JobQuotaController quotaController,
+            final JobSubmissionCache submissionCache,
+            final AttachmentStore attachmentStore,
+            final JobSetupPipeline setupPipeline) {
         this.jobRepo = jobRepo;
         this.stats = stats;
         this.jobCountManager = jobCountManager;
         this.jobManagerFactory = jobManagerFactory;
         this.jobService = jobService;
+        this.admissionController = admissionController;
+        this.jobLauncher = jobLauncher;
+        this.clusterConfigService = clusterConfigService;
+        this.forwardingPolicyFactory = forwardingPolicyFactory;
+        this.peerClient = peerClient;
+        this.jobQueue = jobQueue;
+        this.quotaController = quotaController;
+        this.submissionCache = submissionCache;
+        this.attachmentStore = attachmentStore;
+        this.setupPipeline = setupPipeline;
     }
 
     /**
@@ -119,14 +180,182 @@ public class ExecutionServiceJPAImpl implements ExecutionService {
     @Override
     public Job submitJob(final Job job) throws GenieException {
         LOG.debug("Called");
+        return this.submit(job, false);
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Job submitJobAsync(final Job job) throws GenieException {
+        LOG.debug("Called");
+        return this.submit(job, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Job submitJob(
+            final Job job,
+            final String principal,
+            final String idempotencyKey,
+            final boolean async) throws GenieException {
+        LOG.debug("Called");
         if (job == null) {
             throw new GeniePreconditionException("No job entered to run");
         }
+        final String key = StringUtils.isNotBlank(idempotencyKey) ? idempotencyKey : job.getId();
+        if (StringUtils.isBlank(key)) {
+            return this.submit(job, async);
+        }
+        // scope keys to the caller so one user can't get the job of another. The user of the job is
+        // only what the client claims so it is just the fallback.
+        final String scope = StringUtils.isNotBlank(principal) ? principal : job.getUser();
+        final AtomicBoolean submitted = new AtomicBoolean(false);
+        final Job result = this.submissionCache.submit(
+                scope + ":" + key,
+                new Callable<Job>() {
+                    @Override
+                    public Job call() throws GenieException {
+                        submitted.set(true);
+                        return submit(job, async);
+                    }
+                }
+        );
+        if (!submitted.get() && !isSameRequest(job, result)) {
+            throw new GenieConflictException("Key " + key + " was already used to submit a different job.");
+        }
+        return result;
+    }
 
-        if (StringUtils.isNotBlank(job.getId())
-                && this.jobRepo.exists(job.getId())) {
-            throw new GenieConflictException("Job with ID specified already exists.");
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<JobSubmissionResult> submitJobs(final List<Job> jobs) throws GenieException {
+        if (jobs == null || jobs.isEmpty()) {
+            throw new GeniePreconditionException("No jobs entered to run");
+        }
+        final int maxBatchSize = CONF.getInt("com.netflix.genie.server.job.batch.max.size", 100);
+        if (maxBatchSize > 0 && jobs.size() > maxBatchSize) {
+            throw new GenieRequestTooLargeException(
+                    "Batch of " + jobs.size() + " jobs is over the limit of " + maxBatchSize + " jobs per batch.");
+        }
+        LOG.info("Received batch of " + jobs.size() + " job requests");
+
+        final int maxRunningJobs = CONF.getInt("com.netflix.genie.server.max.running.jobs", 0);
+        final JobSubmissionResult[] results = new JobSubmissionResult[jobs.size()];
+        final Set<String> existingIds = this.findExistingIds(jobs);
+        final Set<String> batchIds = new HashSet<>();
+        final Map<String, List<Cluster>> resolvedClusters = new HashMap<>();
+
+        final List<Integer> acceptedIndexes = new ArrayList<>();
+        final List<Job> acceptedJobs = new ArrayList<>();
+        final List<List<Cluster>> acceptedClusters = new ArrayList<>();
+        final List<Boolean> acceptedReservations = new ArrayList<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            final Job job = jobs.get(i);
+            try {
+                if (job == null) {
+                    throw new GeniePreconditionException("No job entered to run");
+                }
+                if (StringUtils.isNotBlank(job.getId())
+                        && (existingIds.contains(job.getId()) || !batchIds.add(job.getId()))) {
+                    throw new GenieConflictException("Job with ID specified already exists.");
+                }
+                job.validate();
+                // the same as single submissions, the jobs are spread over the idle nodes once this one is busy
+                final Job forwardedJob = this.checkAbilityToRunOrForward(job, true);
+                if (forwardedJob != null) {
+                    results[i] = new JobSubmissionResult(HttpURLConnection.HTTP_ACCEPTED, null, forwardedJob);
+                    continue;
+                }
+                final List<Cluster> clusters = this.resolveClusters(job, resolvedClusters);
+                this.quotaController.acquire(job);
+                try {
+                    acceptedReservations.add(this.reserveSlot(maxRunningJobs));
+                } catch (final GenieException ge) {
+                    this.quotaController.cancel(job);
+                    throw ge;
+                }
+                acceptedIndexes.add(i);
+                acceptedJobs.add(job);
+                acceptedClusters.add(clusters);
+            } catch (final GenieException ge) {
+                results[i] = new JobSubmissionResult(ge.getErrorCode(), ge.getMessage(), null);
+            }
+        }
+
+        if (acceptedJobs.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        final List<Job> savedJobs;
+        try {
+            savedJobs = this.jobService.createJobs(acceptedJobs);
+        } catch (final GenieException | RuntimeException e) {
+            LOG.error("Unable to save batch of jobs", e);
+            final int errorCode = e instanceof GenieException
+                    ? ((GenieException) e).getErrorCode()
+                    : HttpURLConnection.HTTP_INTERNAL_ERROR;
+            for (int i = 0; i < acceptedIndexes.size(); i++) {
+                if (acceptedReservations.get(i)) {
+                    this.admissionController.cancelReservation();
+                }
+                this.quotaController.cancel(acceptedJobs.get(i));
+                results[acceptedIndexes.get(i)] = new JobSubmissionResult(errorCode, e.getMessage(), null);
+            }
+            return Arrays.asList(results);
+        }
+
+        boolean queued = false;
+        for (int i = 0; i < savedJobs.size(); i++) {
+            final Job savedJob = savedJobs.get(i);
+            final int index = acceptedIndexes.get(i);
+            this.quotaController.register(savedJob);
+            if (!acceptedReservations.get(i)) {
+                try {
+                    this.queueJob(savedJob);
+                    queued = true;
+                    results[index] = new JobSubmissionResult(HttpURLConnection.HTTP_ACCEPTED, null, savedJob);
+                } catch (final GenieException ge) {
+                    results[index] = new JobSubmissionResult(ge.getErrorCode(), ge.getMessage(), null);
+                }
+                continue;
+            }
+            this.admissionController.register(savedJob.getId());
+            try {
+                this.jobLauncher.launch(savedJob, acceptedClusters.get(i));
+                results[index] = new JobSubmissionResult(HttpURLConnection.HTTP_ACCEPTED, null, savedJob);
+            } catch (final GenieException ge) {
+                this.admissionController.release(savedJob.getId());
+                results[index] = new JobSubmissionResult(ge.getErrorCode(), ge.getMessage(), null);
+            }
+        }
+        if (queued) {
+            // slots may have been freed while the batch was being saved
+            this.jobQueue.drain();
+        }
+        return Arrays.asList(results);
+    }
+
+    private Job submit(final Job job, final boolean async) throws GenieException {
+
+        if (job == null) {
+            throw new GeniePreconditionException("No job entered to run");
+        }
+
+        // The only lookup of a client supplied id. The job is saved without checking again.
+        if (StringUtils.isNotBlank(job.getId())) {
+            final Job existing = this.jobRepo.findOne(job.getId());
+            if (existing != null) {
+                if (isReplay(job, existing)) {
+                    LOG.info("Job " + job.getId() + " was already submitted. Returning the existing job.");
+                    return existing;
+                }
+                throw new GenieConflictException("Job with ID specified already exists.");
+            }
         }
 
         // Check if the job is forwarded. If not this is the first node that got the request.
@@ -135,18 +364,53 @@ public class ExecutionServiceJPAImpl implements ExecutionService {
             LOG.info("Received job request:" + job);
         }
 
-        final Job forwardedJob = checkAbilityToRunOrForward(job);
+        final Job forwardedJob = checkAbilityToRunOrForward(job, async);
 
         if (forwardedJob != null) {
             return forwardedJob;
         }
 
-        // At this point we have established that the job can be run on this node.
-        // Before running we validate the job and save it in the db if it passes validation.
-        final Job savedJob = this.jobService.createJob(job);
+        // At this point we have established that the job will be run on this node. Either a
+        // slot is reserved for it or it will wait in the node queue. Before running we validate
+        // the job and save it in the db if it passes validation.
+        this.quotaController.acquire(job);
+        final boolean reserved;
+        try {
+            reserved = this.reserveSlot(CONF.getInt("com.netflix.genie.server.max.running.jobs", 0));
+        } catch (final GenieException ge) {
+            this.quotaController.cancel(job);
+            throw ge;
+        }
+        final Job savedJob;
+        try {
+            savedJob = this.jobService.createJob(job, false);
+        } catch (final GenieException | RuntimeException e) {
+            if (reserved) {
+                this.admissionController.cancelReservation();
+            }
+            this.quotaController.cancel(job);
+            throw e;
+        }
+        this.quotaController.register(savedJob);
+        if (!reserved) {
+            this.queueJob(savedJob);
+            // a slot may have been freed while the job was being saved
+            this.jobQueue.drain();
+            return savedJob;
+        }
+        this.admissionController.register(savedJob.getId());
 
         // try to run the job - return success or error
-        return this.jobService.runJob(savedJob);
+        try {
+            if (async) {
+                this.jobLauncher.launch(savedJob);
+                return savedJob;
+            }
+            return this.jobService.runJob(savedJob);
+        } catch (final GenieException | RuntimeException e) {
+            this.admissionController.release(savedJob.getId());
+            throw e;
+        }
     }
 
     /**
@@ -172,24 +436,38 @@ public class ExecutionServiceJPAImpl implements ExecutionService {
                 || job.getStatus() == JobStatus.FAILED) {
             // job already exited, return status to user
             return job;
+        }
+
+        // redirect to the right node if killURI points to a different node, whether the job is still queued
+        // or set up there or already running, as only that node holds it
+        final String killURI = job.getKillURI();
+        final String localURI = getEndPoint() + "/" + JOB_RESOURCE_PREFIX + "/" + id;
+        if (StringUtils.isNotBlank(killURI) && !killURI.equals(localURI)) {
+            LOG.debug("forwarding kill request to: " + killURI);
+            return this.peerClient.killJob(killURI);
+        }
+
+        if (job.getStatus() == JobStatus.INIT && this.jobQueue.remove(id)) {
+            // never launched so there is no process to kill, just the quota to free
+            this.admissionController.release(id);
+            job.setJobStatus(JobStatus.KILLED, "Job killed on user request while queued");
+            job.setExitCode(ProcessStatus.JOB_KILLED.getExitCode());
+            this.stats.incrGenieKilledJobs();
+            return job;
+        } else if (job.getStatus() == JobStatus.INIT && this.setupPipeline.cancel(id)) {
+            // its launch stops downloading and marks it killed
+            LOG.info("Cancelled the set up of job " + id);
+            return job;
         } else if (job.getStatus() == JobStatus.INIT
                 || job.getProcessHandle() == -1) {
-            // can't kill a job if it is still initializing
+            // between its set up and the start of its process there is nothing to kill yet
             throw new GeniePreconditionException("Unable to kill job as it is still initializing");
         }
 
         // if we get here, job is still running - and can be killed
-        // redirect to the right node if killURI points to a different node
-        final String killURI = job.getKillURI();
         if (StringUtils.isBlank(killURI)) {
             throw new GeniePreconditionException("Failed to get killURI for jobID: " + id);
         }
-        final String localURI = getEndPoint() + "/" + JOB_RESOURCE_PREFIX + "/" + id;
-
-        if (!killURI.equals(localURI)) {
-            LOG.debug("forwarding kill request to: " + killURI);
-            return forwardJobKill(killURI);
-        }
 
         // if we get here, killURI == localURI, and job should be killed here
         LOG.debug("killing job on same instance: " + id);
@@ -227,6 +505,7 @@ public class ExecutionServiceJPAImpl implements ExecutionService {
                 JobSpecs.findZombies(currentTime, zombieTime)
         );
         for (final Job job : jobs) {
+            this.admissionController.release(job.getId());
             job.setStatus(JobStatus.FAILED);
             job.setFinished(new Date());
             job.setExitCode(zombie.getExitCode());
@@ -245,6 +524,10 @@ public class ExecutionServiceJPAImpl implements ExecutionService {
         if (job == null) {
             throw new GenieNotFoundException("No job with id " + id + " exists");
         }
+        // the process is gone so free up its slot regardless of the final status and
+        // hand it to the next queued job if there is one
+        this.admissionController.release(id);
+        this.drainAfterCommit();
         job.setExitCode(exitCode);
 
         // We check if status code is killed. The kill thread sets this, but just to make sure we set
@@ -288,41 +571,126 @@ public class ExecutionServiceJPAImpl implements ExecutionService {
         }
     }
 
-    private String getEndPoint() throws GenieException {
-        return "http://" + NetUtil.getHostName() + ":" + SERVER_PORT;
+    /**
+     * Find which of the client supplied ids in a batch already exist using a
+     * single query.
+     *
+     * @param jobs The jobs in the batch
+     * @return The ids which are already taken
+     */
+    private Set<String> findExistingIds(final List<Job> jobs) {
+        final Set<String> ids = new HashSet<>();
+        for (final Job job : jobs) {
+            if (job != null && StringUtils.isNotBlank(job.getId())) {
+                ids.add(job.getId());
+            }
+        }
+        final Set<String> existingIds = new HashSet<>();
+        if (!ids.isEmpty()) {
+            for (final Job existing : this.jobRepo.findAll(ids)) {
+                existingIds.add(existing.getId());
+            }
+        }
+        return existingIds;
     }
 
-    private Job forwardJobKill(final String killURI) throws GenieException {
-        try {
-            final BaseGenieClient client = new BaseGenieClient(null);
-            final HttpRequest request = BaseGenieClient.buildRequest(Verb.DELETE, killURI, null, null);
-            return (Job) client.executeRequest(request, null, Job.class);
-        } catch (final IOException ioe) {
-            throw new GenieServerException(ioe.getMessage(), ioe);
+    /**
+     * Find the candidate clusters for a job, reusing the result for any other
+     * job in the batch with the same cluster and command criteria.
+     *
+     * @param job              The job to resolve clusters for
+     * @param resolvedClusters Clusters already resolved in this batch keyed by criteria
+     * @return The candidate clusters for the first criteria that matched
+     * @throws GenieException if no clusters match
+     */
+    private List<Cluster> resolveClusters(
+            final Job job,
+            final Map<String, List<Cluster>> resolvedClusters) throws GenieException {
+        final String commandKey = StringUtils.join(new TreeSet<>(job.getCommandCriteria()), ',');
+        for (final ClusterCriteria clusterCriteria : job.getClusterCriterias()) {
+            final String key = StringUtils.join(new TreeSet<>(clusterCriteria.getTags()), ',') + "|" + commandKey;
+            List<Cluster> clusters = resolvedClusters.get(key);
+            if (clusters == null) {
+                clusters = this.clusterConfigService.findClustersForCriteria(
+                        clusterCriteria,
+                        job.getCommandCriteria()
+                );
+                resolvedClusters.put(key, clusters);
+            }
+            if (!clusters.isEmpty()) {
+                job.setChosenClusterCriteriaString(StringUtils.join(clusterCriteria.getTags(), ','));
+                return clusters;
+            }
         }
+        throw new GeniePreconditionException("No cluster configuration found to match user params");
     }
 
-    private Job forwardJobRequest(
-            final String hostURI,
-            final Job job) throws GenieException {
-        try {
-            final BaseGenieClient client = new BaseGenieClient(null);
-            final HttpRequest request = BaseGenieClient.buildRequest(Verb.POST, hostURI, null, job);
-            return (Job) client.executeRequest(request, null, Job.class);
-        } catch (final IOException ioe) {
-            throw new GenieServerException(ioe.getMessage(), ioe);
+    /**
+     * Whether a submission with the id of an existing job is a retry of the
+     * submission which created it rather than a different job. Retries have
+     * to come within the replay window, the same time recent submissions are
+     * cached for.
+     *
+     * @param job      The job being submitted
+     * @param existing The job already saved with the same id
+     * @return true if the submission is a replay
+     */
+    private static boolean isReplay(final Job job, final Job existing) {
+        final long window = CONF.getLong("com.netflix.genie.server.job.submission.cache.expire.ms", 3600000L);
+        return existing.getCreated() != null
+                && System.currentTimeMillis() - existing.getCreated().getTime() <= window
+                && isSameRequest(job, existing);
+    }
+
+    /**
+     * Whether a submission asks for the same job as an earlier one: the same
+     * user, name, command line, criteria and files.
+     *
+     * @param job      The job being submitted
+     * @param existing The job returned for the earlier submission
+     * @return true if both ask for the same job
+     */
+    private static boolean isSameRequest(final Job job, final Job existing) {
+        return StringUtils.isNotBlank(job.getUser())
+                && job.getUser().equals(existing.getUser())
+                && StringUtils.equals(job.getName(), existing.getName())
+                && StringUtils.equals(job.getCommandArgs(), existing.getCommandArgs())
+                && StringUtils.equals(job.getFileDependencies(), existing.getFileDependencies())
+                && getCriteriaTags(job).equals(getCriteriaTags(existing))
+                && getCommandTags(job).equals(getCommandTags(existing));
+    }
+
+    private static List<Set<String>> getCriteriaTags(final Job job) {
+        final List<Set<String>> tags = new ArrayList<>();
+        if (job.getClusterCriterias() != null) {
+            for (final ClusterCriteria criteria : job.getClusterCriterias()) {
+                tags.add(criteria.getTags() == null ? new HashSet<String>() : criteria.getTags());
+            }
         }
+        return tags;
+    }
+
+    private static Set<String> getCommandTags(final Job job) {
+        return job.getCommandCriteria() == null ? new HashSet<String>() : job.getCommandCriteria();
+    }
+
+    private String getEndPoint() throws GenieException {
+        return "http://" + NetUtil.getHostName() + ":" + SERVER_PORT;
     }
 
     /**
      * Check if we can run the job on this host or not.
      *
+     * @param job   The job to check
+     * @param async Whether the job should be submitted asynchronously if forwarded
+     * @return The job returned by the node it was forwarded to or null if it
+     * should be run locally
      * @throws GenieException
      */
-    private synchronized Job checkAbilityToRunOrForward(
-            final Job job) throws GenieException {
+    private Job checkAbilityToRunOrForward(
+            final Job job,
+            final boolean async) throws GenieException {
         // ensure that job won't overload system
-        // synchronize until an entry is created and INIT-ed in DB
         // throttling related parameters
         final int maxRunningJobs = CONF.getInt(
                 "com.netflix.genie.server.max.running.jobs", 0);
@@ -333,7 +701,7 @@ public class ExecutionServiceJPAImpl implements ExecutionService {
         final int idleHostThresholdDelta = CONF.getInt(
                 "com.netflix.genie.server.idle.host.threshold.delta", 0);
 
-        final int numRunningJobs = this.jobCountManager.getNumInstanceJobs();
+        final int numRunningJobs = this.admissionController.getNumActiveJobs();
         LOG.info("Number of running jobs: " + numRunningJobs);
 
         // find an instance with fewer than (numRunningJobs -
@@ -350,28 +718,85 @@ public class ExecutionServiceJPAImpl implements ExecutionService {
         // check to see if job should be forwarded - only forward it
         // once. the assumption is that jobForwardThreshold < maxRunningJobs
         // (set in properties file)
-        if (numRunningJobs >= jobForwardThreshold && !job.isForwarded()) {
+        // attachments streamed to this node can't follow the job so it has to run here
+        if (numRunningJobs >= jobForwardThreshold
+                && !job.isForwarded()
+                && !this.attachmentStore.hasAttachments(job.getId())) {
             LOG.info("Number of running jobs greater than forwarding threshold - trying to auto-forward");
-            final String idleHost = this.jobCountManager.getIdleInstance(idleHostThreshold);
-            if (!idleHost.equals(NetUtil.getHostName())) {
+            final String idleHost = this.forwardingPolicyFactory.getForwardingPolicy().selectHost(
+                    this.jobCountManager.getForwardingCandidates(),
+                    idleHostThreshold
+            );
+            if (idleHost != null) {
                 job.setForwarded(true);
                 this.stats.incrGenieForwardedJobs();
-                return forwardJobRequest("http://" + idleHost + ":"
-                        + SERVER_PORT + "/" + JOB_RESOURCE_PREFIX, job);
+                return this.peerClient.submitJob(
+                        "http://" + idleHost + ":" + SERVER_PORT + "/" + JOB_RESOURCE_PREFIX,
+                        job,
+                        async
+                );
             } // else, no idle hosts found - run here if capacity exists
         }
 
-        // TODO: Gotta be something better we can do than this
-        if (numRunningJobs >= maxRunningJobs) {
-            // if we get here, job can't be forwarded to an idle
-            // instance anymore and current node is overloaded
-            throw new GenieServerUnavailableException(
-                    "Number of running jobs greater than system limit ("
-                            + maxRunningJobs
-                            + ") - try another instance or try again later");
-        }
-
         //We didn't forward the job so return null to signal to run the job locally
         return null;
     }
+
+    /**
+     * Reserve a slot with the admission controller for a job which is to be
+     * run on this node.
+     *
+     * @param maxRunningJobs The max number of jobs this node will run
+     * @return true if a slot was reserved, false if the job should wait in the
+     * node queue
+     * @throws GenieException if the node is at capacity and the queue is disabled
+     */
+    private boolean reserveSlot(final int maxRunningJobs) throws GenieException {
+        if (this.admissionController.tryReserve(maxRunningJobs)) {
+            return true;
+        }
+        if (this.jobQueue.isEnabled()) {
+            return false;
+        }
+        // if we get here, job can't be forwarded to an idle
+        // instance anymore and current node is overloaded
+        throw new GenieServerUnavailableException(
+                "Number of running jobs greater than system limit ("
+                        + maxRunningJobs
+                        + ") - try another instance or try again later");
+    }
+
+    /**
+     * Put a saved job in the node queue to wait for a free slot.
+     *
+     * @param savedJob The job which has been saved in INIT state
+     * @throws GenieException if the queue is full
+     */
+    private void queueJob(final Job savedJob) throws GenieException {
+        if (!this.jobQueue.offer(savedJob)) {
+            final String msg = "Job queue is full. Try another instance or try again later.";
+            this.admissionController.release(savedJob.getId());
+            this.jobService.setJobStatus(savedJob.getId(), JobStatus.FAILED, msg);
+            throw new GenieServerUnavailableException(msg);
+        }
+        savedJob.setStatusMsg("Job queued waiting for a free slot");
+    }
+
+    /**
+     * Hand the free slots to the queued jobs once the current transaction has
+     * committed, so the jobs launched see the final status of the job which
+     * freed the slot and a rollback doesn't launch anything.
+     */
+    private void drainAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.jobQueue.drain();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                jobQueue.drain();
+            }
+        });
+    }
 }
@@ -17,15 +17,35 @@
  */
 package com.netflix.genie.server.services.impl.jpa;
 
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.Application;
+import com.netflix.genie.common.model.Auditable;
+import com.netflix.genie.common.model.Auditable_;
+import com.netflix.genie.common.model.Cluster;
+import com.netflix.genie.common.model.Command;
+import com.netflix.genie.server.util.CursorUtil;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openjpa.persistence.OpenJPAQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
 import javax.persistence.metamodel.SingularAttribute;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -36,6 +56,34 @@ import java.util.Set;
 public final class JPAUtils {
     private static final Logger LOG = LoggerFactory.getLogger(ClusterConfigServiceJPAImpl.class);
 
+    /**
+     * The configuration entities, which are cached and routed from in memory.
+     */
+    public static final List<Class<? extends Auditable>> CONFIG_CLASSES = Collections.unmodifiableList(
+            Arrays.<Class<? extends Auditable>>asList(Cluster.class, Command.class, Application.class)
+    );
+
+    /**
+     * The types of the fields which can be kept in a cursor, besides dates and enums.
+     */
+    private static final Set<Class<?>> CURSOR_TYPES = Collections.unmodifiableSet(
+            new HashSet<Class<?>>(
+                    Arrays.<Class<?>>asList(
+                            String.class,
+                            Boolean.class,
+                            boolean.class,
+                            Integer.class,
+                            int.class,
+                            Long.class,
+                            long.class,
+                            Float.class,
+                            float.class,
+                            Double.class,
+                            double.class
+                    )
+            )
+    );
+
     /**
      * Private constructor for Utility class to prevent instantiation.
      */
@@ -61,6 +109,126 @@ public final class JPAUtils {
             final Set<String> orderBys,
             final Class<?> entityMetaModelClass,
             final String defaultField
+    ) {
+        final List<String> finalOrderBys = getOrderByFields(orderBys, entityMetaModelClass, defaultField);
+        return new PageRequest(
+                page < 0 ? 0 : page,
+                limit < 1 ? 1024 : limit,
+                descending ? Sort.Direction.DESC : Sort.Direction.ASC,
+                finalOrderBys.toArray(new String[finalOrderBys.size()])
+        );
+    }
+
+    /**
+     * Whether results ordered by the given fields can be paged through with a cursor. That is when every field the
+     * results are really ordered by is never null and can be kept in a cursor.
+     *
+     * @param orderBys             The fields to order the results by.
+     * @param entityMetaModelClass The class of the entity we're evaluating against.
+     * @param defaultField         The default order by field to use.
+     * @return true if a cursor can be used
+     */
+    public static boolean isCursorOrder(
+            final Set<String> orderBys,
+            final Class<?> entityMetaModelClass,
+            final String defaultField
+    ) {
+        for (final String fieldName : getOrderByFields(orderBys, entityMetaModelClass, defaultField)) {
+            if (getCursorAttribute(fieldName, entityMetaModelClass) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the fields to order by when paging with a cursor. These are the same fields as getPageRequest orders by,
+     * ending with the id to break ties, so a cursor continues exactly where an offset page ended.
+     *
+     * @param orderBys             The fields to order the results by.
+     * @param entityMetaModelClass The class of the entity we're evaluating against.
+     * @param defaultField         The default order by field to use.
+     * @return The attributes to order by, ending with the id.
+     * @throws GenieException If a field can be null or can't be kept in a cursor.
+     */
+    public static List<SingularAttribute<?, ?>> getCursorOrderBys(
+            final Set<String> orderBys,
+            final Class<?> entityMetaModelClass,
+            final String defaultField
+    ) throws GenieException {
+        final List<SingularAttribute<?, ?>> cursorOrderBys = new ArrayList<>();
+        for (final String fieldName : getOrderByFields(orderBys, entityMetaModelClass, defaultField)) {
+            final SingularAttribute<?, ?> attribute = getCursorAttribute(fieldName, entityMetaModelClass);
+            if (attribute == null) {
+                throw new GeniePreconditionException("orderBy " + fieldName + " not supported with cursor");
+            }
+            cursorOrderBys.add(attribute);
+        }
+        return cursorOrderBys;
+    }
+
+    /**
+     * Get a page request for the page after a cursor. The cursor specification skips the entities before it so the
+     * page always starts at the first element.
+     *
+     * @param limit      The number of elements to return after the cursor.
+     * @param descending Whether the order should be descending or ascending.
+     * @param orderBys   The attributes to order by from getCursorOrderBys.
+     * @return The page request to use.
+     */
+    public static PageRequest getCursorPageRequest(
+            final int limit,
+            final boolean descending,
+            final List<SingularAttribute<?, ?>> orderBys
+    ) {
+        final String[] fieldNames = new String[orderBys.size()];
+        for (int i = 0; i < fieldNames.length; i++) {
+            fieldNames[i] = orderBys.get(i).getName();
+        }
+        return new PageRequest(
+                0,
+                limit < 1 ? 1024 : limit,
+                descending ? Sort.Direction.DESC : Sort.Direction.ASC,
+                fieldNames
+        );
+    }
+
+    /**
+     * Get the values of the order by fields kept in a cursor.
+     *
+     * @param cursor     The cursor of the previous page. Not blank.
+     * @param descending Whether the order should be descending or ascending.
+     * @param orderBys   The attributes to order by from getCursorOrderBys.
+     * @return The values in the same order as the attributes.
+     * @throws GenieException If the cursor is invalid or was created for another order.
+     */
+    public static List<Object> getCursorValues(
+            final String cursor,
+            final boolean descending,
+            final List<SingularAttribute<?, ?>> orderBys
+    ) throws GenieException {
+        final Map<String, Object> cursorValues = CursorUtil.getCursorValues(cursor, descending);
+        final List<Object> values = new ArrayList<>();
+        for (final SingularAttribute<?, ?> attribute : orderBys) {
+            final Object value = cursorValues.get(attribute.getName());
+            if (value == null) {
+                throw new GeniePreconditionException(
+                        "Cursor " + cursor + " wasn't created for ordering by " + attribute.getName()
+                );
+            }
+            values.add(toCursorType(attribute.getJavaType(), value, cursor));
+        }
+        return values;
+    }
+
+    /**
+     * Get the names of the fields results are ordered by: the valid requested fields or the default field if there
+     * are none, followed by the id to break ties so pages are stable.
+     */
+    private static List<String> getOrderByFields(
+            final Set<String> orderBys,
+            final Class<?> entityMetaModelClass,
+            final String defaultField
     ) {
         final List<String> finalOrderBys = new ArrayList<>();
 
@@ -85,12 +253,91 @@ public final class JPAUtils {
             LOG.debug("No valid order by parameters set. Using default field " + defaultField);
             finalOrderBys.add(defaultField);
         }
+        // break ties on the id so pages are stable and can be continued with a cursor
+        if (!finalOrderBys.contains(Auditable_.id.getName())) {
+            finalOrderBys.add(Auditable_.id.getName());
+        }
+        return finalOrderBys;
+    }
 
-        return new PageRequest(
-                page < 0 ? 0 : page,
-                limit < 1 ? 1024 : limit,
-                descending ? Sort.Direction.DESC : Sort.Direction.ASC,
-                finalOrderBys.toArray(new String[finalOrderBys.size()])
-        );
+    private static SingularAttribute<?, ?> getCursorAttribute(
+            final String fieldName,
+            final Class<?> entityMetaModelClass
+    ) {
+        try {
+            final Field field = entityMetaModelClass.getField(fieldName);
+            if (field.getType() != SingularAttribute.class) {
+                LOG.debug("Field " + fieldName + " is a collection and can't be used for order by.");
+                return null;
+            }
+            final SingularAttribute<?, ?> attribute = (SingularAttribute<?, ?>) field.get(null);
+            final Class<?> type = attribute.getJavaType();
+            if (attribute.isOptional()
+                    || !(CURSOR_TYPES.contains(type) || type.isEnum() || Date.class.isAssignableFrom(type))) {
+                LOG.debug("Field " + fieldName + " can be null or can't be kept in a cursor. Ignoring.");
+                return null;
+            }
+            return attribute;
+        } catch (final NoSuchFieldException | IllegalAccessException e) {
+            //Swallow and ignore
+            LOG.debug("No such field " + fieldName + ". " + e.getMessage());
+            return null;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object toCursorType(
+            final Class<?> type,
+            final Object value,
+            final String cursor
+    ) throws GeniePreconditionException {
+        try {
+            if (Date.class.isAssignableFrom(type)) {
+                return new Date(((Number) value).longValue());
+            } else if (type.isEnum()) {
+                return Enum.valueOf((Class<? extends Enum>) type, (String) value);
+            } else if (type == Integer.class || type == int.class) {
+                return ((Number) value).intValue();
+            } else if (type == Long.class || type == long.class) {
+                return ((Number) value).longValue();
+            } else if (type == Float.class || type == float.class) {
+                return ((Number) value).floatValue();
+            } else if (type == Double.class || type == double.class) {
+                return ((Number) value).doubleValue();
+            } else {
+                // strings and booleans are kept as they are
+                return type == boolean.class ? (Boolean) value : type.cast(value);
+            }
+        } catch (final ClassCastException | IllegalArgumentException e) {
+            throw new GeniePreconditionException("Invalid cursor " + cursor, e);
+        }
+    }
+
+    /**
+     * Get the version stamp of the configuration tables: the count, the sum
+     * of the entity versions and the latest update time of each table. It
+     * changes with every insert, update and delete whichever node made it.
+     * Always read from the database, never from the query cache.
+     *
+     * @param em The entity manager to query with
+     * @return The version stamp. Only meant to be compared with equals.
+     */
+    public static List<List<Object>> getConfigVersion(final EntityManager em) {
+        final List<List<Object>> version = new ArrayList<>();
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        for (final Class<? extends Auditable> configClass : CONFIG_CLASSES) {
+            final CriteriaQuery<Object[]> cq = cb.createQuery(Object[].class);
+            final Root<? extends Auditable> root = cq.from(configClass);
+            cq.multiselect(
+                    cb.count(root),
+                    cb.sum(root.get(Auditable_.entityVersion)),
+                    cb.greatest(root.get(Auditable_.updated))
+            );
+            final TypedQuery<Object[]> query = em.createQuery(cq);
+            final OpenJPAQuery<Object[]> openJPAQuery = OpenJPAPersistence.cast(query);
+            openJPAQuery.getFetchPlan().setQueryResultCacheEnabled(false);
+            version.add(Arrays.asList(query.getSingleResult()));
+        }
+        return version;
     }
 }
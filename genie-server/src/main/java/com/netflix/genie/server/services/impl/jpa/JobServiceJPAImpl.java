@@ -24,27 +24,40 @@ import com.netflix.genie.common.exceptions.GenieConflictException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.model.Application;
+import com.netflix.genie.common.model.Cluster;
+import com.netflix.genie.common.model.Command;
 import com.netflix.genie.common.model.Job;
 import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.common.util.ProcessStatus;
 import com.netflix.genie.server.jobmanager.JobManagerFactory;
 import com.netflix.genie.server.metrics.GenieNodeStatistics;
+import com.netflix.genie.server.repository.jpa.CursorSpecs;
 import com.netflix.genie.server.repository.jpa.JobRepository;
 import com.netflix.genie.server.repository.jpa.JobSpecs;
 import com.netflix.genie.server.services.JobService;
+import com.netflix.genie.server.services.TagStatistics;
+import com.netflix.genie.server.util.CursorUtil;
 import com.netflix.genie.server.util.NetUtil;
 import org.apache.commons.configuration.AbstractConfiguration;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specifications;
 import org.springframework.transaction.annotation.Transactional;
 import com.netflix.genie.common.model.Job_;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 /**
  * Implementation of the Job Service API's.
@@ -69,6 +82,7 @@ public class JobServiceJPAImpl implements JobService {
     private final GenieNodeStatistics stats;
     private final JobRepository jobRepo;
     private final JobManagerFactory jobManagerFactory;
+    private final TagStatistics tagStatistics;
 
     // initialize static variables
     static {
@@ -87,15 +101,18 @@ public class JobServiceJPAImpl implements JobService {
      * @param jobRepo The job repository to use.
      * @param stats the GenieNodeStatistics object
      * @param jobManagerFactory The the job manager factory to use
+     * @param tagStatistics The tag statistics to order tag searches with
      */
     @Inject
     public JobServiceJPAImpl(
             final JobRepository jobRepo,
             final GenieNodeStatistics stats,
-            final JobManagerFactory jobManagerFactory) {
+            final JobManagerFactory jobManagerFactory,
+            final TagStatistics tagStatistics) {
         this.jobRepo = jobRepo;
         this.stats = stats;
         this.jobManagerFactory = jobManagerFactory;
+        this.tagStatistics = tagStatistics;
     }
 
     /**
@@ -104,7 +121,17 @@ public class JobServiceJPAImpl implements JobService {
     @Override
     @Transactional
     public Job createJob(final Job job) throws GenieException {
-        if (StringUtils.isNotEmpty(job.getId())
+        return this.createJob(job, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional
+    public Job createJob(final Job job, final boolean checkExists) throws GenieException {
+        if (checkExists
+                && StringUtils.isNotEmpty(job.getId())
                 && this.jobRepo.exists(job.getId())) {
             throw new GenieConflictException(
                     "A job with id " + job.getId() + " already exists. Unable to save."
@@ -118,18 +145,7 @@ public class JobServiceJPAImpl implements JobService {
         try {
             final Job persistedJob = this.jobRepo.save(job);
             // if job can be launched, update the URIs
-            final String hostName = NetUtil.getHostName();
-            persistedJob.setHostName(hostName);
-            persistedJob.setOutputURI(
-                    getEndPoint(hostName)
-                    + "/" + JOB_DIR_PREFIX
-                    + "/" + persistedJob.getId()
-            );
-            persistedJob.setKillURI(
-                    getEndPoint(hostName)
-                    + "/" + JOB_RESOURCE_PREFIX
-                    + "/" + persistedJob.getId()
-            );
+            this.setURIs(persistedJob, NetUtil.getHostName());
 
             // increment number of submitted jobs as we have successfully
             // persisted it in the database.
@@ -142,6 +158,37 @@ public class JobServiceJPAImpl implements JobService {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(rollbackFor = GenieException.class)
+    public List<Job> createJobs(final List<Job> jobs) throws GenieException {
+        if (jobs == null) {
+            throw new GeniePreconditionException("No jobs entered. Unable to save.");
+        }
+        LOG.debug("Saving batch of " + jobs.size() + " jobs");
+
+        final String hostName = NetUtil.getHostName();
+        final List<Job> persistedJobs = new ArrayList<>(jobs.size());
+        try {
+            for (final Job job : jobs) {
+                job.setJobStatus(JobStatus.INIT, "Initializing job");
+                final Job persistedJob = this.jobRepo.save(job);
+                this.setURIs(persistedJob, hostName);
+                persistedJobs.add(persistedJob);
+            }
+        } catch (final RuntimeException e) {
+            LOG.error("Can't create entities in the database", e);
+            throw new GenieServerException(e);
+        }
+
+        for (int i = 0; i < persistedJobs.size(); i++) {
+            this.stats.incrGenieJobSubmissions();
+        }
+        return persistedJobs;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -190,13 +237,73 @@ public class JobServiceJPAImpl implements JobService {
                         jobName,
                         userName,
                         statuses,
-                        tags,
+                        this.tagStatistics.orderBySelectivity(Job.class, tags),
                         clusterName,
                         clusterId),
                 pageRequest).getContent();
         return jobs;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Job> getJobs(
+            final String id,
+            final String jobName,
+            final String userName,
+            final Set<JobStatus> statuses,
+            final Set<String> tags,
+            final String clusterName,
+            final String clusterId,
+            final String cursor,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException {
+        LOG.debug("called with cursor " + cursor);
+
+        final List<SingularAttribute<?, ?>> cursorOrderBys = JPAUtils.getCursorOrderBys(
+                orderBys, Job_.class, Job_.updated.getName()
+        );
+
+        @SuppressWarnings("unchecked")
+        final List<Job> jobs = this.jobRepo.findAll(
+                Specifications.where(
+                        JobSpecs.find(
+                                id,
+                                jobName,
+                                userName,
+                                statuses,
+                                this.tagStatistics.orderBySelectivity(Job.class, tags),
+                                clusterName,
+                                clusterId)
+                ).and(
+                        CursorSpecs.<Job>after(
+                                cursorOrderBys,
+                                JPAUtils.getCursorValues(cursor, descending, cursorOrderBys),
+                                descending)
+                ),
+                JPAUtils.getCursorPageRequest(limit, descending, cursorOrderBys)).getContent();
+        return jobs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getNextCursor(
+            final List<Job> jobs,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException {
+        if (!JPAUtils.isCursorOrder(orderBys, Job_.class, Job_.updated.getName())) {
+            LOG.debug("Order by " + orderBys + " can't be continued with a cursor");
+            return null;
+        }
+        return CursorUtil.createNextCursor(jobs, limit, descending, orderBys);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -314,6 +421,22 @@ public class JobServiceJPAImpl implements JobService {
         return lastUpdatedTimeMS;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(rollbackFor = GenieException.class)
+    public int setUpdateTimes(final Collection<String> ids) throws GenieException {
+        if (ids == null) {
+            throw new GeniePreconditionException("No job ids entered. Unable to update.");
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        LOG.debug("Updating db for " + ids.size() + " jobs");
+        return this.jobRepo.setUpdated(ids, new Date(), JobStatus.RUNNING);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -357,17 +480,19 @@ public class JobServiceJPAImpl implements JobService {
      */
     @Override
     @Transactional(rollbackFor = GenieException.class)
-    public void setCommandInfoForJob(
-            final String id,
-            final String commandId,
-            final String commandName) throws GenieException {
-        LOG.debug("Setting the command info for job with id " + id);
+    public void setSetupTimesForJob(final String id, final Map<String, Long> setupTimes) throws GenieException {
+        LOG.debug("Setting the setup times for job with id " + id);
         this.testId(id);
+        if (setupTimes == null) {
+            throw new GeniePreconditionException("No setup times entered. Unable to set.");
+        }
         final Job job = this.jobRepo.findOne(id);
         if (job != null) {
-            //TODO: Should we check if this is valid
-            job.setCommandId(commandId);
-            job.setCommandName(commandName);
+            final List<String> times = new ArrayList<>();
+            for (final Map.Entry<String, Long> entry : setupTimes.entrySet()) {
+                times.add(entry.getKey() + "=" + entry.getValue());
+            }
+            job.setSetupTimes(StringUtils.join(times, ','));
         } else {
             throw new GenieNotFoundException("No job with id " + id + " exists");
         }
@@ -378,16 +503,30 @@ public class JobServiceJPAImpl implements JobService {
      */
     @Override
     @Transactional(rollbackFor = GenieException.class)
-    public void setApplicationInfoForJob(
+    public Job setExecutionInfoForJob(
             final String id,
-            final String appId,
-            final String appName) throws GenieException {
-        LOG.debug("Setting the application info for job with id " + id);
+            final Cluster cluster,
+            final Command command,
+            final Application application) throws GenieException {
+        LOG.debug("Setting the execution info for job with id " + id);
         this.testId(id);
+        if (cluster == null) {
+            throw new GeniePreconditionException("No cluster entered. Unable to set execution info.");
+        }
+        if (command == null) {
+            throw new GeniePreconditionException("No command entered. Unable to set execution info.");
+        }
         final Job job = this.jobRepo.findOne(id);
         if (job != null) {
-            job.setApplicationId(appId);
-            job.setApplicationName(appName);
+            job.setExecutionClusterId(cluster.getId());
+            job.setExecutionClusterName(cluster.getName());
+            job.setCommandId(command.getId());
+            job.setCommandName(command.getName());
+            if (application != null) {
+                job.setApplicationId(application.getId());
+                job.setApplicationName(application.getName());
+            }
+            return job;
         } else {
             throw new GenieNotFoundException("No job with id " + id + " exists");
         }
@@ -397,29 +536,18 @@ public class JobServiceJPAImpl implements JobService {
      * {@inheritDoc}
      */
     @Override
-    @Transactional(rollbackFor = GenieException.class)
-    public void setClusterInfoForJob(
-            final String id,
-            final String clusterId,
-            final String clusterName) throws GenieException {
-        LOG.debug("Setting the application info for job with id " + id);
-        this.testId(id);
-        final Job job = this.jobRepo.findOne(id);
-        if (job != null) {
-            job.setExecutionClusterId(clusterId);
-            job.setExecutionClusterName(clusterName);
-        } else {
-            throw new GenieNotFoundException("No job with id " + id + " exists");
-        }
+    @Transactional(readOnly = true)
+    public JobStatus getJobStatus(final String id) throws GenieException {
+        return getJob(id).getStatus();
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    @Transactional(readOnly = true)
-    public JobStatus getJobStatus(final String id) throws GenieException {
-        return getJob(id).getStatus();
+    @Transactional
+    public Job runJob(final Job job) throws GenieException {
+        return this.launch(job, null);
     }
 
     /**
@@ -427,9 +555,20 @@ public class JobServiceJPAImpl implements JobService {
      */
     @Override
     @Transactional
-    public Job runJob(final Job job) throws GenieException {
+    public Job runJob(final Job job, final List<Cluster> clusters) throws GenieException {
+        if (clusters == null) {
+            throw new GeniePreconditionException("No clusters entered. Unable to run job.");
+        }
+        return this.launch(job, clusters);
+    }
+
+    private Job launch(final Job job, final List<Cluster> clusters) throws GenieException {
         try {
-            this.jobManagerFactory.getJobManager(job).launch();
+            if (clusters == null) {
+                this.jobManagerFactory.getJobManager(job).launch();
+            } else {
+                this.jobManagerFactory.getJobManager(job, clusters).launch();
+            }
 
             // update entity in DB
             // TODO This udpate runs into deadlock issue, either add manual retries
@@ -440,6 +579,15 @@ public class JobServiceJPAImpl implements JobService {
         } catch (final GenieException e) {
             LOG.error("Failed to run job: ", e);
             final Job failedJob = this.jobRepo.findOne(job.getId());
+            if (e.getCause() instanceof CancellationException || failedJob.getStatus() == JobStatus.KILLED) {
+                // killed while it was being set up
+                if (failedJob.getStatus() != JobStatus.KILLED) {
+                    failedJob.setJobStatus(JobStatus.KILLED, "Job killed on user request while being set up");
+                }
+                failedJob.setExitCode(ProcessStatus.JOB_KILLED.getExitCode());
+                this.stats.incrGenieKilledJobs();
+                throw e;
+            }
             // update db
             failedJob.setJobStatus(JobStatus.FAILED, e.getMessage());
             // increment counter for failed jobs
@@ -448,6 +596,20 @@ public class JobServiceJPAImpl implements JobService {
         }
     }
 
+    private void setURIs(final Job job, final String hostName) throws GenieException {
+        job.setHostName(hostName);
+        job.setOutputURI(
+                getEndPoint(hostName)
+                + "/" + JOB_DIR_PREFIX
+                + "/" + job.getId()
+        );
+        job.setKillURI(
+                getEndPoint(hostName)
+                + "/" + JOB_RESOURCE_PREFIX
+                + "/" + job.getId()
+        );
+    }
+
     private String getEndPoint(final String hostName) throws GenieException {
         return "http://" + hostName + ":" + SERVER_PORT;
     }
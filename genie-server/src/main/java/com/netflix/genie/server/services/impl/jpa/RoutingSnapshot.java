@@ -0,0 +1,326 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl.jpa;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable snapshot of the cluster routing index. Every routable cluster,
+ * one which is UP and has an ACTIVE command, gets a bit position. For every
+ * tag there is the bitset of the routable clusters carrying it and the
+ * bitset of those with an ACTIVE command carrying it. Every cluster also
+ * indexes the tags of its ACTIVE commands by their position in the cluster.<br>
+ * Updates copy the small maps and clone only the bitsets of the tags of the
+ * changed clusters, so they don't cost a rebuild of the whole index.
+ *
+ * @author agent
+ */
+final class RoutingSnapshot {
+
+    private final Map<String, ClusterEntry> clusters;
+    private final Map<String, Integer> positionsById;
+    private final List<ClusterEntry> positions;
+    private final BitSet routable;
+    private final Map<String, BitSet> clusterTags;
+    private final Map<String, BitSet> commandTags;
+
+    /**
+     * Constructor.
+     *
+     * @param clusters All the clusters keyed by id
+     */
+    RoutingSnapshot(final Map<String, ClusterEntry> clusters) {
+        this(
+                new HashMap<String, ClusterEntry>(),
+                new HashMap<String, Integer>(),
+                new ArrayList<ClusterEntry>(),
+                new BitSet(),
+                new HashMap<String, BitSet>(),
+                new HashMap<String, BitSet>()
+        );
+        // sorted so the clusters are returned in the same order for the same configuration
+        final Set<BitSet> cloned = newIdentitySet();
+        for (final ClusterEntry cluster : new TreeMap<>(clusters).values()) {
+            this.add(cluster, cloned);
+        }
+    }
+
+    private RoutingSnapshot(
+            final Map<String, ClusterEntry> clusters,
+            final Map<String, Integer> positionsById,
+            final List<ClusterEntry> positions,
+            final BitSet routable,
+            final Map<String, BitSet> clusterTags,
+            final Map<String, BitSet> commandTags) {
+        this.clusters = clusters;
+        this.positionsById = positionsById;
+        this.positions = positions;
+        this.routable = routable;
+        this.clusterTags = clusterTags;
+        this.commandTags = commandTags;
+    }
+
+    /**
+     * Create a snapshot with some clusters replaced. A cluster keeps its
+     * position, new clusters take the first free one.
+     *
+     * @param changed The new entries keyed by cluster id. A null entry removes the cluster.
+     * @return The new snapshot
+     */
+    RoutingSnapshot update(final Map<String, ClusterEntry> changed) {
+        final RoutingSnapshot updated = new RoutingSnapshot(
+                new HashMap<>(this.clusters),
+                new HashMap<>(this.positionsById),
+                new ArrayList<>(this.positions),
+                (BitSet) this.routable.clone(),
+                new HashMap<>(this.clusterTags),
+                new HashMap<>(this.commandTags)
+        );
+        // the bitsets already copied for the new snapshot, the others are shared with this one
+        final Set<BitSet> cloned = newIdentitySet();
+        cloned.add(updated.routable);
+        for (final Map.Entry<String, ClusterEntry> entry : changed.entrySet()) {
+            updated.remove(entry.getKey(), cloned);
+            if (entry.getValue() != null) {
+                updated.add(entry.getValue(), cloned);
+            }
+        }
+        return updated;
+    }
+
+    // only called while building a new snapshot
+    private void add(final ClusterEntry cluster, final Set<BitSet> cloned) {
+        this.clusters.put(cluster.id, cluster);
+        if (!cluster.isRoutable()) {
+            return;
+        }
+        final int position = this.routable.nextClearBit(0);
+        if (position == this.positions.size()) {
+            this.positions.add(cluster);
+        } else {
+            this.positions.set(position, cluster);
+        }
+        this.positionsById.put(cluster.id, position);
+        this.routable.set(position);
+        for (final String tag : cluster.tags) {
+            getBits(this.clusterTags, tag, cloned).set(position);
+        }
+        for (final String tag : cluster.commandTags.keySet()) {
+            getBits(this.commandTags, tag, cloned).set(position);
+        }
+    }
+
+    // only called while building a new snapshot
+    private void remove(final String clusterId, final Set<BitSet> cloned) {
+        final ClusterEntry cluster = this.clusters.remove(clusterId);
+        final Integer position = this.positionsById.remove(clusterId);
+        if (cluster == null || position == null) {
+            return;
+        }
+        this.positions.set(position, null);
+        this.routable.clear(position);
+        for (final String tag : cluster.tags) {
+            getBits(this.clusterTags, tag, cloned).clear(position);
+        }
+        for (final String tag : cluster.commandTags.keySet()) {
+            getBits(this.commandTags, tag, cloned).clear(position);
+        }
+    }
+
+    /**
+     * Get the number of clusters which can be routed to.
+     *
+     * @return The number of routable clusters
+     */
+    int getNumRoutableClusters() {
+        return this.positionsById.size();
+    }
+
+    /**
+     * Get the ids of the clusters which have a command, whatever its status.
+     *
+     * @param commandId The id of the command
+     * @return The ids of the clusters
+     */
+    Set<String> getClusterIdsWithCommand(final String commandId) {
+        final Set<String> ids = new HashSet<>();
+        for (final ClusterEntry cluster : this.clusters.values()) {
+            if (cluster.commandIds.contains(commandId)) {
+                ids.add(cluster.id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Find the routable clusters with all the cluster tags which have an
+     * ACTIVE command with all the command tags.
+     *
+     * @param tags            The cluster tags. Null matches any cluster.
+     * @param commandCriteria The command tags. Null matches any command.
+     * @return The ids of the clusters
+     */
+    List<String> findClusterIds(final Set<String> tags, final Set<String> commandCriteria) {
+        final BitSet matches = (BitSet) this.routable.clone();
+        if (!intersect(matches, this.clusterTags, tags) || !intersect(matches, this.commandTags, commandCriteria)) {
+            return new ArrayList<>();
+        }
+        final List<String> ids = new ArrayList<>();
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            // every tag is on some active command of the cluster but they must all be on the same one
+            final ClusterEntry cluster = this.positions.get(i);
+            if (cluster.findCommandId(commandCriteria) != null) {
+                ids.add(cluster.id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Find the first ACTIVE command of a routable cluster with all the
+     * command tags.
+     *
+     * @param clusterId       The id of the cluster
+     * @param commandCriteria The command tags. Null matches any command.
+     * @return The id of the command or null if there is none
+     */
+    String findCommandId(final String clusterId, final Set<String> commandCriteria) {
+        final ClusterEntry cluster = this.clusters.get(clusterId);
+        return cluster == null || !cluster.isRoutable() ? null : cluster.findCommandId(commandCriteria);
+    }
+
+    private static BitSet getBits(final Map<String, BitSet> index, final String tag) {
+        BitSet bits = index.get(tag);
+        if (bits == null) {
+            bits = new BitSet();
+            index.put(tag, bits);
+        }
+        return bits;
+    }
+
+    // copy on write of the bitsets shared with the previous snapshot
+    private static BitSet getBits(final Map<String, BitSet> index, final String tag, final Set<BitSet> cloned) {
+        final BitSet bits = index.get(tag);
+        if (bits != null && cloned.contains(bits)) {
+            return bits;
+        }
+        final BitSet copy = bits == null ? new BitSet() : (BitSet) bits.clone();
+        index.put(tag, copy);
+        cloned.add(copy);
+        return copy;
+    }
+
+    // bitsets compare by value so copies must be tracked by identity
+    private static Set<BitSet> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<BitSet, Boolean>());
+    }
+
+    private static boolean intersect(final BitSet matches, final Map<String, BitSet> index, final Set<String> tags) {
+        if (tags != null) {
+            for (final String tag : tags) {
+                final BitSet bits = index.get(tag);
+                if (bits == null) {
+                    return false;
+                }
+                matches.and(bits);
+            }
+        }
+        return !matches.isEmpty();
+    }
+
+    /**
+     * What the index keeps of a cluster.
+     */
+    static final class ClusterEntry {
+        private final String id;
+        private final boolean up;
+        private final Set<String> tags;
+        private final Set<String> commandIds = new HashSet<>();
+        private final List<String> activeCommandIds = new ArrayList<>();
+        private final BitSet activeCommands = new BitSet();
+        private final Map<String, BitSet> commandTags = new HashMap<>();
+
+        /**
+         * Constructor.
+         *
+         * @param id       The id of the cluster
+         * @param up       Whether the cluster is UP
+         * @param tags     The tags of the cluster
+         * @param commands The commands of the cluster in order
+         */
+        ClusterEntry(final String id, final boolean up, final Set<String> tags, final List<CommandEntry> commands) {
+            this.id = id;
+            this.up = up;
+            this.tags = tags == null ? Collections.<String>emptySet() : new HashSet<>(tags);
+            for (final CommandEntry command : commands) {
+                this.commandIds.add(command.id);
+                if (command.active) {
+                    final int position = this.activeCommandIds.size();
+                    this.activeCommandIds.add(command.id);
+                    this.activeCommands.set(position);
+                    for (final String tag : command.tags) {
+                        getBits(this.commandTags, tag).set(position);
+                    }
+                }
+            }
+        }
+
+        private boolean isRoutable() {
+            return this.up && !this.activeCommandIds.isEmpty();
+        }
+
+        private String findCommandId(final Set<String> commandCriteria) {
+            final BitSet matches = (BitSet) this.activeCommands.clone();
+            if (!intersect(matches, this.commandTags, commandCriteria)) {
+                return null;
+            }
+            return this.activeCommandIds.get(matches.nextSetBit(0));
+        }
+    }
+
+    /**
+     * What the index keeps of a command.
+     */
+    static final class CommandEntry {
+        private final String id;
+        private final boolean active;
+        private final Set<String> tags;
+
+        /**
+         * Constructor.
+         *
+         * @param id     The id of the command
+         * @param active Whether the command is ACTIVE
+         * @param tags   The tags of the command
+         */
+        CommandEntry(final String id, final boolean active, final Set<String> tags) {
+            this.id = id;
+            this.active = active;
+            this.tags = tags == null ? Collections.<String>emptySet() : new HashSet<>(tags);
+        }
+    }
+}
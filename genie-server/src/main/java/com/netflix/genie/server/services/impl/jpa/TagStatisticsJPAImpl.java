@@ -0,0 +1,292 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl.jpa;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.model.CommonEntityFields;
+import com.netflix.genie.server.services.TagStatistics;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Orders tags by the number of entities carrying them, counted through the
+ * tag index. Searches never count themselves: tags without a count, or with
+ * an expired one, are queued and counted in the background, and until every
+ * tag of a search has a count the search uses the default order.<br>
+ * The default order, also used when the statistics are disabled, assumes
+ * longer tags are more selective, which holds for the genie.id: and
+ * genie.name: system tags.
+ *
+ * @author agent
+ */
+@Named
+public class TagStatisticsJPAImpl implements TagStatistics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TagStatisticsJPAImpl.class);
+    private static final String CONFIG_PREFIX = "com.netflix.genie.server.tags.statistics.";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long ttl;
+    private final int maxSize;
+    private final long refreshInterval;
+    private final ConcurrentMap<String, TagCount> counts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<? extends CommonEntityFields>, Set<String>> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService refresher;
+
+    @Monitor(name = "Tag_Statistics_Queries", type = DataSourceType.COUNTER)
+    private final AtomicLong queries = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     *
+     * @param transactionManager The transaction manager to count the tags in read only transactions with
+     */
+    @Inject
+    public TagStatisticsJPAImpl(final PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        this.enabled = config.getBoolean(CONFIG_PREFIX + "enabled", false);
+        this.ttl = config.getLong(CONFIG_PREFIX + "ttl.ms", 600000L);
+        this.maxSize = config.getInt(CONFIG_PREFIX + "size", 10000);
+        this.refreshInterval = config.getLong(CONFIG_PREFIX + "refresh.interval.ms", 1000L);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "genie-tag-statistics");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Start counting the queued tags and register the metrics.
+     */
+    @PostConstruct
+    public void initialize() {
+        if (this.enabled) {
+            this.refresher.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh();
+                    } catch (final RuntimeException re) {
+                        LOG.error("Unable to count the searched tags", re);
+                    }
+                }
+            }, this.refreshInterval, this.refreshInterval, TimeUnit.MILLISECONDS);
+        }
+        LOG.info("Registering Servo Monitor");
+        Monitors.registerObject(this);
+    }
+
+    /**
+     * Stop counting tags and unregister the metrics.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.refresher.shutdownNow();
+        Monitors.unregisterObject(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> orderBySelectivity(final Class<? extends CommonEntityFields> type, final Set<String> tags) {
+        if (tags == null) {
+            return null;
+        }
+        final List<String> ordered = new ArrayList<>();
+        for (final String tag : tags) {
+            if (StringUtils.isNotBlank(tag)) {
+                ordered.add(tag);
+            }
+        }
+        if (ordered.size() > 1) {
+            // only order by the counts when all are known so the order stays consistent
+            final Map<String, Long> tagCounts = this.enabled ? this.getCounts(type, ordered) : null;
+            Collections.sort(ordered, new Comparator<String>() {
+                @Override
+                public int compare(final String tag1, final String tag2) {
+                    if (tagCounts != null) {
+                        final int byCount = tagCounts.get(tag1).compareTo(tagCounts.get(tag2));
+                        if (byCount != 0) {
+                            return byCount;
+                        }
+                    }
+                    if (tag1.length() != tag2.length()) {
+                        return tag2.length() - tag1.length();
+                    }
+                    return tag1.compareTo(tag2);
+                }
+            });
+        }
+        return new LinkedHashSet<>(ordered);
+    }
+
+    /**
+     * Count the tags queued by the searches since the last refresh. Runs in
+     * the background every refresh interval.
+     */
+    public void refresh() {
+        for (final Map.Entry<Class<? extends CommonEntityFields>, Set<String>> entry : this.pending.entrySet()) {
+            final Class<? extends CommonEntityFields> type = entry.getKey();
+            final Set<String> tags = new HashSet<>(entry.getValue());
+            if (tags.isEmpty()) {
+                continue;
+            }
+            // tags searched again while counting are queued again and counted next time
+            entry.getValue().removeAll(tags);
+            final Map<String, Long> tagCounts = this.transactionTemplate.execute(
+                    new TransactionCallback<Map<String, Long>>() {
+                        @Override
+                        public Map<String, Long> doInTransaction(final TransactionStatus status) {
+                            return count(type, tags);
+                        }
+                    }
+            );
+
+            if (this.counts.size() + tags.size() > this.maxSize) {
+                this.counts.clear();
+            }
+            final long expires = System.currentTimeMillis() + this.ttl;
+            for (final Map.Entry<String, Long> tagCount : tagCounts.entrySet()) {
+                this.counts.put(key(type, tagCount.getKey()), new TagCount(tagCount.getValue(), expires));
+            }
+        }
+    }
+
+    /**
+     * Get the number of times the tags were counted in the database.
+     *
+     * @return The number of count queries
+     */
+    public long getNumQueries() {
+        return this.queries.get();
+    }
+
+    /**
+     * Get the counts of the tags, queueing the missing and expired ones to be
+     * counted. Expired counts are still used until they are counted again.
+     *
+     * @return The counts or null if any tag has not been counted yet
+     */
+    private Map<String, Long> getCounts(final Class<? extends CommonEntityFields> type, final List<String> tags) {
+        final long now = System.currentTimeMillis();
+        final Map<String, Long> tagCounts = new HashMap<>();
+        boolean complete = true;
+        for (final String tag : tags) {
+            final TagCount count = this.counts.get(key(type, tag));
+            if (count == null || count.expires <= now) {
+                this.queue(type, tag);
+            }
+            if (count == null) {
+                complete = false;
+            } else {
+                tagCounts.put(tag, count.count);
+            }
+        }
+        return complete ? tagCounts : null;
+    }
+
+    private void queue(final Class<? extends CommonEntityFields> type, final String tag) {
+        Set<String> tags = this.pending.get(type);
+        if (tags == null) {
+            this.pending.putIfAbsent(type, Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>()));
+            tags = this.pending.get(type);
+        }
+        if (tags.size() < this.maxSize) {
+            tags.add(tag);
+        }
+    }
+
+    private Map<String, Long> count(final Class<? extends CommonEntityFields> type, final Set<String> tags) {
+        this.queries.incrementAndGet();
+        final TypedQuery<Object[]> query = this.em.createQuery(
+                "SELECT t, COUNT(e) FROM " + type.getSimpleName() + " e JOIN e.tags t WHERE t IN :tags GROUP BY t",
+                Object[].class
+        );
+        query.setParameter("tags", tags);
+        final Map<String, Long> tagCounts = new HashMap<>();
+        for (final String tag : tags) {
+            // tags nobody carries aren't returned and are the most selective of all
+            tagCounts.put(tag, 0L);
+        }
+        for (final Object[] row : query.getResultList()) {
+            tagCounts.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        return tagCounts;
+    }
+
+    private static String key(final Class<? extends CommonEntityFields> type, final String tag) {
+        return type.getSimpleName() + ":" + tag;
+    }
+
+    /**
+     * The number of entities carrying a tag and until when it is current.
+     */
+    private static final class TagCount {
+        private final long count;
+        private final long expires;
+
+        TagCount(final long count, final long expires) {
+            this.count = count;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.util;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Utility class to create and read the opaque cursors used to page through
+ * search results. A cursor holds the sort direction and the values of the
+ * order by fields of the last entity of a page, so the next page can start
+ * right after that entity instead of skipping every entity before it.
+ *
+ * @author agent
+ */
+public final class CursorUtil {
+
+    /**
+     * The response header carrying the cursor of the next page.
+     */
+    public static final String NEXT_CURSOR_HEADER = "Genie-Next-Cursor";
+
+    private static final Logger LOG = LoggerFactory.getLogger(CursorUtil.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String DESCENDING = "descending";
+    private static final String VALUES = "values";
+    private static final String ID_FIELD = "id";
+    private static final String UPDATED_FIELD = "updated";
+
+    /**
+     * Should never be called.
+     */
+    protected CursorUtil() {
+    }
+
+    /**
+     * Create the cursor of the page after the given one.
+     *
+     * @param page       The page of entities returned
+     * @param limit      The max number of entities requested for the page
+     * @param descending Whether the entities are in descending order
+     * @param orderBys   The fields the entities were requested to be ordered by
+     * @return The cursor or null if the page isn't full as there are no more entities
+     * @throws GenieException If the cursor can't be created
+     */
+    public static String createNextCursor(
+            final List<?> page,
+            final int limit,
+            final boolean descending,
+            final Set<String> orderBys) throws GenieException {
+        if (page == null || page.isEmpty() || (limit > 0 && page.size() < limit)) {
+            return null;
+        }
+
+        // the id breaks ties and updated is the default order of every entity
+        final Set<String> fields = new HashSet<>();
+        fields.add(ID_FIELD);
+        fields.add(UPDATED_FIELD);
+        if (orderBys != null) {
+            fields.addAll(orderBys);
+        }
+
+        final Object last = page.get(page.size() - 1);
+        final ObjectNode cursor = MAPPER.createObjectNode();
+        cursor.put(DESCENDING, descending);
+        final ObjectNode values = cursor.putObject(VALUES);
+        try {
+            final PropertyDescriptor[] properties = Introspector.getBeanInfo(last.getClass()).getPropertyDescriptors();
+            for (final PropertyDescriptor property : properties) {
+                if (!fields.contains(property.getName()) || property.getReadMethod() == null) {
+                    continue;
+                }
+                final Object value = property.getReadMethod().invoke(last);
+                if (value instanceof Date) {
+                    values.put(property.getName(), ((Date) value).getTime());
+                } else if (value instanceof Enum) {
+                    values.put(property.getName(), ((Enum<?>) value).name());
+                } else if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+                    values.set(property.getName(), MAPPER.valueToTree(value));
+                } else {
+                    LOG.debug("Field " + property.getName() + " can't be kept in a cursor.");
+                }
+            }
+            return Base64Variants.MODIFIED_FOR_URL.encode(MAPPER.writeValueAsBytes(cursor));
+        } catch (final IntrospectionException | IllegalAccessException | InvocationTargetException | IOException e) {
+            LOG.error(e.getMessage(), e);
+            throw new GenieServerException("Unable to create the cursor of the next page.", e);
+        }
+    }
+
+    /**
+     * Read the values kept in a cursor.
+     *
+     * @param cursor     The cursor of the previous page. Not blank.
+     * @param descending Whether the entities are requested in descending order
+     * @return The values of the last entity of the previous page by field name. Dates are kept as epoch millis and
+     * enums by name.
+     * @throws GenieException If the cursor is invalid or was created for the other order
+     */
+    public static Map<String, Object> getCursorValues(
+            final String cursor,
+            final boolean descending) throws GenieException {
+        final JsonNode node;
+        try {
+            node = MAPPER.readTree(Base64Variants.MODIFIED_FOR_URL.decode(cursor));
+        } catch (final IOException | IllegalArgumentException e) {
+            throw new GeniePreconditionException("Invalid cursor " + cursor, e);
+        }
+        if (node == null || !node.path(DESCENDING).isBoolean() || !node.path(VALUES).isObject()) {
+            throw new GeniePreconditionException("Invalid cursor " + cursor);
+        }
+        if (node.get(DESCENDING).booleanValue() != descending) {
+            throw new GeniePreconditionException(
+                    "Cursor " + cursor + " was created for the " + (descending ? "ascending" : "descending") + " order."
+            );
+        }
+
+        final Map<String, Object> values = new HashMap<>();
+        final Iterator<Map.Entry<String, JsonNode>> fields = node.get(VALUES).fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            final JsonNode value = field.getValue();
+            if (value.isTextual()) {
+                values.put(field.getKey(), value.textValue());
+            } else if (value.isBoolean()) {
+                values.put(field.getKey(), value.booleanValue());
+            } else if (value.isIntegralNumber()) {
+                values.put(field.getKey(), value.longValue());
+            } else if (value.isNumber()) {
+                values.put(field.getKey(), value.doubleValue());
+            } else {
+                throw new GeniePreconditionException("Invalid cursor " + cursor);
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.util;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility class to run the external commands, like the copy command, Genie
+ * uses to move files around.
+ *
+ * @author agent
+ */
+public final class ProcessUtil {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProcessUtil.class);
+    private static final String TIMEOUT_SCRIPT = "timeout3";
+
+    private ProcessUtil() {
+        // never called
+    }
+
+    /**
+     * Get the command to prefix a copy with so it can't hang indefinitely.
+     * This is the same timeout script the job launcher uses, if it is
+     * installed.
+     *
+     * @return The command and its arguments or an empty list if there is no timeout script
+     */
+    public static List<String> getTimeoutCommand() {
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        final List<String> timeoutCommand = new ArrayList<>();
+        final String genieHome = config.getString("com.netflix.genie.server.sys.home");
+        if (StringUtils.isNotBlank(genieHome)) {
+            final File timeout = new File(genieHome, TIMEOUT_SCRIPT);
+            if (timeout.canExecute()) {
+                timeoutCommand.add(timeout.getAbsolutePath());
+                timeoutCommand.add("-t");
+                timeoutCommand.add(config.getString("com.netflix.genie.server.hadoop.s3cp.timeout", "1800"));
+            }
+        }
+        return timeoutCommand;
+    }
+
+    /**
+     * Run a command in the environment of the server and return what it wrote.
+     *
+     * @param command The command and its arguments
+     * @return The output of the command
+     * @throws GenieException If the command fails
+     */
+    public static String execute(final List<String> command) throws GenieException {
+        return execute(command, null);
+    }
+
+    /**
+     * Run a command and return what it wrote.
+     *
+     * @param command The command and its arguments
+     * @param env     Variables to add to the environment of the server, like the ones of the job the command is run
+     *                for so it picks up the job's Hadoop client and configuration. May be null.
+     * @return The output of the command
+     * @throws GenieException If the command fails
+     */
+    public static String execute(final List<String> command, final Map<String, String> env) throws GenieException {
+        try {
+            final ProcessBuilder pb = new ProcessBuilder(command).redirectErrorStream(true);
+            if (env != null) {
+                pb.environment().putAll(env);
+            }
+            final Process proc = pb.start();
+            proc.getOutputStream().close();
+            final StringBuilder output = new StringBuilder();
+            try (final BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    output.append(line).append('\n');
+                }
+            }
+            final int exitCode = proc.waitFor();
+            if (exitCode != 0) {
+                throw new GenieServerException(
+                        "Command " + command.get(0) + " failed with exit code " + exitCode + ": " + output
+                );
+            }
+            return output.toString();
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to run " + command.get(0), ioe);
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new GenieServerException("Interrupted running " + command.get(0), ie);
+        }
+    }
+
+    /**
+     * Run a command, trying again after a delay if it fails so a transient
+     * error doesn't fail the job.
+     *
+     * @param command     The command and its arguments
+     * @param env         Variables to add to the environment of the server. May be null.
+     * @param numAttempts The number of times to try. At least one attempt is made.
+     * @param retryDelay  How long to wait between attempts in milliseconds
+     * @return The output of the successful attempt
+     * @throws GenieException If the last attempt fails
+     */
+    public static String execute(
+            final List<String> command,
+            final Map<String, String> env,
+            final int numAttempts,
+            final long retryDelay) throws GenieException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return execute(command, env);
+            } catch (final GenieException ge) {
+                if (attempt >= numAttempts) {
+                    throw ge;
+                }
+                LOG.warn("Command " + command.get(0) + " failed. Will retry in " + retryDelay + " ms.", ge);
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new GenieServerException("Interrupted running " + command.get(0), ie);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.Application;
+import com.netflix.genie.common.model.Cluster;
+import com.netflix.genie.common.model.Command;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.server.jobmanager.impl.JobManagerImpl;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Tests for the LaunchPlan class.
+ *
+ * @author agent
+ */
+public class TestLaunchPlan {
+
+    /**
+     * Make sure everything resolved for the plan is kept.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testConstructor() throws GenieException {
+        final Job job = new Job();
+        final Cluster cluster = new Cluster();
+        final Application application = new Application();
+        final Command command = Mockito.mock(Command.class);
+        Mockito.when(command.getApplication()).thenReturn(application);
+
+        final LaunchPlan plan = new LaunchPlan(job, cluster, command, JobManagerImpl.class);
+        Assert.assertEquals(job, plan.getJob());
+        Assert.assertEquals(cluster, plan.getCluster());
+        Assert.assertEquals(command, plan.getCommand());
+        Assert.assertEquals(application, plan.getApplication());
+        Assert.assertEquals(JobManagerImpl.class, plan.getJobManagerClass());
+    }
+
+    /**
+     * Make sure a plan can't be created without a command.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testConstructorNoCommand() throws GenieException {
+        new LaunchPlan(new Job(), new Cluster(), null, JobManagerImpl.class);
+    }
+}
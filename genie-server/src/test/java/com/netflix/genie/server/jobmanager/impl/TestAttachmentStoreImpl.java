@@ -0,0 +1,192 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieRequestTooLargeException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Tests for the AttachmentStoreImpl class.
+ *
+ * @author agent
+ */
+public class TestAttachmentStoreImpl {
+
+    private static final String CONFIG_PREFIX = "com.netflix.genie.server.job.attachments.";
+    private static final String JOB_ID = "job1";
+
+    /**
+     * Holds the staging directory and the job directories.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private AttachmentStoreImpl store;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws IOException For any problem
+     */
+    @Before
+    public void setup() throws IOException {
+        ConfigurationManager.getConfigInstance().setProperty(
+                CONFIG_PREFIX + "dir",
+                new File(this.folder.getRoot(), ".attachments").getAbsolutePath()
+        );
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "max.bytes", 10L);
+        this.store = new AttachmentStoreImpl();
+        this.store.initialize();
+    }
+
+    /**
+     * Clean up after the tests.
+     */
+    @After
+    public void tearDown() {
+        this.store.shutdown();
+        ConfigurationManager.getConfigInstance().clearProperty(CONFIG_PREFIX + "dir");
+        ConfigurationManager.getConfigInstance().clearProperty(CONFIG_PREFIX + "max.bytes");
+    }
+
+    /**
+     * Make sure attachments end up in the job directory.
+     *
+     * @throws GenieException For any problem
+     * @throws IOException    For any problem
+     */
+    @Test
+    public void testWriteAndMove() throws GenieException, IOException {
+        final File attachments = this.store.create();
+        Assert.assertEquals(5L, this.store.write(attachments, "/home/user/query.q", stream("12345")));
+        Assert.assertEquals(3L, this.store.write(attachments, "C:\\data\\in.csv", stream("abc")));
+        Assert.assertTrue(this.store.register(JOB_ID, attachments));
+        Assert.assertTrue(this.store.hasAttachments(JOB_ID));
+
+        final File jobDir = this.folder.newFolder(JOB_ID);
+        this.store.moveTo(JOB_ID, jobDir);
+        Assert.assertEquals("12345", read(new File(jobDir, "query.q")));
+        Assert.assertEquals("abc", read(new File(jobDir, "in.csv")));
+        Assert.assertFalse(this.store.hasAttachments(JOB_ID));
+        Assert.assertFalse(attachments.exists());
+        Assert.assertEquals(0, this.store.getNumSets());
+    }
+
+    /**
+     * Make sure nothing happens for jobs without attachments.
+     *
+     * @throws GenieException For any problem
+     * @throws IOException    For any problem
+     */
+    @Test
+    public void testMoveNoAttachments() throws GenieException, IOException {
+        final File jobDir = this.folder.newFolder(JOB_ID);
+        this.store.moveTo(JOB_ID, jobDir);
+        Assert.assertEquals(0, jobDir.list().length);
+        Assert.assertFalse(this.store.hasAttachments(" "));
+    }
+
+    /**
+     * Make sure the size of all attachments of a submission is capped.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GenieRequestTooLargeException.class)
+    public void testWriteTooLarge() throws GenieException {
+        final File attachments = this.store.create();
+        this.store.write(attachments, "first", stream("123456"));
+        this.store.write(attachments, "second", stream("123456"));
+    }
+
+    /**
+     * Make sure attachments can't be written outside of their directory.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testWriteInvalidName() throws GenieException {
+        this.store.write(this.store.create(), "..", stream("123"));
+    }
+
+    /**
+     * Make sure attachments can't overwrite each other.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testWriteDuplicateName() throws GenieException {
+        final File attachments = this.store.create();
+        this.store.write(attachments, "query.q", stream("123"));
+        this.store.write(attachments, "query.q", stream("456"));
+    }
+
+    /**
+     * Make sure a job keeps the attachments it was registered with first.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testRegisterTwice() throws GenieException {
+        final File first = this.store.create();
+        final File second = this.store.create();
+        Assert.assertTrue(this.store.register(JOB_ID, first));
+        Assert.assertFalse(this.store.register(JOB_ID, second));
+        Assert.assertTrue(first.exists());
+        Assert.assertFalse(second.exists());
+        Assert.assertEquals(1, this.store.getNumSets());
+    }
+
+    /**
+     * Make sure deleting attachments forgets the job they belonged to.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testDelete() throws GenieException {
+        final File attachments = this.store.create();
+        this.store.write(attachments, "query.q", stream("123"));
+        this.store.register(JOB_ID, attachments);
+        this.store.delete(attachments);
+        Assert.assertFalse(this.store.hasAttachments(JOB_ID));
+        Assert.assertFalse(attachments.exists());
+        Assert.assertEquals(0, this.store.getNumSets());
+    }
+
+    private static InputStream stream(final String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the DependencyCacheImpl class.
+ *
+ * @author agent
+ */
+public class TestDependencyCacheImpl {
+
+    private static final String CONFIG_PREFIX = "com.netflix.genie.server.job.dependency.cache.";
+    private static final String[] KEYS = {"enabled", "stat.command", "dir", "max.bytes", "version.ttl.ms", "attempts"};
+
+    /**
+     * Holds the dependencies, the cache and the job directories.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File downloadLog;
+    private String copyCommand;
+    private DependencyCacheImpl cache;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws IOException For any problem
+     */
+    @Before
+    public void setup() throws IOException {
+        this.downloadLog = new File(this.folder.getRoot(), "downloads.log");
+        final File copyScript = this.folder.newFile("copy.sh");
+        write(
+                copyScript,
+                "#!/bin/sh\necho \"$1\" >> " + this.downloadLog.getAbsolutePath() + "\ncp \"$1\" \"${2#file://}\"\n"
+        );
+        Assert.assertTrue(copyScript.setExecutable(true));
+        this.copyCommand = copyScript.getAbsolutePath();
+
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "enabled", true);
+        // the checksum changes with the content so it works as the version
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "stat.command", "cksum");
+        ConfigurationManager.getConfigInstance().setProperty(
+                CONFIG_PREFIX + "dir",
+                new File(this.folder.getRoot(), "cache").getAbsolutePath()
+        );
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "version.ttl.ms", 0L);
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "attempts", 1);
+    }
+
+    /**
+     * Clean up after the tests.
+     */
+    @After
+    public void tearDown() {
+        if (this.cache != null) {
+            this.cache.shutdown();
+        }
+        for (final String key : KEYS) {
+            ConfigurationManager.getConfigInstance().clearProperty(CONFIG_PREFIX + key);
+        }
+    }
+
+    /**
+     * Make sure a dependency is only downloaded once for many jobs.
+     *
+     * @throws GenieException For any problem
+     * @throws IOException    For any problem
+     */
+    @Test
+    public void testInstall() throws GenieException, IOException {
+        final File jar = this.createDependency("app.jar", "jar content");
+        this.cache = this.createCache();
+
+        final File job1 = new File(this.folder.getRoot(), "job1");
+        final File job2 = new File(this.folder.getRoot(), "job2");
+        this.cache.install(Arrays.asList(jar.getAbsolutePath()), this.copyCommand, job1, null);
+        this.cache.install(Arrays.asList(jar.getAbsolutePath()), this.copyCommand, job2, null);
+
+        Assert.assertEquals("jar content", read(new File(job1, "app.jar")));
+        Assert.assertEquals("jar content", read(new File(job2, "app.jar")));
+        Assert.assertEquals(1, this.getNumDownloads());
+        Assert.assertEquals(0.5, this.cache.getHitRatio(), 0.0);
+    }
+
+    /**
+     * Make sure jobs installing a dependency at the same time download it once
+     * and only that download counts as a miss.
+     *
+     * @throws Exception For any problem
+     */
+    @Test
+    public void testConcurrentInstall() throws Exception {
+        final File jar = this.createDependency("app.jar", "jar content");
+        this.cache = this.createCache();
+
+        final int numJobs = 4;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(numJobs);
+        try {
+            final List<Future<Void>> installs = new ArrayList<>();
+            for (int i = 0; i < numJobs; i++) {
+                final File job = new File(this.folder.getRoot(), "job" + i);
+                installs.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        cache.install(Arrays.asList(jar.getAbsolutePath()), copyCommand, job, null);
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (final Future<Void> install : installs) {
+                install.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(1, this.getNumDownloads());
+        Assert.assertEquals(0.75, this.cache.getHitRatio(), 0.0);
+    }
+
+    /**
+     * Make sure a dependency is downloaded again once it changes.
+     *
+     * @throws GenieException For any problem
+     * @throws IOException    For any problem
+     */
+    @Test
+    public void testInstallNewVersion() throws GenieException, IOException {
+        final File config = this.createDependency("core-site.xml", "version 1");
+        this.cache = this.createCache();
+
+        final File job1 = new File(this.folder.getRoot(), "job1");
+        final File job2 = new File(this.folder.getRoot(), "job2");
+        this.cache.install(Arrays.asList(config.getAbsolutePath()), this.copyCommand, job1, null);
+        write(config, "version 2");
+        this.cache.install(Arrays.asList(config.getAbsolutePath()), this.copyCommand, job2, null);
+
+        Assert.assertEquals("version 1", read(new File(job1, "core-site.xml")));
+        Assert.assertEquals("version 2", read(new File(job2, "core-site.xml")));
+        Assert.assertEquals(2, this.getNumDownloads());
+    }
+
+    /**
+     * Make sure the least recently used dependencies are evicted without breaking the jobs using them.
+     *
+     * @throws GenieException For any problem
+     * @throws IOException    For any problem
+     */
+    @Test
+    public void testEviction() throws GenieException, IOException {
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "max.bytes", 10L);
+        final File first = this.createDependency("first.jar", "12345678");
+        final File second = this.createDependency("second.jar", "abcdefgh");
+        this.cache = this.createCache();
+
+        final File job1 = new File(this.folder.getRoot(), "job1");
+        final File job2 = new File(this.folder.getRoot(), "job2");
+        this.cache.install(
+                Arrays.asList(first.getAbsolutePath(), second.getAbsolutePath()),
+                this.copyCommand,
+                job1,
+                null
+        );
+        this.cache.install(Arrays.asList(first.getAbsolutePath()), this.copyCommand, job2, null);
+
+        Assert.assertEquals("12345678", read(new File(job1, "first.jar")));
+        Assert.assertEquals("abcdefgh", read(new File(job1, "second.jar")));
+        Assert.assertEquals("12345678", read(new File(job2, "first.jar")));
+        Assert.assertEquals(3, this.getNumDownloads());
+        // nothing placed in a job may point back into the cache
+        Assert.assertFalse(Files.isSymbolicLink(new File(job1, "first.jar").toPath()));
+        Assert.assertFalse(Files.isSymbolicLink(new File(job1, "second.jar").toPath()));
+        Assert.assertFalse(Files.isSymbolicLink(new File(job2, "first.jar").toPath()));
+    }
+
+    /**
+     * Make sure only single files can be cached.
+     */
+    @Test
+    public void testIsCacheable() {
+        this.cache = this.createCache();
+        Assert.assertTrue(this.cache.isCacheable("s3://bucket/hive/hive-exec.jar"));
+        Assert.assertFalse(this.cache.isCacheable("s3://bucket/hive/*.jar"));
+        Assert.assertFalse(this.cache.isCacheable("s3://bucket/hive/"));
+        Assert.assertFalse(this.cache.isCacheable(" "));
+    }
+
+    /**
+     * Make sure the cache is disabled without a stat command.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testNoStatCommand() throws GenieException {
+        ConfigurationManager.getConfigInstance().clearProperty(CONFIG_PREFIX + "stat.command");
+        this.cache = this.createCache();
+        Assert.assertFalse(this.cache.isEnabled());
+        this.cache.install(Arrays.asList("s3://bucket/app.jar"), this.copyCommand, this.folder.getRoot(), null);
+    }
+
+    private DependencyCacheImpl createCache() {
+        final DependencyCacheImpl dependencyCache = new DependencyCacheImpl();
+        try {
+            dependencyCache.initialize();
+        } catch (final IOException ioe) {
+            throw new IllegalStateException(ioe);
+        }
+        return dependencyCache;
+    }
+
+    private File createDependency(final String name, final String content) throws IOException {
+        final File dependencies = new File(this.folder.getRoot(), "s3");
+        Files.createDirectories(dependencies.toPath());
+        final File dependency = new File(dependencies, name);
+        write(dependency, content);
+        return dependency;
+    }
+
+    private int getNumDownloads() throws IOException {
+        final List<String> lines = Files.readAllLines(this.downloadLog.toPath(), StandardCharsets.UTF_8);
+        return lines.size();
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
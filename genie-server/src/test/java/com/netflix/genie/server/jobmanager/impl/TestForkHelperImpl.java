@@ -0,0 +1,174 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+/**
+ * Tests for the ForkHelperImpl class. Runs the real forkhelper.py so they
+ * are skipped where python isn't installed.
+ *
+ * @author agent
+ */
+public class TestForkHelperImpl {
+
+    private static final String CONFIG_PREFIX = "com.netflix.genie.server.job.fork.helper.";
+    private static final File SCRIPT = new File("../root/apps/genie/bin/forkhelper.py");
+
+    /**
+     * Holds the output of the launched processes.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private ForkHelperImpl forkHelper;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        final String python = findPython();
+        Assume.assumeTrue(SCRIPT.exists() && python != null);
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "enabled", true);
+        ConfigurationManager.getConfigInstance().setProperty(
+                CONFIG_PREFIX + "command",
+                python + " " + SCRIPT.getAbsolutePath()
+        );
+        this.forkHelper = new ForkHelperImpl();
+        this.forkHelper.initialize();
+    }
+
+    /**
+     * Clean up after the tests.
+     */
+    @After
+    public void tearDown() {
+        if (this.forkHelper != null) {
+            this.forkHelper.shutdown();
+        }
+        ConfigurationManager.getConfigInstance().clearProperty(CONFIG_PREFIX + "enabled");
+        ConfigurationManager.getConfigInstance().clearProperty(CONFIG_PREFIX + "command");
+    }
+
+    /**
+     * Make sure the exit code, process id, working directory, environment and
+     * output redirect are all passed through the helper.
+     *
+     * @throws IOException          For any problem
+     * @throws InterruptedException For any problem
+     */
+    @Test(timeout = 10000)
+    public void testStart() throws IOException, InterruptedException {
+        Assert.assertTrue(this.forkHelper.isEnabled());
+        final File stdout = new File(this.folder.getRoot(), "stdout.log");
+        final ProcessBuilder processBuilder = new ProcessBuilder("sh", "-c", "echo $$ $FOO; pwd; exit 3");
+        processBuilder.directory(this.folder.getRoot());
+        processBuilder.environment().put("FOO", "bar");
+        processBuilder.redirectOutput(stdout);
+
+        final Process proc = this.forkHelper.start(processBuilder);
+        Assert.assertTrue(proc instanceof ForkHelperImpl.HelperProcess);
+        Assert.assertEquals(3, proc.waitFor());
+        Assert.assertEquals(3, proc.exitValue());
+        Assert.assertEquals(0, this.forkHelper.getNumProcesses());
+
+        final String pid = Integer.toString(((ForkHelperImpl.HelperProcess) proc).getPid());
+        Assert.assertEquals(
+                pid + " bar\n" + this.folder.getRoot().getCanonicalPath() + "\n",
+                new String(Files.readAllBytes(stdout.toPath()), StandardCharsets.UTF_8)
+        );
+    }
+
+    /**
+     * Make sure a signalled process reports the shell style exit code.
+     *
+     * @throws IOException          For any problem
+     * @throws InterruptedException For any problem
+     */
+    @Test(timeout = 10000)
+    public void testSignal() throws IOException, InterruptedException {
+        final Process proc = this.forkHelper.start(new ProcessBuilder("sleep", "30"));
+        try {
+            proc.exitValue();
+            Assert.fail();
+        } catch (final IllegalThreadStateException itse) {
+            // still running
+        }
+        final int pid = ((ForkHelperImpl.HelperProcess) proc).getPid();
+        Assert.assertTrue(this.forkHelper.signal("0", Collections.singletonList(pid)));
+        Assert.assertTrue(this.forkHelper.signal("TERM", Collections.singletonList(pid)));
+        Assert.assertEquals(143, proc.waitFor());
+    }
+
+    /**
+     * Make sure the processes of a helper which exited are watched by their
+     * process id and report the exit code the job launcher left behind.
+     *
+     * @throws IOException          For any problem
+     * @throws InterruptedException For any problem
+     */
+    @Test(timeout = 10000)
+    public void testHelperExited() throws IOException, InterruptedException {
+        final ProcessBuilder processBuilder = new ProcessBuilder("sh", "-c", "sleep 1; echo 7 > genie.done; exit 7");
+        processBuilder.directory(this.folder.getRoot());
+        final Process proc = this.forkHelper.start(processBuilder);
+
+        // the helper exits once its input is closed while the process keeps running
+        this.forkHelper.shutdown();
+        this.forkHelper = null;
+        Assert.assertEquals(7, proc.waitFor());
+        Assert.assertEquals(7, proc.exitValue());
+    }
+
+    /**
+     * Make sure a command which can't be run fails like ProcessBuilder.start.
+     *
+     * @throws IOException For any problem
+     */
+    @Test(expected = IOException.class)
+    public void testStartMissingCommand() throws IOException {
+        this.forkHelper.start(new ProcessBuilder(new File(this.folder.getRoot(), "missing").getAbsolutePath()));
+    }
+
+    private static String findPython() {
+        for (final String python : new String[]{"python", "python3"}) {
+            try {
+                if (new ProcessBuilder(python, "-V").redirectErrorStream(true).start().waitFor() == 0) {
+                    return python;
+                }
+            } catch (final IOException | InterruptedException e) {
+                // try the next one
+            }
+        }
+        return null;
+    }
+}
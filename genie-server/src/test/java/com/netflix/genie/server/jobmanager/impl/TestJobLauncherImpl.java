@@ -0,0 +1,240 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.exceptions.GenieServerUnavailableException;
+import com.netflix.genie.common.model.Cluster;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.server.services.JobAdmissionController;
+import com.netflix.genie.server.services.JobService;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the JobLauncherImpl class.
+ *
+ * @author agent
+ */
+public class TestJobLauncherImpl {
+
+    private static final String THREADS_KEY = "com.netflix.genie.server.job.launch.threads";
+    private static final String QUEUE_SIZE_KEY = "com.netflix.genie.server.job.launch.queue.size";
+    private static final String JOB_1_ID = "job1";
+    private static final String JOB_2_ID = "job2";
+    private static final String JOB_3_ID = "job3";
+
+    private JobService jobService;
+    private JobAdmissionController admissionController;
+    private JobLauncherImpl launcher;
+    private CountDownLatch started;
+    private CountDownLatch finish;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        ConfigurationManager.getConfigInstance().setProperty(THREADS_KEY, 1);
+        ConfigurationManager.getConfigInstance().setProperty(QUEUE_SIZE_KEY, 1);
+        this.jobService = Mockito.mock(JobService.class);
+        this.admissionController = Mockito.mock(JobAdmissionController.class);
+        this.launcher = new JobLauncherImpl(this.jobService, this.admissionController);
+        this.launcher.initialize();
+        this.started = new CountDownLatch(1);
+        this.finish = new CountDownLatch(1);
+    }
+
+    /**
+     * Clean up after the tests.
+     */
+    @After
+    public void tearDown() {
+        this.finish.countDown();
+        this.launcher.shutdown();
+        ConfigurationManager.getConfigInstance().clearProperty(THREADS_KEY);
+        ConfigurationManager.getConfigInstance().clearProperty(QUEUE_SIZE_KEY);
+    }
+
+    /**
+     * Make sure jobs are run on the pool with or without clusters.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testLaunch() throws GenieException {
+        final Job job1 = createJob(JOB_1_ID);
+        final Job job2 = createJob(JOB_2_ID);
+        final List<Cluster> clusters = new ArrayList<>();
+        this.launcher.launch(job1);
+        this.launcher.launch(job2, clusters);
+
+        Mockito.verify(this.jobService, Mockito.timeout(5000)).runJob(job1);
+        Mockito.verify(this.jobService, Mockito.timeout(5000)).runJob(job2, clusters);
+        Mockito.verify(this.admissionController, Mockito.never()).release(Mockito.anyString());
+    }
+
+    /**
+     * Make sure a job is rejected and marked failed once the thread and the
+     * queue are taken, while trying to launch only reports the rejection.
+     *
+     * @throws GenieException       For any problem
+     * @throws InterruptedException If interrupted while waiting for the first job
+     */
+    @Test
+    public void testLaunchWhenSaturated() throws GenieException, InterruptedException {
+        final Job job1 = createJob(JOB_1_ID);
+        this.blockOn(job1);
+        this.launcher.launch(job1);
+        Assert.assertTrue(this.started.await(5, TimeUnit.SECONDS));
+        final Job job2 = createJob(JOB_2_ID);
+        this.launcher.launch(job2);
+        Assert.assertEquals(1, this.launcher.getQueueDepth());
+
+        Assert.assertFalse(this.launcher.tryLaunch(createJob(JOB_3_ID)));
+        Mockito.verify(this.jobService, Mockito.never())
+                .setJobStatus(Mockito.eq(JOB_3_ID), Mockito.any(JobStatus.class), Mockito.anyString());
+        try {
+            this.launcher.launch(createJob(JOB_3_ID));
+            Assert.fail();
+        } catch (final GenieServerUnavailableException gsue) {
+            Mockito.verify(this.jobService, Mockito.times(1))
+                    .setJobStatus(Mockito.eq(JOB_3_ID), Mockito.eq(JobStatus.FAILED), Mockito.anyString());
+        }
+        Assert.assertEquals(1, this.launcher.getQueueDepth());
+
+        this.finish.countDown();
+        Mockito.verify(this.jobService, Mockito.timeout(5000)).runJob(job2);
+    }
+
+    /**
+     * Make sure a job which failed to run gives its slot back without being
+     * marked again, as running it already marked it failed.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testRunJobFailed() throws GenieException {
+        final Job job = createJob(JOB_1_ID);
+        Mockito.when(this.jobService.runJob(job)).thenThrow(new GenieServerException("failed"));
+        this.launcher.launch(job);
+
+        Mockito.verify(this.admissionController, Mockito.timeout(5000)).release(JOB_1_ID);
+        Mockito.verify(this.jobService, Mockito.never())
+                .setJobStatus(Mockito.anyString(), Mockito.any(JobStatus.class), Mockito.anyString());
+    }
+
+    /**
+     * Make sure a job which failed unexpectedly gives its slot back and is
+     * marked failed.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testRunJobUnexpectedError() throws GenieException {
+        final Job job = createJob(JOB_1_ID);
+        Mockito.when(this.jobService.runJob(job)).thenThrow(new IllegalStateException("unexpected"));
+        this.launcher.launch(job);
+
+        Mockito.verify(this.admissionController, Mockito.timeout(5000)).release(JOB_1_ID);
+        Mockito.verify(this.jobService, Mockito.timeout(5000)).setJobStatus(JOB_1_ID, JobStatus.FAILED, "unexpected");
+    }
+
+    /**
+     * Make sure jobs are rejected once the launcher is shut down but the
+     * queued ones still run.
+     *
+     * @throws GenieException       For any problem
+     * @throws InterruptedException If interrupted while waiting for the first job
+     */
+    @Test
+    public void testShutdown() throws GenieException, InterruptedException {
+        final Job job1 = createJob(JOB_1_ID);
+        this.blockOn(job1);
+        this.launcher.launch(job1);
+        Assert.assertTrue(this.started.await(5, TimeUnit.SECONDS));
+        final Job job2 = createJob(JOB_2_ID);
+        this.launcher.launch(job2);
+        this.launcher.shutdown();
+
+        final Job job3 = createJob(JOB_3_ID);
+        Assert.assertFalse(this.launcher.tryLaunch(job3));
+        try {
+            this.launcher.launch(job3);
+            Assert.fail();
+        } catch (final GenieServerUnavailableException gsue) {
+            Mockito.verify(this.jobService, Mockito.times(1))
+                    .setJobStatus(Mockito.eq(JOB_3_ID), Mockito.eq(JobStatus.FAILED), Mockito.anyString());
+        }
+
+        this.finish.countDown();
+        Mockito.verify(this.jobService, Mockito.timeout(5000)).runJob(job2);
+        Mockito.verify(this.jobService, Mockito.never()).runJob(job3);
+    }
+
+    /**
+     * Make sure nothing is launched without a job.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testLaunchNoJob() throws GenieException {
+        this.launcher.tryLaunch(null);
+    }
+
+    /**
+     * Make sure nothing is launched without the clusters.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testLaunchNoClusters() throws GenieException {
+        this.launcher.launch(createJob(JOB_1_ID), null);
+    }
+
+    private void blockOn(final Job job) throws GenieException {
+        Mockito.when(this.jobService.runJob(job)).thenAnswer(new Answer<Job>() {
+            @Override
+            public Job answer(final InvocationOnMock invocation) throws InterruptedException {
+                started.countDown();
+                finish.await(5, TimeUnit.SECONDS);
+                return job;
+            }
+        });
+    }
+
+    private static Job createJob(final String id) throws GenieException {
+        final Job job = new Job();
+        job.setId(id);
+        return job;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.server.jobmanager.JobManager;
+import com.netflix.genie.server.jobmanager.JobNotifier;
+import com.netflix.genie.server.jobmanager.JobOutputCapture;
+import com.netflix.genie.server.jobmanager.LogArchiver;
+import com.netflix.genie.server.services.ExecutionService;
+import com.netflix.genie.server.services.JobService;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tests for the JobMonitorImpl class.
+ *
+ * @author agent
+ */
+public class TestJobMonitorImpl {
+
+    private static final String JOB_1_ID = "job1";
+    private static final String JOB_2_ID = "job2";
+    private static final String JOB_3_ID = "job3";
+    private static final String HEARTBEAT_BATCH_SIZE_KEY = "com.netflix.genie.server.job.heartbeat.batch.size";
+    private static final String OUTPUT_WAIT_KEY = "com.netflix.genie.server.job.output.drain.wait.ms";
+
+    private ExecutionService xs;
+    private JobService jobService;
+    private JobOutputCapture outputCapture;
+    private JobMonitorImpl monitor;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws GenieException For any problem
+     */
+    @Before
+    public void setup() throws GenieException {
+        this.xs = Mockito.mock(ExecutionService.class);
+        this.jobService = Mockito.mock(JobService.class);
+        Mockito.when(this.jobService.getJob(Mockito.anyString())).thenReturn(new Job());
+        this.outputCapture = Mockito.mock(JobOutputCapture.class);
+        this.monitor = new JobMonitorImpl(
+                this.xs,
+                this.jobService,
+                Mockito.mock(JobNotifier.class),
+                this.outputCapture,
+                Mockito.mock(LogArchiver.class)
+        );
+    }
+
+    /**
+     * Stop the monitor threads.
+     */
+    @After
+    public void tearDown() {
+        this.monitor.shutdown();
+    }
+
+    /**
+     * Make sure only the processes which exited are finalized and stop being tracked.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testReapExitedProcesses() throws GenieException {
+        final Process running = Mockito.mock(Process.class);
+        Mockito.when(running.exitValue()).thenThrow(new IllegalThreadStateException());
+        final Process exited = Mockito.mock(Process.class);
+        Mockito.when(exited.exitValue()).thenReturn(1);
+        Mockito.when(this.xs.finalizeJob(JOB_2_ID, 1)).thenReturn(JobStatus.FAILED);
+
+        this.monitor.monitor(createJob(JOB_1_ID), running, null, Mockito.mock(JobManager.class));
+        this.monitor.monitor(createJob(JOB_2_ID), exited, null, Mockito.mock(JobManager.class));
+        Assert.assertEquals(2, this.monitor.getNumTrackedProcesses());
+
+        this.monitor.reapExitedProcesses();
+        Assert.assertEquals(1, this.monitor.getNumTrackedProcesses());
+        Mockito.verify(this.xs, Mockito.timeout(5000)).finalizeJob(JOB_2_ID, 1);
+        Mockito.verify(this.xs, Mockito.never()).finalizeJob(Mockito.eq(JOB_1_ID), Mockito.anyInt());
+    }
+
+    /**
+     * Make sure an exited job is only finalized once its output was written.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testFinalizeWaitsForOutput() throws GenieException {
+        final Process exited = Mockito.mock(Process.class);
+        Mockito.when(exited.exitValue()).thenReturn(0);
+        Mockito.when(this.outputCapture.isCapturing(JOB_1_ID)).thenReturn(true, true, false);
+        Mockito.when(this.xs.finalizeJob(JOB_1_ID, 0)).thenReturn(JobStatus.SUCCEEDED);
+
+        this.monitor.monitor(createJob(JOB_1_ID), exited, null, Mockito.mock(JobManager.class));
+        this.monitor.reapExitedProcesses();
+
+        Mockito.verify(this.xs, Mockito.timeout(5000)).finalizeJob(JOB_1_ID, 0);
+        final InOrder inOrder = Mockito.inOrder(this.outputCapture, this.xs);
+        inOrder.verify(this.outputCapture, Mockito.times(3)).isCapturing(JOB_1_ID);
+        inOrder.verify(this.outputCapture).finish(JOB_1_ID);
+        inOrder.verify(this.xs).finalizeJob(JOB_1_ID, 0);
+    }
+
+    /**
+     * Make sure an exited job whose output stays open is still finalized
+     * and its output stops being tracked.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testFinalizeWithOpenOutput() throws GenieException {
+        this.monitor.shutdown();
+        ConfigurationManager.getConfigInstance().setProperty(OUTPUT_WAIT_KEY, 200L);
+        try {
+            this.monitor = new JobMonitorImpl(
+                    this.xs,
+                    this.jobService,
+                    Mockito.mock(JobNotifier.class),
+                    this.outputCapture,
+                    Mockito.mock(LogArchiver.class)
+            );
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty(OUTPUT_WAIT_KEY);
+        }
+        final Process exited = Mockito.mock(Process.class);
+        Mockito.when(exited.exitValue()).thenReturn(0);
+        Mockito.when(this.outputCapture.isCapturing(JOB_1_ID)).thenReturn(true);
+        Mockito.when(this.xs.finalizeJob(JOB_1_ID, 0)).thenReturn(JobStatus.SUCCEEDED);
+
+        this.monitor.monitor(createJob(JOB_1_ID), exited, null, Mockito.mock(JobManager.class));
+        this.monitor.reapExitedProcesses();
+
+        Mockito.verify(this.xs, Mockito.timeout(5000)).finalizeJob(JOB_1_ID, 0);
+        Mockito.verify(this.outputCapture, Mockito.times(1)).finish(JOB_1_ID);
+    }
+
+    /**
+     * Make sure the running jobs get a heartbeat in batches.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testCheckRunningJobs() throws GenieException {
+        this.monitor.shutdown();
+        ConfigurationManager.getConfigInstance().setProperty(HEARTBEAT_BATCH_SIZE_KEY, 2);
+        try {
+            this.monitor = new JobMonitorImpl(
+                    this.xs,
+                    this.jobService,
+                    Mockito.mock(JobNotifier.class),
+                    Mockito.mock(JobOutputCapture.class),
+                    Mockito.mock(LogArchiver.class)
+            );
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty(HEARTBEAT_BATCH_SIZE_KEY);
+        }
+        final Process running = Mockito.mock(Process.class);
+        Mockito.when(running.exitValue()).thenThrow(new IllegalThreadStateException());
+        this.monitor.monitor(createJob(JOB_1_ID), running, null, Mockito.mock(JobManager.class));
+        this.monitor.monitor(createJob(JOB_2_ID), running, null, Mockito.mock(JobManager.class));
+        this.monitor.monitor(createJob(JOB_3_ID), running, null, Mockito.mock(JobManager.class));
+
+        this.monitor.checkRunningJobs();
+        final ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(this.jobService, Mockito.times(2)).setUpdateTimes(captor.capture());
+        final Set<Object> ids = new HashSet<>();
+        for (final Collection<?> batch : captor.getAllValues()) {
+            Assert.assertTrue(batch.size() <= 2);
+            ids.addAll(batch);
+        }
+        Assert.assertEquals(3, ids.size());
+        Assert.assertTrue(ids.containsAll(Arrays.asList(JOB_1_ID, JOB_2_ID, JOB_3_ID)));
+        Mockito.verify(this.jobService, Mockito.never()).setUpdateTime(Mockito.anyString());
+    }
+
+    /**
+     * Make sure a process is required.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testMonitorNoProcess() throws GenieException {
+        this.monitor.monitor(createJob(JOB_1_ID), null, null, Mockito.mock(JobManager.class));
+    }
+
+    private static Job createJob(final String id) throws GeniePreconditionException {
+        final Job job = new Job();
+        job.setId(id);
+        return job;
+    }
+}
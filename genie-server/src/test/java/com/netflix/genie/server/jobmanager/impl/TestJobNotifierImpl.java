@@ -0,0 +1,281 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.JobStatus;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the JobNotifierImpl class. The emails are sent to a minimal SMTP
+ * server running in the test.
+ *
+ * @author agent
+ */
+public class TestJobNotifierImpl {
+
+    private static final String CONFIG_PREFIX = "com.netflix.genie.server.mail.";
+    private static final String[] KEYS = {"enable", "smtp.host", "smtp.port", "attempts", "retry.backoff.ms"};
+    private static final long TIMEOUT_MS = 10000L;
+
+    private SmtpStub smtp;
+    private JobNotifierImpl notifier;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws IOException For any problem
+     */
+    @Before
+    public void setup() throws IOException {
+        this.smtp = new SmtpStub();
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "enable", true);
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "smtp.host", "localhost");
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "smtp.port", this.smtp.getPort());
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "attempts", 2);
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "retry.backoff.ms", 10L);
+    }
+
+    /**
+     * Clean up after the tests.
+     *
+     * @throws IOException For any problem
+     */
+    @After
+    public void tearDown() throws IOException {
+        if (this.notifier != null) {
+            this.notifier.shutdown();
+        }
+        this.smtp.close();
+        for (final String key : KEYS) {
+            ConfigurationManager.getConfigInstance().clearProperty(CONFIG_PREFIX + key);
+        }
+    }
+
+    /**
+     * Make sure queued emails are sent.
+     *
+     * @throws GenieException       For any problem
+     * @throws InterruptedException For any problem
+     */
+    @Test
+    public void testNotifyCompletion() throws GenieException, InterruptedException {
+        this.notifier = this.createNotifier();
+        Assert.assertTrue(this.notifier.notifyCompletion(createJob("job1"), JobStatus.SUCCEEDED));
+        Assert.assertTrue(this.notifier.notifyCompletion(createJob("job2"), JobStatus.FAILED));
+        Assert.assertTrue(this.notifier.notifyCompletion(createJob("job3"), JobStatus.KILLED));
+
+        this.waitForEmails(3);
+        Assert.assertEquals(3L, this.notifier.getSuccessfulEmailCount());
+        Assert.assertEquals(0L, this.notifier.getFailedEmailCount());
+        Assert.assertEquals(3, this.smtp.getMessages().size());
+        Assert.assertTrue(this.smtp.getMessages().get(0).contains("Job ID: job1"));
+        Assert.assertTrue(this.smtp.getMessages().get(2).contains("completed with Status: KILLED"));
+    }
+
+    /**
+     * Make sure sending is retried when the mail server fails.
+     *
+     * @throws GenieException       For any problem
+     * @throws InterruptedException For any problem
+     */
+    @Test
+    public void testRetry() throws GenieException, InterruptedException {
+        this.smtp.setRejections(1);
+        this.notifier = this.createNotifier();
+        Assert.assertTrue(this.notifier.notifyCompletion(createJob("job1"), JobStatus.SUCCEEDED));
+
+        this.waitForEmails(1);
+        Assert.assertEquals(1L, this.notifier.getSuccessfulEmailCount());
+        Assert.assertEquals(1L, this.notifier.getRetryCount());
+    }
+
+    /**
+     * Make sure an email is counted as failed once all attempts are used.
+     *
+     * @throws GenieException       For any problem
+     * @throws InterruptedException For any problem
+     */
+    @Test
+    public void testRetriesExhausted() throws GenieException, InterruptedException {
+        this.smtp.setRejections(2);
+        this.notifier = this.createNotifier();
+        Assert.assertTrue(this.notifier.notifyCompletion(createJob("job1"), JobStatus.SUCCEEDED));
+
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (this.notifier.getFailedEmailCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1L, this.notifier.getFailedEmailCount());
+        Assert.assertEquals(0L, this.notifier.getSuccessfulEmailCount());
+        Assert.assertTrue(this.smtp.getMessages().isEmpty());
+    }
+
+    /**
+     * Make sure nothing is queued for jobs without an email address.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testNoEmail() throws GenieException {
+        this.notifier = this.createNotifier();
+        final Job job = createJob("job1");
+        job.setEmail(null);
+        Assert.assertFalse(this.notifier.notifyCompletion(job, JobStatus.SUCCEEDED));
+        Assert.assertEquals(0L, this.notifier.getFailedEmailCount());
+    }
+
+    /**
+     * Make sure emails are counted as failed when email is disabled.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testDisabled() throws GenieException {
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "enable", false);
+        this.notifier = this.createNotifier();
+        Assert.assertFalse(this.notifier.notifyCompletion(createJob("job1"), JobStatus.SUCCEEDED));
+        Assert.assertEquals(1L, this.notifier.getFailedEmailCount());
+        Assert.assertEquals(0, this.notifier.getQueueDepth());
+    }
+
+    /**
+     * Make sure a job is required.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testNoJob() throws GenieException {
+        this.notifier = this.createNotifier();
+        this.notifier.notifyCompletion(null, JobStatus.SUCCEEDED);
+    }
+
+    private JobNotifierImpl createNotifier() {
+        final JobNotifierImpl jobNotifier = new JobNotifierImpl();
+        jobNotifier.initialize();
+        return jobNotifier;
+    }
+
+    private void waitForEmails(final int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (this.notifier.getSuccessfulEmailCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static Job createJob(final String id) throws GenieException {
+        final Job job = new Job();
+        job.setId(id);
+        job.setName("test");
+        job.setEmail("user@geniehost.com");
+        return job;
+    }
+
+    /**
+     * Just enough of an SMTP server to accept the emails sent by the notifier.
+     */
+    private static final class SmtpStub implements Runnable {
+        private final ServerSocket serverSocket;
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final AtomicInteger rejections = new AtomicInteger(0);
+
+        SmtpStub() throws IOException {
+            this.serverSocket = new ServerSocket(0);
+            final Thread thread = new Thread(this, "smtp-stub");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return this.serverSocket.getLocalPort();
+        }
+
+        List<String> getMessages() {
+            return this.messages;
+        }
+
+        void setRejections(final int numRejections) {
+            this.rejections.set(numRejections);
+        }
+
+        void close() throws IOException {
+            this.serverSocket.close();
+        }
+
+        @Override
+        public void run() {
+            while (!this.serverSocket.isClosed()) {
+                try (final Socket socket = this.serverSocket.accept()) {
+                    this.converse(socket);
+                } catch (final IOException ioe) {
+                    // closed
+                }
+            }
+        }
+
+        private void converse(final Socket socket) throws IOException {
+            final BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)
+            );
+            final OutputStream out = socket.getOutputStream();
+            reply(out, "220 localhost SMTP stub");
+            String line;
+            while ((line = in.readLine()) != null) {
+                final String command = line.toUpperCase();
+                if (command.startsWith("MAIL") && this.rejections.getAndDecrement() > 0) {
+                    reply(out, "451 Try again later");
+                } else if (command.startsWith("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    final StringBuilder message = new StringBuilder();
+                    while ((line = in.readLine()) != null && !".".equals(line)) {
+                        message.append(line).append('\n');
+                    }
+                    this.messages.add(message.toString());
+                    reply(out, "250 OK");
+                } else if (command.startsWith("QUIT")) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    reply(out, "250 OK");
+                }
+            }
+        }
+
+        private static void reply(final OutputStream out, final String line) throws IOException {
+            out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+    }
+}
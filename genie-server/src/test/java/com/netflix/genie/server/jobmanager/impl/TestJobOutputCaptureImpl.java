@@ -0,0 +1,194 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.server.jobmanager.JobManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Tests for the JobOutputCaptureImpl class.
+ *
+ * @author agent
+ */
+public class TestJobOutputCaptureImpl {
+
+    private static final String JOB_ID = "job1";
+    private static final String MAX_STDOUT_KEY = "com.netflix.genie.job.max.stdout.size";
+    private static final String POLICY_KEY = "com.netflix.genie.server.job.output.limit.policy";
+    private static final String OUTPUT = "0123456789abcdefghij";
+    private static final String ERROR = "error";
+
+    /**
+     * The working directory of the job.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private JobManager jobManager;
+    private JobOutputCaptureImpl capture;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.jobManager = Mockito.mock(JobManager.class);
+    }
+
+    /**
+     * Clean up after the tests.
+     */
+    @After
+    public void tearDown() {
+        if (this.capture != null) {
+            this.capture.shutdown();
+        }
+        ConfigurationManager.getConfigInstance().clearProperty(MAX_STDOUT_KEY);
+        ConfigurationManager.getConfigInstance().clearProperty(POLICY_KEY);
+    }
+
+    /**
+     * Make sure all the output is written when there are no limits.
+     *
+     * @throws Exception For any problem
+     */
+    @Test(timeout = 10000)
+    public void testCapture() throws Exception {
+        this.capture = new JobOutputCaptureImpl();
+        this.captureAndWait();
+
+        Assert.assertEquals(OUTPUT, this.read("stdout.log"));
+        Assert.assertEquals(ERROR, this.read("stderr.log"));
+        Mockito.verify(this.jobManager, Mockito.never()).kill();
+    }
+
+    /**
+     * Make sure the job is killed as soon as it reaches the limit and nothing more is written.
+     *
+     * @throws Exception For any problem
+     */
+    @Test(timeout = 10000)
+    public void testKillAtLimit() throws Exception {
+        ConfigurationManager.getConfigInstance().setProperty(MAX_STDOUT_KEY, 10L);
+        this.capture = new JobOutputCaptureImpl();
+        this.captureAndWait();
+
+        Assert.assertEquals("0123456789", this.read("stdout.log"));
+        Assert.assertEquals(ERROR, this.read("stderr.log"));
+        Mockito.verify(this.jobManager, Mockito.times(1)).kill();
+    }
+
+    /**
+     * Make sure only the most recent output is kept with the rotate policy.
+     *
+     * @throws Exception For any problem
+     */
+    @Test(timeout = 10000)
+    public void testRotateAtLimit() throws Exception {
+        ConfigurationManager.getConfigInstance().setProperty(MAX_STDOUT_KEY, 10L);
+        ConfigurationManager.getConfigInstance().setProperty(POLICY_KEY, "rotate");
+        this.capture = new JobOutputCaptureImpl();
+        this.captureAndWait();
+
+        Assert.assertEquals("fghij", this.read("stdout.log"));
+        Assert.assertEquals("abcde", this.read("stdout.log.1"));
+        Mockito.verify(this.jobManager, Mockito.never()).kill();
+    }
+
+    /**
+     * Make sure a finished job stops being tracked even while a process it
+     * left behind keeps its output open.
+     *
+     * @throws Exception For any problem
+     */
+    @Test(timeout = 10000)
+    public void testFinishWithOpenStreams() throws Exception {
+        this.capture = new JobOutputCaptureImpl();
+        final PipedOutputStream stdout = new PipedOutputStream();
+        final Process proc = Mockito.mock(Process.class);
+        Mockito.when(proc.getInputStream()).thenReturn(new PipedInputStream(stdout));
+        Mockito.when(proc.getErrorStream())
+                .thenReturn(new ByteArrayInputStream(ERROR.getBytes(StandardCharsets.UTF_8)));
+        try {
+            this.capture.capture(createJob(), proc, this.folder.getRoot().getAbsolutePath(), this.jobManager);
+            Assert.assertTrue(this.capture.isCapturing(JOB_ID));
+
+            this.capture.finish(JOB_ID);
+            Assert.assertFalse(this.capture.isCapturing(JOB_ID));
+            Assert.assertEquals(0, this.capture.getOutputBytes(JOB_ID));
+        } finally {
+            stdout.close();
+        }
+    }
+
+    /**
+     * Make sure a working directory is required.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testCaptureNoWorkingDir() throws GenieException {
+        this.capture = new JobOutputCaptureImpl();
+        this.capture.capture(createJob(), Mockito.mock(Process.class), " ", this.jobManager);
+    }
+
+    private void captureAndWait() throws GenieException, InterruptedException {
+        final Process proc = Mockito.mock(Process.class);
+        Mockito.when(proc.getInputStream())
+                .thenReturn(new ByteArrayInputStream(OUTPUT.getBytes(StandardCharsets.UTF_8)));
+        Mockito.when(proc.getErrorStream())
+                .thenReturn(new ByteArrayInputStream(ERROR.getBytes(StandardCharsets.UTF_8)));
+
+        this.capture.capture(createJob(), proc, this.folder.getRoot().getAbsolutePath(), this.jobManager);
+        Assert.assertEquals(0, this.capture.getOutputBytes("otherJob"));
+        while (this.capture.isCapturing(JOB_ID)) {
+            Thread.sleep(10);
+        }
+    }
+
+    private String read(final String fileName) throws IOException {
+        return new String(
+                Files.readAllBytes(new File(this.folder.getRoot(), fileName).toPath()),
+                StandardCharsets.UTF_8
+        );
+    }
+
+    private static Job createJob() throws GeniePreconditionException {
+        final Job job = new Job();
+        job.setId(JOB_ID);
+        return job;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.server.jobmanager.JobLauncher;
+import com.netflix.genie.server.metrics.GenieNodeStatistics;
+import com.netflix.genie.server.repository.jpa.JobRepository;
+import com.netflix.genie.server.services.JobAdmissionController;
+import com.netflix.genie.server.services.JobService;
+import com.netflix.genie.server.util.NetUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Tests for the JobQueueImpl class.
+ *
+ * @author agent
+ */
+public class TestJobQueueImpl {
+
+    private static final String QUEUE_SIZE_KEY = "com.netflix.genie.server.job.queue.size";
+    private static final String MAX_WAIT_KEY = "com.netflix.genie.server.job.queue.max.wait.ms";
+    private static final String MAX_RUNNING_JOBS_KEY = "com.netflix.genie.server.max.running.jobs";
+    private static final String HOST_KEY = "com.netflix.genie.server.host";
+    private static final String HOST_NAME = "genie1.netflix.com";
+
+    private JobAdmissionController admissionController;
+    private JobLauncher jobLauncher;
+    private JobService jobService;
+    private JobRepository jobRepo;
+    private GenieNodeStatistics stats;
+    private JobQueueImpl queue;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        ConfigurationManager.getConfigInstance().setProperty(QUEUE_SIZE_KEY, 3);
+        ConfigurationManager.getConfigInstance().setProperty(MAX_WAIT_KEY, 600000L);
+        ConfigurationManager.getConfigInstance().setProperty(MAX_RUNNING_JOBS_KEY, 10);
+        ConfigurationManager.getConfigInstance().setProperty(HOST_KEY, HOST_NAME);
+        this.admissionController = Mockito.mock(JobAdmissionController.class);
+        this.jobLauncher = Mockito.mock(JobLauncher.class);
+        this.jobService = Mockito.mock(JobService.class);
+        this.jobRepo = Mockito.mock(JobRepository.class);
+        this.stats = Mockito.mock(GenieNodeStatistics.class);
+        this.queue = this.createQueue();
+    }
+
+    /**
+     * Reset the configuration.
+     */
+    @After
+    public void tearDown() {
+        ConfigurationManager.getConfigInstance().clearProperty(QUEUE_SIZE_KEY);
+        ConfigurationManager.getConfigInstance().clearProperty(MAX_WAIT_KEY);
+        ConfigurationManager.getConfigInstance().clearProperty(MAX_RUNNING_JOBS_KEY);
+        ConfigurationManager.getConfigInstance().clearProperty(HOST_KEY);
+    }
+
+    /**
+     * Make sure the queue is bounded.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testOfferBounded() throws GenieException {
+        Assert.assertTrue(this.queue.isEnabled());
+        Assert.assertTrue(this.queue.offer(createJob("job1", "tgianos")));
+        Assert.assertTrue(this.queue.offer(createJob("job2", "tgianos")));
+        Assert.assertTrue(this.queue.offer(createJob("job3", "tgianos")));
+        Assert.assertFalse(this.queue.offer(createJob("job4", "tgianos")));
+        Assert.assertEquals(3, this.queue.getQueueDepth());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("job1", "job2", "job3")), this.queue.getQueuedJobIds());
+        Mockito.verify(this.stats, Mockito.times(1)).setJobQueueDepth(3);
+    }
+
+    /**
+     * Make sure the queue is disabled with a size of zero.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testDisabled() throws GenieException {
+        ConfigurationManager.getConfigInstance().setProperty(QUEUE_SIZE_KEY, 0);
+        final JobQueueImpl disabled = this.createQueue();
+        Assert.assertFalse(disabled.isEnabled());
+        Assert.assertFalse(disabled.offer(createJob("job1", "tgianos")));
+    }
+
+    /**
+     * Make sure a job needs an id to be queued.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testOfferNoId() throws GenieException {
+        this.queue.offer(new Job());
+    }
+
+    /**
+     * Make sure higher priority jobs go first and users take turns within a
+     * priority class.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testDrainOrder() throws GenieException {
+        ConfigurationManager.getConfigInstance().setProperty(QUEUE_SIZE_KEY, 10);
+        this.queue = this.createQueue();
+        this.queue.offer(createJob("a1", "alice"));
+        this.queue.offer(createJob("a2", "alice"));
+        this.queue.offer(createJob("a3", "alice"));
+        this.queue.offer(createJob("b1", "bob"));
+        this.queue.offer(createJob("low", "bob", "genie.priority:low"));
+        this.queue.offer(createJob("high", "carol", "genie.priority:HIGH"));
+
+        Mockito.when(this.admissionController.tryReserve(10)).thenReturn(true);
+        Mockito.when(this.jobLauncher.tryLaunch(Mockito.any(Job.class))).thenReturn(true);
+        Assert.assertEquals(6, this.queue.drain());
+        Assert.assertEquals(0, this.queue.getQueueDepth());
+
+        final ArgumentCaptor<Job> captor = ArgumentCaptor.forClass(Job.class);
+        Mockito.verify(this.jobLauncher, Mockito.times(6)).tryLaunch(captor.capture());
+        final List<String> order = new ArrayList<>();
+        for (final Job job : captor.getAllValues()) {
+            order.add(job.getId());
+        }
+        Assert.assertEquals(Arrays.asList("high", "a1", "b1", "a2", "a3", "low"), order);
+        Mockito.verify(this.admissionController, Mockito.times(1)).register("high");
+    }
+
+    /**
+     * Make sure jobs stay queued while there are no free slots.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testDrainNoSlots() throws GenieException {
+        this.queue.offer(createJob("job1", "tgianos"));
+        this.queue.offer(createJob("job2", "tgianos"));
+        Mockito.when(this.admissionController.tryReserve(10)).thenReturn(true, false);
+        Mockito.when(this.jobLauncher.tryLaunch(Mockito.any(Job.class))).thenReturn(true);
+
+        Assert.assertEquals(1, this.queue.drain());
+        Assert.assertEquals(1, this.queue.getQueueDepth());
+        Assert.assertTrue(this.queue.getQueuedJobIds().contains("job2"));
+    }
+
+    /**
+     * Make sure a job the saturated launcher can't take gives its slot back
+     * and stays at the head of the queue instead of being failed.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testDrainLauncherSaturated() throws GenieException {
+        ConfigurationManager.getConfigInstance().setProperty(QUEUE_SIZE_KEY, 10);
+        this.queue = this.createQueue();
+        this.queue.offer(createJob("a1", "alice"));
+        this.queue.offer(createJob("b1", "bob"));
+        this.queue.offer(createJob("a2", "alice"));
+        Mockito.when(this.admissionController.tryReserve(10)).thenReturn(true);
+        Mockito.when(this.jobLauncher.tryLaunch(Mockito.any(Job.class))).thenReturn(false);
+
+        Assert.assertEquals(0, this.queue.drain());
+        Assert.assertEquals(3, this.queue.getQueueDepth());
+        Mockito.verify(this.admissionController, Mockito.times(1)).unregister("a1");
+        Mockito.verify(this.admissionController, Mockito.never()).release(Mockito.anyString());
+        Mockito.verify(this.jobService, Mockito.never())
+                .setJobStatus(Mockito.anyString(), Mockito.any(JobStatus.class), Mockito.anyString());
+
+        // the launcher has room again and the order is unchanged
+        Mockito.reset(this.jobLauncher);
+        Mockito.when(this.jobLauncher.tryLaunch(Mockito.any(Job.class))).thenReturn(true);
+        Assert.assertEquals(3, this.queue.drain());
+        final ArgumentCaptor<Job> captor = ArgumentCaptor.forClass(Job.class);
+        Mockito.verify(this.jobLauncher, Mockito.times(3)).tryLaunch(captor.capture());
+        final List<String> order = new ArrayList<>();
+        for (final Job job : captor.getAllValues()) {
+            order.add(job.getId());
+        }
+        Assert.assertEquals(Arrays.asList("a1", "b1", "a2"), order);
+    }
+
+    /**
+     * Make sure INIT jobs left on this node by a restart are failed on startup.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testFailOrphanedJobs() throws GenieException {
+        Mockito.when(this.jobRepo.findByHostNameAndStatus(NetUtil.getHostName(), JobStatus.INIT))
+                .thenReturn(Arrays.asList(createJob("job1", "tgianos"), createJob("job2", "tgianos")));
+
+        this.queue.failOrphanedJobs();
+        Mockito.verify(this.jobService, Mockito.times(1))
+                .setJobStatus(Mockito.eq("job1"), Mockito.eq(JobStatus.FAILED), Mockito.anyString());
+        Mockito.verify(this.jobService, Mockito.times(1))
+                .setJobStatus(Mockito.eq("job2"), Mockito.eq(JobStatus.FAILED), Mockito.anyString());
+    }
+
+    /**
+     * Make sure jobs which waited too long are failed instead of launched.
+     *
+     * @throws GenieException For any problem
+     * @throws InterruptedException If the sleep is interrupted
+     */
+    @Test
+    public void testDrainExpired() throws GenieException, InterruptedException {
+        ConfigurationManager.getConfigInstance().setProperty(MAX_WAIT_KEY, 1L);
+        this.queue = this.createQueue();
+        this.queue.offer(createJob("job1", "tgianos"));
+        Thread.sleep(10);
+        Mockito.when(this.admissionController.tryReserve(10)).thenReturn(true);
+
+        Assert.assertEquals(0, this.queue.drain());
+        Assert.assertEquals(0, this.queue.getQueueDepth());
+        Mockito.verify(this.jobService, Mockito.times(1))
+                .setJobStatus(Mockito.eq("job1"), Mockito.eq(JobStatus.FAILED), Mockito.anyString());
+        Mockito.verify(this.stats, Mockito.times(1)).incrJobQueueExpiredJobs();
+        Mockito.verify(this.admissionController, Mockito.times(1)).release("job1");
+        Mockito.verify(this.jobLauncher, Mockito.never()).tryLaunch(Mockito.any(Job.class));
+    }
+
+    /**
+     * Make sure a removed job is never launched.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testRemove() throws GenieException {
+        this.queue.offer(createJob("job1", "tgianos"));
+        Assert.assertTrue(this.queue.remove("job1"));
+        Assert.assertFalse(this.queue.remove("job1"));
+        Assert.assertEquals(0, this.queue.drain());
+        Mockito.verify(this.jobLauncher, Mockito.never()).tryLaunch(Mockito.any(Job.class));
+    }
+
+    private JobQueueImpl createQueue() {
+        return new JobQueueImpl(
+                this.admissionController,
+                this.jobLauncher,
+                this.jobService,
+                this.jobRepo,
+                this.stats
+        );
+    }
+
+    private static Job createJob(
+            final String id,
+            final String user,
+            final String... tags) throws GeniePreconditionException {
+        final Job job = new Job();
+        job.setId(id);
+        job.setUser(user);
+        job.setTags(new HashSet<>(Arrays.asList(tags)));
+        return job;
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.server.jobmanager.DependencyCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the JobSetupPipelineImpl class.
+ *
+ * @author agent
+ */
+public class TestJobSetupPipelineImpl {
+
+    private static final String JOB_ID = "job1";
+    private static final String ENV_VAR = "GENIE_TEST_JOB_VAR";
+
+    /**
+     * Holds the files to download and the job directory.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File downloadLog;
+    private File envLog;
+    private File workingDir;
+    private Map<String, String> env;
+    private Job job;
+    private DependencyCache dependencyCache;
+    private JobSetupPipelineImpl pipeline;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws GenieException For any problem
+     * @throws IOException    For any problem
+     */
+    @Before
+    public void setup() throws GenieException, IOException {
+        this.downloadLog = new File(this.folder.getRoot(), "downloads.log");
+        this.envLog = new File(this.folder.getRoot(), "env.log");
+        final File copyScript = this.folder.newFile("copy.sh");
+        write(
+                copyScript,
+                "#!/bin/sh\necho \"$1\" >> " + this.downloadLog.getAbsolutePath()
+                        + "\necho \"$" + ENV_VAR + "\" >> " + this.envLog.getAbsolutePath()
+                        + "\ncp \"$1\" \"${2#file://}\"\n"
+        );
+        Assert.assertTrue(copyScript.setExecutable(true));
+        ConfigurationManager.getConfigInstance().setProperty("com.netflix.genie.server.job.setup.attempts", 1);
+
+        this.workingDir = this.folder.newFolder(JOB_ID);
+        this.env = new HashMap<>();
+        this.env.put("CURRENT_JOB_WORKING_DIR", this.workingDir.getAbsolutePath());
+        this.env.put("CURRENT_JOB_CONF_DIR", this.workingDir.getAbsolutePath() + "/conf");
+        this.env.put("CURRENT_JOB_JAR_DIR", this.workingDir.getAbsolutePath() + "/jars");
+        this.env.put("COPY_COMMAND", copyScript.getAbsolutePath());
+
+        this.job = new Job();
+        this.job.setId(JOB_ID);
+        this.dependencyCache = Mockito.mock(DependencyCache.class);
+        this.pipeline = new JobSetupPipelineImpl(this.dependencyCache);
+        this.pipeline.initialize();
+    }
+
+    /**
+     * Clean up after the tests.
+     */
+    @After
+    public void tearDown() {
+        this.pipeline.shutdown();
+        ConfigurationManager.getConfigInstance().clearProperty("com.netflix.genie.server.job.setup.attempts");
+    }
+
+    /**
+     * Make sure every file ends up where the job launcher used to put it, with the same precedence.
+     *
+     * @throws GenieException For any problem
+     * @throws IOException    For any problem
+     */
+    @Test
+    public void testSetup() throws GenieException, IOException {
+        final File hadoopHome = this.folder.newFolder("hadoop");
+        Files.createDirectories(new File(hadoopHome, "conf").toPath());
+        write(new File(hadoopHome, "conf/hdfs-site.xml"), "hadoop");
+        write(new File(hadoopHome, "conf/core-site.xml"), "hadoop");
+        this.env.put("HADOOP_HOME", hadoopHome.getAbsolutePath());
+
+        this.env.put("S3_APPLICATION_JAR_FILES", this.createFile("app/hive.jar", "jar"));
+        this.env.put("S3_APPLICATION_CONF_FILES", this.createFile("app/hive-site.xml", "application"));
+        this.env.put("S3_COMMAND_CONF_FILES", this.createFile("command/hive-site.xml", "command"));
+        this.env.put(
+                "S3_CLUSTER_CONF_FILES",
+                this.createFile("cluster/core-site.xml", "<configuration></configuration>")
+        );
+        this.env.put("CURRENT_JOB_FILE_DEPENDENCIES", this.createFile("job/query.q", "select 1"));
+        this.env.put("CORE_SITE_XML_ARGS", "genie.job.id=" + JOB_ID + ";netflix.environment=test;");
+
+        final Map<String, Long> times = this.pipeline.setup(this.job, this.env);
+
+        Assert.assertEquals("jar", read(new File(this.workingDir, "jars/hive.jar")));
+        Assert.assertEquals("command", read(new File(this.workingDir, "conf/hive-site.xml")));
+        Assert.assertEquals("hadoop", read(new File(this.workingDir, "conf/hdfs-site.xml")));
+        Assert.assertEquals("select 1", read(new File(this.workingDir, "query.q")));
+        final String coreSite = read(new File(this.workingDir, "conf/core-site.xml"));
+        Assert.assertTrue(coreSite.contains("<name>genie.job.id</name><value>" + JOB_ID + "</value>"));
+        Assert.assertTrue(coreSite.contains("<name>netflix.environment</name><value>test</value>"));
+        Assert.assertTrue(coreSite.contains("<name>genie.version</name><value>2</value>"));
+        Assert.assertEquals(
+                Arrays.asList("hadoopConf", "application", "command", "cluster", "job", "place", "coreSite", "total"),
+                Arrays.asList(times.keySet().toArray())
+        );
+        Assert.assertEquals(5, this.getNumDownloads());
+        Assert.assertFalse(new File(this.workingDir, ".genie-setup").exists());
+    }
+
+    /**
+     * Make sure application, command and cluster files come from the dependency cache when it is enabled.
+     *
+     * @throws GenieException For any problem
+     * @throws IOException    For any problem
+     */
+    @Test
+    public void testSetupWithCache() throws GenieException, IOException {
+        Mockito.when(this.dependencyCache.isEnabled()).thenReturn(true);
+        Mockito.when(this.dependencyCache.isCacheable(Mockito.anyString())).thenReturn(true);
+        final String jar = this.createFile("app/hive.jar", "jar");
+        this.env.put("S3_APPLICATION_JAR_FILES", jar);
+        this.env.put("CURRENT_JOB_FILE_DEPENDENCIES", this.createFile("job/query.q", "select 1"));
+
+        this.pipeline.setup(this.job, this.env);
+
+        Mockito.verify(this.dependencyCache, Mockito.times(1))
+                .install(
+                        Mockito.eq(Arrays.asList(jar)),
+                        Mockito.anyString(),
+                        Mockito.any(File.class),
+                        Mockito.eq(this.env)
+                );
+        Assert.assertEquals(1, this.getNumDownloads());
+        Assert.assertEquals("select 1", read(new File(this.workingDir, "query.q")));
+    }
+
+    /**
+     * Make sure files are downloaded in the environment of the job, which
+     * picks the Hadoop client and configuration the copy command uses.
+     *
+     * @throws GenieException For any problem
+     * @throws IOException    For any problem
+     */
+    @Test
+    public void testSetupUsesJobEnvironment() throws GenieException, IOException {
+        this.env.put(ENV_VAR, "job value");
+        this.env.put("S3_APPLICATION_JAR_FILES", this.createFile("app/hive.jar", "jar"));
+
+        this.pipeline.setup(this.job, this.env);
+
+        Assert.assertEquals("job value\n", read(this.envLog));
+    }
+
+    /**
+     * Make sure a failed download fails the setup and cleans up.
+     *
+     * @throws GenieException For any problem
+     * @throws IOException    For any problem
+     */
+    @Test
+    public void testSetupDownloadFails() throws GenieException, IOException {
+        this.env.put("S3_APPLICATION_JAR_FILES", this.createFile("app/hive.jar", "jar"));
+        this.env.put("S3_CLUSTER_CONF_FILES", new File(this.folder.getRoot(), "missing.xml").getAbsolutePath());
+        try {
+            this.pipeline.setup(this.job, this.env);
+            Assert.fail();
+        } catch (final GenieServerException gse) {
+            Assert.assertFalse(new File(this.workingDir, ".genie-setup").exists());
+        }
+    }
+
+    /**
+     * Make sure a job can be killed while its files download.
+     *
+     * @throws Exception For any problem
+     */
+    @Test
+    public void testCancel() throws Exception {
+        final File slowScript = this.folder.newFile("slow.sh");
+        write(slowScript, "#!/bin/sh\nsleep 10\n");
+        Assert.assertTrue(slowScript.setExecutable(true));
+        this.env.put("COPY_COMMAND", slowScript.getAbsolutePath());
+        this.env.put("S3_APPLICATION_JAR_FILES", this.createFile("app/hive.jar", "jar"));
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Map<String, Long>> setup = executor.submit(new Callable<Map<String, Long>>() {
+                @Override
+                public Map<String, Long> call() throws GenieException {
+                    return pipeline.setup(job, env);
+                }
+            });
+            final long deadline = System.currentTimeMillis() + 5000L;
+            while (!this.pipeline.cancel(JOB_ID)) {
+                Assert.assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(10L);
+            }
+            try {
+                setup.get(5, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (final ExecutionException ee) {
+                Assert.assertTrue(ee.getCause() instanceof GenieServerException);
+                Assert.assertTrue(ee.getCause().getCause() instanceof CancellationException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertFalse(new File(this.workingDir, ".genie-setup").exists());
+    }
+
+    /**
+     * Make sure only jobs being set up can be cancelled.
+     */
+    @Test
+    public void testCancelNotRunning() {
+        Assert.assertFalse(this.pipeline.cancel(JOB_ID));
+    }
+
+    /**
+     * Make sure files can't be downloaded without a copy command.
+     *
+     * @throws GenieException For any problem
+     * @throws IOException    For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testSetupNoCopyCommand() throws GenieException, IOException {
+        this.env.remove("COPY_COMMAND");
+        this.env.put("S3_APPLICATION_JAR_FILES", this.createFile("app/hive.jar", "jar"));
+        this.pipeline.setup(this.job, this.env);
+    }
+
+    /**
+     * Make sure the job directories are required.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testSetupNoDirectories() throws GenieException {
+        this.env.remove("CURRENT_JOB_CONF_DIR");
+        this.pipeline.setup(this.job, this.env);
+    }
+
+    private String createFile(final String name, final String content) throws IOException {
+        final File file = new File(new File(this.folder.getRoot(), "s3"), name);
+        Files.createDirectories(file.getParentFile().toPath());
+        write(file, content);
+        return file.getAbsolutePath();
+    }
+
+    private int getNumDownloads() throws IOException {
+        if (!this.downloadLog.exists()) {
+            return 0;
+        }
+        final List<String> lines = Files.readAllLines(this.downloadLog.toPath(), StandardCharsets.UTF_8);
+        return lines.size();
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
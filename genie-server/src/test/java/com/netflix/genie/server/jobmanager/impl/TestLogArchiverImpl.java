@@ -0,0 +1,235 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.server.jobmanager.ArchiveStore;
+import com.netflix.genie.server.jobmanager.ArchiveStoreFactory;
+import com.netflix.genie.server.jobmanager.JobOutputCapture;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Tests for the LogArchiverImpl class.
+ *
+ * @author agent
+ */
+public class TestLogArchiverImpl {
+
+    private static final String ARCHIVE_LOCATION_KEY = "com.netflix.genie.server.s3.archive.location";
+    private static final String CONFIG_PREFIX = "com.netflix.genie.server.job.archive.";
+    private static final String JOB_ID = "job1";
+
+    /**
+     * Holds the working directory and the archive.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private ArchiveStoreFactory archiveStoreFactory;
+    private File archiveDir;
+    private File workingDir;
+    private LogArchiverImpl archiver;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws GenieException For any problem
+     * @throws IOException    For any problem
+     */
+    @Before
+    public void setup() throws GenieException, IOException {
+        this.archiveDir = new File(this.folder.getRoot(), "archive");
+        this.workingDir = this.folder.newFolder(JOB_ID);
+        ConfigurationManager.getConfigInstance().setProperty(
+                ARCHIVE_LOCATION_KEY,
+                "file://" + this.archiveDir.getAbsolutePath()
+        );
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "enabled", true);
+        ConfigurationManager.getConfigInstance().setProperty(CONFIG_PREFIX + "attempts", 1);
+        this.archiveStoreFactory = Mockito.mock(ArchiveStoreFactory.class);
+        Mockito.when(this.archiveStoreFactory.getArchiveStore()).thenReturn(new LocalArchiveStoreImpl());
+        this.archiver = new LogArchiverImpl(this.archiveStoreFactory, Mockito.mock(JobOutputCapture.class));
+    }
+
+    /**
+     * Clean up after the tests.
+     */
+    @After
+    public void tearDown() {
+        this.archiver.shutdown();
+        ConfigurationManager.getConfigInstance().clearProperty(ARCHIVE_LOCATION_KEY);
+        ConfigurationManager.getConfigInstance().clearProperty(CONFIG_PREFIX + "enabled");
+        ConfigurationManager.getConfigInstance().clearProperty(CONFIG_PREFIX + "attempts");
+    }
+
+    /**
+     * Make sure the same files as the job launcher script archived end up in the archive.
+     *
+     * @throws IOException For any problem
+     */
+    @Test
+    public void testArchive() throws IOException {
+        write(new File(this.workingDir, "stdout.log"), "out");
+        write(new File(this.workingDir, "stderr.log"), "err");
+        write(new File(this.workingDir, "tmp/hive.log"), "hive");
+        write(new File(this.workingDir, "tmp/deeper/ignored.log"), "too deep");
+        write(new File(this.workingDir, "conf/core-site.xml"), "conf");
+
+        final File archive = new File(new File(this.archiveDir, JOB_ID), LogArchiverImpl.ARCHIVE_NAME);
+        this.archiver.archiveNow(JOB_ID, this.workingDir, archive.getAbsolutePath());
+
+        final Map<String, String> entries = readArchive(archive);
+        Assert.assertEquals(3, entries.size());
+        Assert.assertEquals("out", entries.get("./stdout.log"));
+        Assert.assertEquals("err", entries.get("./stderr.log"));
+        Assert.assertEquals("hive", entries.get("./tmp/hive.log"));
+    }
+
+    /**
+     * Make sure a failed archive leaves nothing behind.
+     *
+     * @throws GenieException For any problem
+     * @throws IOException    For any problem
+     */
+    @Test
+    public void testArchiveFailure() throws GenieException, IOException {
+        final ArchiveStore store = Mockito.mock(ArchiveStore.class);
+        Mockito.doThrow(new GenieServerException("broken"))
+                .when(store).write(Matchers.anyString(), Matchers.any(ArchiveStore.Content.class));
+        Mockito.when(this.archiveStoreFactory.getArchiveStore()).thenReturn(store);
+        write(new File(this.workingDir, "stdout.log"), "out");
+
+        this.archiver.archiveNow(JOB_ID, this.workingDir, new File(this.archiveDir, "logs.tar.gz").getAbsolutePath());
+        Mockito.verify(store, Mockito.times(1))
+                .write(Matchers.anyString(), Matchers.any(ArchiveStore.Content.class));
+        Assert.assertFalse(this.archiveDir.exists());
+    }
+
+    /**
+     * Make sure the archive ends up at the archive location of the job.
+     *
+     * @throws GenieException       For any problem
+     * @throws IOException          For any problem
+     * @throws InterruptedException For any problem
+     */
+    @Test
+    public void testArchiveQueued() throws GenieException, IOException, InterruptedException {
+        write(new File(this.workingDir, "stdout.log"), "out");
+        Assert.assertTrue(this.archiver.isEnabled());
+        Assert.assertTrue(this.archiver.archive(createJob(), this.workingDir));
+
+        final File archive = new File(new File(this.archiveDir, JOB_ID), LogArchiverImpl.ARCHIVE_NAME);
+        final long deadline = System.currentTimeMillis() + 10000L;
+        while (!archive.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        Assert.assertEquals("out", readArchive(archive).get("./stdout.log"));
+    }
+
+    /**
+     * Make sure nothing is archived for jobs which disabled it.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testArchiveDisabledForJob() throws GenieException {
+        final Job job = createJob();
+        job.setDisableLogArchival(true);
+        Assert.assertFalse(this.archiver.archive(job, this.workingDir));
+        Mockito.verify(this.archiveStoreFactory, Mockito.never()).getArchiveStore();
+    }
+
+    /**
+     * Make sure archiving is disabled without an archive location.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testNoArchiveLocation() throws GenieException {
+        ConfigurationManager.getConfigInstance().clearProperty(ARCHIVE_LOCATION_KEY);
+        Assert.assertFalse(this.archiver.isEnabled());
+        Assert.assertFalse(this.archiver.archive(createJob(), this.workingDir));
+    }
+
+    /**
+     * Make sure a working directory is required.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testArchiveNoWorkingDir() throws GenieException {
+        this.archiver.archive(createJob(), null);
+    }
+
+    private static Job createJob() throws GenieException {
+        final Job job = new Job();
+        job.setId(JOB_ID);
+        return job;
+    }
+
+    private static Map<String, String> readArchive(final File archive) throws IOException {
+        final Map<String, String> entries = new HashMap<>();
+        try (final TarArchiveInputStream tar = new TarArchiveInputStream(
+                new GZIPInputStream(new FileInputStream(archive)))) {
+            TarArchiveEntry entry;
+            while ((entry = tar.getNextTarEntry()) != null) {
+                entries.put(entry.getName(), read(tar));
+            }
+        }
+        return entries;
+    }
+
+    private static String read(final InputStream input) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
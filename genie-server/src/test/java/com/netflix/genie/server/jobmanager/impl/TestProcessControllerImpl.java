@@ -0,0 +1,135 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.jobmanager.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Set;
+
+/**
+ * Tests for the ProcessControllerImpl class.
+ *
+ * @author agent
+ */
+public class TestProcessControllerImpl {
+
+    private static final String GRACE_PERIOD_KEY = "com.netflix.genie.server.job.kill.grace.period.ms";
+
+    private ProcessControllerImpl controller;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        ConfigurationManager.getConfigInstance().setProperty(GRACE_PERIOD_KEY, 200L);
+        this.controller = new ProcessControllerImpl(new ForkHelperImpl());
+    }
+
+    /**
+     * Clean up after the tests.
+     */
+    @After
+    public void tearDown() {
+        this.controller.shutdown();
+        ConfigurationManager.getConfigInstance().clearProperty(GRACE_PERIOD_KEY);
+    }
+
+    /**
+     * Make sure the process id is the one the process sees for itself.
+     *
+     * @throws GenieException       For any problem
+     * @throws IOException          For any problem
+     * @throws InterruptedException For any problem
+     */
+    @Test(timeout = 10000)
+    public void testGetProcessId() throws GenieException, IOException, InterruptedException {
+        final Process proc = new ProcessBuilder("sh", "-c", "echo $$; sleep 30").start();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(proc.getInputStream(), "UTF-8"));
+        final int pid = Integer.parseInt(reader.readLine().trim());
+        Assert.assertEquals(pid, this.controller.getProcessId(proc));
+
+        this.controller.kill(pid);
+        proc.waitFor();
+    }
+
+    /**
+     * Make sure the whole process tree is terminated, not only the direct children.
+     *
+     * @throws GenieException       For any problem
+     * @throws IOException          For any problem
+     * @throws InterruptedException For any problem
+     */
+    @Test(timeout = 10000)
+    public void testKillTree() throws GenieException, IOException, InterruptedException {
+        final Process proc = new ProcessBuilder("sh", "-c", "sh -c 'sleep 30 & wait' & sleep 30 & wait").start();
+        final int pid = this.controller.getProcessId(proc);
+        Set<Integer> descendants = this.controller.getDescendants(pid);
+        while (descendants.size() < 3) {
+            Thread.sleep(50);
+            descendants = this.controller.getDescendants(pid);
+        }
+
+        this.controller.kill(pid);
+        proc.waitFor();
+        for (final Integer descendant : descendants) {
+            while (this.controller.isAlive(descendant)) {
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    /**
+     * Make sure processes ignoring SIGTERM are killed once the grace period passes.
+     *
+     * @throws GenieException       For any problem
+     * @throws IOException          For any problem
+     * @throws InterruptedException For any problem
+     */
+    @Test(timeout = 10000)
+    public void testKillEscalates() throws GenieException, IOException, InterruptedException {
+        final Process proc = new ProcessBuilder("sh", "-c", "trap '' TERM; sleep 30; sleep 30").start();
+        final int pid = this.controller.getProcessId(proc);
+        while (this.controller.getDescendants(pid).isEmpty()) {
+            Thread.sleep(50);
+        }
+
+        this.controller.kill(pid);
+        Assert.assertTrue(this.controller.isAlive(pid));
+        proc.waitFor();
+    }
+
+    /**
+     * Make sure a process id is required to kill.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testKillNoProcessId() throws GenieException {
+        this.controller.kill(0);
+    }
+}
@@ -157,26 +157,6 @@ public class TestGenieNodeStatisticsImpl {
         Assert.assertEquals(0, this.stats.getGenieRunningJobs().intValue());
     }
 
-    /**
-     * Test the counter for successful emails.
-     */
-    @Test
-    public void testSuccessfulEmailCountCounter() {
-        Assert.assertEquals(0L, this.stats.getSuccessfulEmailSentCount().get());
-        this.stats.incrSuccessfulEmailCount();
-        Assert.assertEquals(1L, this.stats.getSuccessfulEmailSentCount().get());
-    }
-
-    /**
-     * Test the counter for failed emails.
-     */
-    @Test
-    public void testFailedEmailCountCounter() {
-        Assert.assertEquals(0L, this.stats.getFailedEmailSentCount().get());
-        this.stats.incrFailedEmailCount();
-        Assert.assertEquals(1L, this.stats.getFailedEmailSentCount().get());
-    }
-
     /**
      * Test the counter for forwarded jobs.
      */
@@ -244,4 +224,17 @@ public class TestGenieNodeStatisticsImpl {
         this.stats.incrJobSubmissionRetryCount();
         Assert.assertEquals(1L, this.stats.getJobSubmissionRetryCount().get());
     }
+
+    /**
+     * Test the job queue metrics.
+     */
+    @Test
+    public void testJobQueueMetrics() {
+        this.stats.setJobQueueDepth(3);
+        this.stats.setJobQueueWaitTime(1500L);
+        this.stats.incrJobQueueExpiredJobs();
+        Assert.assertEquals(3, this.stats.getJobQueueDepth().intValue());
+        Assert.assertEquals(1500L, this.stats.getJobQueueWaitTime().longValue());
+        Assert.assertEquals(1L, this.stats.getJobQueueExpiredJobs().longValue());
+    }
 }
@@ -20,11 +20,15 @@ import com.github.springtestdbunit.DbUnitTestExecutionListener;
 import com.github.springtestdbunit.annotation.DatabaseSetup;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.NodeLoad;
 import com.netflix.genie.server.metrics.JobCountManager;
+import com.netflix.genie.server.metrics.NodeLoadRegistry;
 import com.netflix.genie.server.repository.jpa.JobRepository;
 import com.netflix.genie.server.util.NetUtil;
 
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
 import javax.inject.Inject;
 import org.junit.Assert;
 import org.junit.Test;
@@ -60,6 +64,9 @@ public class TestJobCountManagerImpl {
     @Inject
     private JobCountManager manager;
 
+    @Inject
+    private NodeLoadRegistry nodeLoadRegistry;
+
     /**
      * Test getting number of running jobs on one instance.
      *
@@ -108,5 +115,29 @@ public class TestJobCountManagerImpl {
                 )
         );
         Assert.assertEquals(0, this.manager.getNumInstanceJobs(0L, 0L));
+        Assert.assertEquals(2, this.manager.getInstanceJobIds().size());
+    }
+
+    /**
+     * Test getting the loads published by the other nodes as forwarding candidates.
+     *
+     * @throws GenieException if there is any error during this test
+     */
+    @Test
+    @DatabaseSetup("testNumInstanceJobs.xml")
+    public void testGetForwardingCandidates() throws GenieException {
+        final String busyHost = "genie-busy.netflix.com";
+        final String idleHost = "genie-idle.netflix.com";
+        this.nodeLoadRegistry.publish(busyHost, 25, 30);
+        this.nodeLoadRegistry.publish(idleHost, 3, 30);
+        this.nodeLoadRegistry.publish(NetUtil.getHostName(), 1, 30);
+
+        final Map<String, Integer> runningJobs = new HashMap<>();
+        for (final NodeLoad load : this.manager.getForwardingCandidates()) {
+            runningJobs.put(load.getHostName(), load.getRunningJobs());
+        }
+        Assert.assertEquals(2, runningJobs.size());
+        Assert.assertEquals(25, runningJobs.get(busyHost).intValue());
+        Assert.assertEquals(3, runningJobs.get(idleHost).intValue());
     }
 }
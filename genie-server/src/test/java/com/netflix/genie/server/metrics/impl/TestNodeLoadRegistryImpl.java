@@ -0,0 +1,123 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.metrics.impl;
+
+import com.github.springtestdbunit.DbUnitTestExecutionListener;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.NodeLoad;
+import com.netflix.genie.server.metrics.NodeLoadRegistry;
+import com.netflix.genie.server.repository.jpa.NodeLoadRepository;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.test.context.support.DirtiesContextTestExecutionListener;
+import org.springframework.test.context.transaction.TransactionalTestExecutionListener;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Tests for the NodeLoadRegistryImpl.
+ *
+ * @author agent
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = "classpath:genie-application-test.xml")
+@TestExecutionListeners({
+    DependencyInjectionTestExecutionListener.class,
+    DirtiesContextTestExecutionListener.class,
+    TransactionalTestExecutionListener.class,
+    DbUnitTestExecutionListener.class
+})
+@Transactional
+public class TestNodeLoadRegistryImpl {
+
+    private static final String HOST_1 = "genie1.netflix.com";
+    private static final String HOST_2 = "genie2.netflix.com";
+    private static final String HOST_3 = "genie3.netflix.com";
+
+    @Inject
+    private NodeLoadRegistry registry;
+
+    @Inject
+    private NodeLoadRepository nodeLoadRepo;
+
+    /**
+     * Make sure several nodes can publish and be read back in one snapshot.
+     *
+     * @throws GenieException if there is any error during this test
+     */
+    @Test
+    public void testPublishAndGetLiveNodes() throws GenieException {
+        this.registry.publish(HOST_1, 1, 30);
+        this.registry.publish(HOST_2, 2, 30);
+        this.registry.publish(HOST_3, 3, 10);
+        // publishing again should update the existing entry
+        this.registry.publish(HOST_1, 4, 30);
+
+        final Map<String, NodeLoad> loads = this.toMap(this.registry.getLiveNodes());
+        Assert.assertEquals(3, loads.size());
+        Assert.assertEquals(4, loads.get(HOST_1).getRunningJobs());
+        Assert.assertEquals(2, loads.get(HOST_2).getRunningJobs());
+        Assert.assertEquals(10, loads.get(HOST_3).getMaxRunningJobs());
+    }
+
+    /**
+     * Make sure nodes whose heartbeat has expired aren't returned.
+     *
+     * @throws GenieException if there is any error during this test
+     */
+    @Test
+    public void testGetLiveNodesExpired() throws GenieException {
+        this.registry.publish(HOST_1, 1, 30);
+        this.registry.publish(HOST_2, 2, 30);
+        this.nodeLoadRepo.findOne(HOST_2).setHeartbeat(new Date(0));
+        this.nodeLoadRepo.flush();
+
+        final Map<String, NodeLoad> loads = this.toMap(this.registry.getLiveNodes());
+        Assert.assertEquals(1, loads.size());
+        Assert.assertTrue(loads.containsKey(HOST_1));
+    }
+
+    /**
+     * Make sure a host name is required to publish.
+     *
+     * @throws GenieException if there is any error during this test
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testPublishNoHostName() throws GenieException {
+        this.registry.publish(null, 1, 30);
+    }
+
+    private Map<String, NodeLoad> toMap(final List<NodeLoad> loads) {
+        final Map<String, NodeLoad> map = new HashMap<>();
+        for (final NodeLoad load : loads) {
+            map.put(load.getHostName(), load);
+        }
+        return map;
+    }
+}
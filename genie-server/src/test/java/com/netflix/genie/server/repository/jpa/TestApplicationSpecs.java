@@ -31,6 +31,7 @@ import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -72,6 +73,14 @@ public class TestApplicationSpecs {
         this.cq = Mockito.mock(CriteriaQuery.class);
         this.cb = Mockito.mock(CriteriaBuilder.class);
 
+        // the subquery selecting the entities with the first tag
+        final Subquery<String> tagged = (Subquery<String>) Mockito.mock(Subquery.class);
+        final Root<Application> taggedRoot = (Root<Application>) Mockito.mock(Root.class);
+        Mockito.when(this.cq.subquery(String.class)).thenReturn(tagged);
+        Mockito.when(tagged.from(Application.class)).thenReturn(taggedRoot);
+        final Path<String> idPath = (Path<String>) Mockito.mock(Path.class);
+        Mockito.when(this.root.get(Application_.id)).thenReturn(idPath);
+
         final Path<String> commandNamePath = (Path<String>) Mockito.mock(Path.class);
         final Predicate equalNamePredicate = Mockito.mock(Predicate.class);
         Mockito.when(this.root.get(Application_.name)).thenReturn(commandNamePath);
@@ -114,10 +123,7 @@ public class TestApplicationSpecs {
             Mockito.verify(this.cb, Mockito.times(1))
                     .equal(this.root.get(Application_.status), status);
         }
-        for (final String tag : TAGS) {
-            Mockito.verify(this.cb, Mockito.times(1))
-                    .isMember(tag, this.root.get(Application_.tags));
-        }
+        this.verifyTags();
     }
 
     /**
@@ -137,10 +143,7 @@ public class TestApplicationSpecs {
             Mockito.verify(this.cb, Mockito.times(1))
                     .equal(this.root.get(Application_.status), status);
         }
-        for (final String tag : TAGS) {
-            Mockito.verify(this.cb, Mockito.times(1))
-                    .isMember(tag, this.root.get(Application_.tags));
-        }
+        this.verifyTags();
     }
 
     /**
@@ -160,10 +163,7 @@ public class TestApplicationSpecs {
             Mockito.verify(this.cb, Mockito.times(1))
                     .equal(this.root.get(Application_.status), status);
         }
-        for (final String tag : TAGS) {
-            Mockito.verify(this.cb, Mockito.times(1))
-                    .isMember(tag, this.root.get(Application_.tags));
-        }
+        this.verifyTags();
     }
 
     /**
@@ -183,10 +183,7 @@ public class TestApplicationSpecs {
             Mockito.verify(this.cb, Mockito.never())
                     .equal(this.root.get(Application_.status), status);
         }
-        for (final String tag : TAGS) {
-            Mockito.verify(this.cb, Mockito.times(1))
-                    .isMember(tag, this.root.get(Application_.tags));
-        }
+        this.verifyTags();
     }
 
     /**
@@ -206,10 +203,7 @@ public class TestApplicationSpecs {
             Mockito.verify(this.cb, Mockito.never())
                     .equal(this.root.get(Application_.status), status);
         }
-        for (final String tag : TAGS) {
-            Mockito.verify(this.cb, Mockito.times(1))
-                    .isMember(tag, this.root.get(Application_.tags));
-        }
+        this.verifyTags();
     }
 
     /**
@@ -253,15 +247,7 @@ public class TestApplicationSpecs {
             Mockito.verify(this.cb, Mockito.times(1))
                     .equal(this.root.get(Application_.status), status);
         }
-        for (final String tag : TAGS) {
-            if (StringUtils.isBlank(tag)) {
-                Mockito.verify(this.cb, Mockito.never())
-                        .isMember(tag, this.root.get(Application_.tags));
-            } else {
-                Mockito.verify(this.cb, Mockito.times(1))
-                        .isMember(tag, this.root.get(Application_.tags));
-            }
-        }
+        this.verifyTags();
     }
 
     /**
@@ -271,4 +257,23 @@ public class TestApplicationSpecs {
     public void testProtectedConstructor() {
         Assert.assertNotNull(new ApplicationSpecs());
     }
+
+    /**
+     * Make sure the first tag was matched through the subquery and the
+     * others as members of the tags.
+     */
+    private void verifyTags() {
+        Mockito.verify(this.cq, Mockito.times(1)).subquery(String.class);
+        boolean first = true;
+        for (final String tag : TAGS) {
+            if (StringUtils.isBlank(tag)) {
+                Mockito.verify(this.cb, Mockito.never())
+                        .isMember(tag, this.root.get(Application_.tags));
+            } else {
+                Mockito.verify(this.cb, Mockito.times(first ? 0 : 1))
+                        .isMember(tag, this.root.get(Application_.tags));
+                first = false;
+            }
+        }
+    }
 }
@@ -38,6 +38,7 @@ import javax.persistence.criteria.ListJoin;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashSet;
@@ -102,6 +103,14 @@ public class TestClusterSpecs {
         this.cb = Mockito.mock(CriteriaBuilder.class);
         this.commands = (ListJoin<Cluster, Command>) Mockito.mock(ListJoin.class);
 
+        // the subquery selecting the entities with the first tag
+        final Subquery<String> tagged = (Subquery<String>) Mockito.mock(Subquery.class);
+        final Root<Cluster> taggedRoot = (Root<Cluster>) Mockito.mock(Root.class);
+        Mockito.when(this.cq.subquery(String.class)).thenReturn(tagged);
+        Mockito.when(tagged.from(Cluster.class)).thenReturn(taggedRoot);
+        final Path<String> idPath = (Path<String>) Mockito.mock(Path.class);
+        Mockito.when(this.root.get(Cluster_.id)).thenReturn(idPath);
+
         final Path<String> clusterNamePath = (Path<String>) Mockito.mock(Path.class);
         final Predicate likeNamePredicate = Mockito.mock(Predicate.class);
         Mockito.when(this.root.get(Cluster_.name)).thenReturn(clusterNamePath);
@@ -161,10 +170,7 @@ public class TestClusterSpecs {
                 .lessThan(
                         this.root.get(Cluster_.updated), new Date(MAX_UPDATE_TIME)
                 );
-        for (final String tag : TAGS) {
-            Mockito.verify(this.cb, Mockito.times(1))
-                    .isMember(tag, this.root.get(Cluster_.tags));
-        }
+        this.verifyTags();
         for (final ClusterStatus status : STATUSES) {
             Mockito.verify(this.cb, Mockito.times(1))
                     .equal(this.root.get(Cluster_.status), status);
@@ -196,10 +202,7 @@ public class TestClusterSpecs {
                 .lessThan(
                         this.root.get(Cluster_.updated), new Date(MAX_UPDATE_TIME)
                 );
-        for (final String tag : TAGS) {
-            Mockito.verify(this.cb, Mockito.times(1))
-                    .isMember(tag, this.root.get(Cluster_.tags));
-        }
+        this.verifyTags();
         for (final ClusterStatus status : STATUSES) {
             Mockito.verify(this.cb, Mockito.times(1))
                     .equal(this.root.get(Cluster_.status), status);
@@ -231,10 +234,7 @@ public class TestClusterSpecs {
                 .lessThan(
                         this.root.get(Cluster_.updated), new Date(MAX_UPDATE_TIME)
                 );
-        for (final String tag : TAGS) {
-            Mockito.verify(this.cb, Mockito.times(1))
-                    .isMember(tag, this.root.get(Cluster_.tags));
-        }
+        this.verifyTags();
         for (final ClusterStatus status : STATUSES) {
             Mockito.verify(this.cb, Mockito.never())
                     .equal(this.root.get(Cluster_.status), status);
@@ -266,10 +266,7 @@ public class TestClusterSpecs {
                 .lessThan(
                         this.root.get(Cluster_.updated), new Date(MAX_UPDATE_TIME)
                 );
-        for (final String tag : TAGS) {
-            Mockito.verify(this.cb, Mockito.times(1))
-                    .isMember(tag, this.root.get(Cluster_.tags));
-        }
+        this.verifyTags();
         for (final ClusterStatus status : STATUSES) {
             Mockito.verify(this.cb, Mockito.never())
                     .equal(this.root.get(Cluster_.status), status);
@@ -336,10 +333,7 @@ public class TestClusterSpecs {
                 .lessThan(
                         this.root.get(Cluster_.updated), new Date(MAX_UPDATE_TIME)
                 );
-        for (final String tag : TAGS) {
-            Mockito.verify(this.cb, Mockito.times(1))
-                    .isMember(tag, this.root.get(Cluster_.tags));
-        }
+        this.verifyTags();
         for (final ClusterStatus status : STATUSES) {
             Mockito.verify(this.cb, Mockito.times(1))
                     .equal(this.root.get(Cluster_.status), status);
@@ -371,10 +365,7 @@ public class TestClusterSpecs {
                 .lessThan(
                         this.root.get(Cluster_.updated), new Date(MAX_UPDATE_TIME)
                 );
-        for (final String tag : TAGS) {
-            Mockito.verify(this.cb, Mockito.times(1))
-                    .isMember(tag, this.root.get(Cluster_.tags));
-        }
+        this.verifyTags();
         for (final ClusterStatus status : STATUSES) {
             Mockito.verify(this.cb, Mockito.times(1))
                     .equal(this.root.get(Cluster_.status), status);
@@ -407,15 +398,7 @@ public class TestClusterSpecs {
                 .lessThan(
                         this.root.get(Cluster_.updated), new Date(MAX_UPDATE_TIME)
                 );
-        for (final String tag : TAGS) {
-            if (StringUtils.isBlank(tag)) {
-                Mockito.verify(this.cb, Mockito.never())
-                        .isMember(tag, this.root.get(Cluster_.tags));
-            } else {
-                Mockito.verify(this.cb, Mockito.times(1))
-                        .isMember(tag, this.root.get(Cluster_.tags));
-            }
-        }
+        this.verifyTags();
         for (final ClusterStatus status : STATUSES) {
             Mockito.verify(this.cb, Mockito.times(1))
                     .equal(this.root.get(Cluster_.status), status);
@@ -478,4 +461,23 @@ public class TestClusterSpecs {
     public void testProtectedConstructor() {
         Assert.assertNotNull(new ClusterSpecs());
     }
+
+    /**
+     * Make sure the first tag was matched through the subquery and the
+     * others as members of the tags.
+     */
+    private void verifyTags() {
+        Mockito.verify(this.cq, Mockito.times(1)).subquery(String.class);
+        boolean first = true;
+        for (final String tag : TAGS) {
+            if (StringUtils.isBlank(tag)) {
+                Mockito.verify(this.cb, Mockito.never())
+                        .isMember(tag, this.root.get(Cluster_.tags));
+            } else {
+                Mockito.verify(this.cb, Mockito.times(first ? 0 : 1))
+                        .isMember(tag, this.root.get(Cluster_.tags));
+                first = false;
+            }
+        }
+    }
 }
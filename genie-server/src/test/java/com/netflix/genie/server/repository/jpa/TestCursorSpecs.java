@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+package com.netflix.genie.server.repository.jpa;
+
+import com.netflix.genie.common.model.Job;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test the predicates generated by CursorSpecs.
+ *
+ * @author agent
+ */
+public class TestCursorSpecs {
+
+    private static final String NAME = "name";
+    private static final String ID = "id";
+    private static final String NAME_VALUE = "job";
+    private static final String ID_VALUE = "job2";
+
+    private Root<Job> root;
+    private CriteriaQuery<?> cq;
+    private CriteriaBuilder cb;
+    private Path<String> namePath;
+    private Path<String> idPath;
+    private List<SingularAttribute<?, ?>> orderBys;
+    private List<Object> values;
+
+    /**
+     * Setup the mocks.
+     */
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        this.root = (Root<Job>) Mockito.mock(Root.class);
+        this.cq = Mockito.mock(CriteriaQuery.class);
+        this.cb = Mockito.mock(CriteriaBuilder.class);
+        this.namePath = (Path<String>) Mockito.mock(Path.class);
+        this.idPath = (Path<String>) Mockito.mock(Path.class);
+        Mockito.when(this.root.<String>get(NAME)).thenReturn(this.namePath);
+        Mockito.when(this.root.<String>get(ID)).thenReturn(this.idPath);
+
+        final SingularAttribute<?, ?> nameAttribute = Mockito.mock(SingularAttribute.class);
+        Mockito.when(nameAttribute.getName()).thenReturn(NAME);
+        final SingularAttribute<?, ?> idAttribute = Mockito.mock(SingularAttribute.class);
+        Mockito.when(idAttribute.getName()).thenReturn(ID);
+        this.orderBys = new ArrayList<>();
+        this.orderBys.add(nameAttribute);
+        this.orderBys.add(idAttribute);
+        this.values = new ArrayList<>();
+        this.values.add(NAME_VALUE);
+        this.values.add(ID_VALUE);
+    }
+
+    /**
+     * Make sure only the entities before the cursor are matched in descending order.
+     */
+    @Test
+    public void testAfterDescending() {
+        CursorSpecs.<Job>after(this.orderBys, this.values, true).toPredicate(this.root, this.cq, this.cb);
+        Mockito.verify(this.cb, Mockito.times(1)).lessThanOrEqualTo(this.namePath, NAME_VALUE);
+        Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.namePath, NAME_VALUE);
+        Mockito.verify(this.cb, Mockito.times(1)).equal(this.namePath, NAME_VALUE);
+        Mockito.verify(this.cb, Mockito.times(1)).lessThan(this.idPath, ID_VALUE);
+        Mockito.verify(this.cb, Mockito.never()).equal(this.idPath, ID_VALUE);
+        Mockito.verify(this.cb, Mockito.never()).greaterThan(this.namePath, NAME_VALUE);
+    }
+
+    /**
+     * Make sure only the entities after the cursor are matched in ascending order.
+     */
+    @Test
+    public void testAfterAscending() {
+        CursorSpecs.<Job>after(this.orderBys, this.values, false).toPredicate(this.root, this.cq, this.cb);
+        Mockito.verify(this.cb, Mockito.times(1)).greaterThanOrEqualTo(this.namePath, NAME_VALUE);
+        Mockito.verify(this.cb, Mockito.times(1)).greaterThan(this.namePath, NAME_VALUE);
+        Mockito.verify(this.cb, Mockito.times(1)).equal(this.namePath, NAME_VALUE);
+        Mockito.verify(this.cb, Mockito.times(1)).greaterThan(this.idPath, ID_VALUE);
+        Mockito.verify(this.cb, Mockito.never()).equal(this.idPath, ID_VALUE);
+        Mockito.verify(this.cb, Mockito.never()).lessThan(this.namePath, NAME_VALUE);
+    }
+}
@@ -30,6 +30,7 @@ import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
 import java.util.Date;
 import java.util.UUID;
 import java.util.HashSet;
@@ -72,6 +73,12 @@ public class TestJobSpecs {
         this.cq = Mockito.mock(CriteriaQuery.class);
         this.cb = Mockito.mock(CriteriaBuilder.class);
 
+        // the subquery selecting the entities with the first tag
+        final Subquery<String> tagged = (Subquery<String>) Mockito.mock(Subquery.class);
+        final Root<Job> taggedRoot = (Root<Job>) Mockito.mock(Root.class);
+        Mockito.when(this.cq.subquery(String.class)).thenReturn(tagged);
+        Mockito.when(tagged.from(Job.class)).thenReturn(taggedRoot);
+
         final Path<String> idPath = (Path<String>) Mockito.mock(Path.class);
         final Predicate likeIdPredicate = Mockito.mock(Predicate.class);
         Mockito.when(this.root.get(Job_.id)).thenReturn(idPath);
@@ -178,7 +185,7 @@ public class TestJobSpecs {
                 .equal(this.root.get(Job_.executionClusterName), CLUSTER_NAME);
         Mockito.verify(this.cb, Mockito.times(1))
                 .equal(this.root.get(Job_.executionClusterId), CLUSTER_ID);
-        Mockito.verify(this.cb, Mockito.times(1)).isMember(TAG, this.root.get(Job_.tags));
+        Mockito.verify(this.cq, Mockito.times(1)).subquery(String.class);
     }
 
     /**
@@ -211,7 +218,7 @@ public class TestJobSpecs {
                 .equal(this.root.get(Job_.executionClusterName), CLUSTER_NAME);
         Mockito.verify(this.cb, Mockito.times(1))
                 .equal(this.root.get(Job_.executionClusterId), CLUSTER_ID);
-        Mockito.verify(this.cb, Mockito.times(1)).isMember(TAG, this.root.get(Job_.tags));
+        Mockito.verify(this.cq, Mockito.times(1)).subquery(String.class);
     }
 
     /**
@@ -244,7 +251,7 @@ public class TestJobSpecs {
                 .equal(this.root.get(Job_.executionClusterName), CLUSTER_NAME);
         Mockito.verify(this.cb, Mockito.times(1))
                 .equal(this.root.get(Job_.executionClusterId), CLUSTER_ID);
-        Mockito.verify(this.cb, Mockito.times(1)).isMember(TAG, this.root.get(Job_.tags));
+        Mockito.verify(this.cq, Mockito.times(1)).subquery(String.class);
     }
 
     /**
@@ -277,7 +284,7 @@ public class TestJobSpecs {
                 .equal(this.root.get(Job_.executionClusterName), CLUSTER_NAME);
         Mockito.verify(this.cb, Mockito.times(1))
                 .equal(this.root.get(Job_.executionClusterId), CLUSTER_ID);
-        Mockito.verify(this.cb, Mockito.times(1)).isMember(TAG, this.root.get(Job_.tags));
+        Mockito.verify(this.cq, Mockito.times(1)).subquery(String.class);
     }
 
     /**
@@ -310,7 +317,7 @@ public class TestJobSpecs {
                 .equal(this.root.get(Job_.executionClusterName), CLUSTER_NAME);
         Mockito.verify(this.cb, Mockito.times(1))
                 .equal(this.root.get(Job_.executionClusterId), CLUSTER_ID);
-        Mockito.verify(this.cb, Mockito.times(1)).isMember(TAG, this.root.get(Job_.tags));
+        Mockito.verify(this.cq, Mockito.times(1)).subquery(String.class);
     }
 
     /**
@@ -343,7 +350,7 @@ public class TestJobSpecs {
                 .equal(this.root.get(Job_.executionClusterName), CLUSTER_NAME);
         Mockito.verify(this.cb, Mockito.times(1))
                 .equal(this.root.get(Job_.executionClusterId), CLUSTER_ID);
-        Mockito.verify(this.cb, Mockito.times(1)).isMember(TAG, this.root.get(Job_.tags));
+        Mockito.verify(this.cq, Mockito.times(1)).subquery(String.class);
     }
 
     /**
@@ -376,7 +383,7 @@ public class TestJobSpecs {
                 .equal(this.root.get(Job_.executionClusterName), CLUSTER_NAME);
         Mockito.verify(this.cb, Mockito.never())
                 .equal(this.root.get(Job_.executionClusterId), CLUSTER_ID);
-        Mockito.verify(this.cb, Mockito.times(1)).isMember(TAG, this.root.get(Job_.tags));
+        Mockito.verify(this.cq, Mockito.times(1)).subquery(String.class);
     }
 
     /**
@@ -409,7 +416,7 @@ public class TestJobSpecs {
                 .equal(this.root.get(Job_.executionClusterName), CLUSTER_NAME);
         Mockito.verify(this.cb, Mockito.times(1))
                 .equal(this.root.get(Job_.executionClusterId), CLUSTER_ID);
-        Mockito.verify(this.cb, Mockito.never()).isMember(TAG, this.root.get(Job_.tags));
+        Mockito.verify(this.cq, Mockito.never()).subquery(String.class);
     }
 
     /**
@@ -443,7 +450,7 @@ public class TestJobSpecs {
                 .equal(this.root.get(Job_.executionClusterName), CLUSTER_NAME);
         Mockito.verify(this.cb, Mockito.times(1))
                 .equal(this.root.get(Job_.executionClusterId), CLUSTER_ID);
-        Mockito.verify(this.cb, Mockito.times(1)).isMember(TAG, this.root.get(Job_.tags));
+        Mockito.verify(this.cq, Mockito.times(1)).subquery(String.class);
     }
 
     /**
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+package com.netflix.genie.server.repository.jpa;
+
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.Job_;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.SetJoin;
+import javax.persistence.criteria.Subquery;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test the predicates generated by TagSpecs.
+ *
+ * @author agent
+ */
+public class TestTagSpecs {
+
+    private static final String TAG_1 = "genie.id:job1";
+    private static final String TAG_2 = "prod";
+
+    private Root<Job> root;
+    private CriteriaQuery<?> cq;
+    private CriteriaBuilder cb;
+    private Subquery<String> tagged;
+    private SetJoin<Job, String> taggedTag;
+    private Path<String> idPath;
+    private Expression<Set<String>> tagsExpression;
+
+    /**
+     * Setup the mocks.
+     */
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        this.root = (Root<Job>) Mockito.mock(Root.class);
+        this.cq = Mockito.mock(CriteriaQuery.class);
+        this.cb = Mockito.mock(CriteriaBuilder.class);
+        this.tagged = (Subquery<String>) Mockito.mock(Subquery.class);
+        this.taggedTag = (SetJoin<Job, String>) Mockito.mock(SetJoin.class);
+        this.idPath = (Path<String>) Mockito.mock(Path.class);
+        this.tagsExpression = (Expression<Set<String>>) Mockito.mock(Expression.class);
+
+        final Root<Job> taggedRoot = (Root<Job>) Mockito.mock(Root.class);
+        Mockito.when(this.cq.subquery(String.class)).thenReturn(this.tagged);
+        Mockito.when(this.tagged.from(Job.class)).thenReturn(taggedRoot);
+        Mockito.when(taggedRoot.join(Job_.tags)).thenReturn(this.taggedTag);
+        Mockito.when(this.root.get(Job_.id)).thenReturn(this.idPath);
+        Mockito.when(this.root.get(Job_.tags)).thenReturn(this.tagsExpression);
+    }
+
+    /**
+     * Make sure the first tag drives the query and the others are matched as members.
+     */
+    @Test
+    public void testHasTags() {
+        final Set<String> tags = new LinkedHashSet<>();
+        tags.add(" ");
+        tags.add(TAG_1);
+        tags.add(TAG_2);
+
+        final List<Predicate> predicates = TagSpecs.hasTags(this.root, this.cq, this.cb, Job.class, Job_.tags, tags);
+        Assert.assertEquals(2, predicates.size());
+        Mockito.verify(this.cq, Mockito.times(1)).subquery(String.class);
+        Mockito.verify(this.cb, Mockito.times(1)).equal(this.taggedTag, TAG_1);
+        Mockito.verify(this.cb, Mockito.never()).equal(this.taggedTag, TAG_2);
+        Mockito.verify(this.idPath, Mockito.times(1)).in(this.tagged);
+        Mockito.verify(this.cb, Mockito.never()).isMember(TAG_1, this.tagsExpression);
+        Mockito.verify(this.cb, Mockito.times(1)).isMember(TAG_2, this.tagsExpression);
+        Mockito.verify(this.cb, Mockito.never()).isMember(" ", this.tagsExpression);
+    }
+
+    /**
+     * Make sure nothing is matched without tags.
+     */
+    @Test
+    public void testHasTagsWithoutTags() {
+        Assert.assertTrue(TagSpecs.hasTags(this.root, this.cq, this.cb, Job.class, Job_.tags, null).isEmpty());
+        Assert.assertTrue(
+                TagSpecs.hasTags(this.root, this.cq, this.cb, Job.class, Job_.tags, new LinkedHashSet<String>())
+                        .isEmpty()
+        );
+        Mockito.verify(this.cq, Mockito.never()).subquery(String.class);
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.NodeLoad;
+import com.netflix.genie.server.services.ForwardingPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for the forwarding policies, including a simulation of jobs being
+ * forwarded across a set of nodes under each policy.
+ *
+ * @author agent
+ */
+public class TestForwardingPolicies {
+
+    private static final long SEED = 42L;
+    private static final int NUM_NODES = 10;
+    private static final int NODE_CAPACITY = 30;
+    private static final int NUM_JOBS = 200;
+
+    /**
+     * Make sure the least loaded node is picked.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testLeastLoaded() throws GenieException {
+        final ForwardingPolicy policy = new LeastLoadedForwardingPolicyImpl();
+        final List<NodeLoad> candidates = Arrays.asList(
+                new NodeLoad("host0", 5, 30),
+                new NodeLoad("host1", 2, 10),
+                new NodeLoad("host2", 2, 30)
+        );
+        Assert.assertEquals("host2", policy.selectHost(candidates, 10));
+        Assert.assertNull(policy.selectHost(candidates, 1));
+        Assert.assertNull(policy.selectHost(new ArrayList<NodeLoad>(), 10));
+    }
+
+    /**
+     * Make sure the less loaded of two different nodes is picked.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testPowerOfTwoChoices() throws GenieException {
+        final ForwardingPolicy policy = new PowerOfTwoChoicesForwardingPolicyImpl(new Random(SEED));
+        final List<NodeLoad> candidates = Arrays.asList(
+                new NodeLoad("host0", 5, 30),
+                new NodeLoad("host1", 2, 30)
+        );
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("host1", policy.selectHost(candidates, 10));
+        }
+        Assert.assertEquals("host0", policy.selectHost(candidates.subList(0, 1), 10));
+        Assert.assertNull(policy.selectHost(candidates, 1));
+    }
+
+    /**
+     * Make sure nodes without free capacity are never picked.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testWeightedCapacity() throws GenieException {
+        final ForwardingPolicy policy = new WeightedCapacityForwardingPolicyImpl(new Random(SEED));
+        final List<NodeLoad> candidates = Arrays.asList(
+                new NodeLoad("host0", 10, 10),
+                new NodeLoad("host1", 2, 30)
+        );
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("host1", policy.selectHost(candidates, 10));
+        }
+        Assert.assertNull(policy.selectHost(candidates.subList(0, 1), 10));
+    }
+
+    /**
+     * Make sure a null list of candidates is rejected.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testNoCandidates() throws GenieException {
+        new PowerOfTwoChoicesForwardingPolicyImpl().selectHost(null, 10);
+    }
+
+    /**
+     * Simulate forwarding jobs across identical nodes. Picking the first node
+     * under the threshold fills nodes one at a time while each policy keeps
+     * the load spread out.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testSimulationIdenticalNodes() throws GenieException {
+        final int[] capacities = new int[NUM_NODES];
+        Arrays.fill(capacities, NODE_CAPACITY);
+
+        final int[] firstFit = simulate(null, capacities, NUM_JOBS);
+        Assert.assertEquals(NODE_CAPACITY, getSpread(firstFit));
+
+        final int[] leastLoaded = simulate(new LeastLoadedForwardingPolicyImpl(), capacities, NUM_JOBS);
+        Assert.assertTrue(getSpread(leastLoaded) <= 1);
+
+        final int[] powerOfTwo = simulate(
+                new PowerOfTwoChoicesForwardingPolicyImpl(new Random(SEED)), capacities, NUM_JOBS);
+        Assert.assertTrue(getSpread(powerOfTwo) <= 6);
+
+        final int[] weighted = simulate(
+                new WeightedCapacityForwardingPolicyImpl(new Random(SEED)), capacities, NUM_JOBS);
+        Assert.assertTrue(getSpread(weighted) <= 10);
+
+        for (final int[] loads : Arrays.asList(leastLoaded, powerOfTwo, weighted)) {
+            Assert.assertEquals(NUM_JOBS, getTotal(loads));
+        }
+    }
+
+    /**
+     * Simulate forwarding jobs across nodes of different sizes. Weighting by
+     * capacity keeps the small nodes from filling up first.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testSimulationMixedCapacities() throws GenieException {
+        final int[] capacities = {10, 10, 20, 20, 40, 40};
+        final int numJobs = 84;
+
+        final int[] leastLoaded = simulate(new LeastLoadedForwardingPolicyImpl(), capacities, numJobs);
+        final int[] weighted = simulate(
+                new WeightedCapacityForwardingPolicyImpl(new Random(SEED)), capacities, numJobs);
+        Assert.assertEquals(numJobs, getTotal(leastLoaded));
+        Assert.assertEquals(numJobs, getTotal(weighted));
+
+        // least loaded fills the small nodes completely
+        Assert.assertEquals(1.0, getMaxUtilization(leastLoaded, capacities), 0.0);
+        Assert.assertTrue(getMaxUtilization(weighted, capacities) < 0.9);
+    }
+
+    /**
+     * Forward jobs one at a time to the host picked by the policy.
+     *
+     * @param policy     The policy to use or null to pick the first node with room
+     * @param capacities The max running jobs of each node
+     * @param numJobs    The number of jobs to forward
+     * @return The number of jobs each node ended up with
+     * @throws GenieException For any problem
+     */
+    private int[] simulate(
+            final ForwardingPolicy policy,
+            final int[] capacities,
+            final int numJobs) throws GenieException {
+        int maxCapacity = 0;
+        for (final int capacity : capacities) {
+            maxCapacity = Math.max(maxCapacity, capacity);
+        }
+
+        final int[] loads = new int[capacities.length];
+        for (int job = 0; job < numJobs; job++) {
+            final List<NodeLoad> candidates = new ArrayList<>();
+            for (int node = 0; node < capacities.length; node++) {
+                if (loads[node] < capacities[node]) {
+                    candidates.add(new NodeLoad("h" + node, loads[node], capacities[node]));
+                }
+            }
+            final String host;
+            if (policy == null) {
+                host = candidates.isEmpty() ? null : candidates.get(0).getHostName();
+            } else {
+                host = policy.selectHost(candidates, maxCapacity - 1);
+            }
+            Assert.assertNotNull(host);
+            loads[Integer.parseInt(host.substring(1))]++;
+        }
+        return loads;
+    }
+
+    private static int getSpread(final int[] loads) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (final int load : loads) {
+            min = Math.min(min, load);
+            max = Math.max(max, load);
+        }
+        return max - min;
+    }
+
+    private static int getTotal(final int[] loads) {
+        int total = 0;
+        for (final int load : loads) {
+            total += load;
+        }
+        return total;
+    }
+
+    private static double getMaxUtilization(final int[] loads, final int[] capacities) {
+        double max = 0.0;
+        for (int i = 0; i < loads.length; i++) {
+            max = Math.max(max, (double) loads[i] / capacities[i]);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.server.metrics.JobCountManager;
+import com.netflix.genie.server.services.JobQuotaController;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Tests for the JobAdmissionControllerImpl class.
+ *
+ * @author agent
+ */
+public class TestJobAdmissionControllerImpl {
+
+    private JobCountManager jobCountManager;
+    private JobQuotaController quotaController;
+    private JobAdmissionControllerImpl controller;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.jobCountManager = Mockito.mock(JobCountManager.class);
+        this.quotaController = Mockito.mock(JobQuotaController.class);
+        this.controller = new JobAdmissionControllerImpl(this.jobCountManager, this.quotaController);
+    }
+
+    /**
+     * Make sure reservations stop once the node is at capacity.
+     */
+    @Test
+    public void testTryReserve() {
+        Assert.assertTrue(this.controller.tryReserve(2));
+        Assert.assertTrue(this.controller.tryReserve(2));
+        Assert.assertFalse(this.controller.tryReserve(2));
+        Assert.assertEquals(2, this.controller.getNumActiveJobs());
+
+        this.controller.cancelReservation();
+        Assert.assertEquals(1, this.controller.getNumActiveJobs());
+        Assert.assertTrue(this.controller.tryReserve(2));
+    }
+
+    /**
+     * Make sure registered jobs free their slot on release and only once.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testRegisterAndRelease() throws GenieException {
+        Assert.assertTrue(this.controller.tryReserve(1));
+        this.controller.register("job1");
+        Assert.assertEquals(1, this.controller.getNumActiveJobs());
+        Assert.assertFalse(this.controller.tryReserve(1));
+
+        this.controller.release("job1");
+        this.controller.release("job1");
+        this.controller.release("unknown");
+        Assert.assertEquals(0, this.controller.getNumActiveJobs());
+        Mockito.verify(this.quotaController, Mockito.times(2)).release("job1");
+    }
+
+    /**
+     * Make sure an unregistered job frees its slot but keeps its quota.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testUnregister() throws GenieException {
+        Assert.assertTrue(this.controller.tryReserve(1));
+        this.controller.register("job1");
+        this.controller.unregister("job1");
+        this.controller.unregister("job1");
+        this.controller.unregister(null);
+        Assert.assertEquals(0, this.controller.getNumActiveJobs());
+        Assert.assertTrue(this.controller.tryReserve(1));
+        Mockito.verify(this.quotaController, Mockito.never()).release(Mockito.anyString());
+    }
+
+    /**
+     * Make sure a blank id can't be registered.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testRegisterNoId() throws GenieException {
+        this.controller.register(null);
+    }
+
+    /**
+     * Make sure reconciliation picks up unknown jobs and drops stale ones.
+     *
+     * @throws GenieException For any problem
+     * @throws InterruptedException If the sleep is interrupted
+     */
+    @Test
+    public void testReconcile() throws GenieException, InterruptedException {
+        Assert.assertTrue(this.controller.tryReserve(10));
+        this.controller.register("stale");
+        Thread.sleep(5);
+
+        Mockito.when(this.jobCountManager.getInstanceJobIds()).thenReturn(Arrays.asList("job1", "job2"));
+        this.controller.reconcile(new HashSet<String>());
+        Assert.assertEquals(2, this.controller.getNumActiveJobs());
+
+        // A job found by reconciliation shouldn't be counted twice once registered
+        Assert.assertTrue(this.controller.tryReserve(10));
+        this.controller.register("job1");
+        Assert.assertEquals(2, this.controller.getNumActiveJobs());
+
+        Thread.sleep(5);
+        Mockito.when(this.jobCountManager.getInstanceJobIds()).thenReturn(new ArrayList<String>());
+        this.controller.reconcile(new HashSet<String>());
+        Assert.assertEquals(0, this.controller.getNumActiveJobs());
+    }
+
+    /**
+     * Make sure jobs waiting in the node queue don't take a slot on reconciliation.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testReconcileIgnoresQueuedJobs() throws GenieException {
+        Mockito.when(this.jobCountManager.getInstanceJobIds()).thenReturn(Arrays.asList("job1", "queued"));
+        this.controller.reconcile(new HashSet<>(Arrays.asList("queued")));
+        Assert.assertEquals(1, this.controller.getNumActiveJobs());
+    }
+}
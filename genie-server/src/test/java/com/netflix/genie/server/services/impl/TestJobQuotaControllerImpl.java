@@ -0,0 +1,286 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieTooManyRequestsException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.server.repository.jpa.JobRepository;
+import com.netflix.genie.server.util.NetUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests for the JobQuotaControllerImpl class.
+ *
+ * @author agent
+ */
+public class TestJobQuotaControllerImpl {
+
+    private static final String USER_MAX_KEY = "com.netflix.genie.server.quota.user.max.running.jobs";
+    private static final String GROUP_MAX_KEY = "com.netflix.genie.server.quota.group.max.running.jobs";
+    private static final String USER_RATE_KEY = "com.netflix.genie.server.quota.user.submit.rate";
+    private static final String USER_BURST_KEY = "com.netflix.genie.server.quota.user.submit.burst";
+    private static final String GROUP_RATE_KEY = "com.netflix.genie.server.quota.group.submit.rate";
+    private static final String GROUP_BURST_KEY = "com.netflix.genie.server.quota.group.submit.burst";
+    private static final String HOST_KEY = "com.netflix.genie.server.host";
+
+    private JobRepository jobRepo;
+    private JobQuotaControllerImpl controller;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        ConfigurationManager.getConfigInstance().setProperty(HOST_KEY, "genie1.netflix.com");
+        this.jobRepo = Mockito.mock(JobRepository.class);
+        this.controller = new JobQuotaControllerImpl(this.jobRepo);
+    }
+
+    /**
+     * Reset the configuration.
+     */
+    @After
+    public void tearDown() {
+        ConfigurationManager.getConfigInstance().clearProperty(USER_MAX_KEY);
+        ConfigurationManager.getConfigInstance().clearProperty(USER_MAX_KEY + ".tgianos");
+        ConfigurationManager.getConfigInstance().clearProperty(GROUP_MAX_KEY);
+        ConfigurationManager.getConfigInstance().clearProperty(USER_RATE_KEY);
+        ConfigurationManager.getConfigInstance().clearProperty(USER_BURST_KEY);
+        ConfigurationManager.getConfigInstance().clearProperty(GROUP_RATE_KEY);
+        ConfigurationManager.getConfigInstance().clearProperty(GROUP_BURST_KEY);
+        ConfigurationManager.getConfigInstance().clearProperty(HOST_KEY);
+    }
+
+    /**
+     * Make sure jobs are only counted when there are no limits.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testUnlimited() throws GenieException {
+        for (int i = 0; i < 100; i++) {
+            this.controller.acquire(createJob(null, "tgianos", "genie"));
+        }
+        Assert.assertEquals(100, this.controller.getNumActiveJobsForUser("tgianos"));
+        Assert.assertEquals(100, this.controller.getNumActiveJobsForGroup("genie"));
+        Assert.assertEquals(0, this.controller.getNumActiveJobsForUser("amsharma"));
+    }
+
+    /**
+     * Make sure a user can't go over their concurrency limit and other users
+     * aren't affected by it.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testUserConcurrencyLimit() throws GenieException {
+        ConfigurationManager.getConfigInstance().setProperty(USER_MAX_KEY, 2);
+        this.controller.acquire(createJob(null, "tgianos", null));
+        this.controller.acquire(createJob(null, "tgianos", null));
+        try {
+            this.controller.acquire(createJob(null, "tgianos", null));
+            Assert.fail();
+        } catch (final GenieTooManyRequestsException e) {
+            Assert.assertEquals(GenieTooManyRequestsException.TOO_MANY_REQUESTS, e.getErrorCode());
+        }
+        Assert.assertEquals(2, this.controller.getNumActiveJobsForUser("tgianos"));
+        this.controller.acquire(createJob(null, "amsharma", null));
+    }
+
+    /**
+     * Make sure the limit for a single user overrides the default.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GenieTooManyRequestsException.class)
+    public void testUserOverride() throws GenieException {
+        ConfigurationManager.getConfigInstance().setProperty(USER_MAX_KEY, 10);
+        ConfigurationManager.getConfigInstance().setProperty(USER_MAX_KEY + ".tgianos", 1);
+        this.controller.acquire(createJob(null, "amsharma", null));
+        this.controller.acquire(createJob(null, "amsharma", null));
+        this.controller.acquire(createJob(null, "tgianos", null));
+        this.controller.acquire(createJob(null, "tgianos", null));
+    }
+
+    /**
+     * Make sure the user slot is given back when the group is over its limit.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testGroupConcurrencyLimit() throws GenieException {
+        ConfigurationManager.getConfigInstance().setProperty(GROUP_MAX_KEY, 1);
+        this.controller.acquire(createJob(null, "tgianos", "genie"));
+        try {
+            this.controller.acquire(createJob(null, "amsharma", "genie"));
+            Assert.fail();
+        } catch (final GenieTooManyRequestsException e) {
+            Assert.assertEquals(0, this.controller.getNumActiveJobsForUser("amsharma"));
+            Assert.assertEquals(1, this.controller.getNumActiveJobsForGroup("genie"));
+        }
+    }
+
+    /**
+     * Make sure submissions over the rate are rejected once the burst is used.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testSubmissionRate() throws GenieException {
+        ConfigurationManager.getConfigInstance().setProperty(USER_RATE_KEY, 0.001);
+        ConfigurationManager.getConfigInstance().setProperty(USER_BURST_KEY, 3);
+        for (int i = 0; i < 3; i++) {
+            this.controller.acquire(createJob(null, "tgianos", null));
+        }
+        try {
+            this.controller.acquire(createJob(null, "tgianos", null));
+            Assert.fail();
+        } catch (final GenieTooManyRequestsException e) {
+            // the rejected job shouldn't hold a slot
+            Assert.assertEquals(3, this.controller.getNumActiveJobsForUser("tgianos"));
+        }
+        this.controller.acquire(createJob(null, "amsharma", null));
+    }
+
+    /**
+     * Make sure a submission rejected by the group rate doesn't use up a
+     * token of the user.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testGroupRateRejectionRefundsUser() throws GenieException {
+        ConfigurationManager.getConfigInstance().setProperty(USER_RATE_KEY, 0.001);
+        ConfigurationManager.getConfigInstance().setProperty(USER_BURST_KEY, 2);
+        ConfigurationManager.getConfigInstance().setProperty(GROUP_RATE_KEY, 0.001);
+        ConfigurationManager.getConfigInstance().setProperty(GROUP_BURST_KEY, 1);
+        this.controller.acquire(createJob(null, "amsharma", "genie"));
+        for (int i = 0; i < 3; i++) {
+            try {
+                this.controller.acquire(createJob(null, "tgianos", "genie"));
+                Assert.fail();
+            } catch (final GenieTooManyRequestsException e) {
+                Assert.assertEquals(0, this.controller.getNumActiveJobsForUser("tgianos"));
+            }
+        }
+        // both tokens of the user are still there
+        this.controller.acquire(createJob(null, "tgianos", null));
+        this.controller.acquire(createJob(null, "tgianos", null));
+    }
+
+    /**
+     * Make sure registered jobs free their slots on release and only once.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testRegisterAndRelease() throws GenieException {
+        ConfigurationManager.getConfigInstance().setProperty(USER_MAX_KEY, 1);
+        final Job job = createJob("job1", "tgianos", "genie");
+        this.controller.acquire(job);
+        this.controller.register(job);
+        this.controller.release("job1");
+        this.controller.release("job1");
+        this.controller.release("unknown");
+        Assert.assertEquals(0, this.controller.getNumActiveJobsForUser("tgianos"));
+        Assert.assertEquals(0, this.controller.getNumActiveJobsForGroup("genie"));
+        this.controller.acquire(createJob(null, "tgianos", null));
+    }
+
+    /**
+     * Make sure a job which was never saved gives its slots back on cancel.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testCancel() throws GenieException {
+        final Job job = createJob(null, "tgianos", "genie");
+        this.controller.acquire(job);
+        this.controller.cancel(job);
+        Assert.assertEquals(0, this.controller.getNumActiveJobsForUser("tgianos"));
+        Assert.assertEquals(0, this.controller.getNumActiveJobsForGroup("genie"));
+    }
+
+    /**
+     * Make sure the active jobs are re-synced with the database, counting
+     * jobs without slots whatever the limits and freeing the slots of jobs
+     * which are done.
+     *
+     * @throws Exception For any problem
+     */
+    @Test
+    public void testReconcile() throws Exception {
+        ConfigurationManager.getConfigInstance().setProperty(USER_MAX_KEY, 1);
+        final Job done = createJob("job1", "tgianos", "genie");
+        this.controller.acquire(done);
+        this.controller.register(done);
+        Mockito.when(this.jobRepo.findByHostNameAndStatus(NetUtil.getHostName(), JobStatus.INIT))
+                .thenReturn(Collections.singletonList(createJob("job2", "tgianos", "genie")));
+        Mockito.when(this.jobRepo.findByHostNameAndStatus(NetUtil.getHostName(), JobStatus.RUNNING))
+                .thenReturn(Arrays.asList(createJob("job3", "tgianos", null), createJob("job4", "amsharma", "genie")));
+
+        // make sure job1 was registered before the snapshot
+        Thread.sleep(10L);
+        this.controller.reconcile();
+        Assert.assertEquals(2, this.controller.getNumActiveJobsForUser("tgianos"));
+        Assert.assertEquals(1, this.controller.getNumActiveJobsForUser("amsharma"));
+        Assert.assertEquals(2, this.controller.getNumActiveJobsForGroup("genie"));
+
+        // nothing changes the second time
+        this.controller.reconcile();
+        Assert.assertEquals(2, this.controller.getNumActiveJobsForUser("tgianos"));
+        this.controller.release("job2");
+        this.controller.release("job3");
+        Assert.assertEquals(0, this.controller.getNumActiveJobsForUser("tgianos"));
+        Assert.assertEquals(1, this.controller.getNumActiveJobsForGroup("genie"));
+    }
+
+    /**
+     * Make sure a job needs a user.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testAcquireNoUser() throws GenieException {
+        this.controller.acquire(new Job());
+    }
+
+    private static Job createJob(
+            final String id,
+            final String user,
+            final String group) throws GeniePreconditionException {
+        final Job job = new Job();
+        if (id != null) {
+            job.setId(id);
+        }
+        job.setUser(user);
+        job.setGroup(group);
+        return job;
+    }
+}
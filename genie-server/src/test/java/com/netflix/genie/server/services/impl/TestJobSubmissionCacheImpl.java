@@ -0,0 +1,122 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerUnavailableException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.server.services.JobService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the JobSubmissionCacheImpl class.
+ *
+ * @author agent
+ */
+public class TestJobSubmissionCacheImpl {
+
+    private JobService jobService;
+    private JobSubmissionCacheImpl cache;
+    private AtomicInteger submissions;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.jobService = Mockito.mock(JobService.class);
+        this.cache = new JobSubmissionCacheImpl(this.jobService);
+        this.submissions = new AtomicInteger(0);
+    }
+
+    /**
+     * Make sure a replay reads the original job again without submitting again.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testReplay() throws GenieException {
+        final Job original = this.cache.submit("tgianos:key1", this.createSubmission());
+        Mockito.verify(this.jobService, Mockito.never()).getJob(Mockito.anyString());
+        final Job current = new Job();
+        current.setId(original.getId());
+        current.setStatus(JobStatus.RUNNING);
+        Mockito.when(this.jobService.getJob(original.getId())).thenReturn(current);
+
+        final Job replayed = this.cache.submit("tgianos:key1", this.createSubmission());
+        Assert.assertSame(current, replayed);
+        Assert.assertEquals(1, this.submissions.get());
+        Assert.assertEquals(1L, this.cache.getNumReplays());
+
+        this.cache.submit("tgianos:key2", this.createSubmission());
+        Assert.assertEquals(2, this.submissions.get());
+    }
+
+    /**
+     * Make sure failed submissions keep their error and aren't cached.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testFailureNotCached() throws GenieException {
+        try {
+            this.cache.submit("tgianos:key1", new Callable<Job>() {
+                @Override
+                public Job call() throws GenieException {
+                    throw new GenieServerUnavailableException("busy");
+                }
+            });
+            Assert.fail();
+        } catch (final GenieServerUnavailableException e) {
+            Assert.assertEquals("busy", e.getMessage());
+        }
+        this.cache.submit("tgianos:key1", this.createSubmission());
+        Assert.assertEquals(1, this.submissions.get());
+        Assert.assertEquals(0L, this.cache.getNumReplays());
+    }
+
+    /**
+     * Make sure a key is required.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testSubmitNoKey() throws GenieException {
+        this.cache.submit(" ", this.createSubmission());
+    }
+
+    private Callable<Job> createSubmission() {
+        return new Callable<Job>() {
+            @Override
+            public Job call() throws GenieException {
+                submissions.incrementAndGet();
+                final Job job = new Job();
+                job.setId("job" + submissions.get());
+                return job;
+            }
+        };
+    }
+}
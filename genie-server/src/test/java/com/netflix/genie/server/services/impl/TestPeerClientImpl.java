@@ -0,0 +1,169 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.model.Job;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for the PeerClientImpl class against a local HTTP server.
+ *
+ * @author agent
+ */
+public class TestPeerClientImpl {
+
+    private static final String JOB_ID = "job1";
+    private static final String JOB_JSON = "{\"id\":\"" + JOB_ID + "\",\"user\":\"tgianos\"}";
+
+    private HttpServer server;
+    private String baseURI;
+    private PeerClientImpl client;
+    private final AtomicReference<String> lastMethod = new AtomicReference<>();
+    private final AtomicReference<String> lastQuery = new AtomicReference<>();
+
+    /**
+     * Start a server acting as the peer.
+     *
+     * @throws IOException if the server can't start
+     */
+    @Before
+    public void setup() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext("/genie/v2/jobs", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                lastMethod.set(exchange.getRequestMethod());
+                lastQuery.set(exchange.getRequestURI().getQuery());
+                respond(exchange, HttpURLConnection.HTTP_CREATED, JOB_JSON);
+            }
+        });
+        this.server.createContext("/genie/v2/busy", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                respond(exchange, HttpURLConnection.HTTP_UNAVAILABLE, "Too busy");
+            }
+        });
+        this.server.start();
+        this.baseURI = "http://localhost:" + this.server.getAddress().getPort() + "/genie/v2/";
+        this.client = new PeerClientImpl();
+    }
+
+    /**
+     * Stop the server and the client.
+     */
+    @After
+    public void tearDown() {
+        this.client.shutdown();
+        this.server.stop(0);
+    }
+
+    /**
+     * Make sure a submitted job is returned from the peer.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testSubmitJob() throws GenieException {
+        final Job job = this.client.submitJob(this.baseURI + "jobs", new Job(), false);
+        Assert.assertEquals(JOB_ID, job.getId());
+        Assert.assertEquals("POST", this.lastMethod.get());
+        Assert.assertNull(this.lastQuery.get());
+
+        // the same client should be reusable for further requests
+        this.client.submitJob(this.baseURI + "jobs", new Job(), true);
+        Assert.assertEquals("async=true", this.lastQuery.get());
+    }
+
+    /**
+     * Make sure a kill is sent as a delete.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testKillJob() throws GenieException {
+        final Job job = this.client.killJob(this.baseURI + "jobs/" + JOB_ID);
+        Assert.assertEquals(JOB_ID, job.getId());
+        Assert.assertEquals("DELETE", this.lastMethod.get());
+    }
+
+    /**
+     * Make sure error responses from the peer keep their status code.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testErrorResponse() throws GenieException {
+        try {
+            this.client.submitJob(this.baseURI + "busy", new Job(), false);
+            Assert.fail();
+        } catch (final GenieException ge) {
+            Assert.assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, ge.getErrorCode());
+            Assert.assertEquals("Too busy", ge.getMessage());
+        }
+    }
+
+    /**
+     * Make sure a peer which can't be reached results in a server exception.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GenieServerException.class)
+    public void testUnreachablePeer() throws GenieException {
+        final int port = this.server.getAddress().getPort();
+        this.server.stop(0);
+        this.client.killJob("http://localhost:" + port + "/genie/v2/jobs/" + JOB_ID);
+    }
+
+    /**
+     * Make sure a host URI is required.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testSubmitJobNoHostURI() throws GenieException {
+        this.client.submitJob(null, new Job(), false);
+    }
+
+    private static void respond(
+            final HttpExchange exchange,
+            final int status,
+            final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (final OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
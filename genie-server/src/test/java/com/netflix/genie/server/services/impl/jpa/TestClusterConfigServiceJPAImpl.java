@@ -280,6 +280,34 @@ public class TestClusterConfigServiceJPAImpl extends DBUnitTestBase {
         Assert.assertEquals(CLUSTER_2_ID, clusters.get(1).getId());
     }
 
+    /**
+     * Test paging past an offset page ordered by user with a cursor returns the same clusters as the next offset page.
+     *
+     * @throws GenieException
+     */
+    @Test
+    public void testGetClustersCursorOrderBysUser() throws GenieException {
+        final Set<String> orderBys = new HashSet<>();
+        orderBys.add("user");
+        final List<Cluster> first = this.service.getClusters(null, null, null, null, null, 0, 1, true, orderBys);
+        Assert.assertEquals(1, first.size());
+        Assert.assertEquals(CLUSTER_1_ID, first.get(0).getId());
+
+        final String cursor = this.service.getNextCursor(first, 1, true, orderBys);
+        Assert.assertNotNull(cursor);
+        final List<Cluster> second = this.service.getClusters(null, null, null, null, null, cursor, 1, true, orderBys);
+        final List<Cluster> offsetSecond
+                = this.service.getClusters(null, null, null, null, null, 1, 1, true, orderBys);
+        Assert.assertEquals(1, second.size());
+        Assert.assertEquals(CLUSTER_2_ID, second.get(0).getId());
+        Assert.assertEquals(offsetSecond.get(0).getId(), second.get(0).getId());
+
+        final String lastCursor = this.service.getNextCursor(second, 1, true, orderBys);
+        Assert.assertTrue(
+                this.service.getClusters(null, null, null, null, null, lastCursor, 1, true, orderBys).isEmpty()
+        );
+    }
+
     /**
      * Test the get clusters method order by an invalid field should return the order by default value (updated).
      */
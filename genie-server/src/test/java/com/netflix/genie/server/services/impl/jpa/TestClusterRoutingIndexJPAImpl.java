@@ -0,0 +1,201 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl.jpa;
+
+import com.github.springtestdbunit.annotation.DatabaseSetup;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.Cluster;
+import com.netflix.genie.common.model.ClusterCriteria;
+import com.netflix.genie.server.repository.jpa.ClusterRepository;
+import com.netflix.genie.server.repository.jpa.CommandRepository;
+import com.netflix.genie.server.services.ClusterConfigService;
+import com.netflix.genie.server.services.CommandConfigService;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tests for the ClusterRoutingIndexJPAImpl class.
+ *
+ * @author agent
+ */
+@DatabaseSetup("cluster/init.xml")
+public class TestClusterRoutingIndexJPAImpl extends DBUnitTestBase {
+
+    private static final String ENABLED_KEY = "com.netflix.genie.server.cluster.routing.index.enabled";
+    private static final String CLUSTER_1_ID = "cluster1";
+    private static final String CLUSTER_2_ID = "cluster2";
+    private static final String COMMAND_1_ID = "command1";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    private ClusterRepository clusterRepo;
+
+    @Inject
+    private CommandRepository commandRepo;
+
+    @Inject
+    private ClusterConfigService clusterService;
+
+    @Inject
+    private CommandConfigService commandService;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private ConfigCacheJPAImpl configCache;
+    private ClusterRoutingIndexJPAImpl routingIndex;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        ConfigurationManager.getConfigInstance().setProperty(ENABLED_KEY, true);
+        // not started so the version is only checked by the tests
+        this.configCache = new ConfigCacheJPAImpl(this.transactionManager);
+        ReflectionTestUtils.setField(this.configCache, "em", this.em);
+        this.routingIndex = new ClusterRoutingIndexJPAImpl(
+                this.clusterRepo,
+                this.commandRepo,
+                this.configCache,
+                this.transactionManager
+        );
+        this.configCache.addVersionListener(this.routingIndex);
+        this.routingIndex.rebuild();
+    }
+
+    /**
+     * Clean up after the tests.
+     */
+    @After
+    public void tearDown() {
+        ConfigurationManager.getConfigInstance().clearProperty(ENABLED_KEY);
+    }
+
+    /**
+     * Make sure the index finds the same clusters and commands as the database.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testMatchesDatabase() throws GenieException {
+        Assert.assertTrue(this.routingIndex.isAvailable());
+        Assert.assertEquals(2, this.routingIndex.getNumRoutableClusters());
+        this.assertMatches(tags("pig"), tags("pig"));
+        this.assertMatches(tags("prod", "hive"), tags("pig", "tez"));
+        this.assertMatches(tags("query"), tags("prod"));
+        // only the inactive and deprecated commands have these tags
+        this.assertMatches(tags("pig"), tags("hive"));
+        this.assertMatches(tags("pig"), tags("deprecated"));
+        this.assertMatches(tags("missing"), tags("pig"));
+
+        Assert.assertEquals(COMMAND_1_ID, this.routingIndex.findCommandId(CLUSTER_1_ID, tags("pig", "prod")));
+        Assert.assertNull(this.routingIndex.findCommandId(CLUSTER_1_ID, tags("hive")));
+    }
+
+    /**
+     * Make sure changes to clusters and commands are picked up without a rebuild.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testUpdates() throws GenieException {
+        this.clusterService.removeTagForCluster(CLUSTER_1_ID, "prod");
+        this.routingIndex.clusterChanged(CLUSTER_1_ID);
+        this.assertMatches(tags("prod"), tags("pig"));
+        Assert.assertTrue(this.routingIndex.findClusterIds(new ClusterCriteria(tags("prod")), tags("pig")).isEmpty());
+
+        this.commandService.removeTagForCommand(COMMAND_1_ID, "pig");
+        this.routingIndex.commandChanged(COMMAND_1_ID);
+        this.assertMatches(tags("hive"), tags("pig"));
+        this.assertMatches(tags("hive"), tags("tez"));
+        Assert.assertNull(this.routingIndex.findCommandId(CLUSTER_2_ID, tags("pig")));
+        Assert.assertEquals(COMMAND_1_ID, this.routingIndex.findCommandId(CLUSTER_2_ID, tags("tez")));
+    }
+
+    /**
+     * Make sure a change made around the index, as by another node, is
+     * picked up by the version check of the configuration cache.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testCheckVersion() throws GenieException {
+        Assert.assertEquals(1, this.routingIndex.getNumRebuilds());
+        this.configCache.checkVersion();
+        this.configCache.checkVersion();
+        Assert.assertEquals(1, this.routingIndex.getNumRebuilds());
+
+        this.clusterService.removeTagForCluster(CLUSTER_2_ID, "query");
+        this.configCache.checkVersion();
+        Assert.assertEquals(2, this.routingIndex.getNumRebuilds());
+        this.assertMatches(tags("query"), tags("pig"));
+    }
+
+    /**
+     * Make sure a change to every cluster rebuilds the index once the
+     * transaction commits, however many changes it made.
+     */
+    @Test
+    public void testAllChanged() {
+        Assert.assertEquals(1, this.routingIndex.getNumRebuilds());
+        this.routingIndex.allChanged();
+        Assert.assertEquals(2, this.routingIndex.getNumRebuilds());
+
+        new TransactionTemplate(this.transactionManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                routingIndex.allChanged();
+                routingIndex.commandChanged(COMMAND_1_ID);
+                routingIndex.allChanged();
+                Assert.assertEquals(2, routingIndex.getNumRebuilds());
+            }
+        });
+        Assert.assertEquals(3, this.routingIndex.getNumRebuilds());
+    }
+
+    private void assertMatches(final Set<String> clusterTags, final Set<String> commandTags) throws GenieException {
+        final ClusterCriteria criteria = new ClusterCriteria(clusterTags);
+        final Set<String> expected = new HashSet<>();
+        for (final Cluster cluster : this.clusterService.findClustersForCriteria(criteria, commandTags)) {
+            expected.add(cluster.getId());
+        }
+        Assert.assertEquals(expected, new HashSet<>(this.routingIndex.findClusterIds(criteria, commandTags)));
+    }
+
+    private static Set<String> tags(final String... tags) {
+        return new HashSet<>(Arrays.asList(tags));
+    }
+}
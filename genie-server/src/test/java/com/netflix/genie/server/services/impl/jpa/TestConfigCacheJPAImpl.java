@@ -0,0 +1,220 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl.jpa;
+
+import com.github.springtestdbunit.annotation.DatabaseSetup;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.model.Application;
+import com.netflix.genie.common.model.Cluster;
+import com.netflix.genie.common.model.Command;
+import com.netflix.genie.server.services.ClusterConfigService;
+import com.netflix.genie.server.services.ConfigVersionListener;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactory;
+import org.apache.openjpa.persistence.QueryResultCache;
+import org.apache.openjpa.persistence.StoreCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for the ConfigCacheJPAImpl class.
+ *
+ * @author agent
+ */
+@DatabaseSetup("cluster/init.xml")
+public class TestConfigCacheJPAImpl extends DBUnitTestBase {
+
+    private static final String ENABLED_KEY = "com.netflix.genie.server.jpa.cache.enabled";
+    private static final String CLUSTER_1_ID = "cluster1";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    private ClusterConfigService clusterService;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private StoreCache storeCache;
+    private QueryResultCache queryCache;
+    private ConfigCacheJPAImpl configCache;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        ConfigurationManager.getConfigInstance().setProperty(ENABLED_KEY, true);
+        final OpenJPAEntityManagerFactory emf = Mockito.mock(OpenJPAEntityManagerFactory.class);
+        this.storeCache = Mockito.mock(StoreCache.class);
+        this.queryCache = Mockito.mock(QueryResultCache.class);
+        Mockito.when(emf.getStoreCache()).thenReturn(this.storeCache);
+        Mockito.when(emf.getQueryResultCache()).thenReturn(this.queryCache);
+
+        // not started so the version is only checked by the tests
+        this.configCache = new ConfigCacheJPAImpl(this.transactionManager);
+        ReflectionTestUtils.setField(this.configCache, "em", this.em);
+        ReflectionTestUtils.setField(this.configCache, "emf", emf);
+    }
+
+    /**
+     * Clean up after the tests.
+     */
+    @After
+    public void tearDown() {
+        ConfigurationManager.getConfigInstance().clearProperty(ENABLED_KEY);
+    }
+
+    /**
+     * Make sure the JPA caches are only turned on when enabled.
+     */
+    @Test
+    public void testGetJpaProperties() {
+        Map<String, String> properties = ConfigCacheJPAImpl.getJpaProperties();
+        Assert.assertEquals("ENABLE_SELECTIVE", properties.get("javax.persistence.sharedCache.mode"));
+        Assert.assertTrue(properties.get("openjpa.DataCache").startsWith("true"));
+        Assert.assertTrue(properties.get("openjpa.QueryCache").startsWith("true"));
+
+        ConfigurationManager.getConfigInstance().setProperty(ENABLED_KEY, false);
+        properties = ConfigCacheJPAImpl.getJpaProperties();
+        Assert.assertEquals("false", properties.get("openjpa.DataCache"));
+        Assert.assertEquals("false", properties.get("openjpa.QueryCache"));
+    }
+
+    /**
+     * Make sure a change to the configuration tables is noticed by the
+     * version check, as it would be for a change made by another node.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testCheckVersion() throws GenieException {
+        Assert.assertTrue(this.configCache.isEnabled());
+        Assert.assertFalse(this.configCache.checkVersion());
+        Assert.assertFalse(this.configCache.checkVersion());
+        Assert.assertEquals(0, this.configCache.getNumInvalidations());
+
+        final Set<String> tags = new HashSet<>();
+        tags.add("newTag");
+        this.clusterService.addTagsForCluster(CLUSTER_1_ID, tags);
+
+        Assert.assertTrue(this.configCache.checkVersion());
+        Assert.assertEquals(1, this.configCache.getNumInvalidations());
+        Mockito.verify(this.storeCache, Mockito.times(1)).evictAll(Cluster.class);
+        Mockito.verify(this.storeCache, Mockito.times(1)).evictAll(Command.class);
+        Mockito.verify(this.storeCache, Mockito.times(1)).evictAll(Application.class);
+        Mockito.verify(this.queryCache, Mockito.times(1)).evictAll();
+        Assert.assertFalse(this.configCache.checkVersion());
+    }
+
+    /**
+     * Make sure the listeners are told about every version check even when
+     * the cache isn't enabled, which then isn't invalidated.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testVersionListener() throws GenieException {
+        ConfigurationManager.getConfigInstance().setProperty(ENABLED_KEY, false);
+        final ConfigCacheJPAImpl disabled = new ConfigCacheJPAImpl(this.transactionManager);
+        ReflectionTestUtils.setField(disabled, "em", this.em);
+        final ConfigVersionListener listener = Mockito.mock(ConfigVersionListener.class);
+        disabled.addVersionListener(listener);
+
+        Assert.assertFalse(disabled.checkVersion());
+        Mockito.verify(listener, Mockito.times(1)).configVersionChecked(false);
+
+        final Set<String> tags = new HashSet<>();
+        tags.add("newTag");
+        this.clusterService.addTagsForCluster(CLUSTER_1_ID, tags);
+
+        Assert.assertTrue(disabled.checkVersion());
+        Mockito.verify(listener, Mockito.times(1)).configVersionChecked(true);
+        Assert.assertEquals(0, disabled.getNumInvalidations());
+    }
+
+    /**
+     * Make sure the cache is invalidated right away outside a transaction.
+     */
+    @Test
+    public void testInvalidate() {
+        this.configCache.invalidate();
+        Assert.assertEquals(1, this.configCache.getNumInvalidations());
+        Mockito.verify(this.storeCache, Mockito.times(1)).evictAll(Cluster.class);
+        Mockito.verify(this.queryCache, Mockito.times(1)).evictAll();
+    }
+
+    /**
+     * Make sure the cache is invalidated once when the transaction commits
+     * however many changes it made, and not at all if it rolls back.
+     */
+    @Test
+    public void testInvalidateInTransaction() {
+        final TransactionTemplate template = new TransactionTemplate(this.transactionManager);
+        template.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                configCache.invalidate();
+                configCache.invalidate();
+                Assert.assertEquals(0, configCache.getNumInvalidations());
+            }
+        });
+        Assert.assertEquals(1, this.configCache.getNumInvalidations());
+
+        template.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                configCache.invalidate();
+                status.setRollbackOnly();
+            }
+        });
+        Assert.assertEquals(1, this.configCache.getNumInvalidations());
+        Mockito.verify(this.queryCache, Mockito.times(1)).evictAll();
+    }
+
+    /**
+     * Make sure nothing happens when the cache isn't enabled.
+     */
+    @Test
+    public void testDisabled() {
+        ConfigurationManager.getConfigInstance().setProperty(ENABLED_KEY, false);
+        final ConfigCacheJPAImpl disabled = new ConfigCacheJPAImpl(this.transactionManager);
+        Assert.assertFalse(disabled.isEnabled());
+        Assert.assertFalse(disabled.checkVersion());
+        disabled.invalidate();
+        Assert.assertEquals(0, disabled.getNumInvalidations());
+        Assert.assertEquals(0, disabled.getNumHits());
+        Assert.assertEquals(0, disabled.getNumMisses());
+    }
+}
@@ -18,14 +18,24 @@
 package com.netflix.genie.server.services.impl.jpa;
 
 import com.github.springtestdbunit.annotation.DatabaseSetup;
+import com.netflix.config.ConfigurationManager;
 import com.netflix.genie.common.exceptions.GenieConflictException;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieRequestTooLargeException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.model.ClusterCriteria;
 import com.netflix.genie.common.model.Job;
 import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.common.model.JobSubmissionResult;
 import com.netflix.genie.server.services.ExecutionService;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
 import java.util.UUID;
 import javax.inject.Inject;
 import org.junit.Assert;
@@ -47,6 +57,9 @@ public class TestExecutionServiceJPAImpl extends DBUnitTestBase {
 //    private static final String JOB_5_ID = "job5";
     private static final String JOB_6_ID = "job6";
 
+    private static final String REPLAY_WINDOW_KEY = "com.netflix.genie.server.job.submission.cache.expire.ms";
+    private static final String BATCH_MAX_SIZE_KEY = "com.netflix.genie.server.job.batch.max.size";
+
     @Inject
     private ExecutionService xs;
 
@@ -72,6 +85,94 @@ public class TestExecutionServiceJPAImpl extends DBUnitTestBase {
         this.xs.submitJob(job);
     }
 
+    /**
+     * Test resubmitting a job which already exists returns the original job.
+     *
+     * @throws GenieException
+     */
+    @Test
+    public void testSubmitJobReplay() throws GenieException {
+        // the test data was created long ago
+        ConfigurationManager.getConfigInstance().setProperty(REPLAY_WINDOW_KEY, Long.MAX_VALUE);
+        try {
+            final Job replayed = this.xs.submitJob(this.createJob1Replay(), null, null, false);
+            Assert.assertEquals(JOB_1_ID, replayed.getId());
+            Assert.assertEquals(JobStatus.SUCCEEDED, replayed.getStatus());
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty(REPLAY_WINDOW_KEY);
+        }
+    }
+
+    /**
+     * Test resubmitting the id of an existing job for a different job is a conflict.
+     *
+     * @throws GenieException
+     */
+    @Test(expected = GenieConflictException.class)
+    public void testSubmitJobReplayDifferentRequest() throws GenieException {
+        ConfigurationManager.getConfigInstance().setProperty(REPLAY_WINDOW_KEY, Long.MAX_VALUE);
+        try {
+            final Job job = this.createJob1Replay();
+            job.setCommandArgs("-f other.pig");
+            this.xs.submitJob(job, null, null, false);
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty(REPLAY_WINDOW_KEY);
+        }
+    }
+
+    /**
+     * Test resubmitting a job after the replay window is a conflict.
+     *
+     * @throws GenieException
+     */
+    @Test(expected = GenieConflictException.class)
+    public void testSubmitJobReplayTooLate() throws GenieException {
+        // a fresh key so an earlier replay in the submission cache isn't returned
+        this.xs.submitJob(this.createJob1Replay(), null, UUID.randomUUID().toString(), false);
+    }
+
+    /**
+     * Test submitting an empty batch.
+     *
+     * @throws GenieException
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testSubmitJobsNoJobs() throws GenieException {
+        this.xs.submitJobs(new ArrayList<Job>());
+    }
+
+    /**
+     * Test submitting a batch with more jobs than allowed.
+     *
+     * @throws GenieException
+     */
+    @Test(expected = GenieRequestTooLargeException.class)
+    public void testSubmitJobsTooManyJobs() throws GenieException {
+        ConfigurationManager.getConfigInstance().setProperty(BATCH_MAX_SIZE_KEY, 1);
+        try {
+            this.xs.submitJobs(Arrays.asList(new Job(), new Job()));
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty(BATCH_MAX_SIZE_KEY);
+        }
+    }
+
+    /**
+     * Test that invalid jobs in a batch get their own results.
+     *
+     * @throws GenieException
+     */
+    @Test
+    public void testSubmitJobsInvalidJobs() throws GenieException {
+        final Job existing = new Job();
+        existing.setId(JOB_1_ID);
+        final List<JobSubmissionResult> results = this.xs.submitJobs(Arrays.asList(existing, null));
+        Assert.assertEquals(2, results.size());
+        Assert.assertEquals(HttpURLConnection.HTTP_CONFLICT, results.get(0).getStatusCode());
+        Assert.assertNull(results.get(0).getJob());
+        Assert.assertEquals(HttpURLConnection.HTTP_PRECON_FAILED, results.get(1).getStatusCode());
+        Assert.assertNull(results.get(1).getJob());
+    }
+
     /**
      * Test to make sure already failed/finished jobs don't get killed again.
      *
@@ -101,12 +202,13 @@ public class TestExecutionServiceJPAImpl extends DBUnitTestBase {
     }
 
     /**
-     * Test whether a job kill returns immediately for a finished job.
+     * Test killing a job initializing on another node is forwarded there,
+     * which fails as the node doesn't exist.
      *
      * @throws GenieException
      */
-    @Test(expected = GeniePreconditionException.class)
-    public void testTryingToKillInitializingJob() throws GenieException {
+    @Test(expected = GenieServerException.class)
+    public void testKillInitializingJobOnOtherNode() throws GenieException {
         this.xs.killJob(JOB_4_ID);
     }
 
@@ -139,4 +241,18 @@ public class TestExecutionServiceJPAImpl extends DBUnitTestBase {
     public void testKillJobNoKillURI() throws GenieException {
         this.xs.killJob(JOB_6_ID);
     }
+
+    private Job createJob1Replay() throws GenieException {
+        final Job job = new Job();
+        job.setId(JOB_1_ID);
+        job.setUser("tgianos");
+        job.setName("one");
+        job.setCommandArgs("-tez");
+        job.setClusterCriterias(Arrays.asList(
+                new ClusterCriteria(new HashSet<>(Arrays.asList("y", "x"))),
+                new ClusterCriteria(new HashSet<>(Arrays.asList("h2query", "adhoc")))
+        ));
+        job.setCommandCriteria(new HashSet<>(Arrays.asList("tag2", "tag1")));
+        return job;
+    }
 }
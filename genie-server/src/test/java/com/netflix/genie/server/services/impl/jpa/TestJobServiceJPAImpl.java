@@ -22,9 +22,14 @@ import com.netflix.genie.common.exceptions.GenieConflictException;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.model.Application;
+import com.netflix.genie.common.model.Cluster;
 import com.netflix.genie.common.model.ClusterCriteria;
+import com.netflix.genie.common.model.Command;
 import com.netflix.genie.common.model.Job;
 import com.netflix.genie.common.model.JobStatus;
+import com.netflix.genie.common.util.ProcessStatus;
 import com.netflix.genie.server.jobmanager.JobManager;
 import com.netflix.genie.server.jobmanager.JobManagerFactory;
 import com.netflix.genie.server.metrics.GenieNodeStatistics;
@@ -32,12 +37,16 @@ import com.netflix.genie.server.repository.jpa.JobRepository;
 import com.netflix.genie.server.services.JobService;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import javax.inject.Inject;
 import org.junit.Assert;
 import org.junit.Test;
@@ -573,6 +582,90 @@ public class TestJobServiceJPAImpl extends DBUnitTestBase {
         Assert.assertEquals(JOB_2_ID, jobs.get(1).getId());
     }
 
+    /**
+     * Test the get jobs method paging with a cursor returns the same jobs as paging with an offset.
+     *
+     * @throws GenieException
+     */
+    @Test
+    public void testGetJobsCursor() throws GenieException {
+        final Set<String> orderBys = new HashSet<>();
+        orderBys.add("name");
+        final List<Job> first = this.service.getJobs(null, null, null, null, null, null, null, 0, 1, true, orderBys);
+        Assert.assertEquals(1, first.size());
+        Assert.assertEquals(JOB_2_ID, first.get(0).getId());
+
+        final String cursor = this.service.getNextCursor(first, 1, true, orderBys);
+        Assert.assertNotNull(cursor);
+        final List<Job> second
+                = this.service.getJobs(null, null, null, null, null, null, null, cursor, 1, true, orderBys);
+        Assert.assertEquals(1, second.size());
+        Assert.assertEquals(JOB_1_ID, second.get(0).getId());
+
+        final String lastCursor = this.service.getNextCursor(second, 1, true, orderBys);
+        Assert.assertTrue(
+                this.service.getJobs(null, null, null, null, null, null, null, lastCursor, 1, true, orderBys).isEmpty()
+        );
+    }
+
+    /**
+     * Make sure no cursor is issued for an order by a field which can be null as the next page couldn't continue
+     * where the offset page ended.
+     *
+     * @throws GenieException
+     */
+    @Test
+    public void testGetNextCursorUnsupportedOrderBy() throws GenieException {
+        final Set<String> orderBys = new HashSet<>();
+        orderBys.add("description");
+        final List<Job> first = this.service.getJobs(null, null, null, null, null, null, null, 0, 1, true, orderBys);
+        Assert.assertEquals(1, first.size());
+        Assert.assertNull(this.service.getNextCursor(first, 1, true, orderBys));
+    }
+
+    /**
+     * Make sure paging with a cursor by a field which can be null is rejected instead of falling back to another
+     * order.
+     *
+     * @throws GenieException
+     */
+    @Test
+    public void testGetJobsCursorUnsupportedOrderBy() throws GenieException {
+        final List<Job> first = this.service.getJobs(null, null, null, null, null, null, null, 0, 1, true, null);
+        final String cursor = this.service.getNextCursor(first, 1, true, null);
+        Assert.assertNotNull(cursor);
+        final Set<String> orderBys = new HashSet<>();
+        orderBys.add("description");
+        try {
+            this.service.getJobs(null, null, null, null, null, null, null, cursor, 1, true, orderBys);
+            Assert.fail("Expected the order by to be rejected");
+        } catch (final GeniePreconditionException gpe) {
+            Assert.assertEquals(HttpURLConnection.HTTP_PRECON_FAILED, gpe.getErrorCode());
+        }
+    }
+
+    /**
+     * Test the get jobs method with an invalid cursor.
+     *
+     * @throws GenieException
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testGetJobsInvalidCursor() throws GenieException {
+        this.service.getJobs(null, null, null, null, null, null, null, "notACursor", 10, true, null);
+    }
+
+    /**
+     * Test the get jobs method with a cursor created for the other order.
+     *
+     * @throws GenieException
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testGetJobsCursorOtherOrder() throws GenieException {
+        final List<Job> first = this.service.getJobs(null, null, null, null, null, null, null, 0, 1, true, null);
+        final String cursor = this.service.getNextCursor(first, 1, true, null);
+        this.service.getJobs(null, null, null, null, null, null, null, cursor, 1, false, null);
+    }
+
     /**
      * Test add tags to job.
      *
@@ -843,6 +936,36 @@ public class TestJobServiceJPAImpl extends DBUnitTestBase {
         this.service.setUpdateTime(UUID.randomUUID().toString());
     }
 
+    /**
+     * Test touching many jobs at once only updates the running ones.
+     *
+     * @throws GenieException
+     */
+    @Test
+    public void testSetUpdateTimes() throws GenieException {
+        this.service.setJobStatus(JOB_1_ID, JobStatus.RUNNING, "Job is running");
+        final long job2Updated = this.service.getJob(JOB_2_ID).getUpdated().getTime();
+        final long before = System.currentTimeMillis();
+        Assert.assertEquals(
+                1,
+                this.service.setUpdateTimes(Arrays.asList(JOB_1_ID, JOB_2_ID, UUID.randomUUID().toString()))
+        );
+        Assert.assertTrue(this.service.getJob(JOB_1_ID).getUpdated().getTime() >= before);
+        Assert.assertEquals(JobStatus.RUNNING, this.service.getJobStatus(JOB_1_ID));
+        Assert.assertEquals(job2Updated, this.service.getJob(JOB_2_ID).getUpdated().getTime());
+        Assert.assertEquals(JobStatus.FAILED, this.service.getJobStatus(JOB_2_ID));
+    }
+
+    /**
+     * Test touching many jobs requires the ids.
+     *
+     * @throws GenieException
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testSetUpdateTimesNoIds() throws GenieException {
+        this.service.setUpdateTimes(null);
+    }
+
     /**
      * Test setting the job status.
      *
@@ -942,108 +1065,92 @@ public class TestJobServiceJPAImpl extends DBUnitTestBase {
     }
 
     /**
-     * Test setting the command info.
+     * Test setting the setup times.
      *
      * @throws GenieException
      */
     @Test
-    public void testSetCommandInfoForJob() throws GenieException {
-        final String id = UUID.randomUUID().toString();
-        final String name = UUID.randomUUID().toString();
-        this.service.setCommandInfoForJob(JOB_1_ID, id, name);
-        final Job job = this.service.getJob(JOB_1_ID);
-        Assert.assertEquals(id, job.getCommandId());
-        Assert.assertEquals(name, job.getCommandName());
+    public void testSetSetupTimesForJob() throws GenieException {
+        Assert.assertNull(this.service.getJob(JOB_1_ID).getSetupTimes());
+        final Map<String, Long> setupTimes = new LinkedHashMap<>();
+        setupTimes.put("application", 120L);
+        setupTimes.put("place", 3L);
+        this.service.setSetupTimesForJob(JOB_1_ID, setupTimes);
+        Assert.assertEquals("application=120,place=3", this.service.getJob(JOB_1_ID).getSetupTimes());
     }
 
     /**
-     * Test setting the command info.
+     * Test setting the setup times.
      *
      * @throws GenieException
      */
     @Test(expected = GeniePreconditionException.class)
-    public void testSetCommandInfoForJobNoId() throws GenieException {
-        this.service.setCommandInfoForJob(null, null, null);
+    public void testSetSetupTimesForJobNoTimes() throws GenieException {
+        this.service.setSetupTimesForJob(JOB_1_ID, null);
     }
 
     /**
-     * Test setting the command info.
+     * Test setting the setup times.
      *
      * @throws GenieException
      */
     @Test(expected = GenieNotFoundException.class)
-    public void testSetCommandInfoForJobNoJob() throws GenieException {
-        this.service.setCommandInfoForJob(UUID.randomUUID().toString(), null, null);
+    public void testSetSetupTimesForJobNoJob() throws GenieException {
+        this.service.setSetupTimesForJob(UUID.randomUUID().toString(), new LinkedHashMap<String, Long>());
     }
 
     /**
-     * Test setting the application info.
+     * Test setting the cluster, command and application info in one update.
      *
      * @throws GenieException
      */
     @Test
-    public void testSetApplicationInfoForJob() throws GenieException {
-        final String id = UUID.randomUUID().toString();
-        final String name = UUID.randomUUID().toString();
-        this.service.setApplicationInfoForJob(JOB_1_ID, id, name);
-        final Job job = this.service.getJob(JOB_1_ID);
-        Assert.assertEquals(id, job.getApplicationId());
-        Assert.assertEquals(name, job.getApplicationName());
-    }
-
-    /**
-     * Test setting the application info.
-     *
-     * @throws GenieException
-     */
-    @Test(expected = GeniePreconditionException.class)
-    public void testSetApplicationInfoForJobNoId() throws GenieException {
-        this.service.setApplicationInfoForJob(null, null, null);
-    }
-
-    /**
-     * Test setting the application info.
-     *
-     * @throws GenieException
-     */
-    @Test(expected = GenieNotFoundException.class)
-    public void testSetApplicationInfoForJobNoJob() throws GenieException {
-        this.service.setApplicationInfoForJob(UUID.randomUUID().toString(), null, null);
-    }
+    public void testSetExecutionInfoForJob() throws GenieException {
+        final Cluster cluster = Mockito.mock(Cluster.class);
+        Mockito.when(cluster.getId()).thenReturn(UUID.randomUUID().toString());
+        Mockito.when(cluster.getName()).thenReturn(UUID.randomUUID().toString());
+        final Command command = Mockito.mock(Command.class);
+        Mockito.when(command.getId()).thenReturn(UUID.randomUUID().toString());
+        Mockito.when(command.getName()).thenReturn(UUID.randomUUID().toString());
+        final Application application = Mockito.mock(Application.class);
+        Mockito.when(application.getId()).thenReturn(UUID.randomUUID().toString());
+        Mockito.when(application.getName()).thenReturn(UUID.randomUUID().toString());
+
+        final Job updated = this.service.setExecutionInfoForJob(JOB_1_ID, cluster, command, application);
+        Assert.assertEquals(cluster.getId(), updated.getExecutionClusterId());
 
-    /**
-     * Test setting the cluster info.
-     *
-     * @throws GenieException
-     */
-    @Test
-    public void testSetClusterInfoForJob() throws GenieException {
-        final String id = UUID.randomUUID().toString();
-        final String name = UUID.randomUUID().toString();
-        this.service.setClusterInfoForJob(JOB_1_ID, id, name);
         final Job job = this.service.getJob(JOB_1_ID);
-        Assert.assertEquals(id, job.getExecutionClusterId());
-        Assert.assertEquals(name, job.getExecutionClusterName());
+        Assert.assertEquals(cluster.getId(), job.getExecutionClusterId());
+        Assert.assertEquals(cluster.getName(), job.getExecutionClusterName());
+        Assert.assertEquals(command.getId(), job.getCommandId());
+        Assert.assertEquals(command.getName(), job.getCommandName());
+        Assert.assertEquals(application.getId(), job.getApplicationId());
+        Assert.assertEquals(application.getName(), job.getApplicationName());
     }
 
     /**
-     * Test setting the cluster info.
+     * Test setting the execution info without a cluster.
      *
      * @throws GenieException
      */
     @Test(expected = GeniePreconditionException.class)
-    public void testSetClusterInfoForJobNoId() throws GenieException {
-        this.service.setClusterInfoForJob(null, null, null);
+    public void testSetExecutionInfoForJobNoCluster() throws GenieException {
+        this.service.setExecutionInfoForJob(JOB_1_ID, null, Mockito.mock(Command.class), null);
     }
 
     /**
-     * Test setting the cluster info.
+     * Test setting the execution info for a job that doesn't exist.
      *
      * @throws GenieException
      */
     @Test(expected = GenieNotFoundException.class)
-    public void testSetClusterInfoForJobNoJob() throws GenieException {
-        this.service.setClusterInfoForJob(UUID.randomUUID().toString(), null, null);
+    public void testSetExecutionInfoForJobNoJob() throws GenieException {
+        this.service.setExecutionInfoForJob(
+                UUID.randomUUID().toString(),
+                Mockito.mock(Cluster.class),
+                Mockito.mock(Command.class),
+                null
+        );
     }
 
     /**
@@ -1113,4 +1220,39 @@ public class TestJobServiceJPAImpl extends DBUnitTestBase {
         Mockito.verify(job, Mockito.never()).setUpdated(Mockito.any(Date.class));
         Mockito.verify(stats, Mockito.times(1)).incrGenieFailedJobs();
     }
+
+    /**
+     * Test a job killed while it was being set up is marked killed rather
+     * than failed.
+     *
+     * @throws GenieException
+     */
+    @Test
+    public void testRunJobKilledDuringSetup() throws GenieException {
+        final JobRepository jobRepo = Mockito.mock(JobRepository.class);
+        final GenieNodeStatistics stats = Mockito.mock(GenieNodeStatistics.class);
+        final JobManagerFactory jobManagerFactory = Mockito.mock(JobManagerFactory.class);
+        final JobServiceJPAImpl impl = new JobServiceJPAImpl(jobRepo, stats, jobManagerFactory);
+
+        final Job job = Mockito.mock(Job.class);
+        Mockito.when(job.getId()).thenReturn(JOB_1_ID);
+        Mockito.when(job.getStatus()).thenReturn(JobStatus.INIT);
+        Mockito.when(jobRepo.findOne(JOB_1_ID)).thenReturn(job);
+
+        final JobManager manager = Mockito.mock(JobManager.class);
+        Mockito.when(jobManagerFactory.getJobManager(job)).thenReturn(manager);
+        Mockito.doThrow(
+                new GenieServerException("Set up cancelled", new CancellationException("Job job1 was killed"))
+        ).when(manager).launch();
+
+        try {
+            impl.runJob(job);
+            Assert.fail();
+        } catch (final GenieServerException gse) {
+            Mockito.verify(job, Mockito.times(1)).setJobStatus(Mockito.eq(JobStatus.KILLED), Mockito.anyString());
+            Mockito.verify(job, Mockito.times(1)).setExitCode(ProcessStatus.JOB_KILLED.getExitCode());
+            Mockito.verify(stats, Mockito.times(1)).incrGenieKilledJobs();
+            Mockito.verify(stats, Mockito.never()).incrGenieFailedJobs();
+        }
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl.jpa;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for the RoutingSnapshot class.
+ *
+ * @author agent
+ */
+public class TestRoutingSnapshot {
+
+    private RoutingSnapshot snapshot;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        final Map<String, RoutingSnapshot.ClusterEntry> clusters = new HashMap<>();
+        clusters.put("cluster1", cluster("cluster1", true, tags("prod", "adhoc"),
+                command("pig13", true, tags("pig", "tez")),
+                command("hive11", true, tags("hive", "prod")),
+                command("hive12", true, tags("hive", "prod", "tez"))));
+        clusters.put("cluster2", cluster("cluster2", true, tags("test", "adhoc"),
+                command("pig13", true, tags("pig", "tez")),
+                command("hive11", false, tags("hive", "prod"))));
+        clusters.put("cluster3", cluster("cluster3", false, tags("prod", "adhoc"),
+                command("pig13", true, tags("pig", "tez"))));
+        clusters.put("cluster4", cluster("cluster4", true, tags("prod"),
+                command("hive11", false, tags("hive", "prod"))));
+        this.snapshot = new RoutingSnapshot(clusters);
+    }
+
+    /**
+     * Make sure only UP clusters with an ACTIVE command can be routed to.
+     */
+    @Test
+    public void testRoutableClusters() {
+        Assert.assertEquals(2, this.snapshot.getNumRoutableClusters());
+        Assert.assertEquals(Arrays.asList("cluster1", "cluster2"), this.snapshot.findClusterIds(null, null));
+        Assert.assertNull(this.snapshot.findCommandId("cluster3", null));
+        Assert.assertNull(this.snapshot.findCommandId("cluster4", null));
+        Assert.assertNull(this.snapshot.findCommandId("cluster5", null));
+    }
+
+    /**
+     * Make sure clusters are found by their tags and those of their ACTIVE commands.
+     */
+    @Test
+    public void testFindClusterIds() {
+        Assert.assertEquals(Arrays.asList("cluster1"), this.snapshot.findClusterIds(tags("prod"), null));
+        Assert.assertEquals(
+                Arrays.asList("cluster1", "cluster2"),
+                this.snapshot.findClusterIds(tags("adhoc"), tags("pig"))
+        );
+        // the hive command of cluster2 isn't active
+        Assert.assertEquals(Arrays.asList("cluster1"), this.snapshot.findClusterIds(tags("adhoc"), tags("hive")));
+        Assert.assertTrue(this.snapshot.findClusterIds(tags("adhoc", "missing"), tags("pig")).isEmpty());
+        Assert.assertTrue(this.snapshot.findClusterIds(tags("test"), tags("hive")).isEmpty());
+    }
+
+    /**
+     * Make sure all the command tags have to be on the same command.
+     */
+    @Test
+    public void testCommandTagsOnOneCommand() {
+        Assert.assertEquals(Arrays.asList("cluster1"), this.snapshot.findClusterIds(null, tags("hive", "tez")));
+        Assert.assertEquals("hive12", this.snapshot.findCommandId("cluster1", tags("hive", "tez")));
+        Assert.assertTrue(this.snapshot.findClusterIds(null, tags("pig", "prod")).isEmpty());
+        Assert.assertNull(this.snapshot.findCommandId("cluster1", tags("pig", "prod")));
+    }
+
+    /**
+     * Make sure the first matching command of the cluster is found.
+     */
+    @Test
+    public void testFindCommandId() {
+        Assert.assertEquals("pig13", this.snapshot.findCommandId("cluster1", null));
+        Assert.assertEquals("hive11", this.snapshot.findCommandId("cluster1", tags("hive")));
+        Assert.assertEquals("pig13", this.snapshot.findCommandId("cluster2", tags("tez")));
+        Assert.assertNull(this.snapshot.findCommandId("cluster2", tags("hive")));
+    }
+
+    /**
+     * Make sure an update replaces and removes clusters without changing the original.
+     */
+    @Test
+    public void testUpdate() {
+        Assert.assertEquals(
+                new HashSet<>(Arrays.asList("cluster1", "cluster2", "cluster4")),
+                this.snapshot.getClusterIdsWithCommand("hive11")
+        );
+
+        final Map<String, RoutingSnapshot.ClusterEntry> changed = new HashMap<>();
+        changed.put("cluster1", null);
+        changed.put("cluster4", cluster("cluster4", true, tags("prod"), command("hive11", true, tags("hive"))));
+        final RoutingSnapshot updated = this.snapshot.update(changed);
+
+        // cluster4 takes the position freed by cluster1
+        Assert.assertEquals(Arrays.asList("cluster4", "cluster2"), updated.findClusterIds(null, null));
+        Assert.assertEquals(Arrays.asList("cluster4"), updated.findClusterIds(tags("prod"), tags("hive")));
+        Assert.assertNull(updated.findCommandId("cluster1", null));
+        Assert.assertEquals(Arrays.asList("cluster1"), this.snapshot.findClusterIds(tags("prod"), tags("hive")));
+        Assert.assertEquals(Arrays.asList("cluster1", "cluster2"), this.snapshot.findClusterIds(null, null));
+        Assert.assertEquals(Arrays.asList("cluster1"), this.snapshot.findClusterIds(tags("prod"), null));
+    }
+
+    private static RoutingSnapshot.ClusterEntry cluster(
+            final String id,
+            final boolean up,
+            final Set<String> tags,
+            final RoutingSnapshot.CommandEntry... commands) {
+        final List<RoutingSnapshot.CommandEntry> commandList = new ArrayList<>(Arrays.asList(commands));
+        return new RoutingSnapshot.ClusterEntry(id, up, tags, commandList);
+    }
+
+    private static RoutingSnapshot.CommandEntry command(final String id, final boolean active, final Set<String> tags) {
+        return new RoutingSnapshot.CommandEntry(id, active, tags);
+    }
+
+    private static Set<String> tags(final String... tags) {
+        return new HashSet<>(Arrays.asList(tags));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.services.impl.jpa;
+
+import com.github.springtestdbunit.annotation.DatabaseSetup;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.genie.common.model.Cluster;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Tests for the TagStatisticsJPAImpl class.
+ *
+ * @author agent
+ */
+@DatabaseSetup("cluster/init.xml")
+public class TestTagStatisticsJPAImpl extends DBUnitTestBase {
+
+    private static final String ENABLED_KEY = "com.netflix.genie.server.tags.statistics.enabled";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Clean up after the tests.
+     */
+    @After
+    public void tearDown() {
+        ConfigurationManager.getConfigInstance().clearProperty(ENABLED_KEY);
+    }
+
+    /**
+     * Make sure the tags are counted in the background and the rarest tag
+     * comes first once they are.
+     */
+    @Test
+    public void testOrderBySelectivity() {
+        final TagStatisticsJPAImpl statistics = this.createStatistics(true);
+        Assert.assertEquals(
+                Arrays.asList("hive", "prod"),
+                new ArrayList<>(statistics.orderBySelectivity(Cluster.class, tags("prod", "hive")))
+        );
+        Assert.assertEquals(0, statistics.getNumQueries());
+        statistics.refresh();
+        Assert.assertEquals(1, statistics.getNumQueries());
+        Assert.assertEquals(
+                Arrays.asList("prod", "hive"),
+                new ArrayList<>(statistics.orderBySelectivity(Cluster.class, tags("hive", "prod")))
+        );
+
+        // one tag without a count falls back to the default order until it is counted
+        Assert.assertEquals(
+                Arrays.asList("missing", "hive", "prod"),
+                new ArrayList<>(statistics.orderBySelectivity(Cluster.class, tags("prod", "missing", "hive")))
+        );
+        statistics.refresh();
+        Assert.assertEquals(2, statistics.getNumQueries());
+        Assert.assertEquals(
+                Arrays.asList("missing", "prod", "hive"),
+                new ArrayList<>(statistics.orderBySelectivity(Cluster.class, tags("hive", "prod", "missing")))
+        );
+        statistics.refresh();
+        Assert.assertEquals(2, statistics.getNumQueries());
+    }
+
+    /**
+     * Make sure longer tags come first when the statistics are disabled.
+     */
+    @Test
+    public void testOrderBySelectivityDisabled() {
+        final TagStatisticsJPAImpl statistics = this.createStatistics(false);
+        Assert.assertEquals(
+                Arrays.asList("query", "prod", "pig"),
+                new ArrayList<>(statistics.orderBySelectivity(Cluster.class, tags("pig", " ", "prod", "query")))
+        );
+        Assert.assertEquals(0, statistics.getNumQueries());
+    }
+
+    /**
+     * Make sure no tags stay no tags.
+     */
+    @Test
+    public void testOrderBySelectivityNoTags() {
+        final TagStatisticsJPAImpl statistics = this.createStatistics(true);
+        Assert.assertNull(statistics.orderBySelectivity(Cluster.class, null));
+        Assert.assertTrue(statistics.orderBySelectivity(Cluster.class, new LinkedHashSet<String>()).isEmpty());
+        Assert.assertEquals(0, statistics.getNumQueries());
+    }
+
+    private TagStatisticsJPAImpl createStatistics(final boolean enabled) {
+        ConfigurationManager.getConfigInstance().setProperty(ENABLED_KEY, enabled);
+        final TagStatisticsJPAImpl statistics = new TagStatisticsJPAImpl(this.transactionManager);
+        ReflectionTestUtils.setField(statistics, "em", this.em);
+        return statistics;
+    }
+
+    private static Set<String> tags(final String... tags) {
+        return new LinkedHashSet<>(Arrays.asList(tags));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *
+ *  Copyright 2015 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.server.util;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.model.Job;
+import com.netflix.genie.common.model.JobStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for CursorUtil.
+ *
+ * @author agent
+ */
+public class TestCursorUtil {
+
+    private static final String JOB_ID = "job1";
+    private static final String JOB_NAME = "testJob";
+
+    /**
+     * Make sure no cursor is created for the last page.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testCreateNextCursorLastPage() throws GenieException {
+        Assert.assertNull(CursorUtil.createNextCursor(null, 10, true, null));
+        Assert.assertNull(CursorUtil.createNextCursor(new ArrayList<Job>(), 10, true, null));
+        final List<Job> jobs = new ArrayList<>();
+        jobs.add(this.createJob());
+        Assert.assertNull(CursorUtil.createNextCursor(jobs, 10, true, null));
+    }
+
+    /**
+     * Make sure the values of the last entity of the page can be read back from the cursor.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void testCreateAndReadCursor() throws GenieException {
+        final Job job = this.createJob();
+        final List<Job> jobs = new ArrayList<>();
+        jobs.add(job);
+        final Set<String> orderBys = new HashSet<>();
+        orderBys.add("name");
+        orderBys.add("status");
+        orderBys.add("tags");
+
+        final String cursor = CursorUtil.createNextCursor(jobs, 1, false, orderBys);
+        Assert.assertNotNull(cursor);
+        Assert.assertTrue(cursor.matches("[A-Za-z0-9_\\-]+"));
+
+        final Map<String, Object> values = CursorUtil.getCursorValues(cursor, false);
+        Assert.assertEquals(JOB_ID, values.get("id"));
+        Assert.assertEquals(JOB_NAME, values.get("name"));
+        Assert.assertEquals(JobStatus.RUNNING.name(), values.get("status"));
+        Assert.assertEquals(job.getUpdated().getTime(), values.get("updated"));
+        Assert.assertFalse(values.containsKey("tags"));
+    }
+
+    /**
+     * Make sure a cursor can't be used for the other order.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testGetCursorValuesOtherOrder() throws GenieException {
+        final List<Job> jobs = new ArrayList<>();
+        jobs.add(this.createJob());
+        final String cursor = CursorUtil.createNextCursor(jobs, 1, true, null);
+        CursorUtil.getCursorValues(cursor, false);
+    }
+
+    /**
+     * Make sure an invalid cursor is rejected.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testGetCursorValuesInvalid() throws GenieException {
+        CursorUtil.getCursorValues("notACursor", true);
+    }
+
+    /**
+     * Make sure a cursor which isn't a cursor object is rejected.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void testGetCursorValuesNotAnObject() throws GenieException {
+        CursorUtil.getCursorValues("WzEsMl0", true);
+    }
+
+    private Job createJob() {
+        final Job job = new Job();
+        job.setId(JOB_ID);
+        job.setName(JOB_NAME);
+        job.setStatus(JobStatus.RUNNING);
+        job.setUpdated(new Date(12345L));
+        return job;
+    }
+}
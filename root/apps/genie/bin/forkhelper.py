@@ -0,0 +1,181 @@
+#!/usr/bin/env python2.7
+
+##
+#
+# Copyright 2015 Netflix, Inc.
+#
+#     Licensed under the Apache License, Version 2.0 (the "License");
+#     you may not use this file except in compliance with the License.
+#     You may obtain a copy of the License at
+#
+#         http://www.apache.org/licenses/LICENSE-2.0
+#
+#     Unless required by applicable law or agreed to in writing, software
+#     distributed under the License is distributed on an "AS IS" BASIS,
+#     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+#     See the License for the specific language governing permissions and
+#     limitations under the License.
+#
+##
+
+#
+# Long lived helper which starts job processes on behalf of Genie, so the
+# large server JVM doesn't have to fork itself for every job launch and kill.
+#
+# Genie writes one JSON request per line to the standard input of the helper
+# and reads one JSON message per line from its standard output:
+#
+#   {"op": "launch", "id": 1, "command": [...], "dir": "...", "env": {...}, "stdout": "...", "stderr": "..."}
+#       -> {"event": "started", "id": 1, "pid": 1234} or {"event": "error", "id": 1, "message": "..."}
+#   {"op": "signal", "id": 2, "signal": "TERM", "pids": [1234, 1235]}
+#       -> {"event": "signalled", "id": 2, "ok": true}
+#
+# and, whenever a launched process exits,
+#
+#       -> {"event": "exited", "pid": 1234, "code": 0}
+#
+# The started message of a process is always written before its exited
+# message. The helper exits when its standard input is closed. Processes it
+# launched keep running.
+#
+
+import errno
+import fcntl
+import json
+import os
+import signal
+import sys
+import threading
+
+# guards the standard output so messages are never interleaved
+outputLock = threading.RLock()
+
+# the number of launched processes which haven't been reaped yet
+children = [0]
+childrenCondition = threading.Condition()
+
+
+def send(message):
+    with outputLock:
+        sys.stdout.write(json.dumps(message) + '\n')
+        sys.stdout.flush()
+
+
+def openFds():
+    try:
+        return [int(fd) for fd in os.listdir('/proc/self/fd')]
+    except OSError:
+        return range(3, 1024)
+
+
+def execChild(request, errorFd):
+    # only called in the forked child, never returns
+    try:
+        signal.signal(signal.SIGPIPE, signal.SIG_DFL)
+        if request.get('dir'):
+            os.chdir(request['dir'])
+        stdin = os.open(os.devnull, os.O_RDONLY)
+        stdout = os.open(request.get('stdout') or os.devnull, os.O_WRONLY | os.O_CREAT | os.O_APPEND, 0o644)
+        stderr = os.open(request.get('stderr') or os.devnull, os.O_WRONLY | os.O_CREAT | os.O_APPEND, 0o644)
+        os.dup2(stdin, 0)
+        os.dup2(stdout, 1)
+        os.dup2(stderr, 2)
+        for fd in openFds():
+            if fd > 2 and fd != errorFd:
+                try:
+                    os.close(fd)
+                except OSError:
+                    pass
+        command = request['command']
+        os.execvpe(command[0], command, request.get('env') or os.environ)
+    except BaseException as e:
+        try:
+            os.write(errorFd, str(e).encode('utf-8'))
+        finally:
+            os._exit(127)
+
+
+def launch(request):
+    # the write end is closed by a successful exec so an empty read means the process started
+    errorRead, errorWrite = os.pipe()
+    fcntl.fcntl(errorWrite, fcntl.F_SETFD, fcntl.fcntl(errorWrite, fcntl.F_GETFD) | fcntl.FD_CLOEXEC)
+    # hold the output lock until the started message is written so the exit can't be reported first
+    with outputLock:
+        pid = os.fork()
+        if pid == 0:
+            os.close(errorRead)
+            execChild(request, errorWrite)
+        os.close(errorWrite)
+        with childrenCondition:
+            children[0] += 1
+            childrenCondition.notify()
+        error = b''
+        while True:
+            chunk = os.read(errorRead, 4096)
+            if not chunk:
+                break
+            error += chunk
+        os.close(errorRead)
+        if error:
+            send({'event': 'error', 'id': request['id'], 'message': error.decode('utf-8', 'replace')})
+        else:
+            send({'event': 'started', 'id': request['id'], 'pid': pid})
+
+
+def signalProcesses(request):
+    ok = True
+    name = request['signal']
+    signum = 0 if name == '0' else getattr(signal, 'SIG' + name)
+    for pid in request['pids']:
+        try:
+            os.kill(pid, signum)
+        except OSError:
+            ok = False
+    send({'event': 'signalled', 'id': request['id'], 'ok': ok})
+
+
+def reap():
+    while True:
+        with childrenCondition:
+            while children[0] == 0:
+                childrenCondition.wait()
+        try:
+            pid, status = os.waitpid(-1, 0)
+        except OSError as e:
+            if e.errno == errno.ECHILD:
+                with childrenCondition:
+                    children[0] = 0
+            continue
+        with childrenCondition:
+            children[0] -= 1
+        if os.WIFSIGNALED(status):
+            code = 128 + os.WTERMSIG(status)
+        else:
+            code = os.WEXITSTATUS(status)
+        # a process whose exec failed was already reported as an error
+        with outputLock:
+            send({'event': 'exited', 'pid': pid, 'code': code})
+
+
+def main():
+    reaper = threading.Thread(target=reap, name='reaper')
+    reaper.daemon = True
+    reaper.start()
+    while True:
+        line = sys.stdin.readline()
+        if not line:
+            break
+        request = json.loads(line)
+        try:
+            if request['op'] == 'launch':
+                launch(request)
+            elif request['op'] == 'signal':
+                signalProcesses(request)
+            else:
+                send({'event': 'error', 'id': request.get('id'), 'message': 'Unknown op ' + str(request['op'])})
+        except Exception as e:
+            send({'event': 'error', 'id': request.get('id'), 'message': str(e)})
+
+
+if __name__ == '__main__':
+    main()
@@ -18,14 +18,14 @@
 #
 ##
 
-trap "{ archiveToS3; echo 'Job killed'; touch genie.done; exit 211;}" SIGINT SIGTERM
+trap "{ archiveToS3; echo 'Job killed'; echo 211 > genie.done; exit 211;}" SIGINT SIGTERM
 
 function checkError {
     if [ "$?" -ne 0 ]; then
         removeJars
         archiveToS3
         echo "$(date +"%F %T.%3N") Job Failed"
-        touch genie.done
+        echo $1 > genie.done
         exit $1
     fi
 }
@@ -67,39 +67,12 @@ function copyFiles {
     return ${retVal}
 }
 
-function setupCluster {
-    if [ -n "${S3_CLUSTER_CONF_FILES}" ]; then
-        echo "$(date +"%F %T.%3N") Copying cluster Config files ..."
-        copyFiles "${S3_CLUSTER_CONF_FILES}" "file://${CURRENT_JOB_CONF_DIR}"/
-        checkError 206
-        echo "$(date +"%F %T.%3N") Copied cluster config files"
-        echo $'\n'
-    fi
-
-    return 0
-}
-
+# Genie downloads the application, command, cluster and job files before starting
+# the launcher, so only the env files are left to source here
 function setupApplication {
-    if [ -n "${S3_APPLICATION_JAR_FILES}" ]; then
-        echo "$(date +"%F %T.%3N") Copying application jar files ..."
-        copyFiles "${S3_APPLICATION_JAR_FILES}" "file://${CURRENT_JOB_JAR_DIR}"/
-        checkError 209
-        echo "$(date +"%F %T.%3N") Copied application jars files"
-    fi
-
-    if [ -n "${S3_APPLICATION_CONF_FILES}" ]; then
-        echo "$(date +"%F %T.%3N") Copying application Config files ..."
-        copyFiles "${S3_APPLICATION_CONF_FILES}" "file://${CURRENT_JOB_CONF_DIR}"/
-        checkError 208
-        echo "$(date +"%F %T.%3N") Copied application config files"
-        echo $'\n'
-    fi
-
     if [ -n "${APPLICATION_ENV_FILE}" ]
     then
-        echo "$(date +"%F %T.%3N") Copy down and Source Application Env File"
-        copyFiles "${APPLICATION_ENV_FILE}" "file://${CURRENT_JOB_CONF_DIR}"/
-        checkError 205
+        echo "$(date +"%F %T.%3N") Source Application Env File"
         APP_FILENAME=`basename ${APPLICATION_ENV_FILE}`
         echo "$(date +"%F %T.%3N") App Env Filename: ${APP_FILENAME}"
         source "${CURRENT_JOB_CONF_DIR}/${APP_FILENAME}"
@@ -111,19 +84,9 @@ function setupApplication {
 }
 
 function setupCommand {
-    if [ -n "${S3_COMMAND_CONF_FILES}" ]; then
-        echo "$(date +"%F %T.%3N") Copying command Config files ..."
-        copyFiles "${S3_COMMAND_CONF_FILES}" "file://${CURRENT_JOB_CONF_DIR}"/
-        checkError 207
-        echo "$(date +"%F %T.%3N") Copied command config files"
-        echo $'\n'
-    fi
-
     if [ -n "${COMMAND_ENV_FILE}" ]
     then
-        echo "$(date +"%F %T.%3N") Copy down and Source Command Env File"
-        copyFiles "${COMMAND_ENV_FILE}" "file://${CURRENT_JOB_CONF_DIR}"/
-        checkError 205
+        echo "$(date +"%F %T.%3N") Source Command Env File"
         COMMAND_FILENAME=`basename ${COMMAND_ENV_FILE}`
         echo "$(date +"%F %T.%3N") Command Env Filename: ${COMMAND_FILENAME}"
         source "${CURRENT_JOB_CONF_DIR}/${COMMAND_FILENAME}"
@@ -137,9 +100,7 @@ function setupCommand {
 function setupJob {
     if [ -n "${JOB_ENV_FILE}" ]
     then
-        echo "$(date +"%F %T.%3N") Copy down and Source Job File"
-        copyFiles "${JOB_ENV_FILE}" "file://${CURRENT_JOB_CONF_DIR}"/
-        checkError 205
+        echo "$(date +"%F %T.%3N") Source Job File"
         JOB_FILENAME=`basename ${JOB_ENV_FILE}`
         echo "$(date +"%F %T.%3N") Job Env Filename: ${JOB_FILENAME}"
         source "${CURRENT_JOB_CONF_DIR}/${JOB_FILENAME}"
@@ -147,44 +108,9 @@ function setupJob {
         echo "$(date +"%F %T.%3N") Job Name = ${JOBNAME}"
     fi
 
-    echo "$(date +"%F %T.%3N") Copying job dependency files: ${JOB_FILE_DEPENDENCIES}"
-    # only copy file dependencies if they exist
-    if [ "${CURRENT_JOB_FILE_DEPENDENCIES}" != "" ]
-    then
-        copyFiles "${CURRENT_JOB_FILE_DEPENDENCIES}" "file://${CURRENT_JOB_WORKING_DIR}"
-        checkError 210
-        echo "$(date +"%F %T.%3N") Copied job dependency files"
-        echo $'\n'
-    fi
-
-    return 0
-}
-
-function updateCoreSiteXml {
-    # set the following variables
-    # genie.job.id, netflix.environment, lipstick.uuid.prop.name from CORE_SITE_XML_ARGS
-    # set dataoven.gateway.type genie
-    # dataoven.job.id
-    kvarr=$(echo ${CORE_SITE_XML_ARGS} | tr ";" "\n")
-    for item in ${kvarr}
-    do
-        key=$(echo ${item} | awk -F'=' '{print $1}')
-        value=$(echo ${item} | awk -F'=' '{print $2}')
-        appendKeyValueToCoreSite ${key} ${value}
-    done
-    appendKeyValueToCoreSite "genie.version" "2"
     return 0
 }
 
-function appendKeyValueToCoreSite {
-    echo "$(date +"%F %T.%3N") Appending ${1}/${2} to core-site.xml as key/value pair."
-    KEY=$1
-    VALUE=$2
-    SEARCH_PATTERN="</configuration>"
-    REPLACE_PATTERN="<property><name>${KEY}</name><value>${VALUE}</value></property>\n&"
-    sed -i "s|${SEARCH_PATTERN}|${REPLACE_PATTERN}|" ${CURRENT_JOB_CONF_DIR}/core-site.xml
-}
-
 function removeJars {
     echo "$(date +"%F %T.%3N") Removing ${CURRENT_JOB_JAR_DIR}"
     rm -rf ${CURRENT_JOB_JAR_DIR}
@@ -225,38 +151,19 @@ function archiveToS3 {
 }
 
 function executeCommand {
-    # Start Non-Generic Code 
-    # if HADOOP_HOME is set assume Yarn Job and copy remaining
-    # conf files from its conf. 
-    if [ -n "${HADOOP_HOME}" ]; then
-        echo "$(date +"%F %T.%3N") Copying local Hadoop config files..."
-        cp ${HADOOP_HOME}/conf/* ${CURRENT_JOB_CONF_DIR}
-        checkError 203
-        echo "$(date +"%F %T.%3N") Copied local hadoop files from conf directory"
-	echo $'\n'
-    fi
-
-    # End Non-Generic Code
-
     # Setup all necessary parts
     setupApplication
     setupCommand
-    setupCluster
     setupJob
 
-    # If core site xml env variable is set, we add all the variables
-    # we want to add to yarn job execution there. 
-    if [ -n "${CORE_SITE_XML_ARGS}" ]; then
-        echo "$(date +"%F %T.%3N") Updating core-site xml args"
-        updateCoreSiteXml
-        checkError 204
-        echo "$(date +"%F %T.%3N") Updated core-site xml args"
-        echo $'\n'
-    fi
-    
     mkdir tmp
     echo "$(date +"%F %T.%3N") Executing CMD: ${CMD} $@"
-    ${CMD} "$@" 1>${CURRENT_JOB_WORKING_DIR}/stdout.log 2>${CURRENT_JOB_WORKING_DIR}/stderr.log
+    if [ "${GENIE_CAPTURE_OUTPUT}" == "true" ]; then
+        # Genie writes stdout.log and stderr.log itself and enforces their size limits
+        ${CMD} "$@" 1>&3 2>&4 3>&- 4>&-
+    else
+        ${CMD} "$@" 1>${CURRENT_JOB_WORKING_DIR}/stdout.log 2>${CURRENT_JOB_WORKING_DIR}/stderr.log
+    fi
     checkError 213
 }
 
@@ -265,6 +172,9 @@ CMD=$1
 shift
 CMDLINE="$@"
 
+# keep the pipes back to Genie so the command output can be handed to it
+exec 3>&1 4>&2
+
 CMDLOG=${CURRENT_JOB_WORKING_DIR}/cmd.log
 exec > ${CMDLOG} 2>&1
 
@@ -294,9 +204,13 @@ echo "$(date +"%F %T.%3N") User and Group created"
 echo $'\n'
 
 executeCommand "$@"
+
+# the command is done so let Genie see the end of its output
+exec 3>&- 4>&-
 removeJars
 archiveToS3
 
 echo "$(date +"%F %T.%3N") Done"
-touch genie.done
+# the exit code lets Genie finalize the job even if it can't wait for this process
+echo 0 > genie.done
 exit 0